@@ -37,10 +37,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
 
 /**
  * A static utility package containing some useful methods for reading and
- * writing bytes using InputStreams, OutputStreams, and RandomAccessFiles.
+ * writing bytes using InputStreams, OutputStreams, RandomAccessFiles and channels.
  * 
  * @author M\tt Palmer
  */
@@ -147,6 +151,135 @@ public final class IOUtils {
 		return totalRead;
 	}
 
+	/**
+	 * Reads bytes from a {@link java.nio.channels.FileChannel} into the byte
+	 * array, starting from the position provided, until the byte array is
+	 * filled or there are no more bytes in the FileChannel.
+	 * <p>
+	 * Positional reads do not change the position of the channel, so many
+	 * threads can read from the same FileChannel at the same time.
+	 * <p>
+	 * Returns the total number of bytes read into the array.
+	 * 
+	 * @param input
+	 *            The FileChannel to read from.
+	 * @param bytes
+	 *            The byte array to fill.
+	 * @param fromPosition
+	 *            The position to begin reading from in the FileChannel.
+	 * @return int The total number of bytes read.
+	 * @throws IOException
+	 *             If a problem occurs reading from the FileChannel.
+	 */
+	public static int readBytes(final FileChannel input,
+			final byte[] bytes, final long fromPosition) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		final int blockSize = bytes.length;
+		int totalRead = 0;
+		while (totalRead < blockSize) {
+			final int read = input.read(buffer, fromPosition + totalRead);
+			if (read == -1) {
+				break;
+			}
+			totalRead += read;
+		}
+		return totalRead;
+	}
+
+	/**
+	 * Reads bytes from a {@link java.nio.channels.FileChannel} into the byte
+	 * buffers, starting from the position provided, until all the buffers are
+	 * filled or there are no more bytes in the FileChannel. The buffers are
+	 * filled in order using scattering reads, so many buffers can be filled
+	 * with a single call to the operating system.
+	 * <p>
+	 * The position of the channel is changed by this method.
+	 * <p>
+	 * Returns the total number of bytes read into the buffers.
+	 * 
+	 * @param input
+	 *            The FileChannel to read from.
+	 * @param buffers
+	 *            The byte buffers to fill.
+	 * @param fromPosition
+	 *            The position to begin reading from in the FileChannel.
+	 * @return long The total number of bytes read.
+	 * @throws IOException
+	 *             If a problem occurs reading from the FileChannel.
+	 */
+	public static long readBytes(final FileChannel input,
+			final ByteBuffer[] buffers, final long fromPosition) throws IOException {
+		long blockSize = 0;
+		for (final ByteBuffer buffer : buffers) {
+			blockSize += buffer.remaining();
+		}
+		input.position(fromPosition);
+		long totalRead = 0;
+		while (totalRead < blockSize) {
+			final long read = input.read(buffers);
+			if (read == -1) {
+				break;
+			}
+			totalRead += read;
+		}
+		return totalRead;
+	}
+
+	/**
+	 * Reads bytes from a {@link java.nio.channels.SeekableByteChannel} into the
+	 * byte array, starting from the position provided, until the byte array is
+	 * filled or there are no more bytes in the channel.
+	 * <p>
+	 * The position of the channel is changed by this method.
+	 * <p>
+	 * Returns the total number of bytes read into the array.
+	 * 
+	 * @param input
+	 *            The SeekableByteChannel to read from.
+	 * @param bytes
+	 *            The byte array to fill.
+	 * @param fromPosition
+	 *            The position to begin reading from in the channel.
+	 * @return int The total number of bytes read.
+	 * @throws IOException
+	 *             If a problem occurs reading from the channel.
+	 */
+	public static int readBytes(final SeekableByteChannel input,
+			final byte[] bytes, final long fromPosition) throws IOException {
+		input.position(fromPosition);
+		return readBytes(input, bytes);
+	}
+
+	/**
+	 * Reads bytes from a {@link java.nio.channels.ReadableByteChannel} into the
+	 * byte array, until the byte array is filled or there are no more bytes in
+	 * the channel. The channel must be in blocking mode.
+	 * <p>
+	 * Returns the total number of bytes read into the array.
+	 * 
+	 * @param input
+	 *            The ReadableByteChannel to read from.
+	 * @param bytes
+	 *            The byte array to fill.
+	 * @return int The total number of bytes read.
+	 * @throws IOException
+	 *             If a problem occurs reading from the channel.
+	 */
+	public static int readBytes(final ReadableByteChannel input,
+			final byte[] bytes) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		final int blockSize = bytes.length;
+		int totalRead = 0;
+		while (totalRead < blockSize) {
+			final int read = input.read(buffer);
+			if (read == -1) {
+				break;
+			}
+			totalRead += read;
+		}
+		return totalRead;
+	}
+
 	/**
 	 * Writes the contents of an array of bytes into a
 	 * {@link java.io.RandomAccessFile}.
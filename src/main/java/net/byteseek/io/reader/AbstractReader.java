@@ -32,9 +32,22 @@
 package net.byteseek.io.reader;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
 
+import net.byteseek.io.reader.cache.ConcurrentClockCache;
+import net.byteseek.io.reader.cache.MappedTempFileCache;
+import net.byteseek.io.reader.cache.NoCache;
+import net.byteseek.io.reader.cache.SharedWindowCache;
+import net.byteseek.io.reader.cache.SynchronizedCache;
+import net.byteseek.io.reader.cache.TempFileCache;
+import net.byteseek.io.reader.cache.TwoLevelCache;
 import net.byteseek.io.reader.cache.WindowCache;
 
 /**
@@ -44,6 +57,12 @@ import net.byteseek.io.reader.cache.WindowCache;
  * It provides common Window and cache management services using a fixed Window
  * size, and a standard Window iterator
  * {@link net.byteseek.io.reader.AbstractReader.WindowIterator}.
+ * If the window size is a power of two, such as the default size, the offset
+ * of a position in its Window is found by masking the position rather than
+ * dividing it, which makes reading bytes and looking up Windows cheaper.
+ * <p>
+ * An AbstractReader is thread-safe if the {@link WindowCache} it uses and its
+ * implementation of {@link #createWindow(long)} are both thread-safe.
  * 
  * @author Matt Palmer
  */
@@ -72,12 +91,37 @@ public abstract class AbstractReader implements WindowReader, Iterable<Window> {
 	 */
 	protected final static int DEFAULT_CAPACITY = 32;
 
+	/**
+	 * The default number of Windows freed from the cache which are held back before
+	 * their arrays are returned to an array pool, so a Window still being processed
+	 * just after it leaves the cache is not overwritten by a new Window.
+	 */
+	protected final static int DEFAULT_ARRAY_RELEASE_DELAY = 4;
+
+	/**
+	 * The maximum number of consecutive Windows created in a single batch when
+	 * prefetching a range of a reader.
+	 */
+	private static final int MAX_PREFETCH_WINDOWS = 256;
+
 	/**
 	 * The size in bytes of each Window (assuming there are sufficient bytes to
 	 * fill it).
 	 */
 	protected final int windowSize;
 
+	/**
+	 * True if the window size is a power of two, so the offset of a position in its
+	 * Window can be found by masking the position, rather than dividing it.
+	 */
+	private final boolean powerOfTwoWindows;
+
+	/**
+	 * A mask of the bits of a position which give its offset in a Window, if
+	 * the window size is a power of two.
+	 */
+	private final long windowOffsetMask;
+
 	/**
 	 * The Window caching mechanism used by this WindowReader.
 	 */
@@ -89,8 +133,40 @@ public abstract class AbstractReader implements WindowReader, Iterable<Window> {
 	 * to be consecutive or close to the previous byte read from. Recording the
 	 * last window therefore avoids the need to look it up in the cache if the
 	 * required position is still inside the last Window.
+	 * <p>
+	 * It is volatile so that a reader can be shared between threads if its
+	 * cache and window creation are thread-safe.
+	 */
+	private volatile Window lastWindow;
+
+	/**
+	 * The asynchronous read-ahead of Windows for this reader, or null if there is none.
+	 */
+	private volatile ReadAhead readAhead;
+
+	/**
+	 * A lock held while creating Windows when read-ahead is enabled, so Windows
+	 * are never created by more than one thread at the same time.
+	 */
+	final Object readLock = new Object();
+
+	/**
+	 * The observer of the cache which returns the arrays of freed Windows to the
+	 * array pool, or null if there is no pool.  It is only changed under the read lock.
+	 */
+	private volatile ArrayRecycler arrayRecycler;
+
+	/**
+	 * The Windows read and pinned in memory by prefetching, keyed by their positions,
+	 * or null if no Windows are pinned.  The map is replaced rather than modified, under
+	 * the read lock, so it can be read without locking.
 	 */
-	private Window lastWindow;
+	private volatile Map<Long, Window> pinnedWindows;
+
+	/**
+	 * The statistics recorded for this reader, or null if none are recorded.
+	 */
+	private volatile ReaderStatistics statistics;
 
 	/**
 	 * Construct the WindowReader using a default window size, using the WindowCache
@@ -125,6 +201,8 @@ public abstract class AbstractReader implements WindowReader, Iterable<Window> {
 			throw new IllegalArgumentException("Window cache cannot be null.");
 		}
 		this.windowSize = windowSize;
+		this.powerOfTwoWindows = (windowSize & (windowSize - 1)) == 0;
+		this.windowOffsetMask = windowSize - 1;
 		this.cache = cache;
 	}
 
@@ -141,7 +219,7 @@ public abstract class AbstractReader implements WindowReader, Iterable<Window> {
 	@Override
 	public int readByte(final long position) throws IOException {
 		final Window window = getWindow(position);
-		final int offset = (int) position % windowSize;
+		final int offset = getWindowOffset(position);
 		if (window == null || offset >= window.length()) {
 			return NO_BYTE_AT_POSITION;
 		}
@@ -164,23 +242,41 @@ public abstract class AbstractReader implements WindowReader, Iterable<Window> {
 	@Override
 	public Window getWindow(final long position) throws IOException {
 		if (position >= 0) {
-			Window window = null;
-			final int offset = (int) position % windowSize;
+			Window window = lastWindow;
+			final int offset = getWindowOffset(position);
 			final long windowStart = position - offset;
-			if (lastWindow != null
-					&& lastWindow.getWindowPosition() == windowStart) {
-				window = lastWindow;
-			} else {
-				window = cache.getWindow(windowStart);
+			if (window == null || window.getWindowPosition() != windowStart) {
+				final ReadAhead ahead = readAhead;
+				final ReaderStatistics stats = statistics;
+				final Map<Long, Window> pinned = pinnedWindows;
+				window = pinned == null ? null : pinned.get(windowStart);
+				if (window == null) {
+					window = cache.getWindow(windowStart);
+				}
 				if (window != null) {
 					lastWindow = window;
+					if (stats != null) {
+						stats.cacheHit();
+					}
 				} else {
-					window = createWindow(windowStart);
+					final long readStart = stats == null ? 0 : System.nanoTime();
+					window = ahead == null ? createWindow(windowStart)
+							               : ahead.getWindow(windowStart);
+					if (stats != null) {
+						stats.readTimed(System.nanoTime() - readStart);
+						stats.cacheMiss();
+						if (window != null) {
+							stats.windowsCreated(1, window.length());
+						}
+					}
 					if (window != null) {
 						lastWindow = window;
 						cache.addWindow(window);
 					}
 				}
+				if (ahead != null && window != null) {
+					ahead.windowAccessed(windowStart);
+				}
 			}
 			// Finally, if the position requested is outside the window limit,
 			// don't return a window. The position itself is invalid, even
@@ -202,20 +298,360 @@ public abstract class AbstractReader implements WindowReader, Iterable<Window> {
 		return new WindowIterator();
 	}
 
+	/**
+	 * Enables asynchronous read-ahead for this reader.  When Windows are accessed
+	 * in sequence, the following Windows are read on the executor provided, so 
+	 * reading them overlaps with processing the current Window.  When Windows are
+	 * accessed in reverse sequence, batches of earlier Windows are read instead.
+	 * <p>
+	 * While read-ahead is enabled, Windows are only created by one thread at a time,
+	 * so any subclass of AbstractReader can use it.  Windows read in advance are
+	 * added to the cache by the thread which asks for them, so the cache does not
+	 * need to be thread-safe.  Any previous read-ahead is stopped.
+	 * 
+	 * @param executor
+	 *            The executor to read Windows on.  It is not shut down by this reader.
+	 * @param numberOfWindows
+	 *            The number of Windows to read ahead of the current Window.
+	 * @return The ReadAhead, which reports how much read time was hidden.
+	 * @throws IOException
+	 *             If a problem occurred reading Windows for a previous read-ahead.
+	 * @throws IllegalArgumentException
+	 *             if the executor is null or the number of windows is less than one.
+	 */
+	public ReadAhead setReadAhead(final ExecutorService executor, final int numberOfWindows) throws IOException {
+		final ReadAhead ahead = new ReadAhead(this, executor, numberOfWindows);
+		stopReadAhead();
+		readAhead = ahead;
+		return ahead;
+	}
+
+	/**
+	 * Stops any asynchronous read-ahead for this reader.  Windows which have
+	 * already been read in advance are added to the cache.
+	 * 
+	 * @throws IOException
+	 *             If a problem occurred reading Windows in advance.
+	 */
+	public void stopReadAhead() throws IOException {
+		final ReadAhead ahead = readAhead;
+		if (ahead != null) {
+			readAhead = null;
+			ahead.stop();
+		}
+	}
+
+	/**
+	 * Returns the asynchronous read-ahead for this reader, or null if read-ahead
+	 * is not enabled.
+	 * 
+	 * @return The ReadAhead for this reader, or null if there is none.
+	 */
+	public ReadAhead getReadAhead() {
+		return readAhead;
+	}
+
+	/**
+	 * Sets a pool of arrays for this reader to create Windows from, holding back
+	 * the arrays of the last {@link #DEFAULT_ARRAY_RELEASE_DELAY} Windows freed
+	 * from the cache.
+	 * 
+	 * @param pool
+	 *            The pool of arrays to use, or null to stop using a pool.
+	 * @throws IllegalArgumentException
+	 *             if the size of arrays in the pool is not the window size of this reader.
+	 * @throws UnsupportedOperationException
+	 *             if this reader or its cache can be shared between threads, or the 
+	 *             cache frees Windows as soon as they are added.
+	 * @see #setArrayPool(WindowArrayPool, int)
+	 */
+	public void setArrayPool(final WindowArrayPool pool) {
+		setArrayPool(pool, DEFAULT_ARRAY_RELEASE_DELAY);
+	}
+
+	/**
+	 * Sets a pool of arrays for this reader to create Windows from.  The reader
+	 * subscribes to its cache, and returns the arrays of Windows freed from the
+	 * cache to the pool, so reading large sources allocates few new arrays once
+	 * the pool is populated.  Any previous pool is no longer used.
+	 * <p>
+	 * Arrays are returned to the pool once the number of Windows given have been
+	 * freed after them, as a search can still be reading a Window just after it
+	 * leaves the cache.  A Window is only overwritten once the cache and the
+	 * delay no longer hold it, so the cache capacity plus the delay must be more
+	 * than the number of Windows a single match can span.  Only arrays which this
+	 * reader took from the pool are returned to it.  A Window obtained from a reader
+	 * using a pool should not be retained once it may have left the cache.
+	 * <p>
+	 * A pool can only be used by a reader which is used by one thread at a time,
+	 * and which does not share its cache with other readers, as otherwise the array
+	 * of a freed Window could still be in use elsewhere.  It can't be used with a cache
+	 * which frees Windows as soon as they are added, such as a {@link NoCache} or a
+	 * {@link TempFileCache}, as nothing would then hold the Windows being read.
+	 * 
+	 * @param pool
+	 *            The pool of arrays to use, or null to stop using a pool.
+	 * @param releaseDelay
+	 *            The number of Windows freed from the cache before an array is returned to the pool.
+	 * @throws IllegalArgumentException
+	 *             if the size of arrays in the pool is not the window size of this reader,
+	 *             or the release delay is less than one.
+	 * @throws UnsupportedOperationException
+	 *             if this reader or its cache can be shared between threads, or the 
+	 *             cache frees Windows as soon as they are added.
+	 */
+	public void setArrayPool(final WindowArrayPool pool, final int releaseDelay) {
+		if (pool != null) {
+			if (pool.getArraySize() != windowSize) {
+				throw new IllegalArgumentException("The array size of the pool " + pool.getArraySize() + 
+												   " must match the window size " + windowSize);
+			}
+			if (releaseDelay < 1) {
+				throw new IllegalArgumentException("The release delay must be at least one.  It was " + releaseDelay);
+			}
+			if (!canPoolArrays()) {
+				throw new UnsupportedOperationException("An array pool cannot be used by a reader " +
+						"shared between threads, or with a shared cache: " + this);
+			}
+			if (freesWindowsWhenAdded(cache)) {
+				throw new UnsupportedOperationException("An array pool cannot be used with a cache " + 
+						"which frees Windows as soon as they are added: " + cache);
+			}
+		}
+		synchronized (readLock) {
+			if (arrayRecycler != null) {
+				cache.unsubscribe(arrayRecycler);
+				arrayRecycler = null;
+			}
+			if (pool != null) {
+				final ArrayRecycler recycler = new ArrayRecycler(pool, releaseDelay);
+				cache.subscribe(recycler);
+				arrayRecycler = recycler;
+			}
+		}
+	}
+
+	/**
+	 * Returns true if this reader can use an array pool.  A reader can't if its
+	 * cache may be shared between threads or readers, as a Window freed from the
+	 * cache could still be in use by another thread or reader.  Subclasses which
+	 * are designed to be used by many threads should override this to return false.
+	 * 
+	 * @return true if this reader can use an array pool.
+	 */
+	protected boolean canPoolArrays() {
+		return !isSharedCache(cache);
+	}
+
+	private static boolean freesWindowsWhenAdded(final WindowCache cache) {
+		if (cache instanceof TwoLevelCache) {
+			final TwoLevelCache twoLevels = (TwoLevelCache) cache;
+			return freesWindowsWhenAdded(twoLevels.getPrimaryCache()) &&
+				   freesWindowsWhenAdded(twoLevels.getSecondaryCache());
+		}
+		return cache instanceof NoCache || cache instanceof TempFileCache || cache instanceof MappedTempFileCache;
+	}
+
+	private static boolean isSharedCache(final WindowCache cache) {
+		if (cache instanceof TwoLevelCache) {
+			final TwoLevelCache twoLevels = (TwoLevelCache) cache;
+			return isSharedCache(twoLevels.getPrimaryCache()) || isSharedCache(twoLevels.getSecondaryCache());
+		}
+		return cache instanceof ConcurrentClockCache || cache instanceof SynchronizedCache ||
+			   SharedWindowCache.isSharedCache(cache);
+	}
+
+	/**
+	 * Returns the pool of arrays this reader creates Windows from, or null if there is none.
+	 * 
+	 * @return The pool of arrays used by this reader, or null if there is none.
+	 */
+	public WindowArrayPool getArrayPool() {
+		final ArrayRecycler recycler = arrayRecycler;
+		return recycler == null ? null : recycler.pool;
+	}
+
+	/**
+	 * Reads the Windows covering a range of positions and pins them in memory, so
+	 * they are returned by {@link #getWindow(long)} without reading them again until
+	 * they are released, whichever cache the reader uses.  Windows which are not 
+	 * already pinned are created in batches of consecutive Windows, so readers which
+	 * override {@link #createWindows(long, int)} read them in fewer, larger reads.
+	 * The cache is not consulted, so prefetching does not disturb its statistics or
+	 * the order in which it evicts Windows.
+	 * <p>
+	 * This is useful when the ranges a scan will need are known in advance, for
+	 * example the start and end of a file when identifying its type.  Prefetching
+	 * stops at the end of the reader, so the end of the range can be past the end.
+	 * 
+	 * @param from
+	 *            The first position to prefetch.
+	 * @param to
+	 *            The last position to prefetch (inclusive).
+	 * @return The number of Windows read to satisfy the prefetch.
+	 * @throws IOException
+	 *             If the WindowReader has an issue reading the bytes required for a
+	 *             valid Window.
+	 */
+	public int prefetch(final long from, final long to) throws IOException {
+		final long firstPosition = from < 0 ? 0 : from;
+		if (to < firstPosition) {
+			return 0;
+		}
+		final long lastWindowStart = to - getWindowOffset(to);
+		int windowsRead = 0;
+		synchronized (readLock) {
+			final Map<Long, Window> pinned = pinnedWindows == null ? new HashMap<Long, Window>()
+					                                               : new HashMap<Long, Window>(pinnedWindows);
+			try {
+				long windowStart = firstPosition - getWindowOffset(firstPosition);
+				while (windowStart <= lastWindowStart) {
+					if (!pinned.containsKey(windowStart)) {
+						final long remainingWindows = (lastWindowStart - windowStart) / windowSize + 1;
+						final int batchSize = getUnpinnedWindowCount(pinned, windowStart,
+								(int) Math.min(remainingWindows, MAX_PREFETCH_WINDOWS));
+						final Window[] windows = createBatch(windowStart, batchSize);
+						for (final Window window : windows) {
+							if (window == null) {
+								return windowsRead;
+							}
+							pinned.put(window.getWindowPosition(), window);
+							windowsRead++;
+						}
+						windowStart += (long) (batchSize - 1) * windowSize;
+					}
+					if (windowStart > Long.MAX_VALUE - windowSize) {
+						break;
+					}
+					windowStart += windowSize;
+				}
+			} finally {
+				pinnedWindows = pinned.isEmpty() ? null : pinned;
+			}
+		}
+		return windowsRead;
+	}
+
+	/**
+	 * Sets the statistics to record for this reader, replacing any previous statistics.
+	 * 
+	 * @param statistics
+	 *            The statistics to record, or null to stop recording statistics.
+	 */
+	public void setStatistics(final ReaderStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+	/**
+	 * Returns the statistics recorded for this reader, or null if none are recorded.
+	 * 
+	 * @return The statistics recorded for this reader, or null if there are none.
+	 */
+	public ReaderStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Releases the pinned Windows which overlap a range of positions.  The Windows
+	 * released are added to the cache, and are then managed like any other cached
+	 * Window.
+	 * 
+	 * @param from
+	 *            The first position to release.
+	 * @param to
+	 *            The last position to release (inclusive).
+	 * @return The number of Windows released.
+	 */
+	public int release(final long from, final long to) {
+		synchronized (readLock) {
+			final Map<Long, Window> pinned = pinnedWindows;
+			if (pinned == null) {
+				return 0;
+			}
+			final Map<Long, Window> stillPinned = new HashMap<Long, Window>(pinned.size());
+			int windowsReleased = 0;
+			for (final Map.Entry<Long, Window> entry : pinned.entrySet()) {
+				final long windowStart = entry.getKey();
+				final Window window = entry.getValue();
+				if (windowStart + window.length() > from && windowStart <= to) {
+					windowsReleased++;
+				} else {
+					stillPinned.put(windowStart, window);
+				}
+			}
+			pinnedWindows = stillPinned.isEmpty() ? null : stillPinned;
+			for (final Window window : pinned.values()) {
+				if (!stillPinned.containsKey(window.getWindowPosition())) {
+					cache.addWindow(window);
+				}
+			}
+			return windowsReleased;
+		}
+	}
+
+	/**
+	 * Releases all the pinned Windows.
+	 * 
+	 * @return The number of Windows released.
+	 */
+	public int releaseAll() {
+		return release(0, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the number of Windows currently pinned by prefetching.
+	 * 
+	 * @return The number of Windows currently pinned.
+	 */
+	public int getPinnedWindowCount() {
+		final Map<Long, Window> pinned = pinnedWindows;
+		return pinned == null ? 0 : pinned.size();
+	}
+
 	/**
 	 * {@inheritDoc}
+	 * <p>
+	 * Any pinned Windows are released without being cached.
 	 */
 	@Override
 	public void close() throws IOException {
+		final ReadAhead ahead = readAhead;
+		if (ahead != null) {
+			readAhead = null;
+			ahead.cancel();
+		}
+		pinnedWindows = null;
 		cache.clear();
 	}
 
+	/**
+	 * Adds a Window to the cache which was read while creating a different Window.
+	 * If read-ahead is enabled, the Window is staged until it is asked for, as this 
+	 * may be called on a read-ahead thread.
+	 * 
+	 * @param window
+	 *            The Window to cache.
+	 */
+	protected final void cacheWindow(final Window window) {
+		final ReadAhead ahead = readAhead;
+		if (ahead != null) {
+			ahead.stage(window);
+		} else {
+			final ReaderStatistics stats = statistics;
+			if (stats != null) {
+				stats.windowsCreated(1, window.length());
+			}
+			cache.addWindow(window);
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public int getWindowOffset(final long position) {
-		return (int) position % windowSize;
+		return powerOfTwoWindows ? (int) (position & windowOffsetMask) 
+				                 : (int) (position % windowSize);
 	}
 
 	/**
@@ -235,12 +671,168 @@ public abstract class AbstractReader implements WindowReader, Iterable<Window> {
 	 */
 	abstract Window createWindow(final long windowStart) throws IOException;
 
+	/**
+	 * Returns an array of the window size to create a new Window from, taken
+	 * from the array pool if there is one.
+	 * 
+	 * @return A byte array of the window size.
+	 */
+	final byte[] createArray() {
+		final ArrayRecycler recycler = arrayRecycler;
+		return recycler == null ? new byte[windowSize] : recycler.take();
+	}
+
+	/**
+	 * Returns an array obtained from {@link #createArray()} which no Window was
+	 * created from to the array pool, if there is one.
+	 * 
+	 * @param array
+	 *            The unused array.
+	 */
+	final void releaseArray(final byte[] array) {
+		final ArrayRecycler recycler = arrayRecycler;
+		if (recycler != null) {
+			recycler.release(array);
+		}
+	}
+
+	/**
+	 * Creates a number of consecutive {@link Window}s, beginning at the position
+	 * given.  Entries in the array returned are null where no Window could be
+	 * created.
+	 * <p>
+	 * This implementation creates each Window in turn.  Subclasses can override
+	 * it to read all the Windows in fewer, larger reads.
+	 * 
+	 * @param firstWindowStart
+	 *            The position in the WindowReader at which the first Window should begin.
+	 * @param numberOfWindows
+	 *            The number of consecutive Windows to create.
+	 * @return An array of the Windows created.
+	 * @throws IOException
+	 *             If the WindowReader has an issue reading the bytes required for a
+	 *             valid Window.
+	 */
+	Window[] createWindows(final long firstWindowStart, final int numberOfWindows) throws IOException {
+		final Window[] windows = new Window[numberOfWindows];
+		for (int index = 0; index < numberOfWindows; index++) {
+			windows[index] = createWindow(firstWindowStart + (long) index * windowSize);
+		}
+		return windows;
+	}
+
+	/**
+	 * Creates a batch of consecutive Windows, recording statistics for them if required.
+	 */
+	private Window[] createBatch(final long firstWindowStart, final int numberOfWindows) throws IOException {
+		final ReaderStatistics stats = statistics;
+		if (stats == null) {
+			return createWindows(firstWindowStart, numberOfWindows);
+		}
+		final long readStart = System.nanoTime();
+		final Window[] windows = createWindows(firstWindowStart, numberOfWindows);
+		stats.readTimed(System.nanoTime() - readStart);
+		int windowsCreated = 0;
+		long bytesRead = 0;
+		for (final Window window : windows) {
+			if (window != null) {
+				windowsCreated++;
+				bytesRead += window.length();
+			}
+		}
+		stats.windowsCreated(windowsCreated, bytesRead);
+		return windows;
+	}
+
+	/**
+	 * Returns the number of consecutive Windows from a position which are not
+	 * pinned, up to a maximum.  There is always at least one.
+	 */
+	private int getUnpinnedWindowCount(final Map<Long, Window> pinned, final long windowStart, final int maxWindows) {
+		int count = 1;
+		long nextStart = windowStart + windowSize;
+		while (count < maxWindows && !pinned.containsKey(nextStart)) {
+			count++;
+			nextStart += windowSize;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns true if the Window is currently pinned by prefetching.
+	 */
+	private boolean isPinned(final Window window) {
+		final Map<Long, Window> pinned = pinnedWindows;
+		return pinned != null && pinned.get(window.getWindowPosition()) == window;
+	}
+
+	/**
+	 * Returns the arrays of Windows freed from the cache to an array pool, once
+	 * the release delay of further Windows have been freed after them.  The current last Window
+	 * is never released, as it may still be returned without going to the cache,
+	 * and nor are pinned Windows.
+	 * <p>
+	 * Only arrays taken from the pool by this reader are released, and each only
+	 * once, so arrays of Windows from elsewhere (or a second notification for the
+	 * same Window) are never recycled.  The arrays taken are held weakly, so arrays
+	 * of Windows which are never freed can still be garbage collected.
+	 */
+	private final class ArrayRecycler implements WindowCache.WindowObserver {
+
+		private final WindowArrayPool pool;
+		private final Set<byte[]> takenArrays = Collections.newSetFromMap(new WeakHashMap<byte[], Boolean>());
+		private final Window[] freedWindows;
+		private int nextFreed;
+
+		private ArrayRecycler(final WindowArrayPool pool, final int releaseDelay) {
+			this.pool = pool;
+			this.freedWindows = new Window[releaseDelay];
+		}
+
+		private synchronized byte[] take() {
+			final byte[] array = pool.take();
+			takenArrays.add(array);
+			return array;
+		}
+
+		private synchronized void release(final byte[] array) {
+			if (takenArrays.remove(array)) {
+				pool.release(array);
+			}
+		}
+
+		@Override
+		public synchronized void windowFree(final Window window, final WindowCache fromCache) {
+			if (window.hasArray() && window.getArrayOffset() == 0 && takenArrays.contains(window.getArray())) {
+				final Window oldest = freedWindows[nextFreed];
+				freedWindows[nextFreed] = window;
+				nextFreed = (nextFreed + 1) % freedWindows.length;
+				if (oldest != null && oldest != lastWindow && !isPinned(oldest) &&
+					!isDelayed(oldest.getArray()) && takenArrays.remove(oldest.getArray())) {
+					pool.release(oldest.getArray());
+				}
+			}
+		}
+
+		/*
+		 * Returns true if a Window with the array is still waiting to be released.
+		 */
+		private boolean isDelayed(final byte[] array) {
+			for (final Window delayed : freedWindows) {
+				if (delayed != null && delayed.getArray() == array) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
 	/**
 	 * An iterator of {@link Window}s over a {@link WindowReader}.
 	 */
 	private class WindowIterator implements Iterator<Window> {
 
-		private int position = 0;
+		private long position = 0;
 
 		/**
 		 * {@inheritDoc}
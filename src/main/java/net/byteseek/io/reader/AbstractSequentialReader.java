@@ -0,0 +1,180 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import java.io.IOException;
+
+import net.byteseek.io.reader.cache.WindowCache;
+
+/**
+ * A WindowReader extending {@link AbstractReader} over a source which can only
+ * be read sequentially from its start, such as an {@link java.io.InputStream}
+ * or a {@link java.nio.channels.ReadableByteChannel}.
+ * <p>
+ * The source is only read as far as the furthest position requested, and the
+ * Windows read on the way to it are cached, so earlier positions can still be
+ * served from the cache.  Calling {@link #length()} reads the source to its end.
+ * As the source cannot be rewound, the cache must always be able to return an
+ * earlier Window, or a position which is no longer cached must never be requested.
+ * If it is, a {@link WindowMissingException} is thrown.
+ * <p>
+ * Subclasses only have to read the next block of bytes from their source.
+ * 
+ * @author Matt Palmer
+ */
+public abstract class AbstractSequentialReader extends AbstractReader {
+
+	private volatile long sourcePos = 0;
+	private volatile long length = UNKNOWN_LENGTH;
+
+	/**
+	 * Constructs an AbstractSequentialReader using the window size and the
+	 * {@link WindowCache} provided.
+	 * 
+	 * @param windowSize
+	 *            The size of a Window to create from the source.
+	 * @param cache
+	 *            The WindowCache to use.
+	 * @throws IllegalArgumentException
+	 *             if the cache is null, or the window size is less than one.
+	 */
+	AbstractSequentialReader(final int windowSize, final WindowCache cache) {
+		super(windowSize, cache);
+	}
+
+	/**
+	 * Returns a window onto the data for a given position. The position does
+	 * not have to be the beginning of a {@link Window} - but the Window
+	 * returned must include that position (if such a position exists in the
+	 * WindowReader).
+	 * 
+	 * @param position
+	 *            The position in the reader for which a Window is requested.
+	 * @return A Window backed by a byte array onto the data for a given
+	 *         position. If a window can't be provided for the given position,
+	 *         null is returned.
+	 * @throws IOException
+	 *             if an IO error occurred trying to create a new window.
+	 * @throws WindowMissingException
+	 *             if the cache could not provide a Window for a position in the
+	 *             source which has already been read.
+	 */
+	@Override
+	public final Window getWindow(final long position) throws IOException,
+			WindowMissingException {
+		final Window window = super.getWindow(position);
+		if (window == null && position < sourcePos && position >= 0) {
+			// No window was returned, but the position requested has already
+			// been read. This means the cache algorithm selected to use with
+			// this reader cannot return an earlier position, and we can't
+			// rewind the source to read it again. There is nothing which can be
+			// done at this point other than to throw an exception.
+			final String message = "Cache failed to provide a window at position: %d but we have already read up to: %d";
+			throw new WindowMissingException(String.format(message, position,
+					sourcePos));
+		}
+		return window;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Window createWindow(final long readPos) throws IOException {
+		Window lastWindow = null;
+		while (readPos >= sourcePos && length == UNKNOWN_LENGTH) {
+			lastWindow = readNextWindow();
+			// Cache the windows read before the one for the requested position:
+			if (lastWindow != null && readPos >= sourcePos) {
+				cacheWindow(lastWindow);
+			}
+		}
+		return lastWindow != null && lastWindow.getWindowPosition() == readPos ? lastWindow : null;
+	}
+
+	/**
+	 * Returns the total length of the source.
+	 * <p>
+	 * Note that calling this method will cause the entire source to be read and
+	 * cached in order to determine the length.
+	 * 
+	 * @return The total length of the source.
+	 * @throws IOException
+	 *             If any problem occurred reading the source.
+	 */
+	@Override
+	public long length() throws IOException {
+		synchronized (readLock) {
+			while (length == UNKNOWN_LENGTH) {
+				final Window window = readNextWindow();
+				if (window != null) {
+					cacheWindow(window);
+				}
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Reads the next block of bytes from the source into the array given,
+	 * filling it unless the end of the source is reached first.
+	 * 
+	 * @param bytes
+	 *            The array to read into.
+	 * @return The number of bytes read, which is less than the length of the
+	 *         array only if the end of the source was reached.
+	 * @throws IOException
+	 *             If any problem occurred reading the source.
+	 */
+	abstract int readBlock(byte[] bytes) throws IOException;
+
+	/*
+	 * Reads the next Window from the source, or returns null if there are no more
+	 * bytes.  The length is set once a block shorter than the window size is read.
+	 */
+	private Window readNextWindow() throws IOException {
+		final byte[] bytes = createArray();
+		final int totalRead = readBlock(bytes);
+		Window window = null;
+		if (totalRead > 0) {
+			window = new Window(bytes, sourcePos, totalRead);
+			sourcePos += totalRead;
+		} else {
+			releaseArray(bytes);
+		}
+		if (totalRead < windowSize) {
+			length = sourcePos;
+		}
+		return window;
+	}
+
+}
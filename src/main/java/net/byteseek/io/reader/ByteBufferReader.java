@@ -0,0 +1,181 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A WindowReader over a sequence of {@link java.nio.ByteBuffer}s, which
+ * presents the bytes of each buffer one after another as a single sequence of
+ * bytes, without concatenating them.
+ * <p>
+ * Each buffer becomes a single {@link Window}, so Windows vary in size.  The
+ * bytes between the position and limit of each buffer when the reader is
+ * constructed are used; the buffers are not copied, and later changes to their
+ * positions or limits do not affect the reader.  Heap buffers are accessed
+ * through their backing arrays, so a buffer whose position is not zero gives a
+ * Window whose bytes start at {@link Window#getArrayOffset()} in its array.
+ * Direct buffers are accessed in place.
+ * Matches which span buffers are verified by reading across Windows, as they
+ * are in any other reader.
+ * <p>
+ * This class is immutable and thread-safe, as long as the contents of the
+ * buffers are not changed.  The same Windows are returned to every caller.
+ * 
+ * @author Matt Palmer
+ */
+public class ByteBufferReader implements WindowReader {
+
+	private final Window[] windows;
+	private final long[] windowStarts;
+	private final long length;
+
+	/**
+	 * Constructs a ByteBufferReader over the buffers provided, in the order given.
+	 * 
+	 * @param buffers
+	 *            The buffers whose bytes follow on from one another.
+	 * @throws IllegalArgumentException
+	 *             if the buffers are null, or any buffer is null.
+	 */
+	public ByteBufferReader(final ByteBuffer... buffers) {
+		this(buffers == null ? null : Arrays.asList(buffers));
+	}
+
+	/**
+	 * Constructs a ByteBufferReader over the list of buffers provided, in the
+	 * order of the list.
+	 * 
+	 * @param buffers
+	 *            The buffers whose bytes follow on from one another.
+	 * @throws IllegalArgumentException
+	 *             if the list is null, or any buffer is null.
+	 */
+	public ByteBufferReader(final List<ByteBuffer> buffers) {
+		if (buffers == null) {
+			throw new IllegalArgumentException("Null list of buffers passed to ByteBufferReader");
+		}
+		final List<Window> bufferWindows = new ArrayList<Window>(buffers.size());
+		long position = 0;
+		for (int index = 0; index < buffers.size(); index++) {
+			final ByteBuffer buffer = buffers.get(index);
+			if (buffer == null) {
+				throw new IllegalArgumentException("Null buffer at index " + index);
+			}
+			final int remaining = buffer.remaining();
+			if (remaining > 0) {
+				bufferWindows.add(new Window(buffer.slice(), position, remaining));
+				position += remaining;
+			}
+		}
+		this.windows = bufferWindows.toArray(new Window[bufferWindows.size()]);
+		this.windowStarts = new long[windows.length];
+		for (int index = 0; index < windows.length; index++) {
+			windowStarts[index] = windows[index].getWindowPosition();
+		}
+		this.length = position;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int readByte(final long position) {
+		if (position >= 0 && position < length) {
+			final int index = getWindowIndex(position);
+			return windows[index].getByte((int) (position - windowStarts[index])) & 0xFF;
+		}
+		return -1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The Window returned is backed by the whole of the buffer containing the position.
+	 */
+	@Override
+	public Window getWindow(final long position) {
+		return position >= 0 && position < length ? windows[getWindowIndex(position)] : null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getWindowOffset(final long position) {
+		if (position >= 0 && position < length) {
+			return (int) (position - windowStarts[getWindowIndex(position)]);
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the total number of bytes in all the buffers.
+	 * 
+	 * @return The total number of bytes in all the buffers.
+	 */
+	@Override
+	public long length() {
+		return length;
+	}
+
+	/**
+	 * Does nothing, as there are no resources to release.
+	 */
+	@Override
+	public void close() {
+		// Nothing to close.
+	}
+
+	private int getWindowIndex(final long position) {
+		int low = 0;
+		int high = windows.length - 1;
+		while (low < high) {
+			final int middle = (low + high + 1) >>> 1;
+			if (windowStarts[middle] <= position) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[buffers: " + windows.length + " length: " + length + ']';
+	}
+
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A WindowReader which presents an ordered list of other WindowReaders as
+ * a single, continuous sequence of bytes.  Each reader is a segment, which
+ * begins at the position just after the end of the segment before it.
+ * <p>
+ * This lets split archives or multi-segment files be searched as if they
+ * were one file, without copying them into a single file first.  Requests
+ * for a position are routed to the segment containing it, and the Windows of
+ * that segment are returned with their positions moved into the address space
+ * of the CompositeReader.  The bytes of a Window are never copied, and each
+ * segment keeps its own cache.  Because Windows never span a segment boundary,
+ * matches which span a boundary are verified by reading across Windows, in
+ * the same way as matches which span Windows in a single reader.
+ * <p>
+ * The lengths of the segments are determined when the CompositeReader is
+ * constructed. A byte range within a file can be used as a segment by
+ * wrapping it in a {@link SubRangeReader}.
+ * <p>
+ * This class is as thread-safe as the readers it is composed of.
+ * 
+ * @author Matt Palmer
+ */
+public class CompositeReader implements WindowReader {
+
+	private final WindowReader[] readers;
+	private final long[] segmentStarts;
+	private final long length;
+
+	private int lastSegment;
+
+	/**
+	 * Constructs a CompositeReader from the readers provided, in the order given.
+	 * 
+	 * @param readers
+	 *            The readers whose bytes follow on from one another.
+	 * @throws IOException
+	 *             If the length of a reader could not be determined.
+	 * @throws IllegalArgumentException
+	 *             if there are no readers, or any reader is null.
+	 */
+	public CompositeReader(final WindowReader... readers) throws IOException {
+		this(readers == null ? null : Arrays.asList(readers));
+	}
+
+	/**
+	 * Constructs a CompositeReader from the list of readers provided, in the
+	 * order of the list.
+	 * 
+	 * @param readers
+	 *            The readers whose bytes follow on from one another.
+	 * @throws IOException
+	 *             If the length of a reader could not be determined.
+	 * @throws IllegalArgumentException
+	 *             if the list is null or empty, or any reader is null.
+	 */
+	public CompositeReader(final List<? extends WindowReader> readers) throws IOException {
+		if (readers == null || readers.isEmpty()) {
+			throw new IllegalArgumentException("A CompositeReader needs at least one reader.");
+		}
+		final int numberOfSegments = readers.size();
+		this.readers = new WindowReader[numberOfSegments];
+		this.segmentStarts = new long[numberOfSegments];
+		long position = 0;
+		for (int segment = 0; segment < numberOfSegments; segment++) {
+			final WindowReader reader = readers.get(segment);
+			if (reader == null) {
+				throw new IllegalArgumentException("Null reader at index " + segment);
+			}
+			this.readers[segment] = reader;
+			segmentStarts[segment] = position;
+			position += reader.length();
+		}
+		this.length = position;
+	}
+
+	/**
+	 * Constructs a CompositeReader over the files provided, in the order given,
+	 * reading each with a {@link FileReader} using the default window size and cache.
+	 * 
+	 * @param files
+	 *            The files whose bytes follow on from one another.
+	 * @return A CompositeReader over the files.
+	 * @throws IOException
+	 *             If a file could not be opened.
+	 * @throws IllegalArgumentException
+	 *             if there are no files, or any file is null.
+	 */
+	public static CompositeReader fromFiles(final File... files) throws IOException {
+		if (files == null || files.length == 0) {
+			throw new IllegalArgumentException("A CompositeReader needs at least one file.");
+		}
+		final List<WindowReader> fileReaders = new ArrayList<WindowReader>(files.length);
+		try {
+			for (final File file : files) {
+				fileReaders.add(new FileReader(file));
+			}
+			return new CompositeReader(fileReaders);
+		} catch (final IOException ex) {
+			closeAll(fileReaders);
+			throw ex;
+		} catch (final IllegalArgumentException ex) {
+			closeAll(fileReaders);
+			throw ex;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int readByte(final long position) throws IOException {
+		if (position >= 0 && position < length) {
+			final int segment = getSegment(position);
+			return readers[segment].readByte(position - segmentStarts[segment]);
+		}
+		return -1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The Window returned shares the bytes of the Window of the segment
+	 * containing the position, but its position is in this reader.
+	 */
+	@Override
+	public Window getWindow(final long position) throws IOException {
+		if (position >= 0 && position < length) {
+			final int segment = getSegment(position);
+			final long segmentStart = segmentStarts[segment];
+			final Window window = readers[segment].getWindow(position - segmentStart);
+			if (window != null && segmentStart > 0) {
+				final long windowPosition = window.getWindowPosition() + segmentStart;
+				return window.hasArray() ? new Window(window.getArray(), window.getArrayOffset(), windowPosition, window.length())
+						                 : new Window(window.getBuffer(), windowPosition, window.length());
+			}
+			return window;
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getWindowOffset(final long position) {
+		final int segment = position < 0 ? 0 : position >= length ? readers.length - 1 : getSegment(position);
+		return readers[segment].getWindowOffset(position - segmentStarts[segment]);
+	}
+
+	/**
+	 * Returns the total length of all the segments.
+	 * 
+	 * @return The total length of all the segments.
+	 */
+	@Override
+	public long length() {
+		return length;
+	}
+
+	/**
+	 * Returns the readers which make up the segments of this CompositeReader, in order.
+	 * 
+	 * @return An unmodifiable list of the readers of each segment.
+	 */
+	public List<WindowReader> getReaders() {
+		return Collections.unmodifiableList(Arrays.asList(readers));
+	}
+
+	/**
+	 * Returns the position in this reader at which a segment begins.
+	 * 
+	 * @param segment
+	 *            The index of the segment.
+	 * @return The position at which the segment begins.
+	 * @throws IndexOutOfBoundsException
+	 *             if there is no segment with that index.
+	 */
+	public long getSegmentStart(final int segment) {
+		return segmentStarts[segment];
+	}
+
+	/**
+	 * Closes all the readers of this CompositeReader.  If any reader fails to
+	 * close, the others are still closed, and the first exception is thrown.
+	 * 
+	 * @throws IOException
+	 *             If a reader could not be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		closeAll(Arrays.asList(readers));
+	}
+
+	/*
+	 * Checks the last segment used first, as access is usually local.  Empty
+	 * segments are never returned, as the segment after them has the same start.
+	 */
+	private int getSegment(final long position) {
+		final int last = lastSegment;
+		if (position >= segmentStarts[last]
+				&& (last == readers.length - 1 || position < segmentStarts[last + 1])) {
+			return last;
+		}
+		int low = 0;
+		int high = readers.length - 1;
+		while (low < high) {
+			final int middle = (low + high + 1) >>> 1;
+			if (segmentStarts[middle] <= position) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		lastSegment = low;
+		return low;
+	}
+
+	private static void closeAll(final List<? extends WindowReader> readers) throws IOException {
+		IOException firstException = null;
+		for (final WindowReader reader : readers) {
+			try {
+				reader.close();
+			} catch (final IOException ex) {
+				if (firstException == null) {
+					firstException = ex;
+				}
+			}
+		}
+		if (firstException != null) {
+			throw firstException;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[segments: " + readers.length + " length: " + length + ']';
+	}
+
+}
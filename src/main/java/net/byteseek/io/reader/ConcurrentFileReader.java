@@ -0,0 +1,256 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+import net.byteseek.io.IOUtils;
+import net.byteseek.io.reader.cache.ConcurrentClockCache;
+import net.byteseek.io.reader.cache.WindowCache;
+
+/**
+ * A thread-safe WindowReader extending {@link AbstractReader} which reads a file
+ * into cached byte arrays using positional reads on a {@link java.nio.channels.FileChannel}.
+ * <p>
+ * Unlike the {@link FileReader}, it never seeks, so many threads can search the
+ * same file at once through a single ConcurrentFileReader, sharing one file
+ * descriptor and one cache of Windows.  The cache must itself be thread-safe.
+ * By default, a {@link ConcurrentClockCache} is used, which does not serialise
+ * threads looking up Windows.
+ * <p>
+ * If two threads ask for the same uncached Window at the same time, both may
+ * read it, but only one of them will be held in the cache.
+ * <p>
+ * Note that interrupting a thread which is reading from a FileChannel closes the
+ * channel, and the reader can no longer be used by any thread.
+ * 
+ * @author Matt Palmer
+ */
+public class ConcurrentFileReader extends AbstractReader {
+
+	private final static String READ_ONLY = "r";
+	private final static String NULL_ARGUMENTS = "Null file passed to ConcurrentFileReader";
+
+	private final File file;
+	private final RandomAccessFile randomAccessFile;
+	private final FileChannel channel;
+	private final long length;
+
+	/**
+	 * Constructs a ConcurrentFileReader which defaults to a {@link Window} size 
+	 * of 4096, caching up to 32 recently used Windows in a
+	 * {@link ConcurrentClockCache}.
+	 * 
+	 * @param file
+	 *            The file to read from.
+	 * @throws FileNotFoundException
+	 *             If the file does not exist.
+	 * @throws IllegalArgumentException
+	 *             if the file passed in is null.
+	 */
+	public ConcurrentFileReader(final File file) throws FileNotFoundException {
+		this(file, DEFAULT_WINDOW_SIZE, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs a ConcurrentFileReader which defaults to a {@link Window} size
+	 * of 4096, using the thread-safe WindowCache passed in to cache Windows.
+	 * 
+	 * @param file
+	 *            The file to read from.
+	 * @param cache
+	 *            the thread-safe cache of Windows to use.
+	 * @throws FileNotFoundException
+	 *             If the file does not exist.
+	 * @throws IllegalArgumentException
+	 *             if the file passed in is null.
+	 */
+	public ConcurrentFileReader(final File file, final WindowCache cache)
+			throws FileNotFoundException {
+		this(file, DEFAULT_WINDOW_SIZE, cache);
+	}
+
+	/**
+	 * Constructs a ConcurrentFileReader using the {@link Window} size passed in,
+	 * caching up to 32 recently used Windows in a
+	 * {@link ConcurrentClockCache}.
+	 * 
+	 * @param file
+	 *            The file to read from.
+	 * @param windowSize
+	 *            the size of the byte array to read from the file.
+	 * @throws FileNotFoundException
+	 *             If the file does not exist.
+	 * @throws IllegalArgumentException
+	 *             if the file passed in is null.
+	 */
+	public ConcurrentFileReader(final File file, final int windowSize)
+			throws FileNotFoundException {
+		this(file, windowSize, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs a ConcurrentFileReader using the {@link Window} size passed in,
+	 * caching recently used Windows up to the capacity specified in a
+	 * {@link ConcurrentClockCache}.
+	 * 
+	 * @param file
+	 *            The file to read from.
+	 * @param windowSize
+	 *            the size of the byte array to read from the file.
+	 * @param capacity
+	 *            the number of byte arrays to cache (using an approximate most 
+	 *            recently used strategy).
+	 * @throws FileNotFoundException
+	 *             If the file does not exist.
+	 * @throws IllegalArgumentException
+	 *             if the file passed in is null.
+	 */
+	public ConcurrentFileReader(final File file, final int windowSize, final int capacity)
+			throws FileNotFoundException {
+		this(file, windowSize, new ConcurrentClockCache(capacity));
+	}
+
+	/**
+	 * Constructs a ConcurrentFileReader which defaults to a {@link Window} size 
+	 * of 4096, caching up to 32 recently used Windows in a
+	 * {@link ConcurrentClockCache}.
+	 * 
+	 * @param path
+	 *            The path of the file to read from.
+	 * @throws FileNotFoundException
+	 *             If the file does not exist.
+	 * @throws IllegalArgumentException
+	 *             if the file passed in is null.
+	 */
+	public ConcurrentFileReader(final String path) throws FileNotFoundException {
+		this(new File(path));
+	}
+
+	/**
+	 * Constructs a ConcurrentFileReader which reads the file into {@link Window}s
+	 * of the specified size, using the thread-safe {@link WindowCache} supplied 
+	 * to cache them.
+	 * 
+	 * @param file
+	 *            The file to read from.
+	 * @param windowSize
+	 *            the size of the byte array to read from the file.
+	 * @param cache
+	 *            the thread-safe cache of Windows to use.
+	 * @throws FileNotFoundException
+	 *             If the file does not exist.
+	 * @throws IllegalArgumentException
+	 *             if the file passed in is null.
+	 */
+	public ConcurrentFileReader(final File file, final int windowSize,
+			final WindowCache cache) throws FileNotFoundException {
+		super(windowSize, cache);
+		if (file == null) {
+			throw new IllegalArgumentException(NULL_ARGUMENTS);
+		}
+		this.file = file;
+		randomAccessFile = new RandomAccessFile(file, READ_ONLY);
+		channel = randomAccessFile.getChannel();
+		length = file.length();
+	}
+
+	/**
+	 * Returns the length of the file.
+	 * 
+	 * @return The length of the file accessed by the reader.
+	 */
+	@Override
+	public final long length() {
+		return length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The bytes are read using a positional read on the FileChannel, which does
+	 * not alter the position of the channel, so Windows can be created by many
+	 * threads at the same time.
+	 */
+	@Override
+	final Window createWindow(final long windowStart) throws IOException {
+		if (windowStart >= 0 && windowStart < length) {
+			final byte[] bytes = createArray();
+			final int totalRead = IOUtils.readBytes(channel, bytes, windowStart);
+			if (totalRead > 0) {
+				return new Window(bytes, windowStart, totalRead);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns false, as Windows from this reader may still be in use by other
+	 * threads after they are freed from its cache, so it cannot use an array pool.
+	 */
+	@Override
+	protected boolean canPoolArrays() {
+		return false;
+	}
+
+	/**
+	 * Closes the underlying {@link java.nio.channels.FileChannel} and file,
+	 * then clears any cache associated with this WindowReader.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			randomAccessFile.close();
+		} finally {
+			super.close();
+		}
+	}
+
+	/**
+	 * Returns the {@link java.io.File} object accessed by this WindowReader.
+	 * 
+	 * @return The File object accessed by this WindowReader.
+	 */
+	public final File getFile() {
+		return file;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[file:" + file + " length: " + length + " cache:" + cache + ']'; 
+	}
+
+}
@@ -0,0 +1,622 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.zip.ZipException;
+
+/**
+ * A deflate decoder which can record checkpoints as it decodes, and which can
+ * resume decoding from any checkpoint recorded earlier.
+ * <p>
+ * The inflater in java.util.zip cannot be resumed from an arbitrary bit
+ * position in the compressed data, so this class implements inflation itself.
+ * A checkpoint is recorded at the first block boundary after each checkpoint
+ * interval of output, holding the bit position of the next block and the 32K
+ * of output before it which later blocks may refer back to.
+ * <p>
+ * Gzip data (including several concatenated gzip members), zlib data and raw
+ * deflate data can be decoded.  Checksums in gzip and zlib trailers are not
+ * verified, as decoding can begin part way through the data.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ * @author Matt Palmer
+ */
+final class DeflateDecoder {
+
+	static final int GZIP = 0;
+	static final int ZLIB = 1;
+	static final int RAW = 2;
+
+	private static final int MAX_BITS = 15;
+	private static final int FAST_BITS = 9;
+	private static final int FAST_MASK = (1 << FAST_BITS) - 1;
+	private static final int HISTORY_SIZE = 32768;
+	private static final int HISTORY_MASK = HISTORY_SIZE - 1;
+	private static final int INPUT_BUFFER_SIZE = 65536;
+	private static final int SKIP_BUFFER_SIZE = 8192;
+
+	private static final int BLOCK_HEADER = 0;
+	private static final int STORED = 1;
+	private static final int HUFFMAN = 2;
+	private static final int MEMBER_END = 3;
+	private static final int END = 4;
+
+	private static final int[] LENGTH_BASE = { 3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31,
+			35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258 };
+	private static final int[] LENGTH_EXTRA = { 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2,
+			3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0 };
+	private static final int[] DISTANCE_BASE = { 1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193,
+			257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577 };
+	private static final int[] DISTANCE_EXTRA = { 0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6,
+			7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13 };
+	private static final int[] CODE_LENGTH_ORDER = { 16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15 };
+
+	private static final Huffman FIXED_LITERALS;
+	private static final Huffman FIXED_DISTANCES;
+	static {
+		final byte[] lengths = new byte[288 + 30];
+		for (int symbol = 0; symbol < 288; symbol++) {
+			lengths[symbol] = (byte) (symbol < 144 ? 8 : symbol < 256 ? 9 : symbol < 280 ? 7 : 8);
+		}
+		for (int symbol = 288; symbol < lengths.length; symbol++) {
+			lengths[symbol] = 5;
+		}
+		try {
+			FIXED_LITERALS = new Huffman(lengths, 0, 288);
+			FIXED_DISTANCES = new Huffman(lengths, 288, 30);
+		} catch (final ZipException cannotHappen) {
+			throw new IllegalStateException(cannotHappen);
+		}
+	}
+
+	private final RandomAccessFile file;
+	private final int format;
+	private final List<Checkpoint> checkpoints;
+	private final int checkpointInterval;
+
+	private final byte[] input = new byte[INPUT_BUFFER_SIZE];
+	private long inputFilePosition;
+	private int inputPosition;
+	private int inputLimit;
+	private long bitBuffer;
+	private int bitCount;
+
+	private final byte[] history = new byte[HISTORY_SIZE];
+	private long outputPosition;
+
+	private int state;
+	private boolean lastBlock;
+	private int storedRemaining;
+	private int copyLength;
+	private int copyDistance;
+	private Huffman literals;
+	private Huffman distances;
+
+	/**
+	 * Constructs a DeflateDecoder which decodes from the start of the file.
+	 * 
+	 * @param file The file containing the compressed data.
+	 * @param format The format of the compressed data: GZIP, ZLIB or RAW.
+	 * @param checkpoints The list of checkpoints to add new checkpoints to.
+	 * @param checkpointInterval The number of bytes of output between checkpoints.
+	 * @throws IOException If the file could not be read or its header is not valid.
+	 */
+	DeflateDecoder(final RandomAccessFile file, final int format,
+			final List<Checkpoint> checkpoints, final int checkpointInterval) throws IOException {
+		this.file = file;
+		this.format = format;
+		this.checkpoints = checkpoints;
+		this.checkpointInterval = checkpointInterval;
+		readMemberHeader();
+		state = BLOCK_HEADER;
+	}
+
+	/**
+	 * Constructs a DeflateDecoder which resumes decoding from a checkpoint.
+	 * 
+	 * @param file The file containing the compressed data.
+	 * @param format The format of the compressed data: GZIP, ZLIB or RAW.
+	 * @param checkpoint The checkpoint to resume decoding from.
+	 * @param checkpoints The list of checkpoints to add new checkpoints to.
+	 * @param checkpointInterval The number of bytes of output between checkpoints.
+	 * @throws IOException If the file could not be read.
+	 */
+	DeflateDecoder(final RandomAccessFile file, final int format, final Checkpoint checkpoint,
+			final List<Checkpoint> checkpoints, final int checkpointInterval) throws IOException {
+		this.file = file;
+		this.format = format;
+		this.checkpoints = checkpoints;
+		this.checkpointInterval = checkpointInterval;
+		inputFilePosition = checkpoint.bitPosition >>> 3;
+		bits((int) (checkpoint.bitPosition & 7));
+		outputPosition = checkpoint.outputPosition;
+		final byte[] dictionary = checkpoint.dictionary;
+		final long dictionaryStart = outputPosition - dictionary.length;
+		for (int index = 0; index < dictionary.length; index++) {
+			history[(int) ((dictionaryStart + index) & HISTORY_MASK)] = dictionary[index];
+		}
+		state = BLOCK_HEADER;
+	}
+
+	/**
+	 * Determines whether the file contains gzip, zlib or raw deflate data from
+	 * its first two bytes.
+	 * 
+	 * @param file The file to examine.
+	 * @return GZIP, ZLIB or RAW.
+	 * @throws IOException If the file could not be read.
+	 */
+	static int detectFormat(final RandomAccessFile file) throws IOException {
+		file.seek(0);
+		final int first = file.read();
+		final int second = file.read();
+		if (first == 0x1F && second == 0x8B) {
+			return GZIP;
+		}
+		if (first >= 0 && second >= 0 && (first & 0x0F) == 8 && (first >>> 4) <= 7
+				&& ((first << 8) | second) % 31 == 0) {
+			return ZLIB;
+		}
+		return RAW;
+	}
+
+	/**
+	 * Returns the position in the decompressed data of the next byte to be decoded.
+	 * 
+	 * @return The position of the next byte to be decoded.
+	 */
+	long getOutputPosition() {
+		return outputPosition;
+	}
+
+	/**
+	 * Decodes bytes into the array, until the length requested has been decoded
+	 * or the end of the compressed data is reached.
+	 * 
+	 * @param output The array to decode into.
+	 * @param offset The position in the array to decode into.
+	 * @param length The number of bytes to decode.
+	 * @return The number of bytes decoded, or -1 if the end of the data had already been reached.
+	 * @throws IOException If the file could not be read or the compressed data is not valid.
+	 */
+	int read(final byte[] output, final int offset, final int length) throws IOException {
+		int produced = 0;
+		while (produced < length) {
+			switch (state) {
+			case BLOCK_HEADER:
+				if (lastBlock) {
+					state = MEMBER_END;
+				} else {
+					recordCheckpoint();
+					readBlockHeader();
+				}
+				break;
+			case STORED:
+				produced += copyStored(output, offset + produced, length - produced);
+				break;
+			case HUFFMAN:
+				produced += decodeHuffman(output, offset + produced, length - produced);
+				break;
+			case MEMBER_END:
+				readMemberTrailer();
+				break;
+			default:
+				return produced == 0 ? -1 : produced;
+			}
+		}
+		return produced;
+	}
+
+	/**
+	 * Decodes and discards bytes, until the number requested have been skipped
+	 * or the end of the compressed data is reached.
+	 * 
+	 * @param count The number of bytes to skip.
+	 * @return The number of bytes skipped.
+	 * @throws IOException If the file could not be read or the compressed data is not valid.
+	 */
+	long skip(final long count) throws IOException {
+		final byte[] scratch = new byte[SKIP_BUFFER_SIZE];
+		long skipped = 0;
+		while (skipped < count) {
+			final long remaining = count - skipped;
+			final int read = read(scratch, 0, remaining < SKIP_BUFFER_SIZE ? (int) remaining : SKIP_BUFFER_SIZE);
+			if (read < 0) {
+				break;
+			}
+			skipped += read;
+		}
+		return skipped;
+	}
+
+	private void recordCheckpoint() {
+		final int size = checkpoints.size();
+		if (size == 0 || outputPosition >= checkpoints.get(size - 1).outputPosition + checkpointInterval) {
+			final long bitPosition = (inputFilePosition + inputPosition) * 8 - bitCount;
+			checkpoints.add(new Checkpoint(outputPosition, bitPosition, getDictionary()));
+		}
+	}
+
+	private byte[] getDictionary() {
+		final int length = outputPosition < HISTORY_SIZE ? (int) outputPosition : HISTORY_SIZE;
+		final byte[] dictionary = new byte[length];
+		final int start = (int) ((outputPosition - length) & HISTORY_MASK);
+		final int firstPart = HISTORY_SIZE - start < length ? HISTORY_SIZE - start : length;
+		System.arraycopy(history, start, dictionary, 0, firstPart);
+		System.arraycopy(history, 0, dictionary, firstPart, length - firstPart);
+		return dictionary;
+	}
+
+	private void readBlockHeader() throws IOException {
+		lastBlock = bits(1) == 1;
+		switch (bits(2)) {
+		case 0:
+			dropToByteBoundary();
+			final int length = bits(16);
+			final int complement = bits(16);
+			if (length != (~complement & 0xFFFF)) {
+				throw new ZipException("Stored block length does not match its complement.");
+			}
+			storedRemaining = length;
+			state = length == 0 ? BLOCK_HEADER : STORED;
+			break;
+		case 1:
+			literals = FIXED_LITERALS;
+			distances = FIXED_DISTANCES;
+			state = HUFFMAN;
+			break;
+		case 2:
+			readDynamicCodes();
+			state = HUFFMAN;
+			break;
+		default:
+			throw new ZipException("Invalid deflate block type.");
+		}
+	}
+
+	private void readDynamicCodes() throws IOException {
+		final int literalCodes = bits(5) + 257;
+		final int distanceCodes = bits(5) + 1;
+		final int lengthCodes = bits(4) + 4;
+		if (literalCodes > 286 || distanceCodes > 30) {
+			throw new ZipException("Too many length or distance codes.");
+		}
+		final byte[] lengths = new byte[literalCodes + distanceCodes];
+		final byte[] codeLengths = new byte[19];
+		for (int index = 0; index < lengthCodes; index++) {
+			codeLengths[CODE_LENGTH_ORDER[index]] = (byte) bits(3);
+		}
+		final Huffman codeLengthCode = new Huffman(codeLengths, 0, 19);
+		int index = 0;
+		while (index < lengths.length) {
+			final int symbol = decode(codeLengthCode);
+			if (symbol < 16) {
+				lengths[index++] = (byte) symbol;
+			} else {
+				byte length = 0;
+				int repeat;
+				if (symbol == 16) {
+					if (index == 0) {
+						throw new ZipException("Repeated length with no previous length.");
+					}
+					length = lengths[index - 1];
+					repeat = 3 + bits(2);
+				} else if (symbol == 17) {
+					repeat = 3 + bits(3);
+				} else {
+					repeat = 11 + bits(7);
+				}
+				if (index + repeat > lengths.length) {
+					throw new ZipException("Too many code lengths.");
+				}
+				while (repeat-- > 0) {
+					lengths[index++] = length;
+				}
+			}
+		}
+		if (lengths[256] == 0) {
+			throw new ZipException("No end of block code.");
+		}
+		literals = new Huffman(lengths, 0, literalCodes);
+		distances = new Huffman(lengths, literalCodes, distanceCodes);
+	}
+
+	private int copyStored(final byte[] output, final int offset, final int length) throws IOException {
+		final int toCopy = storedRemaining < length ? storedRemaining : length;
+		int copied = 0;
+		while (copied < toCopy && bitCount > 0) {
+			writeByte(output, offset + copied++, bits(8));
+		}
+		while (copied < toCopy) {
+			if (inputPosition == inputLimit && !fillInput()) {
+				throw new ZipException("Unexpected end of compressed data.");
+			}
+			final int available = inputLimit - inputPosition;
+			final int chunk = toCopy - copied < available ? toCopy - copied : available;
+			System.arraycopy(input, inputPosition, output, offset + copied, chunk);
+			for (int index = 0; index < chunk; index++) {
+				history[(int) (outputPosition++ & HISTORY_MASK)] = input[inputPosition + index];
+			}
+			inputPosition += chunk;
+			copied += chunk;
+		}
+		storedRemaining -= toCopy;
+		if (storedRemaining == 0) {
+			state = BLOCK_HEADER;
+		}
+		return toCopy;
+	}
+
+	private int decodeHuffman(final byte[] output, final int offset, final int length) throws IOException {
+		final byte[] history = this.history;
+		int position = offset;
+		final int end = offset + length;
+		while (position < end) {
+			if (copyLength > 0) {
+				final int toCopy = copyLength < end - position ? copyLength : end - position;
+				long from = outputPosition - copyDistance;
+				for (int index = 0; index < toCopy; index++) {
+					final byte value = history[(int) (from++ & HISTORY_MASK)];
+					history[(int) (outputPosition++ & HISTORY_MASK)] = value;
+					output[position++] = value;
+				}
+				copyLength -= toCopy;
+				continue;
+			}
+			final int symbol = decode(literals);
+			if (symbol < 256) {
+				writeByte(output, position++, symbol);
+			} else if (symbol == 256) {
+				state = BLOCK_HEADER;
+				break;
+			} else {
+				final int lengthSymbol = symbol - 257;
+				if (lengthSymbol >= LENGTH_BASE.length) {
+					throw new ZipException("Invalid length code.");
+				}
+				copyLength = LENGTH_BASE[lengthSymbol] + bits(LENGTH_EXTRA[lengthSymbol]);
+				final int distanceSymbol = decode(distances);
+				if (distanceSymbol >= DISTANCE_BASE.length) {
+					throw new ZipException("Invalid distance code.");
+				}
+				copyDistance = DISTANCE_BASE[distanceSymbol] + bits(DISTANCE_EXTRA[distanceSymbol]);
+				if (copyDistance > outputPosition) {
+					throw new ZipException("Distance too far back.");
+				}
+			}
+		}
+		return position - offset;
+	}
+
+	private void writeByte(final byte[] output, final int position, final int value) {
+		output[position] = (byte) value;
+		history[(int) (outputPosition++ & HISTORY_MASK)] = (byte) value;
+	}
+
+	private void readMemberHeader() throws IOException {
+		if (format == GZIP) {
+			if (bits(8) != 0x1F || bits(8) != 0x8B) {
+				throw new ZipException("Not in gzip format.");
+			}
+			if (bits(8) != 8) {
+				throw new ZipException("Unsupported gzip compression method.");
+			}
+			final int flags = bits(8);
+			skipBytes(6); // modification time, extra flags and operating system.
+			if ((flags & 4) != 0) {
+				skipBytes(bits(16));
+			}
+			if ((flags & 8) != 0) {
+				skipString();
+			}
+			if ((flags & 16) != 0) {
+				skipString();
+			}
+			if ((flags & 2) != 0) {
+				skipBytes(2);
+			}
+		} else if (format == ZLIB) {
+			bits(8);
+			if ((bits(8) & 0x20) != 0) {
+				throw new ZipException("Preset zlib dictionaries are not supported.");
+			}
+		}
+		lastBlock = false;
+	}
+
+	private void readMemberTrailer() throws IOException {
+		dropToByteBoundary();
+		state = END;
+		if (format == GZIP) {
+			skipBytes(8);
+			while (bitCount < 16 && fillByte()) {
+				// Look ahead for another gzip member.
+			}
+			if (bitCount >= 16 && (bitBuffer & 0xFFFF) == 0x8B1F) {
+				readMemberHeader();
+				state = BLOCK_HEADER;
+			}
+		} else if (format == ZLIB) {
+			skipBytes(4);
+		}
+	}
+
+	private void skipString() throws IOException {
+		while (bits(8) != 0) {
+			// Skip to the terminating zero byte.
+		}
+	}
+
+	private void skipBytes(final int count) throws IOException {
+		for (int index = 0; index < count; index++) {
+			bits(8);
+		}
+	}
+
+	private void dropToByteBoundary() {
+		final int extraBits = bitCount & 7;
+		bitBuffer >>>= extraBits;
+		bitCount -= extraBits;
+	}
+
+	private int decode(final Huffman code) throws IOException {
+		while (bitCount < FAST_BITS && fillByte()) {
+			// Fill the bit buffer with enough bits for a fast lookup, if available.
+		}
+		final int entry = code.fast[(int) bitBuffer & FAST_MASK];
+		final int length = entry & 0xF;
+		if (entry != 0 && length <= bitCount) {
+			bitBuffer >>>= length;
+			bitCount -= length;
+			return entry >>> 4;
+		}
+		return decodeSlowly(code);
+	}
+
+	private int decodeSlowly(final Huffman code) throws IOException {
+		int bits = 0;
+		int first = 0;
+		int index = 0;
+		for (int length = 1; length <= MAX_BITS; length++) {
+			bits |= bits(1);
+			final int count = code.count[length];
+			if (bits - count < first) {
+				return code.symbols[index + (bits - first)];
+			}
+			index += count;
+			first = (first + count) << 1;
+			bits <<= 1;
+		}
+		throw new ZipException("Invalid Huffman code.");
+	}
+
+	private int bits(final int count) throws IOException {
+		while (bitCount < count) {
+			if (!fillByte()) {
+				throw new ZipException("Unexpected end of compressed data.");
+			}
+		}
+		final int value = (int) (bitBuffer & ((1L << count) - 1));
+		bitBuffer >>>= count;
+		bitCount -= count;
+		return value;
+	}
+
+	private boolean fillByte() throws IOException {
+		if (inputPosition == inputLimit && !fillInput()) {
+			return false;
+		}
+		bitBuffer |= (long) (input[inputPosition++] & 0xFF) << bitCount;
+		bitCount += 8;
+		return true;
+	}
+
+	/*
+	 * Seeks before every read, as the file may be shared with other decoders.
+	 */
+	private boolean fillInput() throws IOException {
+		inputFilePosition += inputLimit;
+		inputPosition = 0;
+		file.seek(inputFilePosition);
+		final int read = file.read(input, 0, INPUT_BUFFER_SIZE);
+		inputLimit = read > 0 ? read : 0;
+		return read > 0;
+	}
+
+	/**
+	 * A position in the compressed data at the start of a block, from which
+	 * decoding can resume.
+	 */
+	static final class Checkpoint {
+
+		final long outputPosition;
+		final long bitPosition;
+		final byte[] dictionary;
+
+		Checkpoint(final long outputPosition, final long bitPosition, final byte[] dictionary) {
+			this.outputPosition = outputPosition;
+			this.bitPosition = bitPosition;
+			this.dictionary = dictionary;
+		}
+	}
+
+	/**
+	 * A canonical Huffman code, with a lookup table to decode short codes
+	 * quickly, and the counts and symbols in canonical order to decode longer ones.
+	 */
+	private static final class Huffman {
+
+		final short[] count = new short[MAX_BITS + 1];
+		final short[] symbols;
+		final int[] fast = new int[1 << FAST_BITS];
+
+		Huffman(final byte[] lengths, final int offset, final int numberOfSymbols) throws ZipException {
+			symbols = new short[numberOfSymbols];
+			for (int symbol = 0; symbol < numberOfSymbols; symbol++) {
+				count[lengths[offset + symbol]]++;
+			}
+			int left = 1;
+			for (int length = 1; length <= MAX_BITS; length++) {
+				left = (left << 1) - count[length];
+				if (left < 0) {
+					throw new ZipException("Over-subscribed Huffman code.");
+				}
+			}
+			final int[] offsets = new int[MAX_BITS + 2];
+			final int[] nextCode = new int[MAX_BITS + 1];
+			int code = 0;
+			for (int length = 1; length <= MAX_BITS; length++) {
+				offsets[length + 1] = offsets[length] + count[length];
+				code = (code + (length == 1 ? 0 : count[length - 1])) << 1;
+				nextCode[length] = code;
+			}
+			for (int symbol = 0; symbol < numberOfSymbols; symbol++) {
+				final int length = lengths[offset + symbol];
+				if (length != 0) {
+					symbols[offsets[length]++] = (short) symbol;
+					final int symbolCode = nextCode[length]++;
+					if (length <= FAST_BITS) {
+						final int reversed = Integer.reverse(symbolCode) >>> (32 - length);
+						for (int index = reversed; index < fast.length; index += 1 << length) {
+							fast[index] = (symbol << 4) | length;
+						}
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -36,6 +36,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 import net.byteseek.io.IOUtils;
 import net.byteseek.io.reader.cache.MostRecentlyUsedCache;
@@ -45,6 +47,15 @@ import net.byteseek.io.reader.cache.WindowCache;
  * A WindowReader extending {@link AbstractReader} which reads a random access file
  * into cached byte arrays.
  * <p>
+ * By default, each Window is read with its own read from the file. If a read
+ * size larger than the window size is set using {@link #setReadSize(int)}, then
+ * when Windows are requested sequentially, several consecutive Windows are
+ * read at once using a single scattering read, and the Windows after the one
+ * requested are added to the cache.  This keeps the granularity of the cache
+ * fine, while reading the file with fewer, larger reads.  The cache should have
+ * capacity for at least a read size of Windows, or the extra Windows will be
+ * discarded before they are used.
+ * <p>
  * This class (like the underlying RandomAccessFile) is not thread-safe.
  * 
  * @author matt
@@ -56,8 +67,12 @@ public class FileReader extends AbstractReader {
 
 	private final File file;
 	private final RandomAccessFile randomAccessFile;
+	private final FileChannel channel;
 	private final long length;
 
+	private int windowsPerRead = 1;
+	private long nextSequentialWindow = -1;
+
 	/**
 	 * Constructs a FileReader which defaults to an array size of 4096, caching
 	 * the last 32 most recently used Windows in a {@link MostRecentlyUsedCache}
@@ -232,6 +247,7 @@ public class FileReader extends AbstractReader {
 		}
 		this.file = file;
 		randomAccessFile = new RandomAccessFile(file, READ_ONLY);
+		channel = randomAccessFile.getChannel();
 		length = file.length();
 	}
 
@@ -245,14 +261,63 @@ public class FileReader extends AbstractReader {
 		return length;
 	}
 
+	/**
+	 * Sets the number of bytes to read from the file at once when Windows are
+	 * requested sequentially.  The read size is rounded down to a whole number
+	 * of Windows.  A read size equal to the window size reads each Window
+	 * separately, which is the default.
+	 * 
+	 * @param readSize
+	 *            The number of bytes to read at once.
+	 * @throws IllegalArgumentException
+	 *             if the read size is smaller than the window size.
+	 */
+	public void setReadSize(final int readSize) {
+		if (readSize < windowSize) {
+			throw new IllegalArgumentException("The read size " + readSize
+					+ " cannot be smaller than the window size " + windowSize);
+		}
+		windowsPerRead = readSize / windowSize;
+	}
+
+	/**
+	 * Returns the number of bytes read from the file at once when Windows are
+	 * requested sequentially.
+	 * 
+	 * @return The number of bytes read at once.
+	 */
+	public int getReadSize() {
+		return windowsPerRead * windowSize;
+	}
+
 	/**
 	 * {@inheritDoc}
+	 * <p>
+	 * If the Window requested follows on from the last Window read, and the
+	 * read size is larger than the window size, the following Windows are read
+	 * at the same time and cached.
 	 */
 	@Override
 	final Window createWindow(final long windowStart) throws IOException {
+		if (windowStart < 0 || windowStart >= length) {
+			return null;
+		}
+		final int numberOfWindows = windowStart == nextSequentialWindow && getReadAhead() == null
+				? getWindowsAvailable(windowStart, windowsPerRead) : 1;
+		if (numberOfWindows > 1) {
+			final Window[] windows = readWindows(windowStart, numberOfWindows);
+			for (int index = 1; index < numberOfWindows; index++) {
+				if (windows[index] != null) {
+					cacheWindow(windows[index]);
+				}
+			}
+			nextSequentialWindow = windowStart + (long) numberOfWindows * windowSize;
+			return windows[0];
+		}
+		nextSequentialWindow = windowStart + windowSize;
 		try {
 			randomAccessFile.seek(windowStart);
-			final byte[] bytes = new byte[windowSize];
+			final byte[] bytes = createArray();
 			final int totalRead = IOUtils.readBytes(randomAccessFile, bytes);
 			if (totalRead > 0) {
 				return new Window(bytes, windowStart, totalRead);
@@ -263,6 +328,49 @@ public class FileReader extends AbstractReader {
 		return null;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This implementation reads all the Windows with a single scattering read.
+	 */
+	@Override
+	final Window[] createWindows(final long firstWindowStart, final int numberOfWindows) throws IOException {
+		final int windowsAvailable = getWindowsAvailable(firstWindowStart, numberOfWindows);
+		if (windowsAvailable < numberOfWindows) {
+			final Window[] windows = new Window[numberOfWindows];
+			if (windowsAvailable > 0) {
+				System.arraycopy(readWindows(firstWindowStart, windowsAvailable), 0, windows, 0, windowsAvailable);
+			}
+			return windows;
+		}
+		return readWindows(firstWindowStart, numberOfWindows);
+	}
+
+	private int getWindowsAvailable(final long firstWindowStart, final int numberOfWindows) {
+		if (firstWindowStart < 0 || firstWindowStart >= length) {
+			return 0;
+		}
+		final long windowsToEnd = (length - firstWindowStart + windowSize - 1) / windowSize;
+		return windowsToEnd < numberOfWindows ? (int) windowsToEnd : numberOfWindows;
+	}
+
+	private Window[] readWindows(final long firstWindowStart, final int numberOfWindows) throws IOException {
+		final byte[][] arrays = new byte[numberOfWindows][];
+		final ByteBuffer[] buffers = new ByteBuffer[numberOfWindows];
+		for (int index = 0; index < numberOfWindows; index++) {
+			arrays[index] = createArray();
+			buffers[index] = ByteBuffer.wrap(arrays[index]);
+		}
+		long remaining = IOUtils.readBytes(channel, buffers, firstWindowStart);
+		final Window[] windows = new Window[numberOfWindows];
+		for (int index = 0; index < numberOfWindows && remaining > 0; index++) {
+			final int windowLength = remaining < windowSize ? (int) remaining : windowSize;
+			windows[index] = new Window(arrays[index], firstWindowStart + (long) index * windowSize, windowLength);
+			remaining -= windowLength;
+		}
+		return windows;
+	}
+
 	/**
 	 * Closes the underlying {@link java.io.RandomAccessFile}, then clears any
 	 * cache associated with this WindowReader.
@@ -284,6 +392,16 @@ public class FileReader extends AbstractReader {
 	public final File getFile() {
 		return file;
 	}
+
+	/**
+	 * Returns the {@link java.nio.channels.FileChannel} onto the file, so bytes can
+	 * be transferred directly from it.  Its position should not be changed.
+	 * 
+	 * @return The FileChannel onto the file.
+	 */
+	final FileChannel getChannel() {
+		return channel;
+	}
 	
 	@Override
 	public String toString() {
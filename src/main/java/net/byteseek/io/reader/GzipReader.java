@@ -0,0 +1,372 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.byteseek.io.reader.DeflateDecoder.Checkpoint;
+import net.byteseek.io.reader.cache.MostRecentlyUsedCache;
+import net.byteseek.io.reader.cache.WindowCache;
+
+/**
+ * A WindowReader extending {@link AbstractReader} which gives random access to
+ * the decompressed contents of a gzip file, without decompressing it to a
+ * temporary file first.  Zlib and raw deflate files can also be read.
+ * <p>
+ * As the file is decompressed, an index of checkpoints is built, one at the
+ * first deflate block boundary after every checkpoint interval of
+ * decompressed data.  Each checkpoint holds the position of the block in the
+ * compressed file, and the 32K of decompressed data before it.  A Window at
+ * any position which has already been indexed is then created by resuming
+ * decompression from the nearest checkpoint before it, so random and backwards
+ * access costs roughly one checkpoint interval of decompression, rather than
+ * decompressing from the start.  A few of the Windows decompressed just before
+ * the one requested are also cached, so searching backwards through them is cheap.
+ * <p>
+ * The index is built on the first pass through the data.  The length of the
+ * decompressed data is not known until the end has been reached, so calling
+ * {@link #length()} decompresses the rest of the file and completes the index.
+ * Each checkpoint uses up to 32K of memory, so larger checkpoint intervals
+ * use less memory, at the cost of slower random access.
+ * <p>
+ * This class (like the underlying RandomAccessFile) is not thread-safe.
+ * 
+ * @author Matt Palmer
+ */
+public class GzipReader extends AbstractReader {
+
+	/**
+	 * The default number of bytes of decompressed data between checkpoints.
+	 */
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 1024 * 1024;
+
+	/**
+	 * The default number of Windows decompressed just before a requested Window
+	 * which are cached.  It is half the capacity of the default cache, so they do
+	 * not displace all the other Windows in it.
+	 */
+	public static final int DEFAULT_WINDOWS_CACHED_BEFORE = DEFAULT_CAPACITY / 2;
+
+	private final static String READ_ONLY = "r";
+
+	private final File file;
+	private final RandomAccessFile randomAccessFile;
+	private final int format;
+	private final int checkpointInterval;
+	private final List<Checkpoint> checkpoints = new ArrayList<Checkpoint>();
+
+	private DeflateDecoder decoder;
+	private long length = UNKNOWN_LENGTH;
+	private int windowsCachedBefore = DEFAULT_WINDOWS_CACHED_BEFORE;
+
+	/**
+	 * Constructs a GzipReader which defaults to a window size of 4096, caching
+	 * the last 32 most recently used Windows in a {@link MostRecentlyUsedCache},
+	 * with the default checkpoint interval of 1Mb.
+	 * 
+	 * @param file
+	 *            The compressed file to read from.
+	 * @throws IOException
+	 *             If the file does not exist or could not be read.
+	 * @throws IllegalArgumentException
+	 *             if the file passed in is null.
+	 */
+	public GzipReader(final File file) throws IOException {
+		this(file, DEFAULT_WINDOW_SIZE, DEFAULT_CHECKPOINT_INTERVAL, new MostRecentlyUsedCache(DEFAULT_CAPACITY));
+	}
+
+	/**
+	 * Constructs a GzipReader which defaults to a window size of 4096, using
+	 * the {@link WindowCache} passed in, with the default checkpoint interval
+	 * of 1Mb.
+	 * 
+	 * @param file
+	 *            The compressed file to read from.
+	 * @param cache
+	 *            The cache of Windows to use.
+	 * @throws IOException
+	 *             If the file does not exist or could not be read.
+	 * @throws IllegalArgumentException
+	 *             if the file or cache passed in is null.
+	 */
+	public GzipReader(final File file, final WindowCache cache) throws IOException {
+		this(file, DEFAULT_WINDOW_SIZE, DEFAULT_CHECKPOINT_INTERVAL, cache);
+	}
+
+	/**
+	 * Constructs a GzipReader using the window size and checkpoint interval
+	 * passed in, caching the last 32 most recently used Windows in a
+	 * {@link MostRecentlyUsedCache}.
+	 * 
+	 * @param file
+	 *            The compressed file to read from.
+	 * @param windowSize
+	 *            The size of the Windows to create.
+	 * @param checkpointInterval
+	 *            The number of bytes of decompressed data between checkpoints.
+	 * @throws IOException
+	 *             If the file does not exist or could not be read.
+	 * @throws IllegalArgumentException
+	 *             if the file passed in is null, or the window size or
+	 *             checkpoint interval is less than one.
+	 */
+	public GzipReader(final File file, final int windowSize, final int checkpointInterval) throws IOException {
+		this(file, windowSize, checkpointInterval, new MostRecentlyUsedCache(DEFAULT_CAPACITY));
+	}
+
+	/**
+	 * Constructs a GzipReader using the window size, checkpoint interval and
+	 * {@link WindowCache} passed in.
+	 * 
+	 * @param file
+	 *            The compressed file to read from.
+	 * @param windowSize
+	 *            The size of the Windows to create.
+	 * @param checkpointInterval
+	 *            The number of bytes of decompressed data between checkpoints.
+	 * @param cache
+	 *            The cache of Windows to use.
+	 * @throws IOException
+	 *             If the file does not exist or could not be read.
+	 * @throws IllegalArgumentException
+	 *             if the file or cache passed in is null, or the window size
+	 *             or checkpoint interval is less than one.
+	 */
+	public GzipReader(final File file, final int windowSize, final int checkpointInterval,
+			final WindowCache cache) throws IOException {
+		super(windowSize, cache);
+		if (file == null) {
+			throw new IllegalArgumentException("Null file passed to GzipReader");
+		}
+		if (checkpointInterval < 1) {
+			throw new IllegalArgumentException("The checkpoint interval must be at least one. Interval was: "
+					+ checkpointInterval);
+		}
+		this.file = file;
+		this.checkpointInterval = checkpointInterval;
+		randomAccessFile = new RandomAccessFile(file, READ_ONLY);
+		try {
+			format = DeflateDecoder.detectFormat(randomAccessFile);
+		} catch (final IOException ex) {
+			randomAccessFile.close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Returns the length of the decompressed data.
+	 * <p>
+	 * If the end of the data has not yet been reached, the remainder of the
+	 * file is decompressed to find it, completing the checkpoint index.
+	 * 
+	 * @return The length of the decompressed data.
+	 * @throws IOException
+	 *             If the file could not be read or the compressed data is not valid.
+	 */
+	@Override
+	public long length() throws IOException {
+		synchronized (readLock) {
+			if (length == UNKNOWN_LENGTH) {
+				final DeflateDecoder endDecoder = getDecoder(Long.MAX_VALUE);
+				endDecoder.skip(Long.MAX_VALUE);
+				length = endDecoder.getOutputPosition();
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	Window createWindow(final long windowStart) throws IOException {
+		if (length != UNKNOWN_LENGTH && windowStart >= length) {
+			return null;
+		}
+		final DeflateDecoder windowDecoder = getDecoder(windowStart);
+
+		// Skip to the start of the first whole window after the decoder position,
+		// or to the first window before the one requested which will be cached:
+		final long decoderPosition = windowDecoder.getOutputPosition();
+		final long remainder = decoderPosition % windowSize;
+		final long firstWindowStart = Math.max(remainder > 0 ? decoderPosition + windowSize - remainder : decoderPosition,
+				                               windowStart - (long) windowsCachedBefore * windowSize);
+		final long bytesToSkip = firstWindowStart - decoderPosition;
+		if (bytesToSkip > 0 && windowDecoder.skip(bytesToSkip) < bytesToSkip) {
+			length = windowDecoder.getOutputPosition();
+			return null;
+		}
+
+		// Decompress windows up to the one requested, caching the windows before it:
+		while (windowDecoder.getOutputPosition() <= windowStart) {
+			final long nextWindowStart = windowDecoder.getOutputPosition();
+			final byte[] bytes = createArray();
+			final int totalRead = readFully(windowDecoder, bytes);
+			if (totalRead < windowSize) {
+				length = nextWindowStart + totalRead;
+			}
+			if (totalRead == 0) {
+				break;
+			}
+			final Window window = new Window(bytes, nextWindowStart, totalRead);
+			if (nextWindowStart == windowStart) {
+				return window;
+			}
+			cacheWindow(window);
+		}
+		return null;
+	}
+
+	/**
+	 * Sets the number of Windows decompressed just before a requested Window which
+	 * are cached, when decompression resumes from a checkpoint before it.  Caching
+	 * them makes searching backwards cheap, but more Windows than the cache can
+	 * hold only displace each other.  Zero caches none of them.
+	 * 
+	 * @param windowsCachedBefore
+	 *            The number of Windows before a requested Window to cache.
+	 * @throws IllegalArgumentException
+	 *             if the number of Windows is negative.
+	 */
+	public final void setWindowsCachedBefore(final int windowsCachedBefore) {
+		if (windowsCachedBefore < 0) {
+			throw new IllegalArgumentException("The number of windows cached before cannot be negative.  It was: "
+					+ windowsCachedBefore);
+		}
+		this.windowsCachedBefore = windowsCachedBefore;
+	}
+
+	/**
+	 * Returns the number of Windows decompressed just before a requested Window
+	 * which are cached.
+	 * 
+	 * @return The number of Windows before a requested Window which are cached.
+	 */
+	public final int getWindowsCachedBefore() {
+		return windowsCachedBefore;
+	}
+
+	/**
+	 * Returns the number of bytes of decompressed data between checkpoints.
+	 * 
+	 * @return The checkpoint interval.
+	 */
+	public final int getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	/**
+	 * Returns the number of checkpoints indexed so far.
+	 * 
+	 * @return The number of checkpoints indexed so far.
+	 */
+	public final int getCheckpointCount() {
+		return checkpoints.size();
+	}
+
+	/**
+	 * Closes the underlying {@link java.io.RandomAccessFile}, then clears any
+	 * cache associated with this WindowReader.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			randomAccessFile.close();
+		} finally {
+			super.close();
+		}
+	}
+
+	/**
+	 * Returns the compressed {@link java.io.File} accessed by this WindowReader.
+	 * 
+	 * @return The File object accessed by this WindowReader.
+	 */
+	public final File getFile() {
+		return file;
+	}
+
+	/*
+	 * Continues with the current decoder if no checkpoint lies between it and
+	 * the position, otherwise resumes from the last checkpoint before the position.
+	 */
+	private DeflateDecoder getDecoder(final long position) throws IOException {
+		final Checkpoint checkpoint = getCheckpointBefore(position);
+		final DeflateDecoder current = decoder;
+		if (current != null && current.getOutputPosition() <= position
+				&& (checkpoint == null || current.getOutputPosition() >= checkpoint.outputPosition)) {
+			return current;
+		}
+		decoder = checkpoint == null ? new DeflateDecoder(randomAccessFile, format, checkpoints, checkpointInterval)
+				: new DeflateDecoder(randomAccessFile, format, checkpoint, checkpoints, checkpointInterval);
+		return decoder;
+	}
+
+	private Checkpoint getCheckpointBefore(final long position) {
+		int low = 0;
+		int high = checkpoints.size() - 1;
+		Checkpoint found = null;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final Checkpoint checkpoint = checkpoints.get(middle);
+			if (checkpoint.outputPosition <= position) {
+				found = checkpoint;
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return found;
+	}
+
+	private int readFully(final DeflateDecoder windowDecoder, final byte[] bytes) throws IOException {
+		int totalRead = 0;
+		while (totalRead < windowSize) {
+			final int read = windowDecoder.read(bytes, totalRead, windowSize - totalRead);
+			if (read < 0) {
+				break;
+			}
+			totalRead += read;
+		}
+		return totalRead;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[file:" + file + " checkpoints: " + checkpoints.size() + " cache:" + cache + ']';
+	}
+
+}
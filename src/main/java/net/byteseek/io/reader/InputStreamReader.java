@@ -41,7 +41,7 @@ import net.byteseek.io.reader.cache.TwoLevelCache;
 import net.byteseek.io.reader.cache.WindowCache;
 
 /**
- * A WindowReader extending {@link AbstractReader} over an {@link java.io.InputStream}
+ * A WindowReader extending {@link AbstractSequentialReader} over an {@link java.io.InputStream}
  * .
  * <p>
  * The implementation is stream-friendly, in that it does not need to know the
@@ -73,11 +73,9 @@ import net.byteseek.io.reader.cache.WindowCache;
  * 
  * @author Matt Palmer
  */
-public class InputStreamReader extends AbstractReader {
+public class InputStreamReader extends AbstractSequentialReader {
 
 	private final InputStream stream;
-	private long streamPos = 0;
-	private long length = UNKNOWN_LENGTH;
 
 	/**
 	 * Constructs an InputStreamReader from an InputStream, using the default
@@ -178,94 +176,11 @@ public class InputStreamReader extends AbstractReader {
 	}
 
 	/**
-	 * Returns a window onto the data for a given position. The position does
-	 * not have to be the beginning of a {@link Window} - but the Window
-	 * returned must include that position (if such a position exists in the
-	 * WindowReader).
-	 * 
-	 * @param position
-	 *            The position in the reader for which a Window is requested.
-	 * @return A Window backed by a byte array onto the data for a given
-	 *         position. If a window can't be provided for the given position,
-	 *         null is returned.
-	 * @throws IOException
-	 *             if an IO error occurred trying to create a new window.
-	 * @throws WindowMissingException
-	 *             if the cache could not provide a Window for a position in the
-	 *             stream which has already been read.
+	 * Reads the next block of bytes from the stream.
 	 */
 	@Override
-	public final Window getWindow(final long position) throws IOException,
-			WindowMissingException {
-		final Window window = super.getWindow(position);
-		if (window == null && position < streamPos && position >= 0) {
-			// No window was returned, but the position requested has already
-			// been read. This means the cache algorithm selected to use with
-			// this reader cannot return an earlier position, and being a
-			// stream,
-			// we can't rewind to read it again. There is nothing which can be
-			// done at this point other than to throw an exception.
-			final String message = "Cache failed to provide a window at position: %d but we have already read up to: %d";
-			throw new WindowMissingException(String.format(message, position,
-					streamPos));
-		}
-		return window;
-	}
-
-	/**
-	 * {@inheritDoc}
-	 */
-	@Override
-	protected Window createWindow(final long readPos) throws IOException {
-		Window lastWindow = null;
-		while (readPos > streamPos && length == UNKNOWN_LENGTH) {
-			final byte[] bytes = new byte[windowSize];
-			final int totalRead = IOUtils.readBytes(stream, bytes);
-			if (totalRead > 0) {
-				lastWindow = new Window(bytes, streamPos, totalRead);
-				streamPos += totalRead;
-			}
-			if (totalRead < windowSize) { // If we read less than the available
-											// array:
-				length = streamPos; // then the length is whatever the streampos
-									// is now.
-			}
-			if (readPos <= streamPos) { // If we still haven't reached the
-										// window
-				cache.addWindow(lastWindow); // for the requested position,
-												// cache it.
-			}
-		}
-		return lastWindow;
-	}
-
-	/**
-	 * Returns the total length of the InputStream.
-	 * <p>
-	 * Note that calling this method will cause the entire stream to be read and
-	 * cached in order to determine the length.
-	 * 
-	 * @return The total length of the stream.
-	 * @throws IOException
-	 *             If any problem occurred reading the stream.
-	 */
-	@Override
-	public long length() throws IOException {
-		while (length == UNKNOWN_LENGTH) {
-			final byte[] bytes = new byte[windowSize];
-			final int totalRead = IOUtils.readBytes(stream, bytes);
-			if (totalRead > 0) {
-				final Window lastWindow = new Window(bytes, streamPos,
-						totalRead);
-				streamPos += totalRead;
-				cache.addWindow(lastWindow);
-			}
-			if (totalRead < windowSize) { // If we read less than the available
-											// array:
-				length = streamPos;
-			}
-		}
-		return length;
+	int readBlock(final byte[] bytes) throws IOException {
+		return IOUtils.readBytes(stream, bytes);
 	}
 
 	/**
@@ -0,0 +1,312 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import net.byteseek.io.reader.cache.MostRecentlyUsedCache;
+import net.byteseek.io.reader.cache.WindowCache;
+
+/**
+ * A WindowReader extending {@link AbstractReader} which memory maps a file
+ * using a {@link java.nio.channels.FileChannel}, and serves {@link Window}s
+ * from the mapped memory.
+ * <p>
+ * A single mapping cannot exceed 2GB, so the file is mapped in chunks. Each
+ * chunk is a whole multiple of the window size, so a Window never spans two
+ * chunks. Chunks are only mapped when a Window is first requested from them.
+ * The operating system page cache serves the bytes, so there are no read
+ * system calls or seeks when creating a Window.
+ * <p>
+ * Windows are slices of the mapped chunks, so no bytes are copied when a Window
+ * is created.  Searchers search the Window ByteBuffers directly; calling
+ * {@link Window#getArray()} on a Window from this reader copies its bytes
+ * into a new array.
+ * <p>
+ * Note that a mapping is only released when the mapped buffer is garbage
+ * collected, not when this reader is closed.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ * @author Matt Palmer
+ */
+public class MappedFileReader extends AbstractReader {
+
+	/**
+	 * The default maximum size in bytes of a single mapped chunk of the file.
+	 */
+	protected final static int DEFAULT_CHUNK_SIZE = 1 << 30;
+
+	private final static String READ_ONLY = "r";
+	private final static String NULL_ARGUMENTS = "Null file passed to MappedFileReader";
+
+	private final File file;
+	private final RandomAccessFile randomAccessFile;
+	private final FileChannel channel;
+	private final long length;
+	private final int chunkSize;
+	private final MappedByteBuffer[] chunks;
+
+	/**
+	 * Constructs a MappedFileReader which defaults to a {@link Window} size of
+	 * 4096, caching the last 32 most recently used Windows in a
+	 * {@link MostRecentlyUsedCache}.
+	 * 
+	 * @param file
+	 *            The file to read from.
+	 * @throws FileNotFoundException
+	 *             If the file does not exist.
+	 * @throws IllegalArgumentException
+	 *             if the file passed in is null.
+	 */
+	public MappedFileReader(final File file) throws FileNotFoundException {
+		this(file, DEFAULT_WINDOW_SIZE, new MostRecentlyUsedCache(
+				DEFAULT_CAPACITY));
+	}
+
+	/**
+	 * Constructs a MappedFileReader which defaults to a {@link Window} size of
+	 * 4096 using the {@link WindowCache} passed in to cache Windows.
+	 * 
+	 * @param file
+	 *            The file to read from.
+	 * @param cache
+	 *            the cache of Windows to use.
+	 * @throws FileNotFoundException
+	 *             If the file does not exist.
+	 * @throws IllegalArgumentException
+	 *             if the file passed in is null.
+	 */
+	public MappedFileReader(final File file, final WindowCache cache)
+			throws FileNotFoundException {
+		this(file, DEFAULT_WINDOW_SIZE, cache);
+	}
+
+	/**
+	 * Constructs a MappedFileReader using the {@link Window} size passed in,
+	 * and caches the last 32 Windows in a {@link MostRecentlyUsedCache}.
+	 * 
+	 * @param file
+	 *            The file to read from.
+	 * @param windowSize
+	 *            the size of the Windows to create.
+	 * @throws FileNotFoundException
+	 *             If the file does not exist.
+	 * @throws IllegalArgumentException
+	 *             if the file passed in is null.
+	 */
+	public MappedFileReader(final File file, final int windowSize)
+			throws FileNotFoundException {
+		this(file, windowSize, new MostRecentlyUsedCache(DEFAULT_CAPACITY));
+	}
+
+	/**
+	 * Constructs a MappedFileReader which defaults to a {@link Window} size of
+	 * 4096, caching the last 32 most recently used Windows in a
+	 * {@link MostRecentlyUsedCache}.
+	 * 
+	 * @param path
+	 *            The path of the file to read from.
+	 * @throws FileNotFoundException
+	 *             If the file does not exist.
+	 * @throws IllegalArgumentException
+	 *             if the path passed in is null.
+	 */
+	public MappedFileReader(final String path) throws FileNotFoundException {
+		this(path == null ? null : new File(path));
+	}
+
+	/**
+	 * Constructs a MappedFileReader which reads the file into {@link Window}s
+	 * of the specified size, using the {@link WindowCache} supplied to cache
+	 * them, and mapping the file in chunks of up to 1GB.
+	 * 
+	 * @param file
+	 *            The file to read from.
+	 * @param windowSize
+	 *            the size of the Windows to create.
+	 * @param cache
+	 *            the cache of Windows to use.
+	 * @throws FileNotFoundException
+	 *             If the file does not exist.
+	 * @throws IllegalArgumentException
+	 *             if the file passed in is null.
+	 */
+	public MappedFileReader(final File file, final int windowSize,
+			final WindowCache cache) throws FileNotFoundException {
+		this(file, windowSize, DEFAULT_CHUNK_SIZE, cache);
+	}
+
+	/**
+	 * Constructs a MappedFileReader which reads the file into {@link Window}s
+	 * of the specified size, using the {@link WindowCache} supplied to cache
+	 * them, and mapping the file in chunks no bigger than the chunk size
+	 * supplied.
+	 * <p>
+	 * The chunk size is rounded down to a whole multiple of the window size,
+	 * so a Window never spans two mapped chunks.
+	 * 
+	 * @param file
+	 *            The file to read from.
+	 * @param windowSize
+	 *            the size of the Windows to create.
+	 * @param chunkSize
+	 *            the maximum size of a single mapped region of the file.
+	 * @param cache
+	 *            the cache of Windows to use.
+	 * @throws FileNotFoundException
+	 *             If the file does not exist.
+	 * @throws IllegalArgumentException
+	 *             if the file passed in is null, or the chunk size is smaller
+	 *             than the window size.
+	 */
+	public MappedFileReader(final File file, final int windowSize,
+			final int chunkSize, final WindowCache cache)
+			throws FileNotFoundException {
+		super(windowSize, cache);
+		if (file == null) {
+			throw new IllegalArgumentException(NULL_ARGUMENTS);
+		}
+		if (chunkSize < windowSize) {
+			throw new IllegalArgumentException("Chunk size " + chunkSize
+					+ " must not be smaller than the window size " + windowSize);
+		}
+		this.file = file;
+		this.randomAccessFile = new RandomAccessFile(file, READ_ONLY);
+		this.channel = randomAccessFile.getChannel();
+		this.length = file.length();
+		this.chunkSize = chunkSize - (chunkSize % windowSize);
+		final long numChunks = (length + this.chunkSize - 1) / this.chunkSize;
+		this.chunks = new MappedByteBuffer[(int) numChunks];
+	}
+
+	/**
+	 * Returns the length of the file.
+	 * 
+	 * @return The length of the file accessed by the reader.
+	 */
+	@Override
+	public final long length() {
+		return length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The Window is a slice of the mapped chunk of the file which contains
+	 * the window start.
+	 */
+	@Override
+	Window createWindow(final long windowStart) throws IOException {
+		if (windowStart >= 0 && windowStart < length) {
+			final int chunkIndex = (int) (windowStart / chunkSize);
+			final ByteBuffer chunk = getChunk(chunkIndex).duplicate();
+			final int chunkOffset = (int) (windowStart - (long) chunkIndex * chunkSize);
+			final int remaining = chunk.limit() - chunkOffset;
+			final int windowLength = remaining < windowSize ? remaining : windowSize;
+			((Buffer) chunk).position(chunkOffset);
+			((Buffer) chunk).limit(chunkOffset + windowLength);
+			return new Window(chunk.slice(), windowStart, windowLength);
+		}
+		return null;
+	}
+
+	/**
+	 * Closes the underlying {@link java.nio.channels.FileChannel} and file,
+	 * then clears any cache associated with this WindowReader.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			randomAccessFile.close();
+		} finally {
+			for (int chunkIndex = 0; chunkIndex < chunks.length; chunkIndex++) {
+				chunks[chunkIndex] = null;
+			}
+			super.close();
+		}
+	}
+
+	/**
+	 * Returns the {@link java.io.File} object accessed by this WindowReader.
+	 * 
+	 * @return The File object accessed by this WindowReader.
+	 */
+	public final File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the {@link java.nio.channels.FileChannel} onto the file, so bytes can
+	 * be transferred directly from it.  Its position should not be changed.
+	 * 
+	 * @return The FileChannel onto the file.
+	 */
+	final FileChannel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * Returns the size in bytes of the chunks the file is mapped in.
+	 * 
+	 * @return The size of the mapped chunks of the file.
+	 */
+	public final int getChunkSize() {
+		return chunkSize;
+	}
+
+	private MappedByteBuffer getChunk(final int chunkIndex) throws IOException {
+		MappedByteBuffer chunk = chunks[chunkIndex];
+		if (chunk == null) {
+			final long chunkStart = (long) chunkIndex * chunkSize;
+			final long remaining = length - chunkStart;
+			final long chunkLength = remaining < chunkSize ? remaining : chunkSize;
+			chunk = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, chunkLength);
+			chunks[chunkIndex] = chunk;
+		}
+		return chunk;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[file:" + file + " length: " + length
+				+ " chunk size: " + chunkSize + " cache:" + cache + ']';
+	}
+
+}
@@ -0,0 +1,482 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous read-ahead of {@link Window}s for an {@link AbstractReader}.
+ * <p>
+ * When the reader moves forward from one Window to the next, the following
+ * Windows are read on a background {@link java.util.concurrent.ExecutorService},
+ * so the time spent reading them overlaps with processing the current Window.
+ * When the reader moves backwards from one Window to the one before it, as
+ * backwards searches do, batches of earlier Windows are read in a single
+ * background task.  Each batch is read in ascending order, so the underlying
+ * source still sees a forward sequential read.
+ * Accessing Windows out of sequence stops scheduling further reads until
+ * sequential access resumes.
+ * <p>
+ * Windows read in the background are staged here, and are only added to the
+ * {@link net.byteseek.io.reader.cache.WindowCache} of the reader by the thread
+ * which asks for them, so the cache does not have to be thread-safe.
+ * All reads from the underlying source are serialised, so sources which must seek
+ * before reading, or can only be read in sequence, work as before.
+ * <p>
+ * It records how many Windows were read in advance, how many of those were used,
+ * and how much read time was hidden from the reading thread - the time spent 
+ * reading prefetched Windows, less any time the reading thread spent waiting
+ * for them to finish.
+ * <p>
+ * Read-ahead is enabled on a reader using 
+ * {@link AbstractReader#setReadAhead(ExecutorService, int)}.
+ * 
+ * @author Matt Palmer
+ */
+public final class ReadAhead {
+
+	private final static long STAGED = -1;
+
+	private final AbstractReader reader;
+	private final ExecutorService executor;
+	private final int numberOfWindows;
+	private final long windowSize;
+	private final Map<Long, Future<Prefetched>> pending;
+
+	private final AtomicLong windowsPrefetched = new AtomicLong();
+	private final AtomicLong prefetchHits = new AtomicLong();
+	private final AtomicLong hiddenReadNanos = new AtomicLong();
+	private final AtomicLong waitNanos = new AtomicLong();
+
+	private volatile boolean stopped;
+	private volatile long noWindowsFrom = Long.MAX_VALUE;
+	private long lastWindowStart = -1;
+	private long nextToSchedule;
+	private long lowestScheduled = -1;
+
+	/**
+	 * Constructs a ReadAhead for a reader.
+	 * 
+	 * @param reader The reader to read Windows from.
+	 * @param executor The executor to read Windows on.
+	 * @param numberOfWindows The number of Windows to read ahead of the current Window.
+	 * @throws IllegalArgumentException if the executor is null or the number of windows is less than one.
+	 */
+	ReadAhead(final AbstractReader reader, final ExecutorService executor, final int numberOfWindows) {
+		if (executor == null) {
+			throw new IllegalArgumentException("Null executor passed in to ReadAhead.");
+		}
+		if (numberOfWindows < 1) {
+			throw new IllegalArgumentException("The number of windows to read ahead must be at least one.  It was " + numberOfWindows);
+		}
+		this.reader = reader;
+		this.executor = executor;
+		this.numberOfWindows = numberOfWindows;
+		this.windowSize = reader.windowSize;
+		this.pending = new ConcurrentHashMap<Long, Future<Prefetched>>();
+	}
+
+	/**
+	 * Returns the number of Windows read in advance on the executor.
+	 * 
+	 * @return The number of Windows read in advance.
+	 */
+	public long getWindowsPrefetched() {
+		return windowsPrefetched.get();
+	}
+
+	/**
+	 * Returns the number of Windows which were asked for and had already been read,
+	 * or were being read, in advance.
+	 * 
+	 * @return The number of Windows asked for which were read in advance.
+	 */
+	public long getPrefetchHits() {
+		return prefetchHits.get();
+	}
+
+	/**
+	 * Returns the total time in nanoseconds spent reading Windows in advance which
+	 * the reading thread did not have to wait for.
+	 * 
+	 * @return The read time hidden from the reading thread, in nanoseconds.
+	 */
+	public long getHiddenReadNanos() {
+		return hiddenReadNanos.get();
+	}
+
+	/**
+	 * Returns the total time in nanoseconds the reading thread spent waiting for
+	 * Windows which were still being read in advance when they were asked for.
+	 * 
+	 * @return The time spent waiting for Windows being read in advance, in nanoseconds.
+	 */
+	public long getWaitNanos() {
+		return waitNanos.get();
+	}
+
+	/**
+	 * Returns the number of Windows read ahead of the current Window.
+	 * 
+	 * @return The number of Windows read ahead of the current Window.
+	 */
+	public int getNumberOfWindows() {
+		return numberOfWindows;
+	}
+
+	/**
+	 * Notifies the read-ahead that a Window was accessed which was not the last
+	 * Window accessed.  If it follows on from the last Window, any following
+	 * Windows not already scheduled are read in the background.  If it precedes
+	 * the last Window, a batch of earlier Windows is read in the background.
+	 * 
+	 * @param windowStart The start of the Window accessed.
+	 */
+	synchronized void windowAccessed(final long windowStart) {
+		if (windowStart == lastWindowStart + windowSize) {
+			final long lastToSchedule = windowStart + numberOfWindows * windowSize;
+			long nextWindow = nextToSchedule > windowStart ? nextToSchedule : windowStart + windowSize;
+			while (nextWindow <= lastToSchedule && nextWindow < noWindowsFrom && !stopped) {
+				schedule(nextWindow);
+				nextWindow += windowSize;
+			}
+			nextToSchedule = nextWindow;
+		} else if (windowStart == lastWindowStart - windowSize) {
+			// Moving backwards, read a batch of earlier windows when less than half 
+			// of those scheduled remain ahead of the current window:
+			final long lowest = lowestScheduled >= 0 && lowestScheduled < windowStart ? lowestScheduled : windowStart;
+			if (lowest > 0 && windowStart - lowest <= (numberOfWindows / 2) * windowSize && !stopped) {
+				final long batchStart = Math.max(0, lowest - numberOfWindows * windowSize);
+				scheduleBatch(batchStart, (int) ((lowest - batchStart) / windowSize));
+				lowestScheduled = batchStart;
+			}
+		} else if (windowStart != lastWindowStart) {
+			nextToSchedule = 0;
+			lowestScheduled = -1;
+			cacheCompletedWindows();
+		}
+		lastWindowStart = windowStart;
+	}
+
+	/**
+	 * Returns the Window at the position given, either from a Window read in
+	 * advance, or by reading it now.
+	 * 
+	 * @param windowStart The position of the Window to return.
+	 * @return The Window at the position, or null if there is no Window at that position.
+	 * @throws IOException If there was a problem reading the Window.
+	 */
+	Window getWindow(final long windowStart) throws IOException {
+		// If a read in advance finds its window was already staged by a reader which
+		// can only read in sequence, it returns nothing, so look again for the staged window.
+		Future<Prefetched> future;
+		while ((future = pending.remove(windowStart)) != null) {
+			final long waitStart = System.nanoTime();
+			final boolean wasDone = future.isDone();
+			try {
+				final Prefetched prefetched = future.get();
+				if (prefetched != null) {
+					if (prefetched.readNanos == STAGED) {
+						return prefetched.window;
+					}
+					final long waited = wasDone ? 0 : System.nanoTime() - waitStart;
+					waitNanos.addAndGet(waited);
+					hiddenReadNanos.addAndGet(prefetched.readNanos > waited ? prefetched.readNanos - waited : 0);
+					prefetchHits.incrementAndGet();
+					return prefetched.window;
+				}
+			} catch (final InterruptedException ex) {
+				pending.put(windowStart, future);
+				Thread.currentThread().interrupt();
+				break;
+			} catch (final ExecutionException ex) {
+				throwCause(ex);
+			}
+		}
+		synchronized (reader.readLock) {
+			return reader.createWindow(windowStart);
+		}
+	}
+
+	/**
+	 * Stages a Window read by the reader which is not the Window it was asked for,
+	 * to be added to the cache by the thread which next asks for it.
+	 * 
+	 * @param window The Window to stage.
+	 */
+	void stage(final Window window) {
+		final Slot staged = new Slot();
+		staged.complete(new Prefetched(window, STAGED));
+		pending.put(window.getWindowPosition(), staged);
+	}
+
+	/**
+	 * Stops scheduling new reads.  Windows which have been read, or are being read,
+	 * are added to the cache of the reader, so no Windows which were read are lost.
+	 * 
+	 * @throws IOException If there was a problem reading a Window.
+	 */
+	void stop() throws IOException {
+		stopped = true;
+		final Iterator<Map.Entry<Long, Future<Prefetched>>> entries = pending.entrySet().iterator();
+		while (entries.hasNext()) {
+			final Future<Prefetched> future = entries.next().getValue();
+			entries.remove();
+			try {
+				addToCache(future.get());
+			} catch (final InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (final ExecutionException ex) {
+				throwCause(ex);
+			}
+		}
+	}
+
+	/**
+	 * Stops scheduling new reads, and discards any Windows read in advance.
+	 */
+	void cancel() {
+		stopped = true;
+		pending.clear();
+	}
+
+	private void schedule(final long windowStart) {
+		if (!pending.containsKey(windowStart)) {
+			final FutureTask<Prefetched> task = new FutureTask<Prefetched>(new Read(windowStart));
+			pending.put(windowStart, task);
+			executor.execute(task);
+		}
+	}
+
+	private void scheduleBatch(final long firstWindowStart, final int count) {
+		final Slot[] slots = new Slot[count];
+		for (int index = 0; index < count; index++) {
+			final long windowStart = firstWindowStart + (long) index * windowSize;
+			if (!pending.containsKey(windowStart)) {
+				slots[index] = new Slot();
+				pending.put(windowStart, slots[index]);
+			}
+		}
+		executor.execute(new BatchRead(firstWindowStart, slots));
+	}
+
+	private void cacheCompletedWindows() {
+		final Iterator<Map.Entry<Long, Future<Prefetched>>> entries = pending.entrySet().iterator();
+		while (entries.hasNext()) {
+			final Future<Prefetched> future = entries.next().getValue();
+			if (future.isDone()) {
+				entries.remove();
+				try {
+					addToCache(future.get());
+				} catch (final InterruptedException cannotHappenAsFutureIsDone) {
+					Thread.currentThread().interrupt();
+				} catch (final ExecutionException failedReadsAreRetriedWhenNextAskedFor) {
+				}
+			}
+		}
+	}
+
+	private void addToCache(final Prefetched prefetched) {
+		if (prefetched != null) {
+			reader.cache.addWindow(prefetched.window);
+		}
+	}
+
+	private void throwCause(final ExecutionException ex) throws IOException {
+		final Throwable cause = ex.getCause();
+		if (cause instanceof IOException) {
+			throw (IOException) cause;
+		}
+		if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		}
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		throw new IOException(cause);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[windows: " + numberOfWindows + 
+				" prefetched: " + windowsPrefetched + " hits: " + prefetchHits + 
+				" hidden ns: " + hiddenReadNanos + " wait ns: " + waitNanos + ']';
+	}
+
+	/**
+	 * A Window read in advance, and the time it took to read it.
+	 */
+	private static final class Prefetched {
+
+		private final Window window;
+		private final long readNanos;
+
+		private Prefetched(final Window window, final long readNanos) {
+			this.window = window;
+			this.readNanos = readNanos;
+		}
+	}
+
+	/**
+	 * A Future for a Window which is completed by a batch read, or staged.
+	 */
+	private static final class Slot extends FutureTask<Prefetched> {
+
+		private static final Callable<Prefetched> COMPLETED_EXTERNALLY = new Callable<Prefetched>() {
+			@Override
+			public Prefetched call() {
+				return null;
+			}
+		};
+
+		private Slot() {
+			super(COMPLETED_EXTERNALLY);
+		}
+
+		private void complete(final Prefetched prefetched) {
+			set(prefetched);
+		}
+
+		private void fail(final Throwable cause) {
+			setException(cause);
+		}
+	}
+
+	/**
+	 * Reads a batch of consecutive Windows in advance in a single task, in
+	 * ascending order, unless read-ahead has been stopped.
+	 */
+	private final class BatchRead implements Runnable {
+
+		private final long firstWindowStart;
+		private final Slot[] slots;
+
+		private BatchRead(final long firstWindowStart, final Slot[] slots) {
+			this.firstWindowStart = firstWindowStart;
+			this.slots = slots;
+		}
+
+		@Override
+		public void run() {
+			try {
+				if (stopped) {
+					completeAll(null);
+					return;
+				}
+				final Window[] windows;
+				final long readNanos;
+				synchronized (reader.readLock) {
+					final long readStart = System.nanoTime();
+					windows = reader.createWindows(firstWindowStart, slots.length);
+					readNanos = (System.nanoTime() - readStart) / slots.length;
+				}
+				for (int index = 0; index < slots.length; index++) {
+					final Slot slot = slots[index];
+					final Window window = windows[index];
+					if (slot != null) {
+						if (window != null) {
+							windowsPrefetched.incrementAndGet();
+							slot.complete(new Prefetched(window, readNanos));
+						} else {
+							slot.complete(null);
+						}
+					}
+				}
+			} catch (final Throwable cause) {
+				for (final Slot slot : slots) {
+					if (slot != null) {
+						slot.fail(cause);
+					}
+				}
+			}
+		}
+
+		private void completeAll(final Prefetched prefetched) {
+			for (final Slot slot : slots) {
+				if (slot != null) {
+					slot.complete(prefetched);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads a Window in advance, unless read-ahead has been stopped.
+	 */
+	private final class Read implements Callable<Prefetched> {
+
+		private final long windowStart;
+
+		private Read(final long windowStart) {
+			this.windowStart = windowStart;
+		}
+
+		@Override
+		public Prefetched call() throws IOException {
+			if (stopped) {
+				return null;
+			}
+			final Window window;
+			final long readNanos;
+			synchronized (reader.readLock) {
+				// A reader which can only read in sequence may already have 
+				// staged this window while reading a later one:
+				final Future<Prefetched> current = pending.get(windowStart);
+				if (current != null && current.isDone()) {
+					return null;
+				}
+				final long readStart = System.nanoTime();
+				window = reader.createWindow(windowStart);
+				readNanos = System.nanoTime() - readStart;
+			}
+			if (window == null) {
+				if (windowStart < noWindowsFrom) {
+					noWindowsFrom = windowStart;
+				}
+				return null;
+			}
+			windowsPrefetched.incrementAndGet();
+			return new Prefetched(window, readNanos);
+		}
+	}
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright Matt Palmer 2011-2012, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+
+import net.byteseek.io.IOUtils;
+import net.byteseek.io.reader.cache.MostRecentlyUsedCache;
+import net.byteseek.io.reader.cache.TempFileCache;
+import net.byteseek.io.reader.cache.TwoLevelCache;
+import net.byteseek.io.reader.cache.WindowCache;
+
+/**
+ * A WindowReader extending {@link AbstractSequentialReader} over a
+ * {@link java.nio.channels.ReadableByteChannel}, reading the channel
+ * sequentially into byte arrays without wrapping it in an InputStream.
+ * <p>
+ * It behaves in the same way as the {@link InputStreamReader}. The channel is
+ * only read as far as the furthest position requested, and the Windows read
+ * are cached so earlier positions can still be served. Calling
+ * {@link #length()} reads the channel to its end. The channel must be in
+ * blocking mode.
+ * <p>
+ * By default, a {@link TwoLevelCache} is used, with a
+ * {@link MostRecentlyUsedCache} as its primary cache, and a
+ * {@link TempFileCache} as its secondary cache. If you provide your own
+ * WindowCache, it must always be able to return an earlier Window, or you must
+ * never request a position which is no longer in the cache. If you do, a
+ * {@link WindowMissingException} will be thrown.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ * @author Matt Palmer
+ */
+public class ReadableByteChannelReader extends AbstractSequentialReader {
+
+	private final ReadableByteChannel channel;
+
+	/**
+	 * Constructs a ReadableByteChannelReader from a ReadableByteChannel, using the default
+	 * window size of 4096 and a default capacity of 32, and a
+	 * {@link TwoLevelCache} with a {@link MostRecentlyUsedCache} as its primary
+	 * cache and a {@link TempFileCache} as the secondary cache.
+	 * 
+	 * @param channel
+	 *            The channel to read from.
+	 * @throws IllegalArgumentException
+	 *             if the channel is null.
+	 */
+	public ReadableByteChannelReader(final ReadableByteChannel channel) {
+		this(channel, DEFAULT_WINDOW_SIZE, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs a ReadableByteChannelReader from a ReadableByteChannel using a default
+	 * window size of 4096, and the {@link WindowCache} provided. The
+	 * WindowCache must ensure that it can provide any Window from a position in
+	 * the channel which has already been read, or you must be sure that you will
+	 * never request such a position if the cache cannot provide that guarantee.
+	 * 
+	 * @param channel
+	 *            The channel to read from.
+	 * @param cache
+	 *            The WindowCache to use.
+	 * @throws IllegalArgumentException
+	 *             if the channel or cache is null.
+	 */
+	public ReadableByteChannelReader(final ReadableByteChannel channel, final WindowCache cache) {
+		this(channel, DEFAULT_WINDOW_SIZE, cache);
+	}
+
+	/**
+	 * Constructs a ReadableByteChannelReader from a ReadableByteChannel, using the window
+	 * size provided and a default capacity of 32, and a {@link TwoLevelCache}
+	 * with a {@link MostRecentlyUsedCache} as its primary cache and a
+	 * {@link TempFileCache} as the secondary cache.
+	 * 
+	 * @param channel
+	 *            The channel to read from.
+	 * @param windowSize
+	 *            The size of a Window to create from the channel.
+	 * @throws IllegalArgumentException
+	 *             if the channel is null, or the window size is less than one.
+	 */
+	public ReadableByteChannelReader(final ReadableByteChannel channel, final int windowSize) {
+		this(channel, windowSize, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs a ReadableByteChannelReader from a ReadableByteChannel, using the window
+	 * size provided, the capacity provided and a {@link TwoLevelCache} with a
+	 * {@link MostRecentlyUsedCache} as its primary cache and a
+	 * {@link TempFileCache} as the secondary cache.
+	 * 
+	 * @param channel
+	 *            The channel to read from.
+	 * @param windowSize
+	 *            The size of a Window to create from the channel.
+	 * @param capacity
+	 *            The capacity of the MostRecentlyUsedCache.
+	 * @throws IllegalArgumentException
+	 *             if the channel is null, or the window size is less than one,
+	 *             or the capacity is less than zero.
+	 */
+	public ReadableByteChannelReader(final ReadableByteChannel channel, final int windowSize,
+			final int capacity) {
+		this(channel, windowSize, TwoLevelCache.create(
+				new MostRecentlyUsedCache(capacity), new TempFileCache()));
+	}
+
+	/**
+	 * Constructs a ReadableByteChannelReader from a ReadableByteChannel, using the window
+	 * size provided and the {@link WindowCache} provided. The WindowCache must
+	 * ensure that it can provide any Window from a position in the channel which
+	 * has already been read, or you must be sure that you will never request
+	 * such a position if the cache cannot provide that guarantee.
+	 * 
+	 * @param channel
+	 *            The channel to read from.
+	 * @param windowSize
+	 *            The size of a Window to create from the channel.
+	 * @param cache
+	 *            The WindowCache to use.
+	 * @throws IllegalArgumentException
+	 *             if the channel or cache is null, or the window size is less
+	 *             than one.
+	 */
+	public ReadableByteChannelReader(final ReadableByteChannel channel, final int windowSize,
+			final WindowCache cache) {
+		super(windowSize, cache);
+		if (channel == null) {
+			throw new IllegalArgumentException("Channel is null.");
+		}
+		this.channel = channel;
+	}
+
+	/**
+	 * Reads the next block of bytes from the channel.
+	 */
+	@Override
+	int readBlock(final byte[] bytes) throws IOException {
+		return IOUtils.readBytes(channel, bytes);
+	}
+
+	/**
+	 * Closes the underlying channel and clears any cache associated with it
+	 * in this WindowReader.
+	 * 
+	 * @throws IOException
+	 *             If a problem occurred closing the channel.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			channel.close();
+		} finally {
+			super.close();
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[channel:" + channel + " cache:" + cache + ']'; 
+	}
+
+}
@@ -30,24 +30,20 @@
  */
 package net.byteseek.io.reader;
 
-import net.byteseek.utils.ArgUtils;
-
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * An InputStream backed by a WindowReader.
+ * <p>
+ * All access to the stream is synchronized, so it can be shared between threads.
+ * Use an {@link UnsynchronizedReaderInputStream} if the stream is only used by one thread.
  */
 public final class ReaderInputStream extends InputStream {
 
-    private final WindowReader reader;
-
-    private long   pos;
-    private long   mark;
-    private Window currentWindow;
-    private int currentWindowLength;
-    private byte[] currentArray;
-    private int currentArrayPos;
+    private final UnsynchronizedReaderInputStream stream;
 
     /**
      * Constructs a ReaderInputStream from a WindowReader.
@@ -57,61 +53,71 @@ public final class ReaderInputStream extends InputStream {
      * @throws java.lang.IllegalArgumentException if the reader is null.
      */
     public ReaderInputStream(final WindowReader reader) throws IOException {
-        ArgUtils.checkNullObject(reader, "reader");
-        this.reader = reader;
-        setPos(0L);
+        this.stream = new UnsynchronizedReaderInputStream(reader);
     }
 
     @Override
     public synchronized int read() throws IOException {
-        if (pos > -1) {
-            final int readResult = currentArray[currentArrayPos++] & 0xFF;
-            checkWindowPos();
-            return readResult;
-        }
-        return -1;
+        return stream.read();
     }
 
     @Override
     public synchronized int read(final byte[] b, final int off, final int len) throws IOException {
-        if (b == null) {
-            throw new NullPointerException();
-        } else if (off < 0 || len < 0 || len > b.length - off) {
-            throw new IndexOutOfBoundsException();
-        } else if (len == 0) {
-            return 0;
-        }
-
-        if (pos > -1) {
-            int available = currentWindowLength - currentArrayPos;
-            if (available >= len) { // buffer copy is completely inside current window.
-                System.arraycopy(currentArray, currentArrayPos, b, off, len);
-                currentArrayPos += len;
-                checkWindowPos();
-                return len;
-            } else { // buffer copy may span more than one window (if there are more windows available...)
-                int copied = 0;
-                int destPos   = off;
-                while (copied < len) {
-                    System.arraycopy(currentArray, currentArrayPos, b, off + copied, available);
-                    copied          += available;
-                    currentArrayPos += available;
-                    checkWindowPos();
-                    if (currentWindow == null) { // no more windows available...
-                        break;
-                    }
-                    final int remaining = len - copied;
-                    available = currentWindowLength > remaining ? remaining : currentWindowLength;
-                }
-                return copied;
-            }
-        }
-        return -1;
+        return stream.read(b, off, len);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Skipping moves straight to the Window containing the new position.
+     */
+    @Override
+    public synchronized long skip(final long n) throws IOException {
+        return stream.skip(n);
     }
 
     @Override
     public synchronized int available() throws IOException {
-        return pos > -1? currentWindowLength - currentArrayPos : 0;
+        return stream.available();
+    }
+
+    /**
+     * Transfers all the remaining bytes in the stream to an OutputStream, writing
+     * them a whole Window at a time.
+     * <p>
+     * On Java 9 and later this overrides {@code InputStream.transferTo(OutputStream)},
+     * so it follows that contract and throws a NullPointerException for a null stream.
+     *
+     * @param out The OutputStream to write to.
+     * @return The number of bytes transferred.
+     * @throws IOException If there was a problem reading or writing the bytes.
+     * @throws java.lang.NullPointerException if the OutputStream is null.
+     */
+    public synchronized long transferTo(final OutputStream out) throws IOException {
+        return stream.transferTo(out);
+    }
+
+    /**
+     * Transfers all the remaining bytes in the stream to a WritableByteChannel,
+     * directly from the file if the reader is a {@link FileReader} or {@link MappedFileReader}.
+     *
+     * @param out The channel to write to.
+     * @return The number of bytes transferred.
+     * @throws IOException If there was a problem reading or writing the bytes.
+     * @throws java.lang.IllegalArgumentException if the channel is null.
+     * @see UnsynchronizedReaderInputStream#transferTo(WritableByteChannel)
+     */
+    public synchronized long transferTo(final WritableByteChannel out) throws IOException {
+        return stream.transferTo(out);
+    }
+
+    /**
+     * Returns the position in the reader of the next byte to be read.
+     *
+     * @return The position in the reader of the next byte to be read.
+     */
+    public synchronized long getPosition() {
+        return stream.getPosition();
     }
 
     /**
@@ -132,40 +138,18 @@ public final class ReaderInputStream extends InputStream {
     }
 
     @Override
-    public synchronized void mark(int readAheadLimit) {
-        mark = pos + currentArrayPos;
+    public synchronized void mark(final int readAheadLimit) {
+        stream.mark(readAheadLimit);
     }
 
     @Override
     public synchronized void reset() throws IOException {
-       setPos(mark);
+        stream.reset();
     }
 
     @Override
     public synchronized void close() throws IOException {
-        reader.close();
-    }
-
-    private void setPos(final long newPos) throws IOException {
-        currentWindow = reader.getWindow(newPos);
-        if (currentWindow != null) {
-            pos                 = newPos;
-            currentWindowLength = currentWindow.length();
-            currentArray        = currentWindow.getArray();
-            currentArrayPos     = reader.getWindowOffset(newPos);
-        } else {
-            pos                 = -1;
-            currentWindowLength = 0;
-            currentArray        = null;
-            currentArrayPos     = 0;
-        }
-    }
-
-    private void checkWindowPos() throws IOException {
-        if (currentArrayPos >= currentWindowLength) {
-            pos += currentArrayPos;
-            setPos(pos);
-        }
+        stream.close();
     }
 
 }
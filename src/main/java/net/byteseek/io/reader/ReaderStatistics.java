@@ -0,0 +1,193 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Statistics recorded by an {@link AbstractReader}: the Windows and bytes read from
+ * its underlying source, the hits and misses of its cache, and the latency of its reads.
+ * <p>
+ * Statistics are only recorded while they are set on a reader using 
+ * {@link AbstractReader#setStatistics(ReaderStatistics)}, so a reader without them
+ * does no extra work.  The same statistics can be set on several readers to
+ * aggregate them.  They can be read at any time, and can be exported through JMX 
+ * by registering them with an MBean server, as they implement {@link ReaderStatisticsMXBean}.
+ * <p>
+ * A read is timed when a Window not found in the cache is asked for, and when a
+ * range is prefetched; Windows read in the same operation to cache for later are
+ * counted, but not timed separately.  When read-ahead is enabled, the time recorded
+ * is the time spent waiting for the Window, not the time spent reading it in the background,
+ * and Windows read in the background are only counted when they are asked for.
+ * <p>
+ * This class is thread-safe.
+ * 
+ * @author Matt Palmer
+ */
+public final class ReaderStatistics implements ReaderStatisticsMXBean {
+
+	/**
+	 * The number of entries in the read latency histogram.  The last entry counts
+	 * reads of 2^39 nanoseconds (about nine minutes) or longer.
+	 */
+	public static final int HISTOGRAM_SIZE = 40;
+
+	private final AtomicLong windowsCreated = new AtomicLong();
+	private final AtomicLong bytesRead = new AtomicLong();
+	private final AtomicLong cacheHits = new AtomicLong();
+	private final AtomicLong cacheMisses = new AtomicLong();
+	private final AtomicLong reads = new AtomicLong();
+	private final AtomicLong readNanos = new AtomicLong();
+	private final AtomicLongArray readLatencies = new AtomicLongArray(HISTOGRAM_SIZE);
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getWindowsCreated() {
+		return windowsCreated.get();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getBytesRead() {
+		return bytesRead.get();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getCacheHits() {
+		return cacheHits.get();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getCacheMisses() {
+		return cacheMisses.get();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getReads() {
+		return reads.get();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getReadNanos() {
+		return readNanos.get();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long[] getReadLatencyHistogram() {
+		final long[] histogram = new long[HISTOGRAM_SIZE];
+		for (int index = 0; index < HISTOGRAM_SIZE; index++) {
+			histogram[index] = readLatencies.get(index);
+		}
+		return histogram;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void reset() {
+		windowsCreated.set(0);
+		bytesRead.set(0);
+		cacheHits.set(0);
+		cacheMisses.set(0);
+		reads.set(0);
+		readNanos.set(0);
+		for (int index = 0; index < HISTOGRAM_SIZE; index++) {
+			readLatencies.set(index, 0);
+		}
+	}
+
+	/**
+	 * Records a Window found in the cache.
+	 */
+	void cacheHit() {
+		cacheHits.incrementAndGet();
+	}
+
+	/**
+	 * Records a Window not found in the cache.
+	 */
+	void cacheMiss() {
+		cacheMisses.incrementAndGet();
+	}
+
+	/**
+	 * Records Windows created by reading the underlying source.
+	 * 
+	 * @param numberOfWindows The number of Windows created.
+	 * @param numberOfBytes   The number of bytes in the Windows.
+	 */
+	void windowsCreated(final int numberOfWindows, final long numberOfBytes) {
+		windowsCreated.addAndGet(numberOfWindows);
+		bytesRead.addAndGet(numberOfBytes);
+	}
+
+	/**
+	 * Records the time taken by a read of the underlying source.
+	 * 
+	 * @param nanos The time taken by the read in nanoseconds.
+	 */
+	void readTimed(final long nanos) {
+		reads.incrementAndGet();
+		readNanos.addAndGet(nanos);
+		final int bucket = nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+		readLatencies.incrementAndGet(bucket < HISTOGRAM_SIZE ? bucket : HISTOGRAM_SIZE - 1);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[windows created: " + windowsCreated + " bytes read: " + bytesRead + 
+				" cache hits: " + cacheHits + " cache misses: " + cacheMisses + 
+				" reads: " + reads + " read nanos: " + readNanos + ']';
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+/**
+ * A management interface onto the {@link ReaderStatistics} of a reader, so they
+ * can be exported through JMX by registering the ReaderStatistics with an MBean server.
+ * 
+ * @author Matt Palmer
+ */
+public interface ReaderStatisticsMXBean {
+
+	/**
+	 * Returns the number of Windows created by reading the underlying source.
+	 * 
+	 * @return The number of Windows created.
+	 */
+	long getWindowsCreated();
+
+	/**
+	 * Returns the number of bytes read from the underlying source into Windows.
+	 * 
+	 * @return The number of bytes read.
+	 */
+	long getBytesRead();
+
+	/**
+	 * Returns the number of Windows asked for which were found in the cache.
+	 * 
+	 * @return The number of cache hits.
+	 */
+	long getCacheHits();
+
+	/**
+	 * Returns the number of Windows asked for which were not found in the cache.
+	 * 
+	 * @return The number of cache misses.
+	 */
+	long getCacheMisses();
+
+	/**
+	 * Returns the number of timed reads of the underlying source.
+	 * 
+	 * @return The number of timed reads.
+	 */
+	long getReads();
+
+	/**
+	 * Returns the total time in nanoseconds spent in timed reads of the underlying source.
+	 * 
+	 * @return The total read time in nanoseconds.
+	 */
+	long getReadNanos();
+
+	/**
+	 * Returns a histogram of the latency of timed reads.  The count at index i is the
+	 * number of reads which took at least 2^i and less than 2^(i+1) nanoseconds,
+	 * except that the first entry also counts reads taking no measurable time, and the
+	 * last entry counts all longer reads.
+	 * 
+	 * @return A copy of the read latency histogram.
+	 */
+	long[] getReadLatencyHistogram();
+
+	/**
+	 * Sets all the statistics back to zero.
+	 */
+	void reset();
+
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
+
+import net.byteseek.io.IOUtils;
+import net.byteseek.io.reader.cache.MostRecentlyUsedCache;
+import net.byteseek.io.reader.cache.WindowCache;
+
+/**
+ * A WindowReader extending {@link AbstractReader} which reads a
+ * {@link java.nio.channels.SeekableByteChannel} into cached byte arrays.
+ * <p>
+ * Any random access channel can be read, for example the channels provided by
+ * a {@link java.nio.file.FileSystem} over zip files or other virtual file
+ * systems, or in-memory channels. Windows are read directly into arrays taken
+ * from the {@link WindowArrayPool} if one has been set, without going through
+ * an InputStream.
+ * <p>
+ * The length of the channel is taken when the reader is constructed.
+ * This class (like most SeekableByteChannels) is not thread-safe, as reading
+ * a window changes the position of the channel.
+ * 
+ * @author Matt Palmer
+ */
+public class SeekableByteChannelReader extends AbstractReader {
+
+	private final SeekableByteChannel channel;
+	private final long length;
+
+	/**
+	 * Constructs a SeekableByteChannelReader which defaults to a window size of
+	 * 4096, caching the last 32 most recently used Windows in a
+	 * {@link MostRecentlyUsedCache}.
+	 * 
+	 * @param channel
+	 *            The channel to read from.
+	 * @throws IOException
+	 *             If the size of the channel could not be determined.
+	 * @throws IllegalArgumentException
+	 *             if the channel is null.
+	 */
+	public SeekableByteChannelReader(final SeekableByteChannel channel) throws IOException {
+		this(channel, DEFAULT_WINDOW_SIZE, new MostRecentlyUsedCache(DEFAULT_CAPACITY));
+	}
+
+	/**
+	 * Constructs a SeekableByteChannelReader which defaults to a window size of
+	 * 4096, using the {@link WindowCache} provided.
+	 * 
+	 * @param channel
+	 *            The channel to read from.
+	 * @param cache
+	 *            The cache of Windows to use.
+	 * @throws IOException
+	 *             If the size of the channel could not be determined.
+	 * @throws IllegalArgumentException
+	 *             if the channel or cache is null.
+	 */
+	public SeekableByteChannelReader(final SeekableByteChannel channel, final WindowCache cache)
+			throws IOException {
+		this(channel, DEFAULT_WINDOW_SIZE, cache);
+	}
+
+	/**
+	 * Constructs a SeekableByteChannelReader using the window size provided,
+	 * caching the last 32 most recently used Windows in a
+	 * {@link MostRecentlyUsedCache}.
+	 * 
+	 * @param channel
+	 *            The channel to read from.
+	 * @param windowSize
+	 *            The size of a Window to read from the channel.
+	 * @throws IOException
+	 *             If the size of the channel could not be determined.
+	 * @throws IllegalArgumentException
+	 *             if the channel is null or the window size is less than one.
+	 */
+	public SeekableByteChannelReader(final SeekableByteChannel channel, final int windowSize)
+			throws IOException {
+		this(channel, windowSize, new MostRecentlyUsedCache(DEFAULT_CAPACITY));
+	}
+
+	/**
+	 * Constructs a SeekableByteChannelReader using the window size provided,
+	 * caching up to capacity most recently used Windows in a
+	 * {@link MostRecentlyUsedCache}.
+	 * 
+	 * @param channel
+	 *            The channel to read from.
+	 * @param windowSize
+	 *            The size of a Window to read from the channel.
+	 * @param capacity
+	 *            The number of Windows to cache.
+	 * @throws IOException
+	 *             If the size of the channel could not be determined.
+	 * @throws IllegalArgumentException
+	 *             if the channel is null or the window size is less than one.
+	 */
+	public SeekableByteChannelReader(final SeekableByteChannel channel, final int windowSize,
+			final int capacity) throws IOException {
+		this(channel, windowSize, new MostRecentlyUsedCache(capacity));
+	}
+
+	/**
+	 * Constructs a SeekableByteChannelReader using the window size and
+	 * {@link WindowCache} provided.
+	 * 
+	 * @param channel
+	 *            The channel to read from.
+	 * @param windowSize
+	 *            The size of a Window to read from the channel.
+	 * @param cache
+	 *            The cache of Windows to use.
+	 * @throws IOException
+	 *             If the size of the channel could not be determined.
+	 * @throws IllegalArgumentException
+	 *             if the channel or cache is null, or the window size is less
+	 *             than one.
+	 */
+	public SeekableByteChannelReader(final SeekableByteChannel channel, final int windowSize,
+			final WindowCache cache) throws IOException {
+		super(windowSize, cache);
+		if (channel == null) {
+			throw new IllegalArgumentException("Null channel passed to SeekableByteChannelReader");
+		}
+		this.channel = channel;
+		this.length = channel.size();
+	}
+
+	/**
+	 * Returns the length of the channel when the reader was constructed.
+	 * 
+	 * @return The length of the channel accessed by the reader.
+	 */
+	@Override
+	public final long length() {
+		return length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	final Window createWindow(final long windowStart) throws IOException {
+		if (windowStart < length) {
+			final byte[] bytes = createArray();
+			final int totalRead = IOUtils.readBytes(channel, bytes, windowStart);
+			if (totalRead > 0) {
+				return new Window(bytes, windowStart, totalRead);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Closes the underlying channel, then clears any cache associated with
+	 * this WindowReader.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			channel.close();
+		} finally {
+			super.close();
+		}
+	}
+
+	/**
+	 * Returns the {@link java.nio.channels.SeekableByteChannel} accessed by
+	 * this WindowReader.
+	 * 
+	 * @return The channel accessed by this WindowReader.
+	 */
+	public final SeekableByteChannel getChannel() {
+		return channel;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[channel:" + channel + " length: " + length + " cache:" + cache + ']';
+	}
+
+}
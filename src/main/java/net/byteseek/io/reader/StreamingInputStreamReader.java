@@ -0,0 +1,128 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import java.io.InputStream;
+
+import net.byteseek.io.reader.cache.MostRecentlyAddedCache;
+
+/**
+ * A forward-only {@link InputStreamReader} which only remembers a fixed amount
+ * of the stream behind the furthest position read so far.
+ * <p>
+ * Windows are held in a {@link MostRecentlyAddedCache} just large enough to
+ * cover the lookback requested, and older Windows are discarded as the stream
+ * is read. Nothing is ever spilled to a temporary file, so memory use is
+ * constant no matter how long the stream is. This makes it suitable for
+ * searching forwards through endless streams, using a forward searcher or a
+ * {@link net.byteseek.searcher.ForwardSearchIterator}, as long as the lookback
+ * is at least the length of the longest pattern being searched for, less one.
+ * <p>
+ * Requesting a position which has already been discarded results in a
+ * {@link WindowMissingException}. Backwards searching is not supported, and
+ * calling {@link #length()} reads the remainder of the stream, after which
+ * only the lookback before the end of the stream remains available.
+ * 
+ * @author Matt Palmer
+ */
+public class StreamingInputStreamReader extends InputStreamReader {
+
+	private final int lookback;
+
+	/**
+	 * Constructs a StreamingInputStreamReader from an InputStream, using the
+	 * default window size of 4096 and the lookback provided.
+	 * 
+	 * @param stream
+	 *            The InputStream to read from.
+	 * @param lookback
+	 *            The number of bytes behind the furthest position read which
+	 *            must remain available.
+	 * @throws IllegalArgumentException
+	 *             if the stream is null, or the lookback is negative.
+	 */
+	public StreamingInputStreamReader(final InputStream stream, final int lookback) {
+		this(stream, DEFAULT_WINDOW_SIZE, lookback);
+	}
+
+	/**
+	 * Constructs a StreamingInputStreamReader from an InputStream, using the
+	 * window size and lookback provided.
+	 * 
+	 * @param stream
+	 *            The InputStream to read from.
+	 * @param windowSize
+	 *            The size of a Window to create from the stream.
+	 * @param lookback
+	 *            The number of bytes behind the furthest position read which
+	 *            must remain available.
+	 * @throws IllegalArgumentException
+	 *             if the stream is null, the window size is less than one, or
+	 *             the lookback is negative.
+	 */
+	public StreamingInputStreamReader(final InputStream stream, final int windowSize,
+			final int lookback) {
+		super(stream, windowSize, new MostRecentlyAddedCache(
+				getWindowsRequired(windowSize, lookback)));
+		this.lookback = lookback;
+	}
+
+	/**
+	 * Returns the number of bytes behind the furthest position read which are
+	 * guaranteed to remain available.
+	 * 
+	 * @return The lookback of this reader in bytes.
+	 */
+	public int getLookback() {
+		return lookback;
+	}
+
+	/*
+	 * The window containing the furthest position read, plus enough earlier
+	 * windows to cover the lookback wherever it falls across a window boundary.
+	 */
+	private static int getWindowsRequired(final int windowSize, final int lookback) {
+		if (windowSize < 1) {
+			throw new IllegalArgumentException("Window size must be at least one. Size was: " + windowSize);
+		}
+		if (lookback < 0) {
+			throw new IllegalArgumentException("Lookback cannot be negative. Lookback was: " + lookback);
+		}
+		return (int) (((long) lookback + windowSize - 1) / windowSize) + 1;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[lookback:" + lookback + " cache:" + cache + ']';
+	}
+
+}
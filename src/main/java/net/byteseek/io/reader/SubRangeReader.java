@@ -0,0 +1,210 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * A WindowReader which is a view onto a range of bytes in another WindowReader,
+ * with positions in the range beginning at zero.
+ * <p>
+ * This lets embedded data, such as an uncompressed zip entry, an OLE2 stream or
+ * a partition in a disk image, be searched as if it was a reader of its own,
+ * without copying it out.  All reads go through the parent reader, so the
+ * parent's cache is shared, and the Windows returned share the bytes of the
+ * parent's Windows.  A parent Window which crosses the start or end of the
+ * range is trimmed to the range; a trimmed Window backed by an array uses the
+ * same array, starting at an offset into it.
+ * <p>
+ * Closing a SubRangeReader does not close its parent, as other views may still
+ * be using it. This class is as thread-safe as its parent reader.
+ * 
+ * @author Matt Palmer
+ */
+public class SubRangeReader implements WindowReader {
+
+	private final WindowReader parent;
+	private final long offset;
+	private final long length;
+
+	/**
+	 * Constructs a SubRangeReader onto the bytes of the parent reader from the
+	 * offset given, up to the end of the parent reader.
+	 * 
+	 * @param parent
+	 *            The reader to view a range of.
+	 * @param offset
+	 *            The position in the parent reader at which the range begins.
+	 * @throws IOException
+	 *             If the length of the parent reader could not be determined.
+	 * @throws IllegalArgumentException
+	 *             if the parent is null, or the offset is negative or past the
+	 *             end of the parent.
+	 */
+	public SubRangeReader(final WindowReader parent, final long offset) throws IOException {
+		this(parent, offset, parent == null ? 0 : parent.length() - offset);
+	}
+
+	/**
+	 * Constructs a SubRangeReader onto length bytes of the parent reader,
+	 * beginning at the offset given.
+	 * 
+	 * @param parent
+	 *            The reader to view a range of.
+	 * @param offset
+	 *            The position in the parent reader at which the range begins.
+	 * @param length
+	 *            The length of the range.
+	 * @throws IOException
+	 *             If the length of the parent reader could not be determined.
+	 * @throws IllegalArgumentException
+	 *             if the parent is null, the offset or length is negative, or
+	 *             the range extends past the end of the parent.
+	 */
+	public SubRangeReader(final WindowReader parent, final long offset, final long length) throws IOException {
+		if (parent == null) {
+			throw new IllegalArgumentException("Null parent reader passed to SubRangeReader");
+		}
+		if (offset < 0 || length < 0) {
+			throw new IllegalArgumentException("The offset " + offset + " and length " + length
+					+ " cannot be negative.");
+		}
+		final long parentLength = parent.length();
+		if (length > parentLength - offset) {
+			throw new IllegalArgumentException("The range from " + offset + " with length " + length
+					+ " extends past the end of the parent reader, of length " + parentLength);
+		}
+		this.parent = parent;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int readByte(final long position) throws IOException {
+		return position >= 0 && position < length ? parent.readByte(offset + position) : -1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The Window returned shares the bytes of the parent Window containing the
+	 * position, trimmed to this range.
+	 */
+	@Override
+	public Window getWindow(final long position) throws IOException {
+		if (position < 0 || position >= length) {
+			return null;
+		}
+		final Window window = parent.getWindow(offset + position);
+		if (window == null) {
+			return null;
+		}
+		final long windowStart = window.getWindowPosition();
+		final long windowEnd = windowStart + window.length();
+		final long rangeEnd = offset + length;
+		final long start = windowStart > offset ? windowStart : offset;
+		final int windowLength = (int) ((windowEnd < rangeEnd ? windowEnd : rangeEnd) - start);
+		if (start == windowStart) {
+			if (offset == 0 && windowLength == window.length()) {
+				return window;
+			}
+			return window.hasArray() ? new Window(window.getArray(), window.getArrayOffset(), start - offset, windowLength)
+					                 : new Window(window.getBuffer(), start - offset, windowLength);
+		}
+		final int skip = (int) (start - windowStart);
+		if (window.hasArray()) {
+			return new Window(window.getArray(), window.getArrayOffset() + skip, 0, windowLength);
+		}
+		final ByteBuffer buffer = window.getBuffer().duplicate();
+		((Buffer) buffer).limit(skip + windowLength);
+		((Buffer) buffer).position(skip);
+		return new Window(buffer.slice(), 0, windowLength);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getWindowOffset(final long position) {
+		final long parentPosition = offset + position;
+		final long windowStart = parentPosition - parent.getWindowOffset(parentPosition);
+		return (int) (windowStart > offset ? parentPosition - windowStart : position);
+	}
+
+	/**
+	 * Returns the length of the range.
+	 * 
+	 * @return The length of the range.
+	 */
+	@Override
+	public long length() {
+		return length;
+	}
+
+	/**
+	 * Returns the reader this is a view onto.
+	 * 
+	 * @return The parent reader.
+	 */
+	public final WindowReader getParent() {
+		return parent;
+	}
+
+	/**
+	 * Returns the position in the parent reader at which the range begins.
+	 * 
+	 * @return The offset of the range in the parent reader.
+	 */
+	public final long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Does nothing, as the parent reader may still be in use by other views.
+	 * Close the parent reader when it is no longer needed.
+	 */
+	@Override
+	public void close() {
+		// The parent reader is not owned by the view.
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[offset: " + offset + " length: " + length + " parent:" + parent + ']';
+	}
+
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import net.byteseek.utils.ArgUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * An InputStream backed by a WindowReader, which is not thread-safe.
+ * <p>
+ * Bytes are copied directly from the Windows of the reader, skipping moves straight
+ * to the Window containing the new position without reading the Windows in between,
+ * and the remaining bytes can be transferred to an OutputStream or WritableByteChannel
+ * a whole Window at a time.  When transferring from a {@link FileReader} or 
+ * {@link MappedFileReader} to a channel, the bytes are transferred directly from
+ * the file using {@link java.nio.channels.FileChannel#transferTo(long, long, WritableByteChannel)}.
+ * <p>
+ * Use a {@link ReaderInputStream} if the stream must be shared between threads.
+ */
+public final class UnsynchronizedReaderInputStream extends InputStream {
+
+    private final WindowReader reader;
+
+    private Window window;      // null if there are no more bytes.
+    private byte[] array;       // null if the window is only backed by a buffer.
+    private int    arrayOffset; // the index in the array of the first byte of the window.
+    private long   windowStart;
+    private int    windowOffset;
+    private int    windowLength;
+    private long   endPosition; // the position once there are no more bytes.
+    private long   mark;
+
+    /**
+     * Constructs an UnsynchronizedReaderInputStream from a WindowReader.
+     *
+     * @param reader The WindowReader to back the InputStream.
+     * @throws IOException If the stream cannot acquire a window for position 0.
+     * @throws java.lang.IllegalArgumentException if the reader is null.
+     */
+    public UnsynchronizedReaderInputStream(final WindowReader reader) throws IOException {
+        ArgUtils.checkNullObject(reader, "reader");
+        this.reader = reader;
+        setPosition(0L);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (hasBytes()) {
+            final int offset = windowOffset++;
+            return (array != null ? array[arrayOffset + offset] : window.getByte(offset)) & 0xFF;
+        }
+        return -1;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (b == null) {
+            throw new NullPointerException();
+        } else if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        } else if (len == 0) {
+            return 0;
+        }
+        int copied = 0;
+        while (copied < len && hasBytes()) {
+            final int available = windowLength - windowOffset;
+            final int toCopy = available < len - copied ? available : len - copied;
+            if (array != null) {
+                System.arraycopy(array, arrayOffset + windowOffset, b, off + copied, toCopy);
+            } else {
+                final ByteBuffer source = window.getBuffer().duplicate();
+                ((Buffer) source).limit(windowOffset + toCopy);
+                ((Buffer) source).position(windowOffset);
+                source.get(b, off + copied, toCopy);
+            }
+            windowOffset += toCopy;
+            copied       += toCopy;
+        }
+        return copied == 0 ? -1 : copied;
+    }
+
+    /**
+     * Skips over bytes in the stream, moving straight to the Window containing the
+     * new position.  Only the Window at the new position is read, unless the reader
+     * can only read its Windows in sequence.
+     *
+     * @param n The number of bytes to skip.
+     * @return The number of bytes actually skipped, which is less than the number
+     *         requested if the end of the stream is reached.
+     * @throws IOException If there was a problem reading the Window at the new position.
+     */
+    @Override
+    public long skip(final long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        final long position = getPosition();
+        if (window != null && n < windowLength - windowOffset) {
+            windowOffset += (int) n;
+            return n;
+        }
+        final long target = n > Long.MAX_VALUE - position ? Long.MAX_VALUE : position + n;
+        setPosition(target);
+        if (window == null) {
+            endPosition = Math.max(position, Math.min(target, reader.length()));
+        }
+        return getPosition() - position;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return window == null ? 0 : windowLength - windowOffset;
+    }
+
+    /**
+     * Transfers all the remaining bytes in the stream to an OutputStream, writing
+     * them a whole Window at a time.
+     * <p>
+     * On Java 9 and later this overrides {@code InputStream.transferTo(OutputStream)},
+     * so it follows that contract and throws a NullPointerException for a null stream.
+     *
+     * @param out The OutputStream to write to.
+     * @return The number of bytes transferred.
+     * @throws IOException If there was a problem reading or writing the bytes.
+     * @throws java.lang.NullPointerException if the OutputStream is null.
+     */
+    public long transferTo(final OutputStream out) throws IOException {
+        if (out == null) {
+            throw new NullPointerException("out");
+        }
+        long transferred = 0;
+        byte[] copyBuffer = null;
+        while (hasBytes()) {
+            final int toWrite = windowLength - windowOffset;
+            if (array != null) {
+                out.write(array, arrayOffset + windowOffset, toWrite);
+            } else {
+                if (copyBuffer == null || copyBuffer.length < toWrite) {
+                    copyBuffer = new byte[toWrite];
+                }
+                final ByteBuffer source = window.getBuffer().duplicate();
+                ((Buffer) source).limit(windowLength);
+                ((Buffer) source).position(windowOffset);
+                source.get(copyBuffer, 0, toWrite);
+                out.write(copyBuffer, 0, toWrite);
+            }
+            windowOffset += toWrite;
+            transferred  += toWrite;
+        }
+        return transferred;
+    }
+
+    /**
+     * Transfers all the remaining bytes in the stream to a WritableByteChannel.
+     * If the reader is a {@link FileReader} or {@link MappedFileReader}, the bytes
+     * are transferred directly from its file, which the operating system may be 
+     * able to do without copying them.  Otherwise they are written a whole Window
+     * at a time.
+     *
+     * @param out The channel to write to.
+     * @return The number of bytes transferred.
+     * @throws IOException If there was a problem reading or writing the bytes.
+     * @throws java.lang.IllegalArgumentException if the channel is null.
+     */
+    public long transferTo(final WritableByteChannel out) throws IOException {
+        ArgUtils.checkNullObject(out, "out");
+        long transferred = 0;
+        final FileChannel fileChannel = getFileChannel();
+        if (fileChannel != null && hasBytes()) {
+            final long position = getPosition();
+            final long remaining = reader.length() - position;
+            while (transferred < remaining) {
+                final long written = fileChannel.transferTo(position + transferred, remaining - transferred, out);
+                if (written <= 0) {
+                    break; // write any remaining bytes from the windows instead.
+                }
+                transferred += written;
+            }
+            setPosition(position + transferred);
+        }
+        while (hasBytes()) {
+            final ByteBuffer source = window.getBuffer().duplicate();
+            ((Buffer) source).limit(windowLength);
+            ((Buffer) source).position(windowOffset);
+            while (source.hasRemaining()) {
+                out.write(source);
+            }
+            transferred += windowLength - windowOffset;
+            windowOffset = windowLength;
+        }
+        return transferred;
+    }
+
+    /**
+     * Returns the position in the reader of the next byte to be read.
+     *
+     * @return The position in the reader of the next byte to be read.
+     */
+    public long getPosition() {
+        return window == null ? endPosition : windowStart + windowOffset;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * <b>WARNING</b>
+     * Mark <b>is only partially supported</b>, and <i>only if</i> the underlying WindowReader which backs this InputStream has a
+     * caching mechanism which can rewind far enough.  This is not actually guaranteed, so you must be
+     * sure that your WindowReader is caching enough to support mark and reset in this stream.
+     * This method <b>always return true</b> (we cannot tell whether the WindowReader will genuinely cache enough).
+     */
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(final int readAheadLimit) {
+        mark = getPosition();
+    }
+
+    @Override
+    public void reset() throws IOException {
+        setPosition(mark);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Returns true if there is a byte to read at the current position,
+     * moving on to the next Window if the current one has been read.
+     */
+    private boolean hasBytes() throws IOException {
+        if (window != null && windowOffset >= windowLength) {
+            setPosition(windowStart + windowLength);
+        }
+        return window != null;
+    }
+
+    private void setPosition(final long position) throws IOException {
+        window = reader.getWindow(position);
+        if (window != null) {
+            array        = window.hasArray() ? window.getArray() : null;
+            arrayOffset  = window.getArrayOffset();
+            windowOffset = reader.getWindowOffset(position);
+            windowStart  = position - windowOffset;
+            windowLength = window.length();
+        } else {
+            array        = null;
+            arrayOffset  = 0;
+            windowOffset = 0;
+            windowLength = 0;
+            endPosition  = position;
+        }
+    }
+
+    private FileChannel getFileChannel() {
+        if (reader instanceof MappedFileReader) {
+            return ((MappedFileReader) reader).getChannel();
+        }
+        if (reader instanceof FileReader) {
+            return ((FileReader) reader).getChannel();
+        }
+        return null;
+    }
+
+}
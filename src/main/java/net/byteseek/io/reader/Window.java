@@ -31,6 +31,9 @@
 
 package net.byteseek.io.reader;
 
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
 /**
  * A Window is essentially a wrapper for a byte array containing bytes from the
  * {@link WindowReader} that creates it, at a specified position in the WindowReader.
@@ -42,6 +45,17 @@ package net.byteseek.io.reader;
  * reason for having a Window is to facilitate direct access to the underlying
  * byte arrays taken from a WindowReader in order to optimise read performance.
  * <p>
+ * A Window can also wrap a {@link java.nio.ByteBuffer}, which may be a direct
+ * buffer or a memory mapped file, with no backing array at all.  Searchers and
+ * matchers can check {@link #hasArray()}, and use the buffer returned by
+ * {@link #getBuffer()} to process the bytes where they are, without copying them.
+ * If {@link #getArray()} is called on a Window which has no array, then the bytes
+ * of the Window are copied into a new array each time it is called.
+ * <p>
+ * The bytes of a Window need not start at the beginning of its array.  If a Window
+ * wraps a slice of a larger array, {@link #getArrayOffset()} gives the index in the
+ * array of the first byte of the Window.
+ * <p>
  * Note that the length of the Window may be less than the byte array backing
  * it, so only bytes up to the length of the Window will be from the actual
  * WindowReader. For example, the last Window read from a file will almost certainly
@@ -51,9 +65,15 @@ package net.byteseek.io.reader;
  */
 public final class Window {
 
-	private final byte[] bytes;
 	private final long windowPosition;
 	private final int length;
+	private final byte[] bytes;
+	private final int arrayOffset;
+
+	// The buffer of a Window constructed from a byte array is created lazily.
+	// It is volatile so a buffer created by one thread is safely published to
+	// others; a race to create it is benign, as each buffer is an equivalent view.
+	private volatile ByteBuffer buffer;
 
 	/**
 	 * Constructs a Window using the byte array provided, recording the position
@@ -65,7 +85,7 @@ public final class Window {
 	 * wrapped by this class, although the Window itself is immutable. The
 	 * entire reason for having a Window is to facilitate direct access to the
 	 * underlying byte arrays taken from a WindowReader in order to optimise read
-	 * performance. = *
+	 * performance.
 	 * 
 	 * @param bytes
 	 *            The byte array to wrap.
@@ -76,20 +96,92 @@ public final class Window {
 	 */
 	public Window(final byte[] bytes, final long windowPosition,
 			final int length) {
+		this(bytes, 0, windowPosition, length);
+	}
+
+	/**
+	 * Constructs a Window onto a slice of the byte array provided, starting at
+	 * the array offset given, recording the position in the WindowReader from
+	 * which the bytes were read, and the length of the Window.
+	 * <p>
+	 * The byte array is not copied.
+	 * 
+	 * @param bytes
+	 *            The byte array to wrap.
+	 * @param arrayOffset
+	 *            The index in the array of the first byte of the Window.
+	 * @param windowPosition
+	 *            The position at which the Window starts.
+	 * @param length
+	 *            The length of the Window.
+	 * @throws IllegalArgumentException
+	 *             if the array is null, or the offset is negative.
+	 */
+	public Window(final byte[] bytes, final int arrayOffset,
+			final long windowPosition, final int length) {
 		if (bytes == null) {
 			throw new IllegalArgumentException(
 					"Null byte array passed in to Array.");
 		}
+		if (arrayOffset < 0) {
+			throw new IllegalArgumentException("Negative array offset passed in to Window: " + arrayOffset);
+		}
 		this.bytes = bytes; // a Window wraps a byte array - no defensive
 							// copying should be allowed.
+		this.arrayOffset = arrayOffset;
+		this.windowPosition = windowPosition;
+		this.length = length;
+	}
+
+	/**
+	 * Constructs a Window using the ByteBuffer provided, recording the position
+	 * in the WindowReader from which the bytes were read, and the length of the
+	 * Window.
+	 * <p>
+	 * The first byte of the Window is at index zero of the buffer, and the
+	 * bytes of the Window are read using absolute indexes, so the position of
+	 * the buffer is ignored.  The limit of the buffer must be at least the
+	 * length of the Window.  Use {@link java.nio.ByteBuffer#slice()} to obtain
+	 * a buffer starting at index zero from a region of a larger buffer.
+	 * <p>
+	 * The buffer is not copied.  If it is backed by an accessible array, then
+	 * that array also backs this Window, starting at the array offset of the buffer.
+	 * 
+	 * @param buffer
+	 *            The ByteBuffer to wrap.
+	 * @param windowPosition
+	 *            The position at which the Window starts.
+	 * @param length
+	 *            The length of the Window.
+	 * @throws IllegalArgumentException
+	 *             if the buffer is null or its limit is less than the length.
+	 */
+	public Window(final ByteBuffer buffer, final long windowPosition,
+			final int length) {
+		if (buffer == null) {
+			throw new IllegalArgumentException(
+					"Null buffer passed in to Window.");
+		}
+		if (buffer.limit() < length) {
+			throw new IllegalArgumentException("The buffer limit " + buffer.limit() +
+					" is less than the window length " + length);
+		}
+		this.buffer = buffer;
 		this.windowPosition = windowPosition;
 		this.length = length;
+		if (buffer.hasArray()) {
+			this.bytes = buffer.array();
+			this.arrayOffset = buffer.arrayOffset();
+		} else {
+			this.bytes = null;
+			this.arrayOffset = 0;
+		}
 	}
 
 	/**
 	 * Gets a byte from the Window relative to the start of the Window (not
 	 * relative to the start of the WindowReader). It simply returns the byte at the
-	 * position in the byte array that backs the Window.
+	 * position in the byte array (or buffer) that backs the Window.
 	 * <p>
 	 * Note that no bounds checking is done by this method. It is possible to
 	 * read bytes in the byte array which are beyond the length of the Window
@@ -104,20 +196,78 @@ public final class Window {
 	 *             byte array which backs this Window.
 	 */
 	public byte getByte(final int position) {
-		return bytes[position];
+		final byte[] array = bytes;
+		return array != null ? array[arrayOffset + position] : buffer.get(position);
+	}
+
+	/**
+	 * Returns true if this Window has a byte array, so {@link #getArray()} can
+	 * return it without copying any bytes.  If this returns false, then the
+	 * Window is backed only by a ByteBuffer, which should be accessed using
+	 * {@link #getBuffer()}.
+	 * 
+	 * @return true if this Window has a byte array.
+	 */
+	public boolean hasArray() {
+		return bytes != null;
 	}
 
 	/**
 	 * Returns the array of bytes backing this Window. It does not clone or
 	 * return a copy of the bytes, as the entire goal is performance. Hence, it
 	 * is possible to abuse this. Clients should not alter the array returned by
-	 * this method.
+	 * this method.  The first byte of the Window is at {@link #getArrayOffset()}
+	 * in the array.
+	 * <p>
+	 * If this Window is only backed by a ByteBuffer (see {@link #hasArray()}),
+	 * the bytes of the Window are copied into a new array, starting at index
+	 * zero, each time this method is called.  Clients should check
+	 * {@link #hasArray()} and use {@link #getBuffer()} instead where possible.
 	 * 
 	 * @return The byte array which backs this Window.
 	 */
 	public byte[] getArray() {
-		return bytes; // a Window wraps a byte array - no defensive copying
-						// should be allowed.
+		final byte[] array = bytes;
+		if (array != null) {
+			return array; // a Window wraps a byte array - no defensive copying
+						  // should be allowed.
+		}
+		final byte[] copy = new byte[length];
+		final ByteBuffer source = buffer.duplicate();
+		((Buffer) source).position(0);
+		source.get(copy, 0, length);
+		return copy;
+	}
+
+	/**
+	 * Returns the index in the array returned by {@link #getArray()} of the first
+	 * byte of this Window.  This is zero unless the Window wraps a slice of a
+	 * larger array, and is always zero for Windows which have no array.
+	 * 
+	 * @return The index of the first byte of the Window in its array.
+	 */
+	public int getArrayOffset() {
+		return arrayOffset;
+	}
+
+	/**
+	 * Returns a ByteBuffer onto the bytes of this Window, with the first byte
+	 * of the Window at index zero.  It does not copy the bytes.  Clients should
+	 * not alter the contents, position or limit of the buffer returned, and
+	 * should use absolute get methods to read it.
+	 * <p>
+	 * If this Window was constructed from a byte array, the bytes of the Window
+	 * in the array are wrapped in a ByteBuffer the first time this method is called.
+	 * 
+	 * @return A ByteBuffer onto the bytes of this Window.
+	 */
+	public ByteBuffer getBuffer() {
+		ByteBuffer view = buffer;
+		if (view == null) {
+			view = ByteBuffer.wrap(bytes, arrayOffset, length).slice();
+			buffer = view;
+		}
+		return view;
 	}
 
 	/**
@@ -162,7 +312,9 @@ public final class Window {
 	
 	@Override
 	public String toString() {
-		return getClass().getSimpleName() + "[bytes: " + bytes + " bytes length: " + bytes.length + 
+		final String backing = bytes != null ? "bytes: " + bytes + " bytes length: " + bytes.length + " offset: " + arrayOffset
+				                             : "buffer: " + buffer;
+		return getClass().getSimpleName() + '[' + backing + 
 				                            " window length:" + length + " window pos:" + windowPosition + ']'; 
 	}
 }
@@ -0,0 +1,166 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+/**
+ * A bounded pool of byte arrays used to back {@link Window}s, so readers can reuse
+ * the arrays of Windows which have left their cache rather than allocating new ones.
+ * <p>
+ * All the arrays in a pool are the same size, which must match the window size of
+ * any reader using the pool.  A pool can be shared between readers with the same
+ * window size.  Arrays are taken from the pool when a Window is created, and
+ * returned to it some time after the Window is freed from the reader's cache.
+ * If the pool is empty a new array is allocated, and if it is full, an array
+ * returned to it is left for the garbage collector.
+ * <p>
+ * A pool is used by a reader by calling {@link AbstractReader#setArrayPool(WindowArrayPool)}.
+ * <p>
+ * This class is thread-safe.
+ * 
+ * @author Matt Palmer
+ */
+public final class WindowArrayPool {
+
+	private final int arraySize;
+	private final byte[][] arrays;
+	private int size;
+	private long arraysCreated;
+	private long arraysReused;
+
+	/**
+	 * Constructs a WindowArrayPool holding up to the number of arrays given.
+	 * 
+	 * @param arraySize
+	 *            The size of the arrays in the pool, which must match the window size
+	 *            of readers using it.
+	 * @param capacity
+	 *            The maximum number of free arrays held in the pool.
+	 * @throws IllegalArgumentException
+	 *             if the array size or capacity are less than one.
+	 */
+	public WindowArrayPool(final int arraySize, final int capacity) {
+		if (arraySize < 1) {
+			throw new IllegalArgumentException("The array size must be at least one.  It was " + arraySize);
+		}
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The pool capacity must be at least one.  It was " + capacity);
+		}
+		this.arraySize = arraySize;
+		this.arrays = new byte[capacity][];
+	}
+
+	/**
+	 * Takes an array from the pool, or allocates a new one if the pool is empty.
+	 * The contents of an array taken from the pool are undefined.
+	 * 
+	 * @return A byte array of the size of arrays in this pool.
+	 */
+	public synchronized byte[] take() {
+		if (size > 0) {
+			final byte[] array = arrays[--size];
+			arrays[size] = null;
+			arraysReused++;
+			return array;
+		}
+		arraysCreated++;
+		return new byte[arraySize];
+	}
+
+	/**
+	 * Returns an array to the pool.  The array must no longer be referenced by any
+	 * Window still in use.
+	 * 
+	 * @param array
+	 *            The array to return to the pool.
+	 * @return True if the array was added to the pool, or false if it is full, or
+	 *         the array is not the size of arrays in this pool.
+	 */
+	public synchronized boolean release(final byte[] array) {
+		if (array != null && array.length == arraySize && size < arrays.length) {
+			arrays[size++] = array;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return The size of the arrays in this pool.
+	 */
+	public int getArraySize() {
+		return arraySize;
+	}
+
+	/**
+	 * @return The maximum number of free arrays held in this pool.
+	 */
+	public int getCapacity() {
+		return arrays.length;
+	}
+
+	/**
+	 * @return The number of free arrays currently held in this pool.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * @return The number of arrays allocated because the pool was empty.
+	 */
+	public synchronized long getArraysCreated() {
+		return arraysCreated;
+	}
+
+	/**
+	 * @return The number of arrays taken from the pool which were reused.
+	 */
+	public synchronized long getArraysReused() {
+		return arraysReused;
+	}
+
+	/**
+	 * Removes all free arrays from the pool.
+	 */
+	public synchronized void clear() {
+		for (int index = 0; index < size; index++) {
+			arrays[index] = null;
+		}
+		size = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return getClass().getSimpleName() + "[array size: " + arraySize + " size: " + size + 
+				" capacity: " + arrays.length + " created: " + arraysCreated + " reused: " + arraysReused + ']';
+	}
+
+}
@@ -53,6 +53,7 @@ import net.byteseek.io.reader.Window;
 public abstract class AbstractCache implements WindowCache {
     
     private List<WindowObserver> windowObservers; 
+    private volatile CacheStatistics statistics;
     
     /**
      * Constructs a WindowCache with an empty list of cache observers.
@@ -100,10 +101,69 @@ public abstract class AbstractCache implements WindowCache {
      * @param fromCache The WindowCache from which the Window was removed.
      */
     protected final void notifyWindowFree(final Window window, final WindowCache fromCache) {
+        final CacheStatistics stats = statistics;
+        if (stats != null) {
+            stats.windowFreed();
+        }
         for (final WindowObserver observer : windowObservers) {
             observer.windowFree(window, fromCache);
         }
     }
+
+
+    /**
+     * Sets the statistics to record for this cache, replacing any previous statistics.
+     *
+     * @param statistics The statistics to record, or null to stop recording statistics.
+     */
+    public void setStatistics(final CacheStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+
+    /**
+     * Returns the statistics recorded for this cache, or null if none are recorded.
+     *
+     * @return The statistics recorded for this cache, or null if there are none.
+     */
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+
+    /**
+     * Records a hit in the statistics of this cache if the Window was found,
+     * or a miss if it was not.  Subclasses call this each time a Window is
+     * looked up in them.
+     *
+     * @param window The Window found in this cache, or null if it was not found.
+     * @return The Window passed in.
+     */
+    protected final Window recordLookup(final Window window) {
+        final CacheStatistics stats = statistics;
+        if (stats != null) {
+            if (window == null) {
+                stats.miss();
+            } else {
+                stats.hit();
+            }
+        }
+        return window;
+    }
+
+
+    /**
+     * Records the number of bytes written by this cache to secondary storage
+     * in the statistics of this cache.
+     *
+     * @param numberOfBytes The number of bytes written.
+     */
+    protected final void recordBytesWritten(final long numberOfBytes) {
+        final CacheStatistics stats = statistics;
+        if (stats != null) {
+            stats.bytesWritten(numberOfBytes);
+        }
+    }
     
 
 }
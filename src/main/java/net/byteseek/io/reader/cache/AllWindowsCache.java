@@ -51,7 +51,7 @@ public final class AllWindowsCache extends AbstractCache {
      */
     @Override
     public Window getWindow(final long position) {
-        return cache.get(position);
+        return recordLookup(cache.get(position));
     }
 
     
@@ -0,0 +1,190 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.byteseek.io.reader.Window;
+
+
+/**
+ * A {@link WindowCache} which holds on to the most recently used 
+ * {@link net.byteseek.io.reader.Window}s within a budget of bytes, rather than
+ * a number of Windows.  Each Window is accounted for by the size of the memory 
+ * it actually holds, so short Windows at the end of a source, or readers with
+ * different window sizes, are accounted for correctly.
+ * <p>
+ * The budget can be private to the cache, or a {@link CacheBudget} shared by
+ * many caches.  When there is not enough budget left for a new Window, the least 
+ * recently used Windows in this cache are evicted until there is.  If the cache
+ * is empty and there is still not enough budget, the new Window is not cached.
+ * Observers are notified of Windows which are evicted, or not cached.
+ * <p>
+ * This class is not thread-safe, although the budget it uses is.
+ * 
+ * @author Matt Palmer
+ */
+public final class ByteBudgetCache extends AbstractCache {
+
+    private final static boolean ACCESS_ORDER = true;
+
+    private final CacheBudget budget;
+    private final LinkedHashMap<Long, Window> cache;
+    private long usedBytes;
+
+
+    /**
+     * Creates a ByteBudgetCache with its own budget of the number of bytes given.
+     * 
+     * @param maxBytes The maximum number of bytes of Windows to cache.
+     * @throws IllegalArgumentException if the maximum bytes are less than one.
+     */
+    public ByteBudgetCache(final long maxBytes) {
+        this(new CacheBudget(maxBytes));
+    }
+
+
+    /**
+     * Creates a ByteBudgetCache which draws on the budget provided, which may be
+     * shared with other caches.
+     * 
+     * @param budget The budget of bytes to draw on.
+     * @throws IllegalArgumentException if the budget is null.
+     */
+    public ByteBudgetCache(final CacheBudget budget) {
+        if (budget == null) {
+            throw new IllegalArgumentException("Null budget passed in to ByteBudgetCache.");
+        }
+        this.budget = budget;
+        this.cache = new LinkedHashMap<Long, Window>(16, 0.75f, ACCESS_ORDER);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Window getWindow(final long position) {
+        return recordLookup(cache.get(position));
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addWindow(final Window window) {
+        final long windowPosition = window.getWindowPosition();
+        if (!cache.containsKey(windowPosition)) {
+            final long windowBytes = sizeOf(window);
+            while (!budget.reserve(windowBytes)) {
+                if (cache.isEmpty()) {
+                    notifyWindowFree(window, this);
+                    return;
+                }
+                evictLeastRecentlyUsed();
+            }
+            cache.put(windowPosition, window);
+            usedBytes += windowBytes;
+        }
+    }
+
+
+    /**
+     * Clears all Windows from the cache, and releases the bytes they used back to the budget.
+     */
+    @Override
+    public void clear() {
+        cache.clear();
+        budget.release(usedBytes);
+        usedBytes = 0;
+    }
+
+
+    /**
+     * @return The budget this cache draws on.
+     */
+    public CacheBudget getBudget() {
+        return budget;
+    }
+
+
+    /**
+     * @return The number of bytes used by Windows in this cache.
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+
+    /**
+     * @return The number of Windows in this cache.
+     */
+    public int size() {
+        return cache.size();
+    }
+
+
+    /**
+     * Returns the number of bytes of memory held by a Window, which is the length
+     * of its array or buffer, and not just the number of valid bytes in it.
+     * A Window onto a slice of a larger array is counted by the length of its slice.
+     * 
+     * @param window The Window to get the size of.
+     * @return The number of bytes of memory held by the Window.
+     */
+    public static long sizeOf(final Window window) {
+        return window.hasArray() && window.getArrayOffset() == 0 ? window.getArray().length
+                                                                 : window.getBuffer().capacity();
+    }
+
+
+    private void evictLeastRecentlyUsed() {
+        final Iterator<Map.Entry<Long, Window>> leastRecentlyUsed = cache.entrySet().iterator();
+        final Window evicted = leastRecentlyUsed.next().getValue();
+        leastRecentlyUsed.remove();
+        final long evictedBytes = sizeOf(evicted);
+        usedBytes -= evictedBytes;
+        budget.release(evictedBytes);
+        notifyWindowFree(evicted, this);
+    }
+
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[size: " + cache.size() + " used bytes: " + usedBytes + 
+                                            " budget: " + budget + ']';
+    }
+
+}
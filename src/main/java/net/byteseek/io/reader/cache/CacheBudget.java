@@ -0,0 +1,129 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * A limit on the number of bytes which can be held by one or more 
+ * {@link ByteBudgetCache}s.  Caches reserve bytes from the budget as they add
+ * Windows, and release them as Windows leave.  A budget can be shared by many
+ * caches, for example by all the readers in one application, to put a bound on 
+ * the total memory they use for caching.
+ * <p>
+ * Caches sharing a budget compete for it.  When the budget is used up, a cache
+ * evicts its own least recently used Windows to make room for a new one; it never
+ * evicts Windows from other caches.
+ * <p>
+ * This class is thread-safe.
+ * 
+ * @author Matt Palmer
+ */
+public final class CacheBudget {
+
+    private final long maxBytes;
+    private final AtomicLong usedBytes = new AtomicLong();
+
+
+    /**
+     * Constructs a CacheBudget of the number of bytes given.
+     * 
+     * @param maxBytes The maximum number of bytes which can be reserved from the budget.
+     * @throws IllegalArgumentException if the maximum bytes are less than one.
+     */
+    public CacheBudget(final long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("The budget must be at least one byte.  It was " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+
+    /**
+     * Reserves bytes from the budget, if enough are available.
+     * 
+     * @param bytes The number of bytes to reserve.
+     * @return True if the bytes were reserved, or false if there are not enough left in the budget.
+     */
+    public boolean reserve(final long bytes) {
+        long used;
+        do {
+            used = usedBytes.get();
+            if (used + bytes > maxBytes) {
+                return false;
+            }
+        } while (!usedBytes.compareAndSet(used, used + bytes));
+        return true;
+    }
+
+
+    /**
+     * Releases bytes previously reserved back to the budget.
+     * 
+     * @param bytes The number of bytes to release.
+     */
+    public void release(final long bytes) {
+        usedBytes.addAndGet(-bytes);
+    }
+
+
+    /**
+     * @return The maximum number of bytes which can be reserved from the budget.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+
+    /**
+     * @return The number of bytes currently reserved from the budget.
+     */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+
+    /**
+     * @return The number of bytes still available in the budget.
+     */
+    public long getAvailableBytes() {
+        return maxBytes - usedBytes.get();
+    }
+
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[used: " + usedBytes.get() + " max: " + maxBytes + ']';
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics recorded by an {@link AbstractCache} or a {@link ConcurrentClockCache},
+ * set on it using {@link AbstractCache#setStatistics(CacheStatistics)}.  A cache without
+ * statistics does no extra work.
+ * <p>
+ * A cache records a hit or a miss each time a Window is looked up in it.  The tiers
+ * of a {@link TwoLevelCache} record their own lookups, and the TwoLevelCache records
+ * whether the Window was found in either of them.  Caches which spill Windows to a
+ * temporary file record the bytes they write to it.
+ * <p>
+ * A Window is counted as freed each time a cache notifies its observers that it no
+ * longer holds that Window object.  For most caches this means the Window was evicted,
+ * or was not cached at all.  Caches which copy Windows into a temporary file, such as a
+ * {@link TempFileCache} or {@link MappedTempFileCache}, free each Window once it is
+ * copied, so their count is of Windows stored, not evicted.
+ * <p>
+ * They can be exported through JMX by registering them with an MBean server,
+ * as they implement {@link CacheStatisticsMXBean}.
+ * <p>
+ * This class is thread-safe.
+ * 
+ * @author Matt Palmer
+ */
+public final class CacheStatistics implements CacheStatisticsMXBean {
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong windowsFreed = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getWindowsFreed() {
+        return windowsFreed.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        hits.set(0);
+        misses.set(0);
+        windowsFreed.set(0);
+        bytesWritten.set(0);
+    }
+
+    void hit() {
+        hits.incrementAndGet();
+    }
+
+    void miss() {
+        misses.incrementAndGet();
+    }
+
+    void windowFreed() {
+        windowsFreed.incrementAndGet();
+    }
+
+    void bytesWritten(final long numberOfBytes) {
+        bytesWritten.addAndGet(numberOfBytes);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[hits: " + hits + " misses: " + misses + 
+                                            " windows freed: " + windowsFreed + " bytes written: " + bytesWritten + ']';
+    }
+
+}
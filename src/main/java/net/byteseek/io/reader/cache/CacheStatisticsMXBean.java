@@ -0,0 +1,78 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+/**
+ * A management interface onto the {@link CacheStatistics} of a cache, so they
+ * can be exported through JMX by registering the CacheStatistics with an MBean server.
+ * 
+ * @author Matt Palmer
+ */
+public interface CacheStatisticsMXBean {
+
+    /**
+     * Returns the number of Windows asked for which were found in the cache.
+     *
+     * @return The number of cache hits.
+     */
+    long getHits();
+
+    /**
+     * Returns the number of Windows asked for which were not found in the cache.
+     *
+     * @return The number of cache misses.
+     */
+    long getMisses();
+
+    /**
+     * Returns the number of Windows freed from the cache: the number of times its
+     * observers were told it no longer holds a Window.  Caches which copy Windows
+     * into other storage free each Window once it is copied.
+     *
+     * @return The number of Windows freed from the cache.
+     */
+    long getWindowsFreed();
+
+    /**
+     * Returns the number of bytes written by the cache to secondary storage,
+     * such as a temporary file.
+     *
+     * @return The number of bytes written by the cache.
+     */
+    long getBytesWritten();
+
+    /**
+     * Sets all the statistics back to zero.
+     */
+    void reset();
+
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import net.byteseek.io.reader.Window;
+
+
+/**
+ * A {@link WindowCache} which keeps the contents of {@link net.byteseek.io.reader.Window}s
+ * compressed in memory, within a budget of bytes.  It is intended as the secondary cache
+ * of a {@link TwoLevelCache} for sources which cannot be re-read, such as streams,
+ * as an alternative to spilling Windows to disk in a {@link TempFileCache}.  
+ * Compressible data, such as text or zero padding, stays in memory at a fraction
+ * of its size.
+ * <p>
+ * Windows are compressed with a {@link java.util.zip.Deflater} when they are added,
+ * and decompressed into a new Window each time they are asked for.  Windows which
+ * do not compress are stored uncompressed.  Each Window is accounted for by the size 
+ * of its compressed bytes.  When there is not enough budget for a new Window, the 
+ * least recently used Windows are evicted until there is.  The budget can be private
+ * to the cache, or a {@link CacheBudget} shared with other caches.
+ * <p>
+ * As the cache holds a copy of each Window, its observers are notified that a 
+ * Window is free once it has been compressed, as {@link TempFileCache} does.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ * @author Matt Palmer
+ */
+public final class CompressedCache extends AbstractCache {
+
+    private final static boolean ACCESS_ORDER = true;
+
+    private final CacheBudget budget;
+    private final LinkedHashMap<Long, Entry> cache;
+    private final Deflater deflater;
+    private final Inflater inflater;
+    private byte[] scratch = new byte[0];
+    private long usedBytes;
+    private long uncompressedBytes;
+
+
+    /**
+     * Creates a CompressedCache with its own budget of the number of compressed bytes 
+     * given, compressing for speed.
+     * 
+     * @param maxBytes The maximum number of compressed bytes to cache.
+     * @throws IllegalArgumentException if the maximum bytes are less than one.
+     */
+    public CompressedCache(final long maxBytes) {
+        this(new CacheBudget(maxBytes), Deflater.BEST_SPEED);
+    }
+
+
+    /**
+     * Creates a CompressedCache which draws on the budget provided, which may be
+     * shared with other caches, using the compression level given.
+     * 
+     * @param budget The budget of bytes to draw on.
+     * @param compressionLevel The {@link java.util.zip.Deflater} compression level, from 0 to 9.
+     * @throws IllegalArgumentException if the budget is null or the compression level is invalid.
+     */
+    public CompressedCache(final CacheBudget budget, final int compressionLevel) {
+        if (budget == null) {
+            throw new IllegalArgumentException("Null budget passed in to CompressedCache.");
+        }
+        if (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("The compression level must be between 0 and 9.  It was " + compressionLevel);
+        }
+        this.budget = budget;
+        this.cache = new LinkedHashMap<Long, Entry>(16, 0.75f, ACCESS_ORDER);
+        this.deflater = new Deflater(compressionLevel);
+        this.inflater = new Inflater();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Window getWindow(final long position) {
+        return recordLookup(inflateWindow(position));
+    }
+
+
+    private Window inflateWindow(final long position) {
+        final Entry entry = cache.get(position);
+        if (entry != null) {
+            if (!entry.compressed) {
+                return new Window(entry.bytes.clone(), position, entry.length);
+            }
+            final byte[] array = new byte[entry.length];
+            inflater.reset();
+            inflater.setInput(entry.bytes);
+            try {
+                int inflated = 0;
+                while (inflated < entry.length && !inflater.finished()) {
+                    inflated += inflater.inflate(array, inflated, entry.length - inflated);
+                }
+                return new Window(array, position, entry.length);
+            } catch (DataFormatException justReturnNullWindow) {
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Compresses a copy of a {@link net.byteseek.io.reader.Window} into the cache,
+     * evicting the least recently used Windows if the budget is used up.
+     * 
+     * @param window The Window to add to the cache.
+     */
+    @Override
+    public void addWindow(final Window window) {
+        final long windowPosition = window.getWindowPosition();
+        if (!cache.containsKey(windowPosition)) {
+            final Entry entry = compress(window);
+            while (!budget.reserve(entry.bytes.length)) {
+                if (cache.isEmpty()) {
+                    notifyWindowFree(window, this);
+                    return;
+                }
+                evictLeastRecentlyUsed();
+            }
+            cache.put(windowPosition, entry);
+            usedBytes += entry.bytes.length;
+            uncompressedBytes += entry.length;
+            notifyWindowFree(window, this);
+        }
+    }
+
+
+    /**
+     * Clears all Windows from the cache, and releases the bytes they used back to the budget.
+     */
+    @Override
+    public void clear() {
+        cache.clear();
+        budget.release(usedBytes);
+        usedBytes = 0;
+        uncompressedBytes = 0;
+    }
+
+
+    /**
+     * @return The budget this cache draws on.
+     */
+    public CacheBudget getBudget() {
+        return budget;
+    }
+
+
+    /**
+     * @return The number of compressed bytes used by Windows in this cache.
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+
+    /**
+     * @return The number of bytes the Windows in this cache would use uncompressed.
+     */
+    public long getUncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+
+    /**
+     * @return The number of Windows in this cache.
+     */
+    public int size() {
+        return cache.size();
+    }
+
+
+    private Entry compress(final Window window) {
+        final int length = window.length();
+        final byte[] source;
+        final int sourceOffset;
+        if (window.hasArray()) {
+            source = window.getArray();
+            sourceOffset = window.getArrayOffset();
+        } else {
+            sourceOffset = 0;
+            source = scratch(length);
+            final ByteBuffer buffer = window.getBuffer().duplicate();
+            ((Buffer) buffer).position(0);
+            buffer.get(source, 0, length);
+        }
+        final byte[] output = new byte[length];
+        deflater.reset();
+        deflater.setInput(source, sourceOffset, length);
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished() && compressedLength < length) {
+            compressedLength += deflater.deflate(output, compressedLength, length - compressedLength);
+        }
+        if (deflater.finished() && compressedLength < length) {
+            final byte[] compressed = new byte[compressedLength];
+            System.arraycopy(output, 0, compressed, 0, compressedLength);
+            return new Entry(compressed, length, true);
+        }
+        System.arraycopy(source, sourceOffset, output, 0, length); // store uncompressed.
+        return new Entry(output, length, false);
+    }
+
+
+    private byte[] scratch(final int length) {
+        if (scratch.length < length) {
+            scratch = new byte[length];
+        }
+        return scratch;
+    }
+
+
+    private void evictLeastRecentlyUsed() {
+        final Iterator<Map.Entry<Long, Entry>> leastRecentlyUsed = cache.entrySet().iterator();
+        final Entry evicted = leastRecentlyUsed.next().getValue();
+        leastRecentlyUsed.remove();
+        usedBytes -= evicted.bytes.length;
+        uncompressedBytes -= evicted.length;
+        budget.release(evicted.bytes.length);
+    }
+
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[size: " + cache.size() + " used bytes: " + usedBytes + 
+                                            " uncompressed bytes: " + uncompressedBytes + " budget: " + budget + ']';
+    }
+
+
+    /**
+     * The bytes of a Window, which may be compressed, and its uncompressed length.
+     */
+    private static final class Entry {
+
+        private final byte[] bytes;
+        private final int length;
+        private final boolean compressed;
+
+        private Entry(final byte[] bytes, final int length, final boolean compressed) {
+            this.bytes = bytes;
+            this.length = length;
+            this.compressed = compressed;
+        }
+    }
+
+}
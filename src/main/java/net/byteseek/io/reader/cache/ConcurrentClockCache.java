@@ -0,0 +1,328 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import net.byteseek.io.reader.Window;
+
+
+/**
+ * A thread-safe {@link WindowCache} which can be shared by many threads reading
+ * from the same {@link net.byteseek.io.reader.WindowReader}, without serialising them
+ * on a single lock as a {@link SynchronizedCache} does.
+ * <p>
+ * Looking up a Window takes no locks.  Windows are held in a number of stripes,
+ * chosen by the position of the Window, each with its own lock which is only held 
+ * while adding a Window to that stripe.  Each stripe evicts Windows using the CLOCK 
+ * algorithm, an approximation of least recently used: a Window is marked as 
+ * referenced when it is looked up, and a clock hand sweeping round the stripe
+ * evicts the first Window it finds which has not been referenced since the hand 
+ * last passed it.
+ * <p>
+ * Observers are notified exactly once for each Window evicted from the cache, after 
+ * it has been removed, and without holding any lock.  If two threads add a Window
+ * for the same position, only the first is cached, and observers are notified that
+ * the other Window is free.
+ * <p>
+ * {@link CacheStatistics} can be recorded for the cache, as they can for an
+ * {@link AbstractCache}.
+ * 
+ * @author Matt Palmer
+ */
+public final class ConcurrentClockCache implements WindowCache {
+
+    private final static int MIN_STRIPES_PER_PROCESSOR = 4;
+    private final static int MIN_WINDOWS_PER_STRIPE = 8;
+
+    private final ConcurrentHashMap<Long, Entry> windows;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final int capacity;
+    private final List<WindowObserver> observers = new CopyOnWriteArrayList<WindowObserver>();
+    private volatile CacheStatistics statistics;
+
+
+    /**
+     * Creates a ConcurrentClockCache holding up to the number of Windows given,
+     * with a number of stripes suitable for the number of available processors.
+     * 
+     * @param capacity The number of Windows to cache.
+     * @throws IllegalArgumentException if the capacity is less than one.
+     */
+    public ConcurrentClockCache(final int capacity) {
+        this(capacity, Runtime.getRuntime().availableProcessors() * MIN_STRIPES_PER_PROCESSOR);
+    }
+
+
+    /**
+     * Creates a ConcurrentClockCache holding up to the number of Windows given,
+     * divided into a number of stripes.  The number of stripes used is the largest 
+     * power of two no greater than the number requested, or the capacity divided by
+     * the minimum number of Windows in each stripe (eight), so each stripe can hold several
+     * Windows for the clock to choose between.
+     * 
+     * @param capacity The number of Windows to cache.
+     * @param numberOfStripes The number of stripes to divide the cache into.
+     * @throws IllegalArgumentException if the capacity or number of stripes are less than one.
+     */
+    public ConcurrentClockCache(final int capacity, final int numberOfStripes) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be at least one.  It was " + capacity);
+        }
+        if (numberOfStripes < 1) {
+            throw new IllegalArgumentException("The number of stripes must be at least one.  It was " + numberOfStripes);
+        }
+        final int maxStripes = Math.max(1, capacity / MIN_WINDOWS_PER_STRIPE);
+        final int stripeCount = Integer.highestOneBit(Math.min(maxStripes, numberOfStripes));
+        this.capacity = capacity;
+        this.windows = new ConcurrentHashMap<Long, Entry>(capacity * 4 / 3 + 1, 0.75f, stripeCount);
+        this.stripes = new Stripe[stripeCount];
+        this.stripeMask = stripeCount - 1;
+        for (int stripe = 0; stripe < stripeCount; stripe++) {
+            stripes[stripe] = new Stripe(capacity / stripeCount + (stripe < capacity % stripeCount ? 1 : 0));
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Window getWindow(final long position) {
+        final Entry entry = windows.get(position);
+        if (entry != null) {
+            if (!entry.referenced) { // avoid writing to shared memory if already set.
+                entry.referenced = true;
+            }
+            return recordLookup(entry.window);
+        }
+        return recordLookup(null);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addWindow(final Window window) {
+        final long position = window.getWindowPosition();
+        final Entry existing = windows.get(position);
+        final Window free = existing == null ? stripes[stripeIndex(position)].add(window)
+                                             : existing.window == window ? null : window;
+        if (free != null) {
+            notifyWindowFree(free);
+        }
+    }
+
+
+    /**
+     * Clears all {@link net.byteseek.io.reader.Window}s from the cache.
+     * Observers are not notified.
+     */
+    @Override
+    public void clear() {
+        for (final Stripe stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void subscribe(final WindowObserver observer) {
+        observers.add(observer);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean unsubscribe(final WindowObserver observer) {
+        return observers.remove(observer);
+    }
+
+
+    /**
+     * Sets the statistics to record for this cache, replacing any previous statistics.
+     *
+     * @param statistics The statistics to record, or null to stop recording statistics.
+     */
+    public void setStatistics(final CacheStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+
+    /**
+     * Returns the statistics recorded for this cache, or null if none are recorded.
+     *
+     * @return The statistics recorded for this cache, or null if there are none.
+     */
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+
+    /**
+     * @return The number of Windows which can be cached.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+
+    /**
+     * @return The number of stripes the cache is divided into.
+     */
+    public int getNumberOfStripes() {
+        return stripes.length;
+    }
+
+
+    /**
+     * @return The number of Windows currently cached.
+     */
+    public int size() {
+        return windows.size();
+    }
+
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[size: " + windows.size() + " capacity: " + capacity + 
+                                            " stripes: " + stripes.length + ']';
+    }
+
+
+    private Window recordLookup(final Window window) {
+        final CacheStatistics stats = statistics;
+        if (stats != null) {
+            if (window == null) {
+                stats.miss();
+            } else {
+                stats.hit();
+            }
+        }
+        return window;
+    }
+
+
+    private void notifyWindowFree(final Window window) {
+        final CacheStatistics stats = statistics;
+        if (stats != null) {
+            stats.windowFreed();
+        }
+        for (final WindowObserver observer : observers) {
+            observer.windowFree(window, this);
+        }
+    }
+
+
+    private int stripeIndex(final long position) {
+        // Window positions are usually multiples of the window size, so spread their bits.
+        final long hash = position * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & stripeMask;
+    }
+
+
+    /**
+     * A cached Window, and whether it has been referenced since the clock hand last passed it.
+     */
+    private static final class Entry {
+
+        private final Window window;
+        private volatile boolean referenced;
+
+        private Entry(final Window window) {
+            this.window = window;
+        }
+    }
+
+
+    /**
+     * A fixed size ring of cached Windows, with a clock hand which sweeps round it
+     * to find Windows to evict.
+     */
+    private final class Stripe {
+
+        private final Entry[] ring;
+        private int hand;
+        private int size;
+
+        private Stripe(final int capacity) {
+            ring = new Entry[capacity];
+        }
+
+        /*
+         * Adds a Window to the stripe, returning the Window evicted to make room for it,
+         * the Window itself if another Window is already cached at its position, or null.
+         */
+        private synchronized Window add(final Window window) {
+            final Entry entry = new Entry(window);
+            final Entry existing = windows.putIfAbsent(window.getWindowPosition(), entry);
+            if (existing != null) {
+                return existing.window == window ? null : window;
+            }
+            if (size < ring.length) {
+                ring[size++] = entry;
+                return null;
+            }
+            // Readers can mark Windows as referenced again behind the hand, so the sweep is
+            // limited to two passes of the ring, after which the Window at the hand is evicted.
+            Entry candidate = ring[hand];
+            for (int step = 2 * ring.length; candidate.referenced && step > 0; step--) {
+                candidate.referenced = false;
+                hand = (hand + 1) % ring.length;
+                candidate = ring[hand];
+            }
+            windows.remove(candidate.window.getWindowPosition(), candidate);
+            ring[hand] = entry;
+            hand = (hand + 1) % ring.length;
+            return candidate.window;
+        }
+
+        private synchronized void clear() {
+            for (int index = 0; index < size; index++) {
+                windows.remove(ring[index].window.getWindowPosition(), ring[index]);
+                ring[index] = null;
+            }
+            size = 0;
+            hand = 0;
+        }
+    }
+
+}
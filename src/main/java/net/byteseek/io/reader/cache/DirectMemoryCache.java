@@ -0,0 +1,246 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.byteseek.io.reader.Window;
+
+
+/**
+ * A {@link WindowCache} which copies the contents of {@link net.byteseek.io.reader.Window}s
+ * into direct {@link java.nio.ByteBuffer} memory outside the Java heap, so large numbers of
+ * Windows can be cached without adding to garbage collection.
+ * <p>
+ * Direct memory is allocated in slabs, each divided into fixed size slots which hold
+ * one Window each.  Slabs are allocated as they are first needed, and slots are reused
+ * once the cache is full, evicting the least recently used Window.  The memory is 
+ * kept when the cache is cleared, and released once the cache is no longer referenced.
+ * <p>
+ * Windows returned by the cache are read-only views onto the slot holding them, so
+ * looking up a Window does not copy it or allocate memory on the heap.  A slot is only
+ * reused once the Window holding it has been evicted and its observers notified.
+ * Observers are notified that a Window is free when it is evicted, with a copy of
+ * the Window on the heap, so an observer can keep the Window after its slot is reused.
+ * Windows which are not cached, because they are longer than the slot size or a Window
+ * at the same position is already cached, are freed as soon as they are added.
+ * <p>
+ * It can be used as either the primary or secondary cache of a {@link TwoLevelCache}.
+ * As the primary cache, Windows are passed on to the secondary cache when they are
+ * evicted.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ * @author Matt Palmer
+ */
+public final class DirectMemoryCache extends AbstractCache {
+
+    private final static boolean ACCESS_ORDER = true;
+    private final static int MAX_SLAB_SIZE = 64 * 1024 * 1024;
+
+    private final int slotSize;
+    private final int capacity;
+    private final int slotsPerSlab;
+    private final LinkedHashMap<Long, Slot> slots;
+    private final ByteBuffer[] slabs;
+    private int slotsUsed;
+
+
+    /**
+     * Creates a DirectMemoryCache which can hold the number of Windows given, 
+     * each of up to the slot size in length.
+     * 
+     * @param slotSize The maximum length of Window which can be cached, usually the window size of the reader.
+     * @param capacity The number of Windows to cache.
+     * @throws IllegalArgumentException if the slot size or capacity are less than one.
+     */
+    public DirectMemoryCache(final int slotSize, final int capacity) {
+        if (slotSize < 1) {
+            throw new IllegalArgumentException("The slot size must be at least one.  It was " + slotSize);
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be at least one.  It was " + capacity);
+        }
+        this.slotSize = slotSize;
+        this.capacity = capacity;
+        this.slotsPerSlab = Math.min(capacity, Math.max(1, MAX_SLAB_SIZE / slotSize));
+        this.slots = new LinkedHashMap<Long, Slot>(16, 0.75f, ACCESS_ORDER);
+        this.slabs = new ByteBuffer[(capacity + slotsPerSlab - 1) / slotsPerSlab];
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Window getWindow(final long position) {
+        final Slot slot = slots.get(position);
+        return recordLookup(slot == null ? null : slot.window);
+    }
+
+
+    /**
+     * Copies the contents of a {@link net.byteseek.io.reader.Window} into direct 
+     * memory, evicting the least recently used Window if the cache is full.  
+     * Windows longer than the slot size, or at a position already cached, are not
+     * cached, and observers are notified that they are free.
+     * 
+     * @param window The Window to add to the cache.
+     */
+    @Override
+    public void addWindow(final Window window) {
+        final long windowPosition = window.getWindowPosition();
+        final int length = window.length();
+        if (length > slotSize || slots.containsKey(windowPosition)) {
+            notifyWindowFree(window, this);
+            return;
+        }
+        final int index = nextSlot();
+        final ByteBuffer slotBuffer = slotBuffer(index);
+        final ByteBuffer slotView = slotBuffer.slice().asReadOnlyBuffer();
+        if (window.hasArray()) {
+            slotBuffer.put(window.getArray(), window.getArrayOffset(), length);
+        } else {
+            final ByteBuffer source = window.getBuffer().duplicate();
+            ((Buffer) source).limit(length);
+            ((Buffer) source).position(0);
+            slotBuffer.put(source);
+        }
+        slots.put(windowPosition, new Slot(index, new Window(slotView, windowPosition, length)));
+    }
+
+
+    /**
+     * Clears all Windows from the cache.  The direct memory already allocated is
+     * kept, and reused for Windows added to the cache afterwards, so Windows returned
+     * by the cache before it was cleared should not be used once it is.
+     */
+    @Override
+    public void clear() {
+        slots.clear();
+        slotsUsed = 0;
+    }
+
+
+    /**
+     * @return The maximum length of Window which can be cached.
+     */
+    public int getSlotSize() {
+        return slotSize;
+    }
+
+
+    /**
+     * @return The number of Windows which can be cached.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+
+    /**
+     * @return The number of Windows currently cached.
+     */
+    public int size() {
+        return slots.size();
+    }
+
+
+    /**
+     * @return The number of bytes of direct memory currently allocated.
+     */
+    public long getAllocatedBytes() {
+        long allocated = 0;
+        for (final ByteBuffer slab : slabs) {
+            if (slab != null) {
+                allocated += slab.capacity();
+            }
+        }
+        return allocated;
+    }
+
+
+    private int nextSlot() {
+        if (slotsUsed < capacity) {
+            return slotsUsed++;
+        }
+        final Iterator<Map.Entry<Long, Slot>> leastRecentlyUsed = slots.entrySet().iterator();
+        final Slot evicted = leastRecentlyUsed.next().getValue();
+        leastRecentlyUsed.remove();
+        final Window window = evicted.window;
+        notifyWindowFree(new Window(window.getArray(), window.getWindowPosition(), window.length()), this);
+        return evicted.index;
+    }
+
+
+    private ByteBuffer slotBuffer(final int index) {
+        final int slabIndex = index / slotsPerSlab;
+        ByteBuffer slab = slabs[slabIndex];
+        if (slab == null) {
+            final int slabSlots = Math.min(slotsPerSlab, capacity - slabIndex * slotsPerSlab);
+            slab = ByteBuffer.allocateDirect(slabSlots * slotSize);
+            slabs[slabIndex] = slab;
+        }
+        final ByteBuffer slotBuffer = slab.duplicate();
+        final int slotStart = (index % slotsPerSlab) * slotSize;
+        ((Buffer) slotBuffer).limit(slotStart + slotSize);
+        ((Buffer) slotBuffer).position(slotStart);
+        return slotBuffer;
+    }
+
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[size: " + slots.size() + " capacity: " + capacity + 
+                                            " slot size: " + slotSize + ']';
+    }
+
+
+    /**
+     * The index of a slot, and the Window holding it.
+     */
+    private static final class Slot {
+
+        private final int index;
+        private final Window window;
+
+        private Slot(final int index, final Window window) {
+            this.index = index;
+            this.window = window;
+        }
+    }
+
+}
@@ -0,0 +1,419 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import net.byteseek.io.IOUtils;
+import net.byteseek.io.reader.Window;
+
+
+/**
+ * A {@link WindowCache} which stores {@link net.byteseek.io.reader.Window} objects
+ * in a temporary file, like the {@link TempFileCache}, but which writes Windows to
+ * the file on a background thread and serves them from a memory mapped view of it,
+ * so the thread adding and getting Windows does not block on file IO.
+ * <p>
+ * Windows are appended to the file through a {@link java.nio.channels.FileChannel}.
+ * Until a Window has been written, the cache returns the Window which was added.
+ * Once written, Windows are returned as slices of the mapped file, so no bytes are
+ * copied and no arrays are allocated when getting a Window.
+ * <p>
+ * The file is mapped in regions, which are only mapped once a Window in them is 
+ * asked for.  A Window never spans two regions.  Windows longer than a region are
+ * read back from the file into a new array, as the TempFileCache does.
+ * <p>
+ * Observers are notified that a Window is free once it has been written to the file.
+ * Notifications are made by the thread using the cache, the next time it adds or 
+ * gets a Window, so observers need not be thread-safe.
+ * <p>
+ * A temporary file is only created if a Window is added to the cache, and it is
+ * deleted when the cache is cleared, along with any writes still pending.  Note that
+ * a mapping is only released when the mapped buffer is garbage collected, so on some
+ * platforms the file cannot be deleted until Windows served from it are no longer used.
+ * <p>
+ * This class is not thread-safe, other than its internal use of the writer.
+ * 
+ * @author Matt Palmer
+ */
+public final class MappedTempFileCache extends AbstractCache {
+
+    /**
+     * The default size in bytes of a mapped region of the temporary file.
+     */
+    public final static int DEFAULT_REGION_SIZE = 16 * 1024 * 1024;
+
+    private final File tempDir;
+    private final int regionSize;
+    private final ExecutorService suppliedWriter;
+    private final Map<Long, WindowInfo> windowPositions;
+    private final ConcurrentMap<Long, Window> pendingWrites;
+    private final List<ByteBuffer> regions;
+
+    // Each temporary file has its own queues of finished writes, so writes to a file
+    // which finish after the cache is cleared are not processed by the cache.
+    private Queue<Window> completedWrites;
+    private Queue<Window> failedWrites;
+
+    private ExecutorService writer;
+    private File tempFile;
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private long nextFilePos;
+
+
+    /**
+     * Constructs a MappedTempFileCache in the default temp directory, with its
+     * own background writer thread.
+     */
+    public MappedTempFileCache() {
+        this(null);
+    }
+
+
+    /**
+     * Constructs a MappedTempFileCache which creates temporary files in the directory
+     * specified, with its own background writer thread.  If the directory is null,
+     * then temporary files will be created in the default temp directory.
+     *
+     * @param tempDir The directory to create temporary files in.
+     * @throws IllegalArgumentException if the tempdir supplied is not a directory.
+     */
+    public MappedTempFileCache(final File tempDir) {
+        this(tempDir, DEFAULT_REGION_SIZE, null);
+    }
+
+
+    /**
+     * Constructs a MappedTempFileCache which creates temporary files in the directory
+     * specified, mapping regions of the size given, and writing on the executor supplied.
+     * 
+     * @param tempDir The directory to create temporary files in, or null for the default temp directory.
+     * @param regionSize The size in bytes of each mapped region of the temporary file.
+     * @param writer The executor to write Windows on, which is not shut down by this cache,
+     *               or null if the cache should create its own writer thread.
+     * @throws IllegalArgumentException if the tempdir supplied is not a directory, or the
+     *                                  region size is less than one.
+     */
+    public MappedTempFileCache(final File tempDir, final int regionSize, final ExecutorService writer) {
+        if (tempDir != null && !tempDir.isDirectory()) {
+            throw new IllegalArgumentException("The temp dir file supplied is not a directory: " + tempDir.getAbsolutePath());
+        }
+        if (regionSize < 1) {
+            throw new IllegalArgumentException("The region size must be at least one.  It was " + regionSize);
+        }
+        this.tempDir = tempDir;
+        this.regionSize = regionSize;
+        this.suppliedWriter = writer;
+        this.windowPositions = new HashMap<Long, WindowInfo>();
+        this.pendingWrites = new ConcurrentHashMap<Long, Window>();
+        this.regions = new ArrayList<ByteBuffer>();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Window getWindow(final long position) {
+        processCompletedWrites();
+        return recordLookup(findWindow(position));
+    }
+
+
+    private Window findWindow(final long position) {
+        final WindowInfo info = windowPositions.get(position);
+        if (info != null) {
+            final Window pending = pendingWrites.get(position);
+            if (pending != null) {
+                return pending;
+            }
+            try {
+                return info.length <= regionSize ? mappedWindow(position, info) 
+                                                 : readWindow(position, info);
+            } catch (IOException justReturnNullWindow) {
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Schedules a {@link net.byteseek.io.reader.Window} to be written to the end of
+     * the temporary file, unless a Window at the same position was already added.
+     * 
+     * @param window The Window to add to the cache.
+     */
+    @Override
+    public void addWindow(final Window window) {
+        processCompletedWrites();
+        final long windowPosition = window.getWindowPosition();
+        if (!windowPositions.containsKey(windowPosition)) {
+            try {
+                createFileIfNotExists();
+            } catch (IOException justFailToAddTheWindow) {
+                return;
+            }
+            final int length = window.length();
+            final long regionOffset = nextFilePos % regionSize;
+            if (length <= regionSize && regionOffset + length > regionSize) {
+                nextFilePos += regionSize - regionOffset; // start the window in the next region.
+            }
+            final long filePosition = nextFilePos;
+            nextFilePos += length;
+            windowPositions.put(windowPosition, new WindowInfo(length, filePosition));
+            pendingWrites.put(windowPosition, window);
+            writer.execute(new Write(channel, window, filePosition, completedWrites, failedWrites));
+            recordBytesWritten(length);
+        }
+    }
+
+
+    /**
+     * Clears the map of Window positions to their position and size in the file,
+     * abandons any writes still pending, and deletes the temporary file if it exists.
+     * <p>
+     * The writer is stopped and the file closed before the cache is emptied.  Writes
+     * to the file which finish afterwards are recorded against that file only, so they
+     * are never processed by the cache.
+     */
+    @Override
+    public void clear() {
+        deleteFileIfExists();
+        windowPositions.clear();
+        pendingWrites.clear();
+        regions.clear();
+    }
+
+
+    /**
+     * Returns the temporary file backing this cache object.
+     * 
+     * @return File The temporary file backing this cache object, or null if it doesn't exist.
+     */
+    public File getTempFile() {
+        return tempFile;
+    }
+
+
+    /**
+     * @return The number of Windows added to the cache which have not yet been written.
+     */
+    public int getPendingWrites() {
+        return pendingWrites.size();
+    }
+
+
+    /**
+     * @return The size in bytes of each mapped region of the temporary file.
+     */
+    public int getRegionSize() {
+        return regionSize;
+    }
+
+
+    private void processCompletedWrites() {
+        if (tempFile == null) {
+            return; // no writes were made to a file which still exists.
+        }
+        Window window;
+        while ((window = completedWrites.poll()) != null) {
+            if (pendingWrites.remove(window.getWindowPosition(), window)) {
+                notifyWindowFree(window, this);
+            }
+        }
+        while ((window = failedWrites.poll()) != null) {
+            if (pendingWrites.remove(window.getWindowPosition(), window)) {
+                windowPositions.remove(window.getWindowPosition());
+                notifyWindowFree(window, this);
+            }
+        }
+    }
+
+
+    private Window mappedWindow(final long position, final WindowInfo info) throws IOException {
+        final int regionIndex = (int) (info.filePosition / regionSize);
+        while (regions.size() <= regionIndex) {
+            regions.add(null);
+        }
+        ByteBuffer region = regions.get(regionIndex);
+        if (region == null) {
+            region = channel.map(FileChannel.MapMode.READ_WRITE, (long) regionIndex * regionSize, regionSize);
+            regions.set(regionIndex, region);
+        }
+        final ByteBuffer view = region.duplicate();
+        final int regionOffset = (int) (info.filePosition % regionSize);
+        ((Buffer) view).limit(regionOffset + info.length);
+        ((Buffer) view).position(regionOffset);
+        return new Window(view.slice(), position, info.length);
+    }
+
+
+    private Window readWindow(final long position, final WindowInfo info) throws IOException {
+        final byte[] array = new byte[info.length];
+        IOUtils.readBytes(channel, array, info.filePosition);
+        return new Window(array, position, info.length);
+    }
+
+
+    private void createFileIfNotExists() throws IOException {
+        if (tempFile == null) {
+            windowPositions.clear();
+            nextFilePos = 0;
+            tempFile = tempDir == null? IOUtils.createTempFile()
+                                      : IOUtils.createTempFile(tempDir);
+            file = new RandomAccessFile(tempFile, "rw");
+            channel = file.getChannel();
+            completedWrites = new ConcurrentLinkedQueue<Window>();
+            failedWrites = new ConcurrentLinkedQueue<Window>();
+            writer = suppliedWriter != null ? suppliedWriter 
+                                            : Executors.newSingleThreadExecutor(WRITER_THREADS);
+        }
+    }
+
+
+    private void deleteFileIfExists() {
+        if (tempFile != null) {
+            if (writer != suppliedWriter) {
+                writer.shutdownNow();
+            }
+            writer = null;
+            try {
+                file.close();
+            } catch (IOException ex) {
+            } finally {
+                file = null;
+                channel = null;
+                completedWrites = null;
+                failedWrites = null;
+                tempFile.delete();
+                tempFile = null;
+                nextFilePos = 0;
+            }
+        }
+    }
+
+
+    private final static ThreadFactory WRITER_THREADS = new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable task) {
+            final Thread thread = new Thread(task, "byteseek temp file writer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+
+    /**
+     * Writes a Window to a position in the temporary file, and queues it as completed
+     * or failed for the thread using the cache to process.
+     */
+    private final class Write implements Runnable {
+
+        private final FileChannel channel;
+        private final Window window;
+        private final long filePosition;
+        private final Queue<Window> completed;
+        private final Queue<Window> failed;
+
+        private Write(final FileChannel channel, final Window window, final long filePosition,
+                      final Queue<Window> completed, final Queue<Window> failed) {
+            this.channel = channel;
+            this.window = window;
+            this.filePosition = filePosition;
+            this.completed = completed;
+            this.failed = failed;
+        }
+
+        @Override
+        public void run() {
+            final int length = window.length();
+            final ByteBuffer source;
+            if (window.hasArray()) {
+                source = ByteBuffer.wrap(window.getArray(), window.getArrayOffset(), length);
+            } else {
+                source = window.getBuffer().duplicate();
+                ((Buffer) source).limit(length);
+                ((Buffer) source).position(0);
+            }
+            try {
+                long writePosition = filePosition;
+                while (source.hasRemaining()) {
+                    writePosition += channel.write(source, writePosition);
+                }
+                completed.add(window);
+            } catch (IOException writeFailed) {
+                failed.add(window);
+            }
+        }
+    }
+
+
+    /**
+     * A utility class recording the length of a Window and the position in 
+     * the temporary file it exists at.
+     */
+    private static final class WindowInfo {
+
+        final int length;
+        final long filePosition;
+
+        WindowInfo(final int length, final long filePosition) {
+            this.length = length;
+            this.filePosition = filePosition;
+        }
+    }
+
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[temp file: " + tempFile + " window positions recorded: " + 
+                                            windowPositions.size() + " pending writes: " + pendingWrites.size() + ']';
+    }
+
+}
@@ -65,7 +65,7 @@ public final class MostRecentlyAddedCache extends AbstractCache  {
      */
     @Override
     public Window getWindow(final long position) {
-        return cache.get(position);
+        return recordLookup(cache.get(position));
     }
 
     
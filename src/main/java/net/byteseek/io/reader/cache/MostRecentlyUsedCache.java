@@ -66,7 +66,7 @@ public final class MostRecentlyUsedCache extends AbstractCache  {
      */
     @Override
     public Window getWindow(final long position) {
-        return cache.get(position);
+        return recordLookup(cache.get(position));
     }
 
     
@@ -57,7 +57,7 @@ public final class NoCache extends AbstractCache {
      */
     @Override
     public Window getWindow(long position) {
-        return null;
+        return recordLookup(null);
     }
 
     
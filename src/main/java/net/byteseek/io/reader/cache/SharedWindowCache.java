@@ -0,0 +1,444 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import net.byteseek.io.reader.Window;
+
+
+/**
+ * A thread-safe store of {@link net.byteseek.io.reader.Window}s shared by all the readers
+ * of the same files, within a single memory budget.  Several readers opened on the same
+ * file reuse the Windows any of them has already read, rather than each reading and 
+ * holding their own copies.
+ * <p>
+ * Readers use the store through a {@link WindowCache} view for the file they read,
+ * obtained from {@link #forFile(File, int)}.  Windows are keyed by the identity of the
+ * file, the window size of the reader and the position of the Window.  A file's 
+ * identity is its file key (or canonical path, if the platform has no file keys), 
+ * its length and its last modified time, so a file which changes is not served 
+ * stale Windows.
+ * <p>
+ * Windows are accounted for by the size of the memory they hold, and evicted using 
+ * the CLOCK approximation of least recently used when the budget is used up.  
+ * Looking up a Window takes no locks.  Observers of a view are notified when a
+ * Window added through that view is evicted.  As Windows are shared between readers,
+ * readers using a shared cache should not recycle the arrays of freed Windows.
+ * <p>
+ * Clearing a view, as readers do when they are closed, does not remove Windows which
+ * other readers may still use; they stay until they are evicted, or the store is cleared.
+ * <p>
+ * A default store for the whole process is available from {@link #getDefault()}.
+ * <p>
+ * {@link CacheStatistics} can be recorded for the store, counting the lookups and
+ * freed Windows of all its views.
+ * 
+ * @author Matt Palmer
+ */
+public final class SharedWindowCache {
+
+    /**
+     * The budget in bytes of the default shared store.
+     */
+    public final static long DEFAULT_BUDGET = 64L * 1024 * 1024;
+
+    private final CacheBudget budget;
+    private final ConcurrentHashMap<WindowKey, Entry> windows;
+    private final List<Entry> clock;
+    private int hand;
+    private volatile CacheStatistics statistics;
+
+
+    /**
+     * Creates a SharedWindowCache with its own budget of the number of bytes given.
+     * 
+     * @param maxBytes The maximum number of bytes of Windows to hold.
+     * @throws IllegalArgumentException if the maximum bytes are less than one.
+     */
+    public SharedWindowCache(final long maxBytes) {
+        this(new CacheBudget(maxBytes));
+    }
+
+
+    /**
+     * Creates a SharedWindowCache which draws on the budget provided.
+     * 
+     * @param budget The budget of bytes to draw on.
+     * @throws IllegalArgumentException if the budget is null.
+     */
+    public SharedWindowCache(final CacheBudget budget) {
+        if (budget == null) {
+            throw new IllegalArgumentException("Null budget passed in to SharedWindowCache.");
+        }
+        this.budget = budget;
+        this.windows = new ConcurrentHashMap<WindowKey, Entry>();
+        this.clock = new ArrayList<Entry>();
+    }
+
+
+    /**
+     * Returns the default SharedWindowCache for the process, with a budget of 
+     * {@link #DEFAULT_BUDGET} bytes.
+     * 
+     * @return The default SharedWindowCache.
+     */
+    public static SharedWindowCache getDefault() {
+        return DefaultHolder.DEFAULT;
+    }
+
+
+    /**
+     * Returns a thread-safe {@link WindowCache} for a reader of the file given,
+     * with the window size given, which shares Windows with all other readers of
+     * the same file with the same window size.
+     * 
+     * @param file The file to be read.
+     * @param windowSize The window size of the reader.
+     * @return A WindowCache for the reader to use.
+     * @throws IOException If the identity of the file could not be determined.
+     * @throws IllegalArgumentException if the file is null or the window size is less than one.
+     */
+    public WindowCache forFile(final File file, final int windowSize) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("Null file passed in to SharedWindowCache.");
+        }
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size must be at least one.  It was " + windowSize);
+        }
+        return new FileCache(new FileIdentity(file), windowSize);
+    }
+
+
+    /**
+     * Returns true if the cache given is a view of a SharedWindowCache, whose Windows
+     * may be shared by other readers.
+     * 
+     * @param cache The cache to test.
+     * @return true if the cache was returned by {@link #forFile(File, int)}.
+     */
+    public static boolean isSharedCache(final WindowCache cache) {
+        return cache instanceof FileCache;
+    }
+
+
+    /**
+     * Removes all Windows from the store, for all files.  Observers are not notified.
+     */
+    public void clear() {
+        synchronized (clock) {
+            for (final Entry entry : clock) {
+                windows.remove(entry.key, entry);
+                budget.release(entry.bytes);
+            }
+            clock.clear();
+            hand = 0;
+        }
+    }
+
+
+    /**
+     * Sets the statistics to record for this store, replacing any previous statistics.
+     *
+     * @param statistics The statistics to record, or null to stop recording statistics.
+     */
+    public void setStatistics(final CacheStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+
+    /**
+     * Returns the statistics recorded for this store, or null if none are recorded.
+     *
+     * @return The statistics recorded for this store, or null if there are none.
+     */
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+
+    /**
+     * @return The budget this store draws on.
+     */
+    public CacheBudget getBudget() {
+        return budget;
+    }
+
+
+    /**
+     * @return The number of Windows held in the store.
+     */
+    public int size() {
+        return windows.size();
+    }
+
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[size: " + windows.size() + " budget: " + budget + ']';
+    }
+
+
+    private Window get(final WindowKey key) {
+        final Entry entry = windows.get(key);
+        final CacheStatistics stats = statistics;
+        if (entry != null) {
+            if (!entry.referenced) { // avoid writing to shared memory if already set.
+                entry.referenced = true;
+            }
+            if (stats != null) {
+                stats.hit();
+            }
+            return entry.window;
+        }
+        if (stats != null) {
+            stats.miss();
+        }
+        return null;
+    }
+
+
+    private void add(final WindowKey key, final Window window, final FileCache owner) {
+        if (windows.containsKey(key)) {
+            return;
+        }
+        final Entry entry = new Entry(key, window, owner, ByteBudgetCache.sizeOf(window));
+        final List<Entry> evicted = new ArrayList<Entry>(1);
+        boolean cached = false;
+        synchronized (clock) {
+            if (windows.putIfAbsent(key, entry) == null) {
+                while (!(cached = budget.reserve(entry.bytes)) && !clock.isEmpty()) {
+                    evicted.add(evict());
+                }
+                if (cached) {
+                    clock.add(entry);
+                } else {
+                    windows.remove(key, entry);
+                }
+            } else {
+                return;
+            }
+        }
+        for (final Entry evictedEntry : evicted) {
+            evictedEntry.owner.notifyWindowFree(evictedEntry.window);
+        }
+        if (!cached) {
+            owner.notifyWindowFree(window);
+        }
+    }
+
+
+    private Entry evict() {
+        Entry candidate;
+        if (hand >= clock.size()) {
+            hand = 0;
+        }
+        // Readers can mark Windows as referenced again behind the hand, so the sweep is
+        // limited to two passes of the clock, after which the Window at the hand is evicted.
+        candidate = clock.get(hand);
+        for (int step = 2 * clock.size(); candidate.referenced && step > 0; step--) {
+            candidate.referenced = false;
+            hand = hand + 1 < clock.size() ? hand + 1 : 0;
+            candidate = clock.get(hand);
+        }
+        // Move the last entry into the evicted slot, and pass the hand over it:
+        final Entry last = clock.remove(clock.size() - 1);
+        if (hand < clock.size()) {
+            clock.set(hand++, last);
+        }
+        windows.remove(candidate.key, candidate);
+        budget.release(candidate.bytes);
+        return candidate;
+    }
+
+
+    private static final class DefaultHolder {
+        private static final SharedWindowCache DEFAULT = new SharedWindowCache(DEFAULT_BUDGET);
+    }
+
+
+    /**
+     * The identity of a file: its file key or canonical path, length and last modified time.
+     */
+    private static final class FileIdentity {
+
+        private final Object key;
+        private final long length;
+        private final long lastModified;
+
+        private FileIdentity(final File file) throws IOException {
+            final BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            final Object fileKey = attributes.fileKey();
+            this.key = fileKey != null ? fileKey : file.getCanonicalPath();
+            this.length = attributes.size();
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() * 31 + (int) (length ^ (length >>> 32)) * 17 + (int) lastModified;
+        }
+
+        @Override
+        public boolean equals(final Object object) {
+            if (!(object instanceof FileIdentity)) {
+                return false;
+            }
+            final FileIdentity other = (FileIdentity) object;
+            return length == other.length && lastModified == other.lastModified && key.equals(other.key);
+        }
+
+        @Override
+        public String toString() {
+            return key + ":" + length + ":" + lastModified;
+        }
+    }
+
+
+    /**
+     * The key of a Window: the identity of its file, the window size and its position.
+     */
+    private static final class WindowKey {
+
+        private final FileIdentity file;
+        private final int windowSize;
+        private final long position;
+
+        private WindowKey(final FileIdentity file, final int windowSize, final long position) {
+            this.file = file;
+            this.windowSize = windowSize;
+            this.position = position;
+        }
+
+        @Override
+        public int hashCode() {
+            return (file.hashCode() * 31 + windowSize) * 31 + (int) (position ^ (position >>> 32));
+        }
+
+        @Override
+        public boolean equals(final Object object) {
+            if (!(object instanceof WindowKey)) {
+                return false;
+            }
+            final WindowKey other = (WindowKey) object;
+            return position == other.position && windowSize == other.windowSize && file.equals(other.file);
+        }
+    }
+
+
+    /**
+     * A shared Window, the view it was added through, the memory it holds,
+     * and whether it has been referenced since the clock hand last passed it.
+     */
+    private static final class Entry {
+
+        private final WindowKey key;
+        private final Window window;
+        private final FileCache owner;
+        private final long bytes;
+        private volatile boolean referenced;
+
+        private Entry(final WindowKey key, final Window window, final FileCache owner, final long bytes) {
+            this.key = key;
+            this.window = window;
+            this.owner = owner;
+            this.bytes = bytes;
+        }
+    }
+
+
+    /**
+     * A view of the shared store for the readers of one file with one window size.
+     */
+    private final class FileCache implements WindowCache {
+
+        private final FileIdentity file;
+        private final int windowSize;
+        private final List<WindowObserver> observers = new CopyOnWriteArrayList<WindowObserver>();
+
+        private FileCache(final FileIdentity file, final int windowSize) {
+            this.file = file;
+            this.windowSize = windowSize;
+        }
+
+        @Override
+        public Window getWindow(final long position) {
+            return get(new WindowKey(file, windowSize, position));
+        }
+
+        @Override
+        public void addWindow(final Window window) {
+            add(new WindowKey(file, windowSize, window.getWindowPosition()), window, this);
+        }
+
+        /**
+         * Does not remove shared Windows, which other readers may still be using.
+         */
+        @Override
+        public void clear() {
+        }
+
+        @Override
+        public void subscribe(final WindowObserver observer) {
+            observers.add(observer);
+        }
+
+        @Override
+        public boolean unsubscribe(final WindowObserver observer) {
+            return observers.remove(observer);
+        }
+
+        private void notifyWindowFree(final Window window) {
+            final CacheStatistics stats = statistics;
+            if (stats != null) {
+                stats.windowFreed();
+            }
+            for (final WindowObserver observer : observers) {
+                observer.windowFree(window, this);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return SharedWindowCache.class.getSimpleName() + '.' + getClass().getSimpleName() + 
+                   "[file: " + file + " window size: " + windowSize + " shared: " + SharedWindowCache.this + ']';
+        }
+    }
+
+}
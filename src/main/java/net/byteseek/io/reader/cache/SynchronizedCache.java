@@ -0,0 +1,129 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import net.byteseek.io.reader.Window;
+
+/**
+ * A {@link WindowCache} which wraps another WindowCache, making every call to
+ * it synchronized on a single lock.  This allows any of the other WindowCaches,
+ * which are not thread-safe, to be shared by many threads reading from the same
+ * {@link net.byteseek.io.reader.WindowReader}.
+ * <p>
+ * Observers are subscribed to the wrapped cache, and are notified by it while
+ * the lock is held.
+ * <p>
+ * Window lookups in a cache are short, so a single lock is sufficient
+ * for moderate numbers of threads.
+ * 
+ * @author Matt Palmer
+ */
+public final class SynchronizedCache implements WindowCache {
+
+    private final WindowCache cache;
+    
+    
+    /**
+     * Constructs a SynchronizedCache wrapping the cache provided.
+     * 
+     * @param cache The WindowCache to synchronize access to.
+     * @throws IllegalArgumentException if the cache is null.
+     */
+    public SynchronizedCache(final WindowCache cache) {
+        if (cache == null) {
+            throw new IllegalArgumentException("Null cache passed in to SynchronizedCache.");
+        }
+        this.cache = cache;
+    }
+    
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Window getWindow(final long position) {
+        return cache.getWindow(position);
+    }
+
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void addWindow(final Window window) {
+        cache.addWindow(window);
+    }
+
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void subscribe(final WindowObserver observer) {
+        cache.subscribe(observer);
+    }
+
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean unsubscribe(final WindowObserver observer) {
+        return cache.unsubscribe(observer);
+    }
+    
+    
+    /**
+     * Returns the WindowCache wrapped by this SynchronizedCache.
+     * 
+     * @return WindowCache the cache wrapped by this SynchronizedCache.
+     */
+    public WindowCache getCache() {
+        return cache;
+    }
+    
+    
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[cache: " + cache + ']';  
+	}
+    
+}
@@ -100,7 +100,7 @@ public final class TempFileCache extends AbstractCache {
             } catch (IOException justReturnNullWindow) {
             }
         }
-        return window;
+        return recordLookup(window);
     }
 
     
@@ -115,10 +115,11 @@ public final class TempFileCache extends AbstractCache {
             try {
                 createFileIfNotExists();
                 file.seek(nextFilePos);
-                file.write(window.getArray(), 0, window.length());
+                file.write(window.getArray(), window.getArrayOffset(), window.length());
                 windowPositions.put(windowPosition, 
                                     new WindowInfo(window.length(), nextFilePos));
                 nextFilePos += window.length();
+                recordBytesWritten(window.length());
                 notifyWindowFree(window, this);
             } catch (IOException justFailToAddTheWindow) {
             }
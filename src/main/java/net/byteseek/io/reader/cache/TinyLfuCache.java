@@ -0,0 +1,264 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.byteseek.io.reader.Window;
+
+
+/**
+ * A scan-resistant {@link WindowCache} using the W-TinyLFU policy, which keeps 
+ * {@link net.byteseek.io.reader.Window}s that are looked up frequently cached,
+ * while Windows read once by a scan through a source pass through without 
+ * displacing them.
+ * <p>
+ * New Windows are added to a small queue of recent Windows, which evicts the least
+ * recently used Window into a larger main queue.  Once the main queue is full, a
+ * Window leaving the recent queue is only admitted to it if it has been looked up
+ * more often than the least recently used Window in the main queue, which is then
+ * evicted.  Otherwise, the Window leaving the recent queue is evicted.
+ * <p>
+ * How often a Window has been looked up is estimated by a small frequency sketch of
+ * the positions looked up, which remembers Windows no longer cached.  All its
+ * counts are halved periodically, so the sketch adapts as access patterns change.
+ * <p>
+ * A one-pass scan only looks up each Window once, so frequently revisited Windows,
+ * such as the headers and trailers of files, stay in the main queue where a 
+ * {@link MostRecentlyUsedCache} of the same capacity would lose them to the scan.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ * @author Matt Palmer
+ */
+public final class TinyLfuCache extends AbstractCache {
+
+    private final static boolean ACCESS_ORDER = true;
+    private final static int RECENT_PERCENTAGE = 1;
+
+    private final int capacity;
+    private final int recentCapacity;
+    private final LinkedHashMap<Long, Window> recentWindows;
+    private final LinkedHashMap<Long, Window> mainWindows;
+    private final FrequencySketch sketch;
+
+
+    /**
+     * Creates a TinyLfuCache holding up to the number of Windows given, one percent
+     * of which (but at least one Window) are held in the recent queue.
+     * 
+     * @param capacity The number of Windows to cache.
+     * @throws IllegalArgumentException if the capacity is less than two.
+     */
+    public TinyLfuCache(final int capacity) {
+        this(capacity, Math.max(1, capacity * RECENT_PERCENTAGE / 100));
+    }
+
+
+    /**
+     * Creates a TinyLfuCache holding up to the number of Windows given.
+     * 
+     * @param capacity The number of Windows to cache.
+     * @param recentCapacity The number of Windows held in the recent queue.
+     * @throws IllegalArgumentException if the capacity is less than two, or the recent capacity
+     *                                  is less than one or not less than the capacity.
+     */
+    public TinyLfuCache(final int capacity, final int recentCapacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("The capacity must be at least two.  It was " + capacity);
+        }
+        if (recentCapacity < 1 || recentCapacity >= capacity) {
+            throw new IllegalArgumentException("The recent capacity must be between one and " + (capacity - 1) + 
+                                               ".  It was " + recentCapacity);
+        }
+        this.capacity = capacity;
+        this.recentCapacity = recentCapacity;
+        this.recentWindows = new LinkedHashMap<Long, Window>(16, 0.75f, ACCESS_ORDER);
+        this.mainWindows = new LinkedHashMap<Long, Window>(16, 0.75f, ACCESS_ORDER);
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Window getWindow(final long position) {
+        sketch.increment(position);
+        final Window window = mainWindows.get(position);
+        return recordLookup(window != null ? window : recentWindows.get(position));
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addWindow(final Window window) {
+        final long windowPosition = window.getWindowPosition();
+        if (!mainWindows.containsKey(windowPosition) && !recentWindows.containsKey(windowPosition)) {
+            recentWindows.put(windowPosition, window);
+            if (recentWindows.size() > recentCapacity) {
+                admit(removeEldest(recentWindows));
+            }
+        }
+    }
+
+
+    /**
+     * Clears all Windows from the cache, and the frequencies of Windows looked up.
+     */
+    @Override
+    public void clear() {
+        recentWindows.clear();
+        mainWindows.clear();
+        sketch.clear();
+    }
+
+
+    /**
+     * @return The number of Windows which can be cached.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+
+    /**
+     * @return The number of Windows currently cached.
+     */
+    public int size() {
+        return recentWindows.size() + mainWindows.size();
+    }
+
+
+    private void admit(final Window candidate) {
+        if (mainWindows.size() < capacity - recentCapacity) {
+            mainWindows.put(candidate.getWindowPosition(), candidate);
+        } else {
+            final Window victim = mainWindows.entrySet().iterator().next().getValue();
+            if (sketch.frequency(candidate.getWindowPosition()) > sketch.frequency(victim.getWindowPosition())) {
+                mainWindows.remove(victim.getWindowPosition());
+                mainWindows.put(candidate.getWindowPosition(), candidate);
+                notifyWindowFree(victim, this);
+            } else {
+                notifyWindowFree(candidate, this);
+            }
+        }
+    }
+
+
+    private static Window removeEldest(final LinkedHashMap<Long, Window> windows) {
+        final Iterator<Map.Entry<Long, Window>> eldest = windows.entrySet().iterator();
+        final Window window = eldest.next().getValue();
+        eldest.remove();
+        return window;
+    }
+
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[recent: " + recentWindows.size() + " main: " + mainWindows.size() + 
+                                            " capacity: " + capacity + ']';
+    }
+
+
+    /**
+     * A count-min sketch of how often positions have been looked up, using four
+     * rows of counters which saturate at fifteen.  Once a number of lookups ten 
+     * times the cache capacity has been counted, all counts are halved.
+     */
+    private static final class FrequencySketch {
+
+        private final static int ROWS = 4;
+        private final static int MAX_COUNT = 15;
+        private final static int SAMPLE_MULTIPLIER = 10;
+        private final static long[] SEEDS = { 0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 
+                                              0x165667B19E3779F9L, 0xD6E8FEB86659FD93L };
+
+        private final byte[] counts;
+        private final int width;
+        private final int mask;
+        private final int sampleSize;
+        private int lookups;
+
+        private FrequencySketch(final int capacity) {
+            width = Math.max(16, Integer.highestOneBit(capacity - 1) << 1);
+            mask = width - 1;
+            counts = new byte[ROWS * width];
+            sampleSize = capacity * SAMPLE_MULTIPLIER;
+        }
+
+        private void increment(final long position) {
+            for (int row = 0; row < ROWS; row++) {
+                final int index = index(row, position);
+                if (counts[index] < MAX_COUNT) {
+                    counts[index]++;
+                }
+            }
+            if (++lookups >= sampleSize) {
+                halve();
+            }
+        }
+
+        private int frequency(final long position) {
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < ROWS; row++) {
+                frequency = Math.min(frequency, counts[index(row, position)]);
+            }
+            return frequency;
+        }
+
+        private void halve() {
+            for (int index = 0; index < counts.length; index++) {
+                counts[index] >>= 1;
+            }
+            lookups /= 2;
+        }
+
+        private void clear() {
+            for (int index = 0; index < counts.length; index++) {
+                counts[index] = 0;
+            }
+            lookups = 0;
+        }
+
+        private int index(final int row, final long position) {
+            long hash = position * SEEDS[row];
+            hash ^= hash >>> 32;
+            return row * width + ((int) hash & mask);
+        }
+    }
+
+}
@@ -75,7 +75,7 @@ public final class TopAndTailCache extends AbstractCache {
 
     @Override
     public Window getWindow(final long position) {
-        return cache.get(position);
+        return recordLookup(cache.get(position));
     }
 
     @Override
@@ -31,6 +31,10 @@
 
 package net.byteseek.io.reader.cache;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
 import net.byteseek.io.reader.Window;
 import net.byteseek.io.reader.cache.WindowCache.WindowObserver;
 
@@ -41,6 +45,10 @@ import net.byteseek.io.reader.cache.WindowCache.WindowObserver;
  * but not when it leaves the primary one (as it is added immediately to the secondary).
  * Adding a Window to this cache adds it to the primary cache.
  * <p>
+ * A Window found in the secondary cache is promoted by adding it to the primary cache,
+ * but it cannot be removed from the secondary one.  If it leaves the secondary cache
+ * while it is still in the primary cache, observers are not notified, as it is still cached.
+ * <p>
  * This class can only be constructed using a static method, as it subscribes as an
  * observer to the primary secondary cache's passed in.  We do not want to have
  * subscription happening in its constructor, as this may allow an invalid "this" reference
@@ -71,6 +79,7 @@ import net.byteseek.io.reader.cache.WindowCache.WindowObserver;
     
     private final WindowCache primaryCache;
     private final WindowCache secondaryCache;
+    private final Set<Window> promotedWindows = Collections.newSetFromMap(new IdentityHashMap<Window, Boolean>());
 
     private TwoLevelCache(final WindowCache primaryCache, final WindowCache secondaryCache) {
         this.primaryCache = primaryCache;
@@ -87,10 +96,11 @@ import net.byteseek.io.reader.cache.WindowCache.WindowObserver;
         if (window == null) {
             window = secondaryCache.getWindow(position);
             if (window != null) {
+                promotedWindows.add(window);
                 addWindow(window);
             }
         }
-        return window;
+        return recordLookup(window);
     }
 
     
@@ -111,6 +121,7 @@ import net.byteseek.io.reader.cache.WindowCache.WindowObserver;
     public void clear() {
         primaryCache.clear();
         secondaryCache.clear();
+        promotedWindows.clear();
     }
 
     
@@ -121,7 +132,8 @@ import net.byteseek.io.reader.cache.WindowCache.WindowObserver;
      * If a {@link net.byteseek.io.reader.Window} leaves the primary
      * cache, then it is automatically added to the secondary cache.
      * If it leaves the secondary cache, then any observer of this cache
-     * is notified that the Window is no longer cached at all by this cache.
+     * is notified that the Window is no longer cached at all by this cache,
+     * unless it was promoted to the primary cache and is still there.
      * 
      * @param window The Window which is leaving either the primary or secondary cache.
      * @param fromCache The WindowCache from which the Window is leaving.
@@ -129,9 +141,12 @@ import net.byteseek.io.reader.cache.WindowCache.WindowObserver;
     @Override
     public void windowFree(final Window window, final WindowCache fromCache) {
         if (fromCache == primaryCache) {
+            promotedWindows.remove(window);
             secondaryCache.addWindow(window);
         } else if (fromCache == secondaryCache) {
-            notifyWindowFree(window, fromCache);
+            if (!promotedWindows.remove(window)) {
+                notifyWindowFree(window, fromCache);
+            }
         }
     }
     
@@ -32,12 +32,13 @@
 package net.byteseek.matcher;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import net.byteseek.io.reader.WindowReader;
 
 /**
  * An interface for classes that can match bytes from a given position, either
- * directly within a byte array, or through a WindowReader object.
+ * directly within a byte array or ByteBuffer, or through a WindowReader object.
  * 
  * @author Matt Palmer
  */
@@ -74,4 +75,22 @@ public interface Matcher {
 	 * @throws NullPointerException if the byte array passed in is null.
 	 */
 	public boolean matches(byte[] bytes, int matchPosition);
+
+	/**
+	 * Returns whether there is a match or not at the given position in a
+	 * ByteBuffer. The buffer may be a heap buffer, a direct buffer or a memory
+	 * mapped file; no bytes are copied out of it to match.
+	 * <p>
+	 * The match position is an absolute index into the buffer, so the current
+	 * position of the buffer is ignored. Bytes at or past the limit of the
+	 * buffer do not exist, so there is no match if a match would need them.
+	 * 
+	 * @param buffer
+	 *            A ByteBuffer to read from.
+	 * @param matchPosition
+	 *            The absolute index in the buffer to try to match at.
+	 * @return Whether there is a match at the given position.
+	 * @throws NullPointerException if the buffer passed in is null.
+	 */
+	public boolean matches(ByteBuffer buffer, int matchPosition);
 }
@@ -32,6 +32,7 @@
 package net.byteseek.matcher.automata;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -69,7 +70,6 @@ public class DfaMatcher<T> implements AutomataMatcher<T> {
 		State<T> state = automata.getInitialState();
 		// While we have a window on the data to match in:
 		while (window != null) {
-			final byte[] bytes = window.getArray();
 			final int windowLength = window.length();
 			final int windowStart = reader.getWindowOffset(currentPosition);
 			int windowPos = windowStart;
@@ -83,7 +83,7 @@ public class DfaMatcher<T> implements AutomataMatcher<T> {
 				}
 
 				// No match was found, find the next state to follow:
-				final byte currentByte = bytes[windowPos++];
+				final byte currentByte = window.getByte(windowPos++);
 				state = state.getNextState(currentByte);
 			}
 			currentPosition += windowLength - windowStart;
@@ -119,6 +119,33 @@ public class DfaMatcher<T> implements AutomataMatcher<T> {
 		return false;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+		// Setup
+		final int length = buffer.limit();
+		if (matchPosition >= 0 && matchPosition < length) {
+			int currentPosition = matchPosition;
+			State<T> currentState = automata.getInitialState();
+
+			// While there is a state to process:
+			while (currentState != null && currentPosition < length) {
+
+				// See if the next state is final (a match).
+				if (currentState.isFinal()) {
+					return true;
+				}
+
+				// No match was found, find the next state to follow:
+				final byte currentByte = buffer.get(currentPosition++);
+				currentState = currentState.getNextState(currentByte);
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -131,7 +158,6 @@ public class DfaMatcher<T> implements AutomataMatcher<T> {
 		State<T> state = automata.getInitialState();
 		// While we have a window on the data to match in:
 		while (window != null) {
-			final byte[] bytes = window.getArray();
 			final int windowLength = window.length();
 			final int windowStart = reader.getWindowOffset(currentPosition);
 			int windowPos = windowStart;
@@ -147,7 +173,7 @@ public class DfaMatcher<T> implements AutomataMatcher<T> {
 				}
 
 				// No match was found, find the next state to follow:
-				final byte currentByte = bytes[windowPos++];
+				final byte currentByte = window.getByte(windowPos++);
 				state = state.getNextState(currentByte);
 			}
 			currentPosition += windowLength - windowStart;
@@ -170,7 +196,6 @@ public class DfaMatcher<T> implements AutomataMatcher<T> {
 			State<T> state = ((DfaMatchResult<T>) lastMatch).getMatchingState();
 			// While we have a window on the data to match in:
 			while (window != null) {
-				final byte[] bytes = window.getArray();
 				final int windowLength = window.length();
 				final int windowStart = reader.getWindowOffset(currentPosition);
 				int windowPos = windowStart;
@@ -179,7 +204,7 @@ public class DfaMatcher<T> implements AutomataMatcher<T> {
 				while (state != null && windowPos < windowLength) {
 
 					// Find the next state to follow.
-					final byte currentByte = bytes[windowPos++];
+					final byte currentByte = window.getByte(windowPos++);
 					state = state.getNextState(currentByte);
 
 					// See if the state is final (a match).
@@ -209,7 +234,6 @@ public class DfaMatcher<T> implements AutomataMatcher<T> {
 		Collection<MatchResult<T>> results = Collections.emptyList();
 		// While we have a window on the data to match in:
 		while (window != null) {
-			final byte[] bytes = window.getArray();
 			final int windowLength = window.length();
 			final int windowStart = reader.getWindowOffset(currentPosition);
 			int windowPos = windowStart;
@@ -228,7 +252,7 @@ public class DfaMatcher<T> implements AutomataMatcher<T> {
 				}
 
 				// No match was found, find the next state to follow:
-				final byte currentByte = bytes[windowPos++];
+				final byte currentByte = window.getByte(windowPos++);
 				state = state.getNextState(currentByte);
 			}
 			currentPosition += windowLength - windowStart;
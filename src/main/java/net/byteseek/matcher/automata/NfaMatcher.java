@@ -32,6 +32,7 @@
 package net.byteseek.matcher.automata;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.Set;
@@ -76,7 +77,6 @@ public final class NfaMatcher<T> implements AutomataMatcher<T> {
 
 		//While we have a window on the data to match in:
 		while (window != null) {
-			final byte[] bytes = window.getArray();
 			final int windowLength = window.length();
 			final int windowStart = reader.getWindowOffset(currentPosition);
 			int windowPos = windowStart;
@@ -92,7 +92,7 @@ public final class NfaMatcher<T> implements AutomataMatcher<T> {
 				}
 
 				// No match was found, find the next distinct states to follow:
-				final byte currentByte = bytes[windowPos++];
+				final byte currentByte = window.getByte(windowPos++);
 				for (final State<T> currentState : activeStates) {
 					currentState.appendNextStates(nextStates, currentByte);
 				}
@@ -153,6 +153,46 @@ public final class NfaMatcher<T> implements AutomataMatcher<T> {
 		return false;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+		// Setup
+		final int length = buffer.limit();
+		if (matchPosition >= 0 && matchPosition < length) {
+			int currentPosition = matchPosition;
+			Set<State<T>> nextStates = new LinkedHashSet<State<T>>();
+			Set<State<T>> activeStates = new LinkedHashSet<State<T>>();
+			activeStates.add(automata.getInitialState());
+
+			// Match automata:
+			while (!activeStates.isEmpty() && currentPosition < length) {
+
+				// See if any active states are final (a match).
+				for (final State<T> currentState : activeStates) {
+					if (currentState.isFinal()) {
+						return true;
+					}
+				}
+
+				// No match was found, find the next distinct states to follow:
+				final byte currentByte = buffer.get(currentPosition++);
+				for (final State<T> currentState : activeStates) {
+					currentState.appendNextStates(nextStates, currentByte);
+				}
+
+				// Make the next states active.  The last active set is cleared 
+				// and re-used for the next states.
+				final Set<State<T>> lastActiveSet = activeStates;
+				activeStates = nextStates;
+				nextStates = lastActiveSet;
+				nextStates.clear();
+			}
+		}
+		return false;
+	}
+
 	@Override
 	public MatchResult<T> firstMatch(WindowReader reader, long matchPosition) throws IOException {
 		// TODO Auto-generated method stub
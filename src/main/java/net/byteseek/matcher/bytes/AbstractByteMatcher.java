@@ -31,6 +31,7 @@
 
 package net.byteseek.matcher.bytes;
 
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
@@ -59,6 +60,19 @@ public abstract class AbstractByteMatcher implements ByteMatcher {
     }
 
     
+    /**
+     * {@inheritDoc}
+     * 
+     * Returns whether the byte at the position in the buffer matches,
+     * or false if the position is outside the limit of the buffer.
+     */
+    @Override
+    public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+        return matchPosition >= 0 && matchPosition < buffer.limit() &&
+               matches(buffer.get(matchPosition));
+    }
+    
+    
     /**
      * {@inheritDoc}
      *
@@ -32,6 +32,7 @@
 package net.byteseek.matcher.multisequence;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -42,6 +43,8 @@ import net.byteseek.matcher.sequence.SequenceMatcher;
 
 /**
  * WARNING: THIS CLASS IS ENTIRELY UNFINISHED.  DO NOT USE.
+ * It cannot be constructed, and all of its matching methods throw an
+ * UnsupportedOperationException.
  * <p>
  * It is intended to be a half-way house in terms of time-space trade-off  between
  * the List and the Trie multi-sequence-matchers.
@@ -105,6 +108,15 @@ public class HashMultiSequenceMatcher implements MultiSequenceMatcher {
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    /**
+     * Not supported, as this class is unfinished.
+     * 
+     * @throws UnsupportedOperationException always.
+     */
+    public Collection<SequenceMatcher> allMatches(final ByteBuffer buffer, final int matchPosition) {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
     public Collection<SequenceMatcher> allMatchesBackwards(final WindowReader reader, final long matchPosition) throws IOException {
         throw new UnsupportedOperationException("Not supported yet.");
     }
@@ -113,6 +125,15 @@ public class HashMultiSequenceMatcher implements MultiSequenceMatcher {
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    /**
+     * Not supported, as this class is unfinished.
+     * 
+     * @throws UnsupportedOperationException always.
+     */
+    public Collection<SequenceMatcher> allMatchesBackwards(final ByteBuffer buffer, final int matchPosition) {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
     public SequenceMatcher firstMatch(final WindowReader reader, final long matchPosition) throws IOException {
         throw new UnsupportedOperationException("Not supported yet.");
     }
@@ -170,6 +191,15 @@ public class HashMultiSequenceMatcher implements MultiSequenceMatcher {
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    /**
+     * Not supported, as this class is unfinished.
+     * 
+     * @throws UnsupportedOperationException always.
+     */
+    public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
     private void addHashFor(final SequenceMatcher matcher) {
         //TODO: this is only for a block size of one, what about higher block sizes?
         final byte[] matchingBytes = matcher.getMatcherForPosition(0).getMatchingBytes();
@@ -32,6 +32,7 @@
 package net.byteseek.matcher.multisequence;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -172,10 +173,9 @@ public final class ListMultiSequenceMatcher implements MultiSequenceMatcher {
             final int matchPosition) {
         List<SequenceMatcher> result = Collections.emptyList();         
         final long noOfBytes = bytes.length;
-        //FIXME: bounds checking doesn't look right.
-        if (matchPosition >= minimumLength - 1 && matchPosition + minimumLength < noOfBytes) {
+        if (matchPosition >= 0 && matchPosition + minimumLength <= noOfBytes) {
             final List<SequenceMatcher> localMatchers = matchers;
-            if (matchPosition + maximumLength < noOfBytes) {
+            if (matchPosition + maximumLength <= noOfBytes) {
                 for (final SequenceMatcher sequence : localMatchers) {
                     if (sequence.matchesNoBoundsCheck(bytes, matchPosition)) {
                         if (result.isEmpty()) {
@@ -199,6 +199,26 @@ public final class ListMultiSequenceMatcher implements MultiSequenceMatcher {
     }    
     
     
+    /**    
+     * {@inheritDoc}
+     */ 
+    @Override   
+    public Collection<SequenceMatcher> allMatches(final ByteBuffer buffer, 
+            final int matchPosition) {
+        List<SequenceMatcher> result = Collections.emptyList();         
+        final List<SequenceMatcher> localMatchers = matchers;
+        for (final SequenceMatcher sequence : localMatchers) {
+            if (sequence.matches(buffer, matchPosition)) {
+                if (result.isEmpty()) {
+                    result = new ArrayList<SequenceMatcher>(2);
+                }
+                result.add(sequence);
+            }
+        }
+        return result;        
+    }    
+    
+    
     /**    
      * {@inheritDoc}
      */ 
@@ -255,6 +275,27 @@ public final class ListMultiSequenceMatcher implements MultiSequenceMatcher {
     }    
     
     
+    /**    
+     * {@inheritDoc}
+     */ 
+    @Override
+    public Collection<SequenceMatcher> allMatchesBackwards(final ByteBuffer buffer, 
+            final int matchPosition) {
+        List<SequenceMatcher> result = Collections.emptyList();         
+        final List<SequenceMatcher> localMatchers = matchers;
+        final int onePastMatchPosition = matchPosition + 1;
+        for (final SequenceMatcher sequence : localMatchers) {
+            if (sequence.matches(buffer, onePastMatchPosition - sequence.length())) {
+                if (result.isEmpty()) {
+                    result = new ArrayList<SequenceMatcher>(2);
+                }
+                result.add(sequence);
+            }
+        }
+        return result; 
+    }    
+    
+    
     /**    
      * {@inheritDoc}
      */   
@@ -277,9 +318,9 @@ public final class ListMultiSequenceMatcher implements MultiSequenceMatcher {
     @Override      
     public SequenceMatcher firstMatch(final byte[] bytes, final int matchPosition) {
         final long noOfBytes = bytes.length;
-        if (matchPosition >= minimumLength - 1 && matchPosition + minimumLength < noOfBytes) {
+        if (matchPosition >= 0 && matchPosition + minimumLength <= noOfBytes) {
             final List<SequenceMatcher> localMatchers = matchers;
-            if (matchPosition + maximumLength < noOfBytes) {
+            if (matchPosition + maximumLength <= noOfBytes) {
                 for (final SequenceMatcher sequence : localMatchers) {
                     if (sequence.matchesNoBoundsCheck(bytes, matchPosition)) {
                         return sequence;
@@ -363,9 +404,9 @@ public final class ListMultiSequenceMatcher implements MultiSequenceMatcher {
     @Override
     public boolean matches(final byte[] bytes, final int matchPosition) {
         final int noOfBytes = bytes.length;
-        if (matchPosition >= minimumLength - 1 && matchPosition + minimumLength < noOfBytes) {
+        if (matchPosition >= 0 && matchPosition + minimumLength <= noOfBytes) {
             final List<SequenceMatcher> localMatchers = matchers;
-            if (matchPosition + maximumLength < noOfBytes) {
+            if (matchPosition + maximumLength <= noOfBytes) {
                 for (final SequenceMatcher sequence : localMatchers) {
                     if (sequence.matchesNoBoundsCheck(bytes, matchPosition)) {
                         return true;
@@ -383,6 +424,21 @@ public final class ListMultiSequenceMatcher implements MultiSequenceMatcher {
     }
 
     
+    /**    
+     * {@inheritDoc}
+     */ 
+    @Override
+    public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+        final List<SequenceMatcher> localMatchers = matchers;
+        for (final SequenceMatcher sequence : localMatchers) {
+            if (sequence.matches(buffer, matchPosition)) {
+                return true;
+            }
+        }
+        return false;        
+    }
+
+    
     /**    
      * {@inheritDoc}
      */ 
@@ -32,6 +32,7 @@
 package net.byteseek.matcher.multisequence;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.List;
 
@@ -69,6 +70,19 @@ public interface MultiSequenceMatcher extends Matcher {
      * @return A collection of matching SequenceMatchers or an empty collection if none matched.
      */
     public Collection<SequenceMatcher> allMatches(byte[] bytes, int matchPosition);
+
+    
+    /**
+     * Returns all the SequenceMatcher objects which matched in a ByteBuffer.
+     * The match position is an absolute index into the buffer; its current
+     * position is ignored and its limit bounds the match.
+     * Should never return null - always returns a collection, even if empty.
+     *
+     * @param buffer The ByteBuffer to read from.
+     * @param matchPosition The position to test for a match.
+     * @return A collection of matching SequenceMatchers or an empty collection if none matched.
+     */
+    public Collection<SequenceMatcher> allMatches(ByteBuffer buffer, int matchPosition);
     
     
    
@@ -97,7 +111,22 @@ public interface MultiSequenceMatcher extends Matcher {
      * @param matchPosition The position to test for a match.
      * @return A collection of matching SequenceMatchers or an empty collection if none matched.
      */
-    public Collection<SequenceMatcher> allMatchesBackwards(byte[] bytes, int matchPosition);    
+    public Collection<SequenceMatcher> allMatchesBackwards(byte[] bytes, int matchPosition);
+
+    
+    /**
+     * Returns all the SequenceMatcher objects which matched backwards from
+     * the matchPosition in a ByteBuffer.  The match position is an absolute
+     * index into the buffer; its current position is ignored and its limit 
+     * bounds the match.
+     * 
+     * Should never return null - always returns a collection, even if empty.
+     *
+     * @param buffer The ByteBuffer to read from.
+     * @param matchPosition The position to test for a match.
+     * @return A collection of matching SequenceMatchers or an empty collection if none matched.
+     */
+    public Collection<SequenceMatcher> allMatchesBackwards(ByteBuffer buffer, int matchPosition);    
         
      
     /**
@@ -31,6 +31,7 @@
 package net.byteseek.matcher.multisequence;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.IdentityHashMap;
@@ -105,6 +106,15 @@ public final class MultiSequenceReverseMatcher implements MultiSequenceMatcher {
         return getOriginalSequences(reversed.allMatches(bytes, matchPosition));
     }
 
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<SequenceMatcher> allMatches(ByteBuffer buffer, int matchPosition) {
+        return getOriginalSequences(reversed.allMatches(buffer, matchPosition));
+    }
+
     
     /**
      * {@inheritDoc}
@@ -123,6 +133,15 @@ public final class MultiSequenceReverseMatcher implements MultiSequenceMatcher {
         return getOriginalSequences(reversed.allMatchesBackwards(bytes, matchPosition));
     }
 
+
+    /**
+     * {@inheritDoc}
+     */    
+    @Override
+    public Collection<SequenceMatcher> allMatchesBackwards(ByteBuffer buffer, int matchPosition) {
+        return getOriginalSequences(reversed.allMatchesBackwards(buffer, matchPosition));
+    }
+
     
     /**
      * {@inheritDoc}
@@ -239,6 +258,15 @@ public final class MultiSequenceReverseMatcher implements MultiSequenceMatcher {
     public boolean matches(byte[] bytes, int matchPosition) {
         return reversed.matches(bytes, matchPosition);
     }
+
+    
+    /**
+     * {@inheritDoc}
+     */    
+    @Override
+    public boolean matches(ByteBuffer buffer, int matchPosition) {
+        return reversed.matches(buffer, matchPosition);
+    }
     
     
     /**
@@ -32,6 +32,7 @@
 package net.byteseek.matcher.multisequence;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -113,10 +114,9 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 		Window window = reader.getWindow(matchPosition);
 		while (window != null) {
 			final int windowLength = window.length();
-			final byte[] array = window.getArray();
 			int windowPosition = reader.getWindowOffset(currentPosition);
 			while (windowPosition < windowLength) {
-				final byte currentByte = array[windowPosition++];
+				final byte currentByte = window.getByte(windowPosition++);
 				state = state.getNextState(currentByte);
 				if (state == null) {
 					return result;
@@ -143,7 +143,7 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 		List<SequenceMatcher> result = Collections.emptyList();
 		final int noOfBytes = bytes.length;
 		final int minimumLength = trie.getMinimumLength();
-		if (matchPosition >= minimumLength - 1 && matchPosition + minimumLength < noOfBytes) {
+		if (matchPosition >= 0 && matchPosition + minimumLength <= noOfBytes) {
 			State<SequenceMatcher> state = trie.getInitialState();
 			int currentPosition = matchPosition;
 			while (state != null && currentPosition < noOfBytes) {
@@ -161,6 +161,31 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 		return result;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Collection<SequenceMatcher> allMatches(final ByteBuffer buffer, final int matchPosition) {
+		List<SequenceMatcher> result = Collections.emptyList();
+		final int noOfBytes = buffer.limit();
+		if (matchPosition >= 0) {
+			State<SequenceMatcher> state = trie.getInitialState();
+			int currentPosition = matchPosition;
+			while (state != null && currentPosition < noOfBytes) {
+				final byte currentByte = buffer.get(currentPosition++);
+				state = state.getNextState(currentByte);
+				if (state != null && state.isFinal()) {
+					final Collection<SequenceMatcher> matching = state.getAssociations();
+					if (result.isEmpty()) {
+						result = new ArrayList<SequenceMatcher>(matching.size() * 2);
+					}
+					result.addAll(matching);
+				}
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -173,10 +198,9 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 		Window window = reader.getWindow(matchPosition);
 		while (window != null) {
 			final int windowLength = window.length();
-			final byte[] array = window.getArray();
 			int windowPosition = reader.getWindowOffset(currentPosition);
 			while (windowPosition >= 0) {
-				final byte currentByte = array[windowPosition--];
+				final byte currentByte = window.getByte(windowPosition--);
 				state = state.getNextState(currentByte);
 				if (state == null) {
 					return result;
@@ -222,6 +246,31 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 		return result;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Collection<SequenceMatcher> allMatchesBackwards(final ByteBuffer buffer,
+			final int matchPosition) {
+		List<SequenceMatcher> result = Collections.emptyList();
+		if (matchPosition < buffer.limit()) {
+			State<SequenceMatcher> state = trie.getInitialState();
+			int currentPosition = matchPosition;
+			while (state != null && currentPosition >= 0) {
+				final byte currentByte = buffer.get(currentPosition--);
+				state = state.getNextState(currentByte);
+				if (state != null && state.isFinal()) {
+					final Collection<SequenceMatcher> matching = state.getAssociations();
+					if (result.isEmpty()) {
+						result = new ArrayList<SequenceMatcher>(matching.size() * 2);
+					}
+					result.addAll(matching);
+				}
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -233,10 +282,9 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 		Window window = reader.getWindow(matchPosition);
 		while (window != null) {
 			final int windowLength = window.length();
-			final byte[] array = window.getArray();
 			int windowPosition = reader.getWindowOffset(currentPosition);
 			while (windowPosition < windowLength) {
-				final byte currentByte = array[windowPosition++];
+				final byte currentByte = window.getByte(windowPosition++);
 				state = state.getNextState(currentByte);
 				if (state == null) {
 					return null;
@@ -282,10 +330,9 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 		Window window = reader.getWindow(matchPosition);
 		while (window != null) {
 			final int windowLength = window.length();
-			final byte[] array = window.getArray();
 			int windowPosition = reader.getWindowOffset(currentPosition);
 			while (windowPosition >= 0) {
-				final byte currentByte = array[windowPosition--];
+				final byte currentByte = window.getByte(windowPosition--);
 				state = state.getNextState(currentByte);
 				if (state == null) {
 					return null;
@@ -336,6 +383,25 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 		return firstMatch(bytes, matchPosition) != null;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+		final int noOfBytes = buffer.limit();
+		if (matchPosition >= 0) {
+			State<SequenceMatcher> state = trie.getInitialState();
+			int currentPosition = matchPosition;
+			while (state != null && currentPosition < noOfBytes) {
+				state = state.getNextState(buffer.get(currentPosition++));
+				if (state != null && state.isFinal()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -32,6 +32,7 @@
 package net.byteseek.matcher.sequence;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -454,11 +455,22 @@ public final class ByteMatcherSequenceMatcher implements SequenceMatcher {
         while (window != null) {
             final int offset = reader.getWindowOffset(matchPosition + bytesMatchedSoFar);
             final int endPos = Math.min(window.length(), offset + localLength - bytesMatchedSoFar);
-            final byte[] array = window.getArray();
-            for (int windowPos = offset; windowPos < endPos; windowPos++) {
-                final ByteMatcher byteMatcher = matchList[checkPos++];
-                if (!byteMatcher.matches(array[windowPos])) {
-                    return false;
+            if (window.hasArray()) {
+                final byte[] array = window.getArray();
+                final int arrayOffset = window.getArrayOffset();
+                for (int windowPos = offset; windowPos < endPos; windowPos++) {
+                    final ByteMatcher byteMatcher = matchList[checkPos++];
+                    if (!byteMatcher.matches(array[arrayOffset + windowPos])) {
+                        return false;
+                    }
+                }
+            } else {
+                final ByteBuffer buffer = window.getBuffer();
+                for (int windowPos = offset; windowPos < endPos; windowPos++) {
+                    final ByteMatcher byteMatcher = matchList[checkPos++];
+                    if (!byteMatcher.matches(buffer.get(windowPos))) {
+                        return false;
+                    }
                 }
             }
             if (checkPos >= matchEnd) {
@@ -493,6 +505,28 @@ public final class ByteMatcherSequenceMatcher implements SequenceMatcher {
     }
 
     
+    /**
+     * {@inheritDoc}
+     * 
+     * @throws NullPointerException if the buffer passed in is null.
+     */
+    @Override
+    public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+        if (matchPosition + length <= buffer.limit() && matchPosition >= 0) {
+            int position = matchPosition;
+            final ByteMatcher[] localMatchers = matchers;
+            final int endIndex = endArrayIndex;
+            for (int matcherPosition = startArrayIndex; matcherPosition < endIndex; matcherPosition++) {
+                if (!localMatchers[matcherPosition].matches(buffer.get(position++))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    
     /**
      * {@inheritDoc}
      * 
@@ -928,15 +962,25 @@ public final class ByteMatcherSequenceMatcher implements SequenceMatcher {
             int matchPos = matchEnd;
             int bytesMatchedSoFar = 0;
             while (window != null) {
-                final byte[] source = window.getArray();            
                 final int offset = reader.getWindowOffset(matchPosition + bytesMatchedSoFar);
                 final int finalWindowIndex = window.length();
                 final int finalMatchIndex = offset + matchLength - bytesMatchedSoFar;
                 final int sourceEnd = finalWindowIndex < finalMatchIndex?
                                       finalWindowIndex : finalMatchIndex;
-                for (int sourcePos = offset; sourcePos < sourceEnd; sourcePos++) {
-                    if (!matchArray[matchPos--].matches(source[sourcePos])) {
-                        return false;
+                if (window.hasArray()) {
+                    final byte[] array = window.getArray();
+                    final int arrayOffset = window.getArrayOffset();
+                    for (int sourcePos = offset; sourcePos < sourceEnd; sourcePos++) {
+                        if (!matchArray[matchPos--].matches(array[arrayOffset + sourcePos])) {
+                            return false;
+                        }
+                    }
+                } else {
+                    final ByteBuffer buffer = window.getBuffer();
+                    for (int sourcePos = offset; sourcePos < sourceEnd; sourcePos++) {
+                        if (!matchArray[matchPos--].matches(buffer.get(sourcePos))) {
+                            return false;
+                        }
                     }
                 }
                 if (matchPos < matchStart) {
@@ -966,6 +1010,23 @@ public final class ByteMatcherSequenceMatcher implements SequenceMatcher {
 		}
 
 		
+		@Override
+		public boolean matches(ByteBuffer buffer, int matchPosition) {
+            if (matchPosition + length() <= buffer.limit() && matchPosition >= 0) {
+                final ByteMatcher[] matchArray = matchers;
+                final int endingIndex = startArrayIndex;
+                int position = matchPosition;            
+                for (int matchIndex = endArrayIndex - 1; matchIndex >= endingIndex; matchIndex--) {
+                    if (!matchArray[matchIndex].matches(buffer.get(position++))) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            return false;
+		}
+
+		
 		@Override
 		public boolean matchesNoBoundsCheck(byte[] bytes, int matchPosition) {
             int position = matchPosition;
@@ -32,6 +32,7 @@
 package net.byteseek.matcher.sequence;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -272,15 +273,25 @@ public final class ByteSequenceMatcher implements SequenceMatcher {
         int matchPos = matchStart;
         int bytesMatchedSoFar = 0;
         while (window != null) {
-            final byte[] source = window.getArray();    
             final int offset = reader.getWindowOffset(matchPosition + bytesMatchedSoFar);
             final int finalWindowIndex = window.length();
             final int finalMatchIndex = offset + matchLength - bytesMatchedSoFar;
             final int sourceEnd = finalWindowIndex < finalMatchIndex?
                                   finalWindowIndex : finalMatchIndex;
-            for (int sourcePos = offset; sourcePos < sourceEnd; sourcePos++) {
-                if (source[sourcePos] != matchArray[matchPos++]) {
-                    return false;
+            if (window.hasArray()) {
+                final byte[] array = window.getArray();
+                final int arrayOffset = window.getArrayOffset();
+                for (int sourcePos = offset; sourcePos < sourceEnd; sourcePos++) {
+                    if (array[arrayOffset + sourcePos] != matchArray[matchPos++]) {
+                        return false;
+                    }
+                }
+            } else {
+                final ByteBuffer buffer = window.getBuffer();
+                for (int sourcePos = offset; sourcePos < sourceEnd; sourcePos++) {
+                    if (buffer.get(sourcePos) != matchArray[matchPos++]) {
+                        return false;
+                    }
                 }
             }
             if (matchPos >= matchEnd) {
@@ -315,6 +326,28 @@ public final class ByteSequenceMatcher implements SequenceMatcher {
     }    
 
     
+    /**
+     * {@inheritDoc}
+     * 
+     * @throws NullPointerException if the buffer passed in is null.
+     */
+    @Override
+    public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+        if (matchPosition + endArrayIndex - startArrayIndex <= buffer.limit() && matchPosition >= 0) {
+            final byte[] matchArray = byteArray;
+            final int endingIndex = endArrayIndex;
+            int position = matchPosition;            
+            for (int matchIndex = startArrayIndex; matchIndex < endingIndex; matchIndex++) {
+                if (matchArray[matchIndex] != buffer.get(position++)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    
     /**
      * {@inheritDoc}
      * 
@@ -563,15 +596,25 @@ public final class ByteSequenceMatcher implements SequenceMatcher {
             int matchPos = matchEnd;
             int bytesMatchedSoFar = 0;
             while (window != null) {
-                final byte[] source = window.getArray();            
                 final int offset = reader.getWindowOffset(matchPosition + bytesMatchedSoFar);
                 final int finalWindowIndex = window.length();
                 final int finalMatchIndex = offset + matchLength - bytesMatchedSoFar;
                 final int sourceEnd = finalWindowIndex < finalMatchIndex?
                                       finalWindowIndex : finalMatchIndex;
-                for (int sourcePos = offset; sourcePos < sourceEnd; sourcePos++) {
-                    if (source[sourcePos] != matchArray[matchPos--]) {
-                        return false;
+                if (window.hasArray()) {
+                    final byte[] array = window.getArray();
+                    final int arrayOffset = window.getArrayOffset();
+                    for (int sourcePos = offset; sourcePos < sourceEnd; sourcePos++) {
+                        if (array[arrayOffset + sourcePos] != matchArray[matchPos--]) {
+                            return false;
+                        }
+                    }
+                } else {
+                    final ByteBuffer buffer = window.getBuffer();
+                    for (int sourcePos = offset; sourcePos < sourceEnd; sourcePos++) {
+                        if (buffer.get(sourcePos) != matchArray[matchPos--]) {
+                            return false;
+                        }
                     }
                 }
                 if (matchPos < matchStart) {
@@ -604,6 +647,26 @@ public final class ByteSequenceMatcher implements SequenceMatcher {
         }    
 
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+            if (matchPosition + length() <= buffer.limit() && matchPosition >= 0) {
+                final byte[] matchArray = byteArray;
+                final int endingIndex = startArrayIndex;
+                int position = matchPosition;            
+                for (int matchIndex = endArrayIndex - 1; matchIndex >= endingIndex; matchIndex--) {
+                    if (matchArray[matchIndex] != buffer.get(position++)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            return false;
+        }
+
+
         /**
          * {@inheritDoc}
          */
@@ -32,6 +32,7 @@
 package net.byteseek.matcher.sequence;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
@@ -126,6 +127,17 @@ public final class FixedGapMatcher implements SequenceMatcher {
     }    
 
     
+    /**
+     * {@inheritDoc}
+     * 
+     * @throws NullPointerException if the buffer is null.
+     */
+    @Override
+    public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+        return matchPosition >= 0 && matchPosition + length <= buffer.limit();
+    }
+
+    
     /**
      * {@inheritDoc}
      * <p>
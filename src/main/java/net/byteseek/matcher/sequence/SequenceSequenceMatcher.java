@@ -32,6 +32,7 @@
 package net.byteseek.matcher.sequence;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -153,7 +154,9 @@ public final class SequenceSequenceMatcher implements SequenceMatcher {
         	final int offset = reader.getWindowOffset(matchPosition + matchPos);
             final int endArrayPos = Math.min(window.length(), offset + localTotalLength - matchPos);
             //final long lastMatchingPosition = window.getWindowPosition() + endArrayPos - 1;
-            final byte[] array = window.getArray();
+            final boolean hasArray = window.hasArray();
+            final byte[] array = hasArray? window.getArray() : null;
+            final int arrayOffset = window.getArrayOffset();
             int arrayCheckPos = offset + matchPos - windowStartMatchPos;
             // While our current matcher starts within the current window 
             while (arrayCheckPos < endArrayPos) {
@@ -162,7 +165,8 @@ public final class SequenceSequenceMatcher implements SequenceMatcher {
                 //final int arrayCheckPos = offset + matchPos - windowStartMatchPos;
                 // If our matcher fits within the current window, check using the window array:
                 if (arrayCheckPos + matcherLength <= endArrayPos) {
-                    if (!matcher.matchesNoBoundsCheck(array, arrayCheckPos)) {
+                    if (hasArray? !matcher.matchesNoBoundsCheck(array, arrayOffset + arrayCheckPos)
+                                : !matcher.matches(window.getBuffer(), arrayCheckPos)) {
                         return false;
                     }
                 } else { // the matcher spans two windows, or is at the limit of the final window.
@@ -205,6 +209,29 @@ public final class SequenceSequenceMatcher implements SequenceMatcher {
     }    
 
     
+    /**
+     * {@inheritDoc}
+     * 
+     * @throws NullPointerException if the buffer is null.
+     */
+    @Override
+    public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+        if (matchPosition + totalLength <= buffer.limit() && matchPosition >= 0) {
+            int matchAt = matchPosition;
+            final SequenceMatcher[] localMatchers = matchers;
+            for (final SequenceMatcher matcher : localMatchers) {
+                if (matcher.matches(buffer, matchAt)) {
+                    matchAt += matcher.length();
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    
     /**
      * {@inheritDoc}
      * 
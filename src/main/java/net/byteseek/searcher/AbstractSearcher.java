@@ -32,6 +32,7 @@
 package net.byteseek.searcher;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import net.byteseek.io.reader.WindowReader;
@@ -82,6 +83,23 @@ public abstract class AbstractSearcher<T> implements Searcher<T> {
 		return searchForwards(bytes, 0, bytes.length - 1);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<SearchResult<T>> searchForwards(final ByteBuffer buffer,
+			final int fromPosition) {
+		return searchForwards(buffer, fromPosition, buffer.limit() - 1);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<SearchResult<T>> searchForwards(final ByteBuffer buffer) {
+		return searchForwards(buffer, 0, buffer.limit() - 1);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -117,6 +135,23 @@ public abstract class AbstractSearcher<T> implements Searcher<T> {
 		return searchBackwards(bytes, bytes.length - 1, 0);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<SearchResult<T>> searchBackwards(final ByteBuffer buffer,
+			final int fromPosition) {
+		return searchBackwards(buffer, fromPosition, 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<SearchResult<T>> searchBackwards(final ByteBuffer buffer) {
+		return searchBackwards(buffer, buffer.limit() - 1, 0);
+	}
+
 	/**
 	 * Returns a position guaranteed to be within the length of the reader, or
 	 * -1 if the reader itself has a length of zero.
@@ -32,6 +32,7 @@
 package net.byteseek.searcher;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import net.byteseek.io.reader.Window;
@@ -158,6 +159,32 @@ public final class MatcherSearcher extends AbstractSearcher<Matcher> {
         }
         return SearchUtils.noResults();
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<Matcher>> searchForwards(final ByteBuffer buffer, final int fromPosition, final int toPosition) {
+        
+        // Use a local reference to the matcher for performance reasons:
+        final Matcher theMatcher = matcher;
+        
+        // Calculate safe bounds for searching in the buffer:
+        final int bufferEndPosition = buffer.limit() - 1;
+        final int searchEndPosition = toPosition < bufferEndPosition? 
+                                      toPosition : bufferEndPosition;
+        int searchPosition = fromPosition > 0?
+                              fromPosition : 0;           
+        
+        // Search forwards:
+        while (searchPosition <= searchEndPosition) {
+            if (theMatcher.matches(buffer, searchPosition)) {
+                return SearchUtils.singleResult(searchPosition, theMatcher);
+            }
+            searchPosition++;
+        }
+        return SearchUtils.noResults();
+    }
   
    
     /**
@@ -207,6 +234,29 @@ public final class MatcherSearcher extends AbstractSearcher<Matcher> {
         return SearchUtils.noResults();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<Matcher>> searchBackwards(final ByteBuffer buffer, final int fromPosition, final int toPosition) {
+        // Initialise search:
+        final Matcher theMatcher = matcher;
+        final int lastPossiblePosition = buffer.limit() - 1;
+        final int endSearchPosition = toPosition > 0? 
+                                      toPosition : 0;
+        int searchPosition = fromPosition < lastPossiblePosition? 
+                             fromPosition : lastPossiblePosition;
+        
+        // Search backwards:
+        while (searchPosition >= endSearchPosition) {
+            if (theMatcher.matches(buffer, searchPosition)) {
+                return SearchUtils.singleResult(searchPosition, theMatcher);
+            }
+            searchPosition--;
+        }
+        return SearchUtils.noResults();
+    }
+
     
     /**
      * {@inheritDoc}
@@ -35,6 +35,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import net.byteseek.io.reader.WindowReader;
 import net.byteseek.matcher.sequence.SequenceMatcher;
@@ -47,6 +49,12 @@ import net.byteseek.matcher.sequence.SequenceMatcher;
  */
 public final class SearchUtils {
 
+	/**
+	 * The default number of positions searched by each task of a parallel search,
+	 * unless a different value is provided.
+	 */
+	public static final long DEFAULT_PARALLEL_CHUNK_SIZE = 4 * 1024 * 1024;
+
 	/**
 	 * The constructor is private to prevent instantiation of a static utility
 	 * class.
@@ -103,6 +111,88 @@ public final class SearchUtils {
 		return results;
 	}
 
+	/**
+	 * Searches a {@link net.byteseek.io.reader.WindowReader} forwards for all
+	 * matches of a {@link Searcher}, searching chunks of the reader in parallel
+	 * on a {@link java.util.concurrent.ForkJoinPool}.
+	 * <p>
+	 * The reader must be safe to read from many threads at once, for example a
+	 * {@link net.byteseek.io.reader.ConcurrentFileReader}, and its length must be known.
+	 * 
+	 * @param <T>
+	 *            The type of object associated with a match in the Searcher.
+	 * @param searcher
+	 *            The Searcher to search with.
+	 * @param reader
+	 *            The thread-safe WindowReader to search in.
+	 * @param pool
+	 *            The ForkJoinPool to search on.
+	 * @return A list of SearchResult objects containing all matches found in
+	 *         the WindowReader, in order of position.
+	 * @throws IOException
+	 *             if a problem occurred reading in the WindowReader.
+	 * @throws IllegalArgumentException
+	 *             if the pool is null.
+	 */
+	public static <T> List<SearchResult<T>> searchAllForwards(
+			final Searcher<T> searcher, final WindowReader reader, final ForkJoinPool pool) throws IOException {
+		return searchAllForwards(searcher, reader, pool, DEFAULT_PARALLEL_CHUNK_SIZE);
+	}
+
+	/**
+	 * Searches a {@link net.byteseek.io.reader.WindowReader} forwards for all
+	 * matches of a {@link Searcher}, searching chunks of the reader in parallel
+	 * on a {@link java.util.concurrent.ForkJoinPool}.
+	 * <p>
+	 * Each chunk is a range of positions a match can start at, so the chunks do
+	 * not overlap.  A match which starts near the end of a chunk is still found
+	 * by the task for that chunk, as searchers read past the end of the range to
+	 * verify a match, so the bytes read by neighbouring tasks overlap by up to
+	 * the longest pattern length less one.  Any result outside the range of a
+	 * chunk is discarded, so a match is never reported twice at a seam.
+	 * <p>
+	 * The reader must be safe to read from many threads at once, for example a
+	 * {@link net.byteseek.io.reader.ConcurrentFileReader}, and its length must be known.
+	 * The searcher is prepared before the search begins, so it can be shared by the tasks.
+	 * 
+	 * @param <T>
+	 *            The type of object associated with a match in the Searcher.
+	 * @param searcher
+	 *            The Searcher to search with.
+	 * @param reader
+	 *            The thread-safe WindowReader to search in.
+	 * @param pool
+	 *            The ForkJoinPool to search on.
+	 * @param chunkSize
+	 *            The number of positions searched by each task.
+	 * @return A list of SearchResult objects containing all matches found in
+	 *         the WindowReader, in order of position.
+	 * @throws IOException
+	 *             if a problem occurred reading in the WindowReader.
+	 * @throws IllegalArgumentException
+	 *             if the pool is null, or the chunk size is less than one.
+	 */
+	public static <T> List<SearchResult<T>> searchAllForwards(
+			final Searcher<T> searcher, final WindowReader reader, 
+			final ForkJoinPool pool, final long chunkSize) throws IOException {
+		if (pool == null) {
+			throw new IllegalArgumentException("Null ForkJoinPool passed to parallel search.");
+		}
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be at least one: " + chunkSize);
+		}
+		final long length = reader.length();
+		if (length <= 0) {
+			return new ArrayList<SearchResult<T>>();
+		}
+		searcher.prepareForwards();
+		try {
+			return pool.invoke(new ChunkSearch<T>(searcher, reader, chunkSize, 0, length - 1));
+		} catch (final ChunkSearchException ex) {
+			throw ex.getCause();
+		}
+	}
+
 	/**
 	 * Searches a byte array backwards for all matches of a {@link Searcher}.
 	 * 
@@ -271,4 +361,88 @@ public final class SearchUtils {
 		return newResults;
 	}
 
+	/**
+	 * A fork/join task which searches a range of match positions in a reader,
+	 * splitting it in two until it is no bigger than the chunk size.
+	 */
+	private static final class ChunkSearch<T> extends RecursiveTask<List<SearchResult<T>>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Searcher<T> searcher;
+		private final WindowReader reader;
+		private final long chunkSize;
+		private final long fromPosition;
+		private final long toPosition;
+
+		private ChunkSearch(final Searcher<T> searcher, final WindowReader reader, final long chunkSize,
+				            final long fromPosition, final long toPosition) {
+			this.searcher = searcher;
+			this.reader = reader;
+			this.chunkSize = chunkSize;
+			this.fromPosition = fromPosition;
+			this.toPosition = toPosition;
+		}
+
+		@Override
+		protected List<SearchResult<T>> compute() {
+			final long numberOfChunks = (toPosition - fromPosition) / chunkSize + 1;
+			if (numberOfChunks == 1) {
+				return searchChunk();
+			}
+			final long splitPosition = fromPosition + numberOfChunks / 2 * chunkSize;
+			final ChunkSearch<T> first = new ChunkSearch<T>(searcher, reader, chunkSize, fromPosition, splitPosition - 1);
+			final ChunkSearch<T> second = new ChunkSearch<T>(searcher, reader, chunkSize, splitPosition, toPosition);
+			first.fork();
+			final List<SearchResult<T>> secondResults = second.compute();
+			final List<SearchResult<T>> results = first.join();
+			results.addAll(secondResults);
+			return results;
+		}
+
+		private List<SearchResult<T>> searchChunk() {
+			final List<SearchResult<T>> results = new ArrayList<SearchResult<T>>();
+			long searchPosition = fromPosition;
+			try {
+				while (searchPosition <= toPosition) {
+					final List<SearchResult<T>> matches = searcher.searchForwards(reader, searchPosition, toPosition);
+					if (matches.isEmpty()) {
+						break;
+					}
+					long lastMatch = searchPosition;
+					for (final SearchResult<T> match : matches) {
+						final long matchPosition = match.getMatchPosition();
+						if (matchPosition >= searchPosition && matchPosition <= toPosition) {
+							results.add(match);
+						}
+						if (matchPosition > lastMatch) {
+							lastMatch = matchPosition;
+						}
+					}
+					searchPosition = lastMatch + 1;
+				}
+			} catch (final IOException ex) {
+				throw new ChunkSearchException(ex);
+			}
+			return results;
+		}
+	}
+
+	/**
+	 * Carries an IOException thrown by a chunk search out of the ForkJoinPool.
+	 */
+	private static final class ChunkSearchException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		private ChunkSearchException(final IOException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized IOException getCause() {
+			return (IOException) super.getCause();
+		}
+	}
+
 }
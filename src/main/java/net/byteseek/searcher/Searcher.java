@@ -32,6 +32,7 @@
 package net.byteseek.searcher;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import net.byteseek.io.reader.WindowReader;
@@ -134,6 +135,46 @@ public interface Searcher<T> {
 	 */
 	public List<SearchResult<T>> searchForwards(byte[] bytes);
 
+	/**
+	 * Searches bytes forwards provided by a ByteBuffer from the position given
+	 * by fromPosition up to toPosition.  Positions are absolute indexes into
+	 * the buffer; its current position is ignored and its limit bounds the search.
+	 * 
+	 * @param buffer
+	 *            The ByteBuffer giving access to the bytes being searched.
+	 * @param fromPosition
+	 *            The position to search from.
+	 * @param toPosition
+	 *            The position to search up to.
+	 * @return The position a match was found at, or a negative number if no
+	 *         match was found.
+	 */
+	public List<SearchResult<T>> searchForwards(ByteBuffer buffer, int fromPosition,
+			int toPosition);
+
+	/**
+	 * Searches bytes forwards provided by a ByteBuffer from the position given
+	 * by fromPosition up to the limit of the buffer.
+	 * 
+	 * @param buffer
+	 *            The ByteBuffer giving access to the bytes being searched.
+	 * @param fromPosition
+	 *            The position to search from.
+	 * @return The position a match was found at, or a negative number if no
+	 *         match was found.
+	 */
+	public List<SearchResult<T>> searchForwards(ByteBuffer buffer, int fromPosition);
+
+	/**
+	 * Searches bytes forwards provided by a ByteBuffer, from zero up to its limit.
+	 * 
+	 * @param buffer
+	 *            The ByteBuffer giving access to the bytes being searched.
+	 * @return The position a match was found at, or a negative number if no
+	 *         match was found.
+	 */
+	public List<SearchResult<T>> searchForwards(ByteBuffer buffer);
+
 	/**
 	 * Searches bytes backwards provided by a {@link WindowReader} object, from the
 	 * position given by fromPosition up to toPosition.
@@ -218,6 +259,46 @@ public interface Searcher<T> {
 	 */
 	public List<SearchResult<T>> searchBackwards(byte[] bytes);
 
+	/**
+	 * Searches bytes backwards provided by a ByteBuffer, from the position
+	 * given by fromPosition back to toPosition.  Positions are absolute indexes
+	 * into the buffer; its current position is ignored and its limit bounds the search.
+	 * 
+	 * @param buffer
+	 *            The ByteBuffer giving access to the bytes being searched.
+	 * @param fromPosition
+	 *            The position to search from.
+	 * @param toPosition
+	 *            The position to search back to.
+	 * @return The position a match was found at, or a negative number if no
+	 *         match was found.
+	 */
+	public List<SearchResult<T>> searchBackwards(ByteBuffer buffer,
+			int fromPosition, int toPosition);
+
+	/**
+	 * Searches bytes backwards provided by a ByteBuffer, from the position
+	 * given by fromPosition up to the start of the buffer.
+	 * 
+	 * @param buffer
+	 *            The ByteBuffer giving access to the bytes being searched.
+	 * @param fromPosition
+	 *            The position to search from.
+	 * @return The position a match was found at, or a negative number if no
+	 *         match was found.
+	 */
+	public List<SearchResult<T>> searchBackwards(ByteBuffer buffer, int fromPosition);
+
+	/**
+	 * Searches a ByteBuffer backwards, from its limit to the start.
+	 * 
+	 * @param buffer
+	 *            The ByteBuffer giving access to the bytes being searched.
+	 * @return The position a match was found at, or a negative number if no
+	 *         match was found.
+	 */
+	public List<SearchResult<T>> searchBackwards(ByteBuffer buffer);
+
 	/**
 	 * Ensures that the searcher is fully prepared to search forwards. Some
 	 * searchers may defer calculating all the necessary parameters until the
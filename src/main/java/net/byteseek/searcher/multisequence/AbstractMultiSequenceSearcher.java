@@ -32,6 +32,8 @@
 package net.byteseek.searcher.multisequence;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.List;
 
 import net.byteseek.io.reader.Window;
@@ -141,12 +143,14 @@ public abstract class AbstractMultiSequenceSearcher extends AbstractSearcher<Seq
                 final int arrayMaxPosition = distanceToEnd < lastMatchingPosition?
                                        (int) distanceToEnd : lastMatchingPosition; 
                         
-                // Search forwards in the byte array of the window:
-                final List<SearchResult<SequenceMatcher>> arrayResult = 
-                        searchForwards(window.getArray(), arrayStartPosition, arrayMaxPosition);
+                // Search forwards in the byte array or buffer of the window:
+                final int arrayOffset = window.getArrayOffset();
+                final List<SearchResult<SequenceMatcher>> arrayResult = window.hasArray()?
+                        searchForwards(window.getArray(), arrayStartPosition + arrayOffset, arrayMaxPosition + arrayOffset) :
+                        searchForwards(window.getBuffer(), arrayStartPosition, arrayMaxPosition);
                 // Did we find a match?
                 if (!arrayResult.isEmpty()) {
-                    final long readerOffset = searchPosition - arrayStartPosition;
+                    final long readerOffset = searchPosition - arrayStartPosition - arrayOffset;
                     return SearchUtils.addPositionToResults(arrayResult, readerOffset);
                 }
                 
@@ -185,6 +189,39 @@ public abstract class AbstractMultiSequenceSearcher extends AbstractSearcher<Seq
     }
 
     
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This default implementation tries to match the multi-sequence at each 
+     * position in the buffer in turn.  Subclasses can override it to apply their
+     * search algorithm directly to ByteBuffers, which is the case for windows
+     * which are not backed by a byte array.
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final ByteBuffer buffer, 
+            final int fromPosition, final int toPosition) {
+        // Initialise:
+        final MultiSequenceMatcher matcher = sequences;
+        
+        // Calculate bounds for the search:
+        final int lastPossiblePosition = buffer.limit() - matcher.getMinimumLength();
+        final int lastPosition = toPosition < lastPossiblePosition?
+                                 toPosition : lastPossiblePosition;
+        int searchPosition = fromPosition > 0?
+                             fromPosition : 0;
+        
+        // Search forwards up to the last possible position:
+        while (searchPosition <= lastPosition) {
+            final Collection<SequenceMatcher> matches = matcher.allMatches(buffer, searchPosition);
+            if (!matches.isEmpty()) {
+                return SearchUtils.resultsAtPosition(searchPosition, matches);
+            }
+            searchPosition++;
+        }
+        return SearchUtils.noResults();
+    }
+    
+    
     /**
      * This method searches forwards crossing window boundaries.  It is
      * called by the {@link #searchForwards(net.byteseek.io.reader.WindowReader, long, long)}
@@ -255,14 +292,19 @@ public abstract class AbstractMultiSequenceSearcher extends AbstractSearcher<Seq
             // could be longer than any single window - but mostly won't be):
             if (searchStartPosition - smallestMatchEndPosition >= searchEndPosition) {
 
-                // Search backwards in the byte array of the window:
-                final byte[] array = window.getArray();
-                final List<SearchResult<SequenceMatcher>> arrayResult = 
-                        searchBackwards(array, searchStartPosition, searchEndPosition);
+                // Search backwards in the byte array or buffer of the window.  The array
+                // is only used if the longest sequence fits inside the window, as the
+                // array may hold other bytes past the end of the window:
+                final boolean useArray = window.hasArray() &&
+                        searchStartPosition + longestMatchEndPosition < window.length();
+                final int arrayOffset = useArray? window.getArrayOffset() : 0;
+                final List<SearchResult<SequenceMatcher>> arrayResult = useArray?
+                        searchBackwards(window.getArray(), searchStartPosition + arrayOffset, searchEndPosition + arrayOffset) :
+                        searchBackwards(window.getBuffer(), searchStartPosition, searchEndPosition);
                 
                 // Did we find a match?
                 if (!arrayResult.isEmpty()) {
-                    final long readerOffset = searchPosition - searchStartPosition;
+                    final long readerOffset = searchPosition - searchStartPosition - arrayOffset;
                     return SearchUtils.addPositionToResults(arrayResult, readerOffset);
                 }
                 
@@ -300,6 +342,39 @@ public abstract class AbstractMultiSequenceSearcher extends AbstractSearcher<Seq
     }
     
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This default implementation tries to match the multi-sequence at each 
+     * position in the buffer in turn.  Subclasses can override it to apply their
+     * search algorithm directly to ByteBuffers, which is the case for windows
+     * which are not backed by a byte array.
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final ByteBuffer buffer, 
+            final int fromPosition, final int toPosition) {
+        // Initialise:
+        final MultiSequenceMatcher matcher = sequences;
+        
+        // Calculate safe bounds for the search:
+        final int lastPosition = toPosition > 0?
+                                 toPosition : 0;
+        final int firstPossiblePosition = buffer.limit() - matcher.getMinimumLength();
+        int searchPosition = fromPosition < firstPossiblePosition?
+                             fromPosition : firstPossiblePosition;
+        
+        // Search backwards:
+        while (searchPosition >= lastPosition) {
+            final Collection<SequenceMatcher> matches = matcher.allMatches(buffer, searchPosition);
+            if (!matches.isEmpty()) {
+                return SearchUtils.resultsAtPosition(searchPosition, matches);
+            }
+            searchPosition--;
+        }
+        return SearchUtils.noResults();
+    }
+    
+
    /**
      * This abstract method searches backwards crossing window boundaries.  It is
      * called by the {@link #searchBackwards(net.byteseek.io.reader.WindowReader, long, long)}
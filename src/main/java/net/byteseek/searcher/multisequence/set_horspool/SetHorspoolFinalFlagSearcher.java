@@ -32,6 +32,7 @@
 package net.byteseek.searcher.multisequence.set_horspool;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -142,6 +143,61 @@ public class SetHorspoolFinalFlagSearcher extends AbstractMultiSequenceSearcher
             searchPosition -= shift;
         }
         
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final ByteBuffer buffer, final int fromPosition, final int toPosition) {
+        
+        // Get the objects needed to search:
+        final SearchInfo info = forwardInfo.get();
+        final int[] safeShifts = info.shifts;
+        final MultiSequenceMatcher verifier = info.verifier;
+        
+        // Calculate safe bounds for the start of the search:
+        final int safeStartPosition = fromPosition > 0? 
+                                          fromPosition : 0;
+        int searchPosition = safeStartPosition + sequences.getMinimumLength() - 1;
+        
+        // Calculate safe bounds for the end of the search:
+        final int lastPossiblePosition = buffer.limit() - 1;
+        final int lastToPosition = toPosition + sequences.getMaximumLength() - 1;
+        final int finalPosition = lastToPosition < lastPossiblePosition?
+                                  lastToPosition : lastPossiblePosition;
+        
+        // Search forwards:
+        while (searchPosition <= finalPosition) {
+            
+            // Shift forwards until we match the last position in the sequence,
+            // or we run out of search space (in which case just return not found).
+            int shift = safeShifts[buffer.get(searchPosition) & 0xFF];
+            while (shift > 0) {
+                searchPosition += shift;
+                if (searchPosition > finalPosition) {
+                    return SearchUtils.noResults();
+                }
+                shift = safeShifts[buffer.get(searchPosition) & 0xFF];
+            }
+            
+            // The last bytes matched - verify the rest of the sequences.
+            final Collection<SequenceMatcher> matches = verifier.allMatchesBackwards(buffer, searchPosition);
+            if (!matches.isEmpty()) {
+                final List<SearchResult<SequenceMatcher>> results = 
+                    SearchUtils.resultsBackFromPosition(searchPosition, matches, 
+                                                       fromPosition, toPosition);
+                if (!results.isEmpty()) {
+                    return results;
+                }
+            }
+            
+            // No match was found - shift forward by the shift for the current byte:
+            // We subtract the shift to add it, as it is negative.
+            searchPosition -= shift;
+        }
+        
         return SearchUtils.noResults();
     }    
         
@@ -168,7 +224,6 @@ public class SetHorspoolFinalFlagSearcher extends AbstractMultiSequenceSearcher
                (window = reader.getWindow(searchPosition))!= null) {
             
             // Initialise array search:
-            final byte[] array = window.getArray();
             final int arrayStartPosition = reader.getWindowOffset(searchPosition);
             final int arrayEndPosition = window.length() - 1;
             final long distanceToEnd = finalPosition - window.getWindowPosition();     
@@ -176,38 +231,78 @@ public class SetHorspoolFinalFlagSearcher extends AbstractMultiSequenceSearcher
                                      (int) distanceToEnd : arrayEndPosition;
             int arraySearchPosition = arrayStartPosition;            
                         
-            // Search forwards in this array:
-            ARRAY_SEARCH: while (arraySearchPosition <= lastSearchPosition) {
+            if (window.hasArray()) {
+                final byte[] array = window.getArray();
+                final int arrayOffset = window.getArrayOffset();
+
+                // Search forwards in this array:
+                ARRAY_SEARCH: while (arraySearchPosition <= lastSearchPosition) {
 
-                // Shift forwards until we match the last position in the sequence,
-                // or we run out of search space.
-                int shift = safeShifts[array[arraySearchPosition] & 0xFF];
-                while (shift > 0) {
-                    arraySearchPosition += shift;
-                    if (arraySearchPosition > lastSearchPosition) {
-                        break ARRAY_SEARCH;
+                    // Shift forwards until we match the last position in the sequence,
+                    // or we run out of search space.
+                    int shift = safeShifts[array[arrayOffset + arraySearchPosition] & 0xFF];
+                    while (shift > 0) {
+                        arraySearchPosition += shift;
+                        if (arraySearchPosition > lastSearchPosition) {
+                            break ARRAY_SEARCH;
+                        }
+                        shift = safeShifts[array[arrayOffset + arraySearchPosition] & 0xFF];
                     }
-                    shift = safeShifts[array[arraySearchPosition] & 0xFF];
-                }
 
-                // The last bytes matched - verify the rest of the sequences.
-                final long totalShift = arraySearchPosition - arrayStartPosition;
-                final long matchEndPosition = searchPosition + totalShift;
-                final Collection<SequenceMatcher> matches = 
-                        verifier.allMatchesBackwards(reader, matchEndPosition);
-                if (!matches.isEmpty()) {
-                    final List<SearchResult<SequenceMatcher>> results = 
-                        SearchUtils.resultsBackFromPosition(matchEndPosition, matches, 
-                                                            fromPosition, toPosition);
-                    if (!results.isEmpty()) {
-                        return results;
+                    // The last bytes matched - verify the rest of the sequences.
+                    final long totalShift = arraySearchPosition - arrayStartPosition;
+                    final long matchEndPosition = searchPosition + totalShift;
+                    final Collection<SequenceMatcher> matches = 
+                            verifier.allMatchesBackwards(reader, matchEndPosition);
+                    if (!matches.isEmpty()) {
+                        final List<SearchResult<SequenceMatcher>> results = 
+                            SearchUtils.resultsBackFromPosition(matchEndPosition, matches, 
+                                                                fromPosition, toPosition);
+                        if (!results.isEmpty()) {
+                            return results;
+                        }
+                    }
+                
+                    // No match was found - shift forward by the shift for the current byte:
+                    // We subtract the shift to add it, as it is negative.
+                    arraySearchPosition -= shift;
+                } 
+            } else {
+                final ByteBuffer buffer = window.getBuffer();
+
+                // Search forwards in this array:
+                ARRAY_SEARCH: while (arraySearchPosition <= lastSearchPosition) {
+
+                    // Shift forwards until we match the last position in the sequence,
+                    // or we run out of search space.
+                    int shift = safeShifts[buffer.get(arraySearchPosition) & 0xFF];
+                    while (shift > 0) {
+                        arraySearchPosition += shift;
+                        if (arraySearchPosition > lastSearchPosition) {
+                            break ARRAY_SEARCH;
+                        }
+                        shift = safeShifts[buffer.get(arraySearchPosition) & 0xFF];
+                    }
+
+                    // The last bytes matched - verify the rest of the sequences.
+                    final long totalShift = arraySearchPosition - arrayStartPosition;
+                    final long matchEndPosition = searchPosition + totalShift;
+                    final Collection<SequenceMatcher> matches = 
+                            verifier.allMatchesBackwards(reader, matchEndPosition);
+                    if (!matches.isEmpty()) {
+                        final List<SearchResult<SequenceMatcher>> results = 
+                            SearchUtils.resultsBackFromPosition(matchEndPosition, matches, 
+                                                                fromPosition, toPosition);
+                        if (!results.isEmpty()) {
+                            return results;
+                        }
                     }
-                }
                 
-                // No match was found - shift forward by the shift for the current byte:
-                // We subtract the shift to add it, as it is negative.
-                arraySearchPosition -= shift;
-            } 
+                    // No match was found - shift forward by the shift for the current byte:
+                    // We subtract the shift to add it, as it is negative.
+                    arraySearchPosition -= shift;
+                } 
+            }
             
             // No match was found in this array - calculate the current search position:
             searchPosition += arraySearchPosition - arrayStartPosition;
@@ -265,6 +360,54 @@ public class SetHorspoolFinalFlagSearcher extends AbstractMultiSequenceSearcher
         return SearchUtils.noResults();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final ByteBuffer buffer, final int fromPosition, final int toPosition) {
+        
+        // Get objects needed for the search:
+        final SearchInfo info = backwardInfo.get();
+        final int[] safeShifts = info.shifts;
+        final MultiSequenceMatcher verifier = info.verifier;
+        
+        // Calculate safe bounds for the start of the search:
+        final int firstPossiblePosition = buffer.limit() - getMatcher().getMinimumLength();        
+        int searchPosition = fromPosition < firstPossiblePosition?
+                             fromPosition : firstPossiblePosition;
+        
+        // Calculate safe bounds for the end of the search:
+        final int lastPosition = toPosition > 0?
+                                 toPosition : 0;
+        
+        // Search backwards:
+        while (searchPosition >= lastPosition) {
+            
+            // Shift backwards until we match the first position in the
+            // sequence, or we run out of search space:
+            int shift = safeShifts[buffer.get(searchPosition) & 0xFF];
+            while (shift > 0) {
+                searchPosition -= shift;
+                if (searchPosition < lastPosition) {
+                    return SearchUtils.noResults();
+                }
+                shift = safeShifts[buffer.get(searchPosition) & 0xFF];
+            }
+            
+            // The first bytes matched - verify the rest of the sequences:
+            final Collection<SequenceMatcher> matches = verifier.allMatches(buffer, searchPosition);
+            if (!matches.isEmpty()) {
+                return SearchUtils.resultsAtPosition(searchPosition, matches);
+            }
+
+            // No match was found - shift backward by the shift for the current byte:
+            // We add the shift to subtract it, as it is negative.
+            searchPosition += shift;            
+        }
+        
+        return SearchUtils.noResults();
+    }
+
     
     /**
      * {@inheritDoc}
@@ -287,38 +430,71 @@ public class SetHorspoolFinalFlagSearcher extends AbstractMultiSequenceSearcher
                (window = reader.getWindow(searchPosition)) != null) {
             
             // Initialise the window search:
-            final byte[] array = window.getArray();
             final int arrayStartPosition = reader.getWindowOffset(searchPosition);   
             final long distanceToEnd = toPosition - window.getWindowPosition();
             final int lastSearchPosition = distanceToEnd > 0?
                                      (int) distanceToEnd : 0;
             int arraySearchPosition = arrayStartPosition;
             
-            // Search using the byte array for shifts, using the WindowReader
-            // for verifiying the sequence with the sequences:          
-            ARRAY_SEARCH: while (arraySearchPosition >= lastSearchPosition) {
+            if (window.hasArray()) {
+                final byte[] array = window.getArray();
+                final int arrayOffset = window.getArrayOffset();
+
+                // Search using the byte array for shifts, using the WindowReader
+                // for verifiying the sequence with the sequences:          
+                ARRAY_SEARCH: while (arraySearchPosition >= lastSearchPosition) {
                 
-                // Shift backwards until we match the first position in the sequence,
-                // or we run out of search space.
-                int shift = safeShifts[array[arraySearchPosition] & 0xFF];
-                while (shift > 0) {
-                    arraySearchPosition -= shift;
-                    if (arraySearchPosition < lastSearchPosition) {
-                        break ARRAY_SEARCH;
+                    // Shift backwards until we match the first position in the sequence,
+                    // or we run out of search space.
+                    int shift = safeShifts[array[arrayOffset + arraySearchPosition] & 0xFF];
+                    while (shift > 0) {
+                        arraySearchPosition -= shift;
+                        if (arraySearchPosition < lastSearchPosition) {
+                            break ARRAY_SEARCH;
+                        }
+                        shift = safeShifts[array[arrayOffset + arraySearchPosition] & 0xFF];
+                    }
+                
+                    // The first byte matched - verify the rest of the sequences.
+                    final long startMatchPosition = searchPosition - (arrayStartPosition - arraySearchPosition);
+                    final Collection<SequenceMatcher> matches = verifier.allMatches(reader, startMatchPosition);
+                    if (!matches.isEmpty()) {
+                        return SearchUtils.resultsAtPosition(startMatchPosition, matches); // match found.
                     }
-                    shift = safeShifts[array[arraySearchPosition] & 0xFF];
-                }
                 
-                // The first byte matched - verify the rest of the sequences.
-                final long startMatchPosition = searchPosition - (arrayStartPosition - arraySearchPosition);
-                final Collection<SequenceMatcher> matches = verifier.allMatches(reader, startMatchPosition);
-                if (!matches.isEmpty()) {
-                    return SearchUtils.resultsAtPosition(startMatchPosition, matches); // match found.
+                    // No match was found - shift backward by the shift for the current byte:
+                    // We add the shift to subtract it, as it is negative.
+                    arraySearchPosition += shift;                
                 }
+            } else {
+                final ByteBuffer buffer = window.getBuffer();
+
+                // Search using the byte array for shifts, using the WindowReader
+                // for verifiying the sequence with the sequences:          
+                ARRAY_SEARCH: while (arraySearchPosition >= lastSearchPosition) {
+                
+                    // Shift backwards until we match the first position in the sequence,
+                    // or we run out of search space.
+                    int shift = safeShifts[buffer.get(arraySearchPosition) & 0xFF];
+                    while (shift > 0) {
+                        arraySearchPosition -= shift;
+                        if (arraySearchPosition < lastSearchPosition) {
+                            break ARRAY_SEARCH;
+                        }
+                        shift = safeShifts[buffer.get(arraySearchPosition) & 0xFF];
+                    }
                 
-                // No match was found - shift backward by the shift for the current byte:
-                // We add the shift to subtract it, as it is negative.
-                arraySearchPosition += shift;                
+                    // The first byte matched - verify the rest of the sequences.
+                    final long startMatchPosition = searchPosition - (arrayStartPosition - arraySearchPosition);
+                    final Collection<SequenceMatcher> matches = verifier.allMatches(reader, startMatchPosition);
+                    if (!matches.isEmpty()) {
+                        return SearchUtils.resultsAtPosition(startMatchPosition, matches); // match found.
+                    }
+                
+                    // No match was found - shift backward by the shift for the current byte:
+                    // We add the shift to subtract it, as it is negative.
+                    arraySearchPosition += shift;                
+                }
             }
             
             // No match was found in this array - calculate the current search position:
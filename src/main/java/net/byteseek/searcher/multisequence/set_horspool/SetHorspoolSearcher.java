@@ -32,6 +32,7 @@
 package net.byteseek.searcher.multisequence.set_horspool;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -146,6 +147,64 @@ public class SetHorspoolSearcher extends AbstractMultiSequenceSearcher {
             searchPosition += safeShifts[currentByte & 0xff];
         }
         
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final ByteBuffer buffer, 
+            final int fromPosition, final int toPosition) {
+        
+        // Get the objects needed to search:
+        final SearchInfo info = forwardInfo.get();
+        final int[] safeShifts = info.shifts;
+        final ByteMatcher endOfSequence = info.matcher;      
+        final MultiSequenceMatcher verifier = info.verifier;
+        
+        // Calculate safe bounds for the start of the search:
+        final int safeStartPosition = fromPosition > 0? 
+                                      fromPosition : 0;
+        int searchPosition = safeStartPosition + sequences.getMinimumLength() - 1;
+        
+        // Calculate safe bounds for the end of the search:
+        final int lastPossiblePosition = buffer.limit() - 1;
+        final int lastToPosition = toPosition + sequences.getMaximumLength() - 1;
+        final int finalPosition = lastToPosition < lastPossiblePosition?
+                                  lastToPosition : lastPossiblePosition;
+        
+        // Search forwards:
+        while (searchPosition <= finalPosition) {
+            
+            // Shift forwards until we match the last position in the sequence,
+            // or we run out of search space (in which case just return not found).
+            byte currentByte = buffer.get(searchPosition);
+            while (!endOfSequence.matches(currentByte)) {
+                searchPosition += safeShifts[currentByte & 0xff];
+                if (searchPosition > finalPosition) {
+                    return SearchUtils.noResults();
+                }
+                currentByte = buffer.get(searchPosition);                
+            }
+            
+            // The last bytes matched - verify the rest of the sequences.
+            final Collection<SequenceMatcher> matches = verifier.allMatchesBackwards(buffer, searchPosition);
+            if (!matches.isEmpty()) {
+                // Build a result list, filtering out any which don't fall within
+                // the "from" or "to" positions of the search.
+                final List<SearchResult<SequenceMatcher>> results = 
+                    SearchUtils.resultsBackFromPosition(searchPosition, matches, 
+                                                        fromPosition, toPosition);
+                if (!results.isEmpty()) {
+                    return results;
+                }
+            }
+            
+            // No match was found - shift forward by the shift for the current byte:
+            searchPosition += safeShifts[currentByte & 0xff];
+        }
+        
         return SearchUtils.noResults();
     }    
         
@@ -173,7 +232,6 @@ public class SetHorspoolSearcher extends AbstractMultiSequenceSearcher {
                (window = reader.getWindow(searchPosition)) != null) {
             
             // Initialise array search:
-            final byte[] array = window.getArray();
             final int arrayStartPosition = reader.getWindowOffset(searchPosition);
             final int arrayEndPosition = window.length() - 1;
             final long distanceToEnd = finalPosition - window.getWindowPosition();     
@@ -181,36 +239,74 @@ public class SetHorspoolSearcher extends AbstractMultiSequenceSearcher {
                                      (int) distanceToEnd : arrayEndPosition;
             int arraySearchPosition = arrayStartPosition;            
                         
-            // Search forwards in this array:
-            ARRAY_SEARCH: while (arraySearchPosition <= lastSearchPosition) {
+            if (window.hasArray()) {
+                final byte[] array = window.getArray();
+                final int arrayOffset = window.getArrayOffset();
+
+                // Search forwards in this array:
+                ARRAY_SEARCH: while (arraySearchPosition <= lastSearchPosition) {
+
+                    // Shift forwards until we match the last position in the sequence,
+                    // or we run out of search space.
+                    byte currentByte = array[arrayOffset + arraySearchPosition];
+                    while (!endOfSequence.matches(currentByte)) {
+                        arraySearchPosition += safeShifts[currentByte & 0xff];
+                        if (arraySearchPosition > lastSearchPosition) {
+                            break ARRAY_SEARCH; // outside the array, move on.
+                        }
+                        currentByte = array[arrayOffset + arraySearchPosition];                
+                    }
 
-                // Shift forwards until we match the last position in the sequence,
-                // or we run out of search space.
-                byte currentByte = array[arraySearchPosition];
-                while (!endOfSequence.matches(currentByte)) {
+                    // The last bytes matched - verify the rest of the sequences.
+                    final long matchEndPosition = searchPosition + arraySearchPosition - arrayStartPosition;
+                    final Collection<SequenceMatcher> matches = 
+                            verifier.allMatchesBackwards(reader, matchEndPosition);
+                    if (!matches.isEmpty()) {
+                        final List<SearchResult<SequenceMatcher>> results = 
+                            SearchUtils.resultsBackFromPosition(matchEndPosition, matches,
+                                                                fromPosition, toPosition);
+                        if (!results.isEmpty()) {
+                            return results;
+                        }
+                    }
+                
+                    // No match was found - shift forward by the shift for the current byte:
                     arraySearchPosition += safeShifts[currentByte & 0xff];
-                    if (arraySearchPosition > lastSearchPosition) {
-                        break ARRAY_SEARCH; // outside the array, move on.
+                } 
+            } else {
+                final ByteBuffer buffer = window.getBuffer();
+
+                // Search forwards in this array:
+                ARRAY_SEARCH: while (arraySearchPosition <= lastSearchPosition) {
+
+                    // Shift forwards until we match the last position in the sequence,
+                    // or we run out of search space.
+                    byte currentByte = buffer.get(arraySearchPosition);
+                    while (!endOfSequence.matches(currentByte)) {
+                        arraySearchPosition += safeShifts[currentByte & 0xff];
+                        if (arraySearchPosition > lastSearchPosition) {
+                            break ARRAY_SEARCH; // outside the array, move on.
+                        }
+                        currentByte = buffer.get(arraySearchPosition);                
                     }
-                    currentByte = array[arraySearchPosition];                
-                }
 
-                // The last bytes matched - verify the rest of the sequences.
-                final long matchEndPosition = searchPosition + arraySearchPosition - arrayStartPosition;
-                final Collection<SequenceMatcher> matches = 
-                        verifier.allMatchesBackwards(reader, matchEndPosition);
-                if (!matches.isEmpty()) {
-                    final List<SearchResult<SequenceMatcher>> results = 
-                        SearchUtils.resultsBackFromPosition(matchEndPosition, matches,
-                                                            fromPosition, toPosition);
-                    if (!results.isEmpty()) {
-                        return results;
+                    // The last bytes matched - verify the rest of the sequences.
+                    final long matchEndPosition = searchPosition + arraySearchPosition - arrayStartPosition;
+                    final Collection<SequenceMatcher> matches = 
+                            verifier.allMatchesBackwards(reader, matchEndPosition);
+                    if (!matches.isEmpty()) {
+                        final List<SearchResult<SequenceMatcher>> results = 
+                            SearchUtils.resultsBackFromPosition(matchEndPosition, matches,
+                                                                fromPosition, toPosition);
+                        if (!results.isEmpty()) {
+                            return results;
+                        }
                     }
-                }
                 
-                // No match was found - shift forward by the shift for the current byte:
-                arraySearchPosition += safeShifts[currentByte & 0xff];
-            } 
+                    // No match was found - shift forward by the shift for the current byte:
+                    arraySearchPosition += safeShifts[currentByte & 0xff];
+                } 
+            }
             
             // No match was found in this array - calculate the current search position:
             searchPosition += arraySearchPosition - arrayStartPosition;
@@ -268,6 +364,54 @@ public class SetHorspoolSearcher extends AbstractMultiSequenceSearcher {
         return SearchUtils.noResults();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final ByteBuffer buffer, final int fromPosition, final int toPosition) {
+        
+        // Get objects needed for the search:
+        final SearchInfo info = backwardInfo.get();
+        final int[] safeShifts = info.shifts;
+        final ByteMatcher startOfSequence = info.matcher;
+        final MultiSequenceMatcher verifier = info.verifier;
+        
+        // Calculate safe bounds for the start of the search:
+        final int firstPossiblePosition = buffer.limit() - getMatcher().getMinimumLength();        
+        int searchPosition = fromPosition < firstPossiblePosition?
+                             fromPosition : firstPossiblePosition;
+        
+        // Calculate safe bounds for the end of the search:
+        final int lastPosition = toPosition > 0?
+                                 toPosition : 0;
+        
+        // Search backwards:
+        while (searchPosition >= lastPosition) {
+            
+            // Shift backwards until we match the first position in the
+            // sequence, or we run out of search space:
+            byte currentByte = buffer.get(searchPosition);
+            while (!startOfSequence.matches(currentByte)) {
+                searchPosition -= safeShifts[currentByte & 0xFF];
+                if (searchPosition < lastPosition) {
+                    return SearchUtils.noResults();
+                }
+                currentByte = buffer.get(searchPosition);
+            }
+            
+            // The first bytes matched - verify the rest of the sequences:
+            final Collection<SequenceMatcher> matches = verifier.allMatches(buffer, searchPosition);
+            if (!matches.isEmpty()) {
+                return SearchUtils.resultsAtPosition(searchPosition, matches);
+            }
+
+            // No match was found - shift backward by the shift for the current byte:
+            searchPosition -= safeShifts[currentByte & 0xff];            
+        }
+        
+        return SearchUtils.noResults();
+    }
+
     
     /**
      * {@inheritDoc}
@@ -289,37 +433,69 @@ public class SetHorspoolSearcher extends AbstractMultiSequenceSearcher {
                (window = reader.getWindow(searchPosition))!= null) {
             
             // Initialise the window search:
-            final byte[] array = window.getArray();
             final int arrayStartPosition = reader.getWindowOffset(searchPosition);   
             final long distanceToEnd = toPosition - window.getWindowPosition();
             final int lastSearchPosition = distanceToEnd > 0?
                                      (int) distanceToEnd : 0;
             int arraySearchPosition = arrayStartPosition;
             
-            // Search using the byte array for shifts, using the WindowReader
-            // for verifiying the sequence with the sequences:          
-            ARRAY_SEARCH: while (arraySearchPosition >= lastSearchPosition) {
+            if (window.hasArray()) {
+                final byte[] array = window.getArray();
+                final int arrayOffset = window.getArrayOffset();
+
+                // Search using the byte array for shifts, using the WindowReader
+                // for verifiying the sequence with the sequences:          
+                ARRAY_SEARCH: while (arraySearchPosition >= lastSearchPosition) {
                 
-                // Shift backwards until we match the first position in the sequence,
-                // or we run out of search space.
-                byte currentByte = array[arraySearchPosition];
-                while (!startOfSequence.matches(currentByte)) {
-                    arraySearchPosition -= safeShifts[currentByte & 0xff];
-                    if (arraySearchPosition < lastSearchPosition) {
-                        break ARRAY_SEARCH;
+                    // Shift backwards until we match the first position in the sequence,
+                    // or we run out of search space.
+                    byte currentByte = array[arrayOffset + arraySearchPosition];
+                    while (!startOfSequence.matches(currentByte)) {
+                        arraySearchPosition -= safeShifts[currentByte & 0xff];
+                        if (arraySearchPosition < lastSearchPosition) {
+                            break ARRAY_SEARCH;
+                        }
+                        currentByte = array[arrayOffset + arraySearchPosition];
+                    }
+                
+                    // The first byte matched - verify the rest of the sequences.
+                    final long startMatchPosition = searchPosition - (arrayStartPosition - arraySearchPosition);
+                    final Collection<SequenceMatcher> matches = verifier.allMatches(reader, startMatchPosition);
+                    if (!matches.isEmpty()) {
+                        return SearchUtils.resultsAtPosition(startMatchPosition, matches); // match found.
                     }
-                    currentByte = array[arraySearchPosition];
-                }
                 
-                // The first byte matched - verify the rest of the sequences.
-                final long startMatchPosition = searchPosition - (arrayStartPosition - arraySearchPosition);
-                final Collection<SequenceMatcher> matches = verifier.allMatches(reader, startMatchPosition);
-                if (!matches.isEmpty()) {
-                    return SearchUtils.resultsAtPosition(startMatchPosition, matches); // match found.
+                    // No match was found - shift backward by the shift for the current byte:
+                    arraySearchPosition -= safeShifts[currentByte & 0xff];                
                 }
+            } else {
+                final ByteBuffer buffer = window.getBuffer();
+
+                // Search using the byte array for shifts, using the WindowReader
+                // for verifiying the sequence with the sequences:          
+                ARRAY_SEARCH: while (arraySearchPosition >= lastSearchPosition) {
+                
+                    // Shift backwards until we match the first position in the sequence,
+                    // or we run out of search space.
+                    byte currentByte = buffer.get(arraySearchPosition);
+                    while (!startOfSequence.matches(currentByte)) {
+                        arraySearchPosition -= safeShifts[currentByte & 0xff];
+                        if (arraySearchPosition < lastSearchPosition) {
+                            break ARRAY_SEARCH;
+                        }
+                        currentByte = buffer.get(arraySearchPosition);
+                    }
                 
-                // No match was found - shift backward by the shift for the current byte:
-                arraySearchPosition -= safeShifts[currentByte & 0xff];                
+                    // The first byte matched - verify the rest of the sequences.
+                    final long startMatchPosition = searchPosition - (arrayStartPosition - arraySearchPosition);
+                    final Collection<SequenceMatcher> matches = verifier.allMatches(reader, startMatchPosition);
+                    if (!matches.isEmpty()) {
+                        return SearchUtils.resultsAtPosition(startMatchPosition, matches); // match found.
+                    }
+                
+                    // No match was found - shift backward by the shift for the current byte:
+                    arraySearchPosition -= safeShifts[currentByte & 0xff];                
+                }
             }
             
             // No match was found in this array - calculate the current search position:
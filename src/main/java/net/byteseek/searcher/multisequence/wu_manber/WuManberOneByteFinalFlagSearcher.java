@@ -32,6 +32,7 @@
 package net.byteseek.searcher.multisequence.wu_manber;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import net.byteseek.bytes.BytePermutationIterator;
 import net.byteseek.bytes.ByteUtils;
@@ -572,6 +573,59 @@ import java.util.List;
             
             return SearchUtils.noResults();
         }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public List<SearchResult<SequenceMatcher>> searchForwards(final ByteBuffer buffer, 
+                final int fromPosition, final int toPosition) {
+            // Get info needed to search with:
+            final SearchInfo info = forwardInfo.get();
+            final int[] safeShifts = info.shifts;
+            final MultiSequenceMatcher backMatcher = info.matcher;
+            
+            // Calculate safe bounds for the search:
+            final int lastPossiblePosition = buffer.limit() - 1;
+            final int lastToPosition = toPosition + sequences.getMaximumLength() - 1;
+            final int lastPosition = lastToPosition < lastPossiblePosition ?
+                                     lastToPosition : lastPossiblePosition;
+            final int minimumPosition = sequences.getMinimumLength() - 1;
+            int searchPosition = fromPosition > 0 ?
+                                 fromPosition + minimumPosition : minimumPosition;
+            
+            // Search forwards:
+            while (searchPosition <= lastPosition) {
+
+                // Get the safe shift for this byte:
+                final int safeShift = safeShifts[buffer.get(searchPosition) & 0xFF];
+
+                // Is there a possible match?
+                if (safeShift < 0) {
+
+                    // A negative shift - see if we have any matches:
+                    final Collection<SequenceMatcher> matches =
+                            backMatcher.allMatchesBackwards(buffer, searchPosition);
+                    if (!matches.isEmpty()) {
+                        
+                        // See if any of the matches are within the bounds of the search:
+                        final List<SearchResult<SequenceMatcher>> results = 
+                            SearchUtils.resultsBackFromPosition(searchPosition, matches, 
+                                                                fromPosition, toPosition);
+                        if (!results.isEmpty()) {
+                            return results;
+                        }
+                    }
+                    
+                    // Shift forwards by the shift.  
+                    searchPosition -= safeShift; // subtract, as the shift is negative.                  
+                } else {
+                    searchPosition += safeShift; // add, as the shift is positive.
+                } 
+            }
+            
+            return SearchUtils.noResults();
+        }
         
         
         @Override
@@ -592,7 +646,6 @@ import java.util.List;
                    (window = reader.getWindow(searchPosition)) != null) {
 
                 // Initialise array search:
-                final byte[] array = window.getArray();
                 final int arrayStartPosition = reader.getWindowOffset(searchPosition);
                 final int arrayEndPosition = window.length() - 1;
                 final long distanceToEnd = finalPosition - window.getWindowPosition();     
@@ -602,31 +655,64 @@ import java.util.List;
 
                 long DEBUG_SEARCH = searchPosition;
                 
-                // Search forwards in this array:
-                while (arraySearchPosition <= lastSearchPosition) {
-
-                    final int safeShift = safeShifts[array[arraySearchPosition] & 0xFF];
-                    if (safeShift < 0) {
-                        // see if we have a match:
-                        final long matchEndPosition = searchPosition + arraySearchPosition - arrayStartPosition;
-                        final Collection<SequenceMatcher> matches =
-                                backMatcher.allMatchesBackwards(reader, matchEndPosition);
-                        if (!matches.isEmpty()) {
-                            // Convert the matches into search results, filtering on the ends of the search:
-                            final List<SearchResult<SequenceMatcher>> results = 
-                                SearchUtils.resultsBackFromPosition(matchEndPosition, matches, 
-                                                                    fromPosition, toPosition);
-                            if (!results.isEmpty()) {
-                                return results;
+                if (window.hasArray()) {
+                    final byte[] array = window.getArray();
+                    final int arrayOffset = window.getArrayOffset();
+
+                    // Search forwards in this array:
+                    while (arraySearchPosition <= lastSearchPosition) {
+
+                        final int safeShift = safeShifts[array[arrayOffset + arraySearchPosition] & 0xFF];
+                        if (safeShift < 0) {
+                            // see if we have a match:
+                            final long matchEndPosition = searchPosition + arraySearchPosition - arrayStartPosition;
+                            final Collection<SequenceMatcher> matches =
+                                    backMatcher.allMatchesBackwards(reader, matchEndPosition);
+                            if (!matches.isEmpty()) {
+                                // Convert the matches into search results, filtering on the ends of the search:
+                                final List<SearchResult<SequenceMatcher>> results = 
+                                    SearchUtils.resultsBackFromPosition(matchEndPosition, matches, 
+                                                                        fromPosition, toPosition);
+                                if (!results.isEmpty()) {
+                                    return results;
+                                }
                             }
-                        }
-                        arraySearchPosition -= safeShift;
-                        DEBUG_SEARCH -= safeShift;
-                    } else {
-                        arraySearchPosition += safeShift;
-                        DEBUG_SEARCH += safeShift;
+                            arraySearchPosition -= safeShift;
+                            DEBUG_SEARCH -= safeShift;
+                        } else {
+                            arraySearchPosition += safeShift;
+                            DEBUG_SEARCH += safeShift;
+                        } 
                     } 
-                } 
+                } else {
+                    final ByteBuffer buffer = window.getBuffer();
+
+                    // Search forwards in this array:
+                    while (arraySearchPosition <= lastSearchPosition) {
+
+                        final int safeShift = safeShifts[buffer.get(arraySearchPosition) & 0xFF];
+                        if (safeShift < 0) {
+                            // see if we have a match:
+                            final long matchEndPosition = searchPosition + arraySearchPosition - arrayStartPosition;
+                            final Collection<SequenceMatcher> matches =
+                                    backMatcher.allMatchesBackwards(reader, matchEndPosition);
+                            if (!matches.isEmpty()) {
+                                // Convert the matches into search results, filtering on the ends of the search:
+                                final List<SearchResult<SequenceMatcher>> results = 
+                                    SearchUtils.resultsBackFromPosition(matchEndPosition, matches, 
+                                                                        fromPosition, toPosition);
+                                if (!results.isEmpty()) {
+                                    return results;
+                                }
+                            }
+                            arraySearchPosition -= safeShift;
+                            DEBUG_SEARCH -= safeShift;
+                        } else {
+                            arraySearchPosition += safeShift;
+                            DEBUG_SEARCH += safeShift;
+                        } 
+                    } 
+                }
 
                 // No match was found in this array - calculate the current search position:
                 searchPosition += arraySearchPosition - arrayStartPosition;
@@ -652,29 +738,54 @@ import java.util.List;
                    (window = reader.getWindow(searchPosition)) != null) {
 
                 // Initialise the window search:
-                final byte[] array = window.getArray();
                 final int arrayStartPosition = reader.getWindowOffset(searchPosition);   
                 final long distanceToEnd = toPosition - window.getWindowPosition();
                 final int lastSearchPosition = distanceToEnd > 0?
                                          (int) distanceToEnd : 0;
                 int arraySearchPosition = arrayStartPosition;
 
-                // Search using the byte array for shifts, using the WindowReader
-                // for verifiying the sequence with the sequences:          
-                while (arraySearchPosition >= lastSearchPosition) {
+                if (window.hasArray()) {
+                    final byte[] array = window.getArray();
+                    final int arrayOffset = window.getArrayOffset();
+
+                    // Search using the byte array for shifts, using the WindowReader
+                    // for verifiying the sequence with the sequences:          
+                    while (arraySearchPosition >= lastSearchPosition) {
 
-                    final int safeShift = safeShifts[array[arraySearchPosition] & 0xFF];
-                    if (safeShift < 0) {
+                        final int safeShift = safeShifts[array[arrayOffset + arraySearchPosition] & 0xFF];
+                        if (safeShift < 0) {
 
-                        // The first byte matched - verify the rest of the sequences.
-                        final long startMatchPosition = searchPosition + arraySearchPosition - arrayStartPosition;
-                        final Collection<SequenceMatcher> matches = verifier.allMatches(reader, startMatchPosition);
-                        if (!matches.isEmpty()) {
-                            return SearchUtils.resultsAtPosition(startMatchPosition, matches); // match found.
+                            // The first byte matched - verify the rest of the sequences.
+                            final long startMatchPosition = searchPosition + arraySearchPosition - arrayStartPosition;
+                            final Collection<SequenceMatcher> matches = verifier.allMatches(reader, startMatchPosition);
+                            if (!matches.isEmpty()) {
+                                return SearchUtils.resultsAtPosition(startMatchPosition, matches); // match found.
+                            }
+                            arraySearchPosition += safeShift; // no match, shift back.
+                        } else { // No match was found - shift backward by the shift for the current byte:
+                            arraySearchPosition -= safeShift;
+                        }
+                    }
+                } else {
+                    final ByteBuffer buffer = window.getBuffer();
+
+                    // Search using the byte array for shifts, using the WindowReader
+                    // for verifiying the sequence with the sequences:          
+                    while (arraySearchPosition >= lastSearchPosition) {
+
+                        final int safeShift = safeShifts[buffer.get(arraySearchPosition) & 0xFF];
+                        if (safeShift < 0) {
+
+                            // The first byte matched - verify the rest of the sequences.
+                            final long startMatchPosition = searchPosition + arraySearchPosition - arrayStartPosition;
+                            final Collection<SequenceMatcher> matches = verifier.allMatches(reader, startMatchPosition);
+                            if (!matches.isEmpty()) {
+                                return SearchUtils.resultsAtPosition(startMatchPosition, matches); // match found.
+                            }
+                            arraySearchPosition += safeShift; // no match, shift back.
+                        } else { // No match was found - shift backward by the shift for the current byte:
+                            arraySearchPosition -= safeShift;
                         }
-                        arraySearchPosition += safeShift; // no match, shift back.
-                    } else { // No match was found - shift backward by the shift for the current byte:
-                        arraySearchPosition -= safeShift;
                     }
                 }
 
@@ -724,6 +835,49 @@ import java.util.List;
             }
             return SearchUtils.noResults();
         }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public List<SearchResult<SequenceMatcher>> searchBackwards(final ByteBuffer buffer, 
+                final int fromPosition, final int toPosition) {
+            // Get info needed to search with:
+            final SearchInfo info = backwardInfo.get();
+            final int[] safeShifts = info.shifts;
+            final MultiSequenceMatcher verifier = info.matcher;
+            
+            // Calculate safe bounds for the search:
+            final int lastPosition = toPosition > 0 ?
+                                     toPosition : 0;
+            final int firstPossiblePosition = buffer.limit() - 1;
+            int searchPosition = fromPosition < firstPossiblePosition ?
+                                 fromPosition : firstPossiblePosition;
+            
+            // Search forwards:
+            while (searchPosition >= lastPosition) {
+
+                // Get the safe shift for this byte:
+                final int safeShift = safeShifts[buffer.get(searchPosition) & 0xFF];
+
+                // Is there a possible match?
+                if (safeShift < 0) {
+
+                    // A negative shift - see if we have any matches:
+                    final Collection<SequenceMatcher> matches =
+                            verifier.allMatches(buffer, searchPosition);
+                    if (!matches.isEmpty()) {
+                        return SearchUtils.resultsAtPosition(searchPosition, matches);
+                    }
+                    
+                    // No matches, shift backwards:
+                    searchPosition += safeShift; // add, as the shift is negative.
+                } else { 
+                    searchPosition -= safeShift; // subtract, as the shift is positive.
+                }
+            }
+            return SearchUtils.noResults();
+        }
     }
     
 
@@ -31,6 +31,7 @@
 package net.byteseek.searcher.multisequence.wu_manber;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.List;
 
@@ -112,6 +113,58 @@ public class WuManberOneByteSearcher extends AbstractWuManberSearcher {
         return SearchUtils.noResults();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final ByteBuffer buffer, 
+            final int fromPosition, final int toPosition) {
+        // Get info needed to search with:
+        final SearchInfo info = forwardInfo.get();
+        final int[] safeShifts = info.shifts;
+        final MultiSequenceMatcher backMatcher = info.matcher;
+
+        // Calculate safe bounds for the search:
+        final int lastPossiblePosition = buffer.limit() - 1;
+        final int lastToPosition = toPosition + sequences.getMaximumLength() - 1;
+        final int lastPosition = lastToPosition < lastPossiblePosition ?
+                                 lastToPosition : lastPossiblePosition;
+        final int minimumPosition = sequences.getMinimumLength() - 1;
+        int searchPosition = fromPosition > 0 ?
+                             fromPosition + minimumPosition : minimumPosition;
+
+        // Search forwards:
+        while (searchPosition <= lastPosition) {
+
+            // Get the safe shift for this byte:
+            final int safeShift = safeShifts[buffer.get(searchPosition) & 0xFF];
+
+            // Can we shift safely?
+            if (safeShift == 0) {
+
+                // No safe shift - see if we have any matches:
+                final Collection<SequenceMatcher> matches =
+                        backMatcher.allMatchesBackwards(buffer, searchPosition);
+                if (!matches.isEmpty()) {
+
+                    // See if any of the matches are within the bounds of the search:
+                    final List<SearchResult<SequenceMatcher>> results = 
+                        SearchUtils.resultsBackFromPosition(searchPosition, matches, 
+                                                            fromPosition, toPosition);
+                    if (!results.isEmpty()) {
+                        return results;
+                    }
+                }
+                searchPosition++; // no safe shift other than to advance one on.
+
+            } else {
+                searchPosition += safeShift;
+            }
+        }
+
+        return SearchUtils.noResults();
+    }
+
 
     /**
      * {@inheritDoc}
@@ -135,7 +188,6 @@ public class WuManberOneByteSearcher extends AbstractWuManberSearcher {
                (window = reader.getWindow(searchPosition)) != null) {
 
             // Initialise array search:
-            final byte[] array = window.getArray();
             final int arrayStartPosition = reader.getWindowOffset(searchPosition);
             final int arrayEndPosition = window.length() - 1;
             final long distanceToEnd = finalPosition - window.getWindowPosition();     
@@ -143,29 +195,60 @@ public class WuManberOneByteSearcher extends AbstractWuManberSearcher {
                                      (int) distanceToEnd : arrayEndPosition;
             int arraySearchPosition = arrayStartPosition;            
 
-            // Search forwards in this array:
-            while (arraySearchPosition <= lastSearchPosition) {
-
-                final int safeShift = safeShifts[array[arraySearchPosition] & 0xFF];
-                if (safeShift == 0) {
-                    // see if we have a match:
-                    final long matchEndPosition = searchPosition + arraySearchPosition - arrayStartPosition;
-                    final Collection<SequenceMatcher> matches =
-                            backMatcher.allMatchesBackwards(reader, matchEndPosition);
-                    if (!matches.isEmpty()) {
-                        // See if any of the matches are within the bounds of the search:
-                        final List<SearchResult<SequenceMatcher>> results = 
-                            SearchUtils.resultsBackFromPosition(matchEndPosition, matches,
-                                                                fromPosition, toPosition);
-                        if (!results.isEmpty()) {
-                            return results;
+            if (window.hasArray()) {
+                final byte[] array = window.getArray();
+                final int arrayOffset = window.getArrayOffset();
+
+                // Search forwards in this array:
+                while (arraySearchPosition <= lastSearchPosition) {
+
+                    final int safeShift = safeShifts[array[arrayOffset + arraySearchPosition] & 0xFF];
+                    if (safeShift == 0) {
+                        // see if we have a match:
+                        final long matchEndPosition = searchPosition + arraySearchPosition - arrayStartPosition;
+                        final Collection<SequenceMatcher> matches =
+                                backMatcher.allMatchesBackwards(reader, matchEndPosition);
+                        if (!matches.isEmpty()) {
+                            // See if any of the matches are within the bounds of the search:
+                            final List<SearchResult<SequenceMatcher>> results = 
+                                SearchUtils.resultsBackFromPosition(matchEndPosition, matches,
+                                                                    fromPosition, toPosition);
+                            if (!results.isEmpty()) {
+                                return results;
+                            }
                         }
-                    }
-                    arraySearchPosition++;
-                } else {
-                    arraySearchPosition += safeShift;
+                        arraySearchPosition++;
+                    } else {
+                        arraySearchPosition += safeShift;
+                    } 
                 } 
-            } 
+            } else {
+                final ByteBuffer buffer = window.getBuffer();
+
+                // Search forwards in this array:
+                while (arraySearchPosition <= lastSearchPosition) {
+
+                    final int safeShift = safeShifts[buffer.get(arraySearchPosition) & 0xFF];
+                    if (safeShift == 0) {
+                        // see if we have a match:
+                        final long matchEndPosition = searchPosition + arraySearchPosition - arrayStartPosition;
+                        final Collection<SequenceMatcher> matches =
+                                backMatcher.allMatchesBackwards(reader, matchEndPosition);
+                        if (!matches.isEmpty()) {
+                            // See if any of the matches are within the bounds of the search:
+                            final List<SearchResult<SequenceMatcher>> results = 
+                                SearchUtils.resultsBackFromPosition(matchEndPosition, matches,
+                                                                    fromPosition, toPosition);
+                            if (!results.isEmpty()) {
+                                return results;
+                            }
+                        }
+                        arraySearchPosition++;
+                    } else {
+                        arraySearchPosition += safeShift;
+                    } 
+                } 
+            }
 
             // No match was found in this array - calculate the current search position:
             searchPosition += arraySearchPosition - arrayStartPosition;
@@ -217,6 +300,48 @@ public class WuManberOneByteSearcher extends AbstractWuManberSearcher {
         return SearchUtils.noResults();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final ByteBuffer buffer, 
+            final int fromPosition, final int toPosition) {
+        // Get info needed to search with:
+        final SearchInfo info = backwardInfo.get();
+        final int[] safeShifts = info.shifts;
+        final MultiSequenceMatcher verifier = info.matcher;
+
+        // Calculate safe bounds for the search:
+        final int lastPosition = toPosition > 0 ?
+                                 toPosition : 0;
+        final int firstPossiblePosition = buffer.limit() - 1;
+        int searchPosition = fromPosition < firstPossiblePosition ?
+                             fromPosition : firstPossiblePosition;
+
+        // Search backwards:
+        while (searchPosition >= lastPosition) {
+
+            // Get the safe shift for this byte:
+            final int safeShift = safeShifts[buffer.get(searchPosition) & 0xFF];
+
+            // Can we shift safely?
+            if (safeShift == 0) {
+
+                // No safe shift - see if we have any matches:
+                final Collection<SequenceMatcher> matches =
+                        verifier.allMatches(buffer, searchPosition);
+                if (!matches.isEmpty()) {
+                    return SearchUtils.resultsAtPosition(searchPosition, matches);
+                }
+                searchPosition--; // no safe shift other than to advance one on.
+
+            } else { // we have a safe shift, move on:
+                searchPosition -= safeShift; 
+            }
+        }
+        return SearchUtils.noResults();
+    }
+
 
     /**
      * {@inheritDoc}
@@ -238,30 +363,56 @@ public class WuManberOneByteSearcher extends AbstractWuManberSearcher {
                (window = reader.getWindow(searchPosition)) != null) {
 
             // Initialise the window search:
-            final byte[] array = window.getArray();
             final int arrayStartPosition = reader.getWindowOffset(searchPosition);   
             final long distanceToEnd = toPosition - window.getWindowPosition();
             final int lastSearchPosition = distanceToEnd > 0?
                                      (int) distanceToEnd : 0;
             int arraySearchPosition = arrayStartPosition;
 
-            // Search using the byte array for shifts, using the WindowReader
-            // for verifiying the sequence with the sequences:          
-            while (arraySearchPosition >= lastSearchPosition) {
+            if (window.hasArray()) {
+                final byte[] array = window.getArray();
+                final int arrayOffset = window.getArrayOffset();
+
+                // Search using the byte array for shifts, using the WindowReader
+                // for verifiying the sequence with the sequences:          
+                while (arraySearchPosition >= lastSearchPosition) {
 
-                final int safeShift = safeShifts[array[arraySearchPosition] & 0xFF];
-                if (safeShift == 0) {
+                    final int safeShift = safeShifts[array[arrayOffset + arraySearchPosition] & 0xFF];
+                    if (safeShift == 0) {
 
-                    // The first byte matched - verify the rest of the sequences.
-                    final long startMatchPosition = searchPosition + arraySearchPosition - arrayStartPosition;
-                    final Collection<SequenceMatcher> matches = verifier.allMatches(reader, startMatchPosition);
-                    if (!matches.isEmpty()) {
-                        return SearchUtils.resultsAtPosition(startMatchPosition, matches); // match found.
+                        // The first byte matched - verify the rest of the sequences.
+                        final long startMatchPosition = searchPosition + arraySearchPosition - arrayStartPosition;
+                        final Collection<SequenceMatcher> matches = verifier.allMatches(reader, startMatchPosition);
+                        if (!matches.isEmpty()) {
+                            return SearchUtils.resultsAtPosition(startMatchPosition, matches); // match found.
+                        }
+
+                        arraySearchPosition--; // no match, shift back one.
+                    } else { // No match was found - shift backward by the shift for the current byte:
+                        arraySearchPosition -= safeShift;
                     }
+                }
+            } else {
+                final ByteBuffer buffer = window.getBuffer();
+
+                // Search using the byte array for shifts, using the WindowReader
+                // for verifiying the sequence with the sequences:          
+                while (arraySearchPosition >= lastSearchPosition) {
+
+                    final int safeShift = safeShifts[buffer.get(arraySearchPosition) & 0xFF];
+                    if (safeShift == 0) {
 
-                    arraySearchPosition--; // no match, shift back one.
-                } else { // No match was found - shift backward by the shift for the current byte:
-                    arraySearchPosition -= safeShift;
+                        // The first byte matched - verify the rest of the sequences.
+                        final long startMatchPosition = searchPosition + arraySearchPosition - arrayStartPosition;
+                        final Collection<SequenceMatcher> matches = verifier.allMatches(reader, startMatchPosition);
+                        if (!matches.isEmpty()) {
+                            return SearchUtils.resultsAtPosition(startMatchPosition, matches); // match found.
+                        }
+
+                        arraySearchPosition--; // no match, shift back one.
+                    } else { // No match was found - shift backward by the shift for the current byte:
+                        arraySearchPosition -= safeShift;
+                    }
                 }
             }
 
@@ -31,6 +31,7 @@
 package net.byteseek.searcher.multisequence.wu_manber;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.List;
 
@@ -156,6 +157,100 @@ public class WuManberOneByteTunedSearcher extends AbstractWuManberTunedSearcher
         return SearchUtils.noResults();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final ByteBuffer buffer, 
+            final int fromPosition, final int toPosition) {
+        // Get info needed to search with:
+        final SearchInfo info = forwardInfo.get();
+        final int[] safeShifts = info.shifts;
+        final int[] finalShifts = info.finalShifts;
+        final MultiSequenceMatcher backMatcher = info.matcher;
+        final int finalHashBitMask = finalShifts.length - 1;
+        
+        // Calculate safe bounds for the search:
+        final int minimumLength = sequences.getMinimumLength();
+        final int minimumPosition = minimumLength - 1;        
+        final int lastPossiblePosition = buffer.limit() - 1;
+        //FIXME: is minimum length the correct distznce - isn't it default shift?
+        final int lastPossibleUnrolledPosition = lastPossiblePosition - 3 * minimumLength;
+        final int lastToPosition = toPosition + sequences.getMaximumLength() - 1;
+        final int lastUnrolledPosition = lastToPosition < lastPossibleUnrolledPosition?
+                                         lastToPosition : lastPossibleUnrolledPosition;
+        int searchPosition = fromPosition > 0 ?
+                             fromPosition + minimumPosition : minimumPosition;
+        
+        // Search forwards using the unrolled version of the algorithm.  This can
+        // only search up to 3 minimum lengths from the end of the array, or we
+        // risk an ArrayOutOfBoundsException.
+        UNROLLED: while (searchPosition <= lastUnrolledPosition) {
+
+            // Unroll skip loop (if shift is zero, then searchposition won't change).
+            // Could cross over end of byte array however, so this search loop
+            // will never search closer than 3 max shifts (minimum length)
+            // to the end of the array, to avoid a possible ArrayIndexOutOfBoundsException.
+            int lastByteValue = buffer.get(searchPosition) & 0xFF;
+            int safeShift = safeShifts[lastByteValue];
+            while (safeShift != 0) {
+                searchPosition += safeShift;
+                searchPosition += safeShifts[buffer.get(searchPosition) & 0xFF];
+                searchPosition += safeShifts[buffer.get(searchPosition) & 0xFF]; 
+                if (searchPosition > lastUnrolledPosition) {
+                    break UNROLLED;
+                }
+                lastByteValue = buffer.get(searchPosition) & 0xFF;
+                safeShift = safeShifts[lastByteValue];
+            }
+
+            // No safe shift - see if we have any matches:
+            final Collection<SequenceMatcher> matches =
+                    backMatcher.allMatchesBackwards(buffer, searchPosition);
+            if (!matches.isEmpty()) {
+
+                // See if any of the matches are within the bounds of the search:
+                final List<SearchResult<SequenceMatcher>> results = 
+                    SearchUtils.resultsBackFromPosition(searchPosition, matches, 
+                                                        fromPosition, toPosition);
+                if (!results.isEmpty()) {
+                    return results;
+                }
+            }
+            
+            searchPosition += finalShifts[lastByteValue & finalHashBitMask];
+        }
+        
+        // If we need to search past the last unrolled position, we need to use an
+        // unrolled version:
+        final int lastPosition = lastToPosition < lastPossiblePosition ?
+                                 lastToPosition : lastPossiblePosition;
+        while (searchPosition <= lastPosition) {
+            final int lastByteValue = buffer.get(searchPosition) & 0xFF;
+            int safeShift = safeShifts[lastByteValue];   
+            if (safeShift > 0) {
+                searchPosition += safeShift;
+            } else {
+                // No safe shift - see if we have any matches:
+                final Collection<SequenceMatcher> matches =
+                        backMatcher.allMatchesBackwards(buffer, searchPosition);
+                if (!matches.isEmpty()) {
+
+                    // See if any of the matches are within the bounds of the search:
+                    final List<SearchResult<SequenceMatcher>> results = 
+                        SearchUtils.resultsBackFromPosition(searchPosition, matches, 
+                                                            fromPosition, toPosition);
+                    if (!results.isEmpty()) {
+                        return results;
+                    }
+                }
+                searchPosition += finalShifts[lastByteValue & finalHashBitMask];
+            }
+        }
+
+        return SearchUtils.noResults();
+    }
+
     
     /**
      * {@inheritDoc}
@@ -179,7 +274,6 @@ public class WuManberOneByteTunedSearcher extends AbstractWuManberTunedSearcher
                (window = reader.getWindow(searchPosition)) != null) {
 
             // Initialise array search:
-            final byte[] array = window.getArray();
             final int arrayStartPosition = reader.getWindowOffset(searchPosition);
             final int arrayEndPosition = window.length() - 1;
             final long distanceToEnd = finalPosition - window.getWindowPosition();     
@@ -187,29 +281,60 @@ public class WuManberOneByteTunedSearcher extends AbstractWuManberTunedSearcher
                                      (int) distanceToEnd : arrayEndPosition;
             int arraySearchPosition = arrayStartPosition;            
 
-            // Search forwards in this array:
-            while (arraySearchPosition <= lastSearchPosition) {
-
-                final int safeShift = safeShifts[array[arraySearchPosition] & 0xFF];
-                if (safeShift == 0) {
-                    // see if we have a match:
-                    final long matchEndPosition = searchPosition + arraySearchPosition - arrayStartPosition;
-                    final Collection<SequenceMatcher> matches =
-                            backMatcher.allMatchesBackwards(reader, matchEndPosition);
-                    if (!matches.isEmpty()) {
-                        // See if any of the matches are within the bounds of the search:
-                        final List<SearchResult<SequenceMatcher>> results = 
-                            SearchUtils.resultsBackFromPosition(matchEndPosition, matches,
-                                                                fromPosition, toPosition);
-                        if (!results.isEmpty()) {
-                            return results;
+            if (window.hasArray()) {
+                final byte[] array = window.getArray();
+                final int arrayOffset = window.getArrayOffset();
+
+                // Search forwards in this array:
+                while (arraySearchPosition <= lastSearchPosition) {
+
+                    final int safeShift = safeShifts[array[arrayOffset + arraySearchPosition] & 0xFF];
+                    if (safeShift == 0) {
+                        // see if we have a match:
+                        final long matchEndPosition = searchPosition + arraySearchPosition - arrayStartPosition;
+                        final Collection<SequenceMatcher> matches =
+                                backMatcher.allMatchesBackwards(reader, matchEndPosition);
+                        if (!matches.isEmpty()) {
+                            // See if any of the matches are within the bounds of the search:
+                            final List<SearchResult<SequenceMatcher>> results = 
+                                SearchUtils.resultsBackFromPosition(matchEndPosition, matches,
+                                                                    fromPosition, toPosition);
+                            if (!results.isEmpty()) {
+                                return results;
+                            }
                         }
-                    }
-                    arraySearchPosition++;
-                } else {
-                    arraySearchPosition += safeShift;
+                        arraySearchPosition++;
+                    } else {
+                        arraySearchPosition += safeShift;
+                    } 
                 } 
-            } 
+            } else {
+                final ByteBuffer buffer = window.getBuffer();
+
+                // Search forwards in this array:
+                while (arraySearchPosition <= lastSearchPosition) {
+
+                    final int safeShift = safeShifts[buffer.get(arraySearchPosition) & 0xFF];
+                    if (safeShift == 0) {
+                        // see if we have a match:
+                        final long matchEndPosition = searchPosition + arraySearchPosition - arrayStartPosition;
+                        final Collection<SequenceMatcher> matches =
+                                backMatcher.allMatchesBackwards(reader, matchEndPosition);
+                        if (!matches.isEmpty()) {
+                            // See if any of the matches are within the bounds of the search:
+                            final List<SearchResult<SequenceMatcher>> results = 
+                                SearchUtils.resultsBackFromPosition(matchEndPosition, matches,
+                                                                    fromPosition, toPosition);
+                            if (!results.isEmpty()) {
+                                return results;
+                            }
+                        }
+                        arraySearchPosition++;
+                    } else {
+                        arraySearchPosition += safeShift;
+                    } 
+                } 
+            }
 
             // No match was found in this array - calculate the current search position:
             searchPosition += arraySearchPosition - arrayStartPosition;
@@ -261,6 +386,48 @@ public class WuManberOneByteTunedSearcher extends AbstractWuManberTunedSearcher
         return SearchUtils.noResults();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final ByteBuffer buffer, 
+            final int fromPosition, final int toPosition) {
+        // Get info needed to search with:
+        final SearchInfo info = backwardInfo.get();
+        final int[] safeShifts = info.shifts;
+        final MultiSequenceMatcher verifier = info.matcher;
+
+        // Calculate safe bounds for the search:
+        final int lastPosition = toPosition > 0 ?
+                                 toPosition : 0;
+        final int firstPossiblePosition = buffer.limit() - 1;
+        int searchPosition = fromPosition < firstPossiblePosition ?
+                             fromPosition : firstPossiblePosition;
+
+        // Search backwards:
+        while (searchPosition >= lastPosition) {
+
+            // Get the safe shift for this byte:
+            final int safeShift = safeShifts[buffer.get(searchPosition) & 0xFF];
+
+            // Can we shift safely?
+            if (safeShift == 0) {
+
+                // No safe shift - see if we have any matches:
+                final Collection<SequenceMatcher> matches =
+                        verifier.allMatches(buffer, searchPosition);
+                if (!matches.isEmpty()) {
+                    return SearchUtils.resultsAtPosition(searchPosition, matches);
+                }
+                searchPosition--; // no safe shift other than to advance one on.
+
+            } else { // we have a safe shift, move on:
+                searchPosition -= safeShift; 
+            }
+        }
+        return SearchUtils.noResults();
+    }
+
 
     /**
      * {@inheritDoc}
@@ -282,30 +449,56 @@ public class WuManberOneByteTunedSearcher extends AbstractWuManberTunedSearcher
                (window = reader.getWindow(searchPosition)) != null) {
 
             // Initialise the window search:
-            final byte[] array = window.getArray();
             final int arrayStartPosition = reader.getWindowOffset(searchPosition);   
             final long distanceToEnd = toPosition - window.getWindowPosition();
             final int lastSearchPosition = distanceToEnd > 0?
                                      (int) distanceToEnd : 0;
             int arraySearchPosition = arrayStartPosition;
 
-            // Search using the byte array for shifts, using the WindowReader
-            // for verifiying the sequence with the sequences:          
-            while (arraySearchPosition >= lastSearchPosition) {
+            if (window.hasArray()) {
+                final byte[] array = window.getArray();
+                final int arrayOffset = window.getArrayOffset();
 
-                final int safeShift = safeShifts[array[arraySearchPosition] & 0xFF];
-                if (safeShift == 0) {
+                // Search using the byte array for shifts, using the WindowReader
+                // for verifiying the sequence with the sequences:          
+                while (arraySearchPosition >= lastSearchPosition) {
 
-                    // The first byte matched - verify the rest of the sequences.
-                    final long startMatchPosition = searchPosition + arraySearchPosition - arrayStartPosition;
-                    final Collection<SequenceMatcher> matches = verifier.allMatches(reader, startMatchPosition);
-                    if (!matches.isEmpty()) {
-                        return SearchUtils.resultsAtPosition(startMatchPosition, matches); // match found.
+                    final int safeShift = safeShifts[array[arrayOffset + arraySearchPosition] & 0xFF];
+                    if (safeShift == 0) {
+
+                        // The first byte matched - verify the rest of the sequences.
+                        final long startMatchPosition = searchPosition + arraySearchPosition - arrayStartPosition;
+                        final Collection<SequenceMatcher> matches = verifier.allMatches(reader, startMatchPosition);
+                        if (!matches.isEmpty()) {
+                            return SearchUtils.resultsAtPosition(startMatchPosition, matches); // match found.
+                        }
+
+                        arraySearchPosition--; // no match, shift back one.
+                    } else { // No match was found - shift backward by the shift for the current byte:
+                        arraySearchPosition -= safeShift;
                     }
+                }
+            } else {
+                final ByteBuffer buffer = window.getBuffer();
+
+                // Search using the byte array for shifts, using the WindowReader
+                // for verifiying the sequence with the sequences:          
+                while (arraySearchPosition >= lastSearchPosition) {
 
-                    arraySearchPosition--; // no match, shift back one.
-                } else { // No match was found - shift backward by the shift for the current byte:
-                    arraySearchPosition -= safeShift;
+                    final int safeShift = safeShifts[buffer.get(arraySearchPosition) & 0xFF];
+                    if (safeShift == 0) {
+
+                        // The first byte matched - verify the rest of the sequences.
+                        final long startMatchPosition = searchPosition + arraySearchPosition - arrayStartPosition;
+                        final Collection<SequenceMatcher> matches = verifier.allMatches(reader, startMatchPosition);
+                        if (!matches.isEmpty()) {
+                            return SearchUtils.resultsAtPosition(startMatchPosition, matches); // match found.
+                        }
+
+                        arraySearchPosition--; // no match, shift back one.
+                    } else { // No match was found - shift backward by the shift for the current byte:
+                        arraySearchPosition -= safeShift;
+                    }
                 }
             }
 
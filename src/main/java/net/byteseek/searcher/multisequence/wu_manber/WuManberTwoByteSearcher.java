@@ -31,6 +31,7 @@
 package net.byteseek.searcher.multisequence.wu_manber;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.List;
 
@@ -85,7 +86,6 @@ public class WuManberTwoByteSearcher extends AbstractWuManberSearcher {
                (window = reader.getWindow(searchPosition)) != null) {
 
             // Initialise array search:
-            final byte[] array = window.getArray();
             final int arrayStartPosition = reader.getWindowOffset(searchPosition);
             final int arrayEndPosition = window.length() - 1;
             final long distanceToEnd = finalPosition - window.getWindowPosition();     
@@ -97,43 +97,88 @@ public class WuManberTwoByteSearcher extends AbstractWuManberSearcher {
                 //TODO: why is this here?
             }
 
-            // Search forwards in this array:
-            // Use the readByte method on the reader to get the first byte of 
-            // the block to hash, as it could be in a prior window.
-            int firstBlockByte = reader.readByte(searchPosition - 1); 
-            while (arraySearchPosition <= lastSearchPosition) {
+            if (window.hasArray()) {
+                final byte[] array = window.getArray();
+                final int arrayOffset = window.getArrayOffset();
 
-                // Calculate the hash of the current block:
-                final int lastBlockByte = array[arraySearchPosition] & 0xFF;
-                if (firstBlockByte < 0) {
-                    firstBlockByte = array[arraySearchPosition - 1] & 0xFF;
-                }
-                final int blockHash = (firstBlockByte << 5) - firstBlockByte + lastBlockByte;
-
-                // Get the safe shift for this block:
-                final int safeShift = safeShifts[blockHash & hashBitMask];
-
-                if (safeShift == 0) {
-                    // see if we have a match:
-                    final long matchEndPosition = searchPosition + arraySearchPosition - arrayStartPosition;
-                    final Collection<SequenceMatcher> matches =
-                            backMatcher.allMatchesBackwards(reader, matchEndPosition);
-                    if (!matches.isEmpty()) {
-                        // See if any of the matches are within the bounds of the search:
-                        final List<SearchResult<SequenceMatcher>> results = 
-                            SearchUtils.resultsBackFromPosition(matchEndPosition, matches,
-                                                                fromPosition, toPosition);
-                        if (!results.isEmpty()) {
-                            return results;
+                // Search forwards in this array:
+                // Use the readByte method on the reader to get the first byte of 
+                // the block to hash, as it could be in a prior window.
+                int firstBlockByte = reader.readByte(searchPosition - 1); 
+                while (arraySearchPosition <= lastSearchPosition) {
+
+                    // Calculate the hash of the current block:
+                    final int lastBlockByte = array[arrayOffset + arraySearchPosition] & 0xFF;
+                    if (firstBlockByte < 0) {
+                        firstBlockByte = array[arrayOffset + arraySearchPosition - 1] & 0xFF;
+                    }
+                    final int blockHash = (firstBlockByte << 5) - firstBlockByte + lastBlockByte;
+
+                    // Get the safe shift for this block:
+                    final int safeShift = safeShifts[blockHash & hashBitMask];
+
+                    if (safeShift == 0) {
+                        // see if we have a match:
+                        final long matchEndPosition = searchPosition + arraySearchPosition - arrayStartPosition;
+                        final Collection<SequenceMatcher> matches =
+                                backMatcher.allMatchesBackwards(reader, matchEndPosition);
+                        if (!matches.isEmpty()) {
+                            // See if any of the matches are within the bounds of the search:
+                            final List<SearchResult<SequenceMatcher>> results = 
+                                SearchUtils.resultsBackFromPosition(matchEndPosition, matches,
+                                                                    fromPosition, toPosition);
+                            if (!results.isEmpty()) {
+                                return results;
+                            }
                         }
+                        arraySearchPosition++;
+                        firstBlockByte = lastBlockByte;
+                    } else {
+                        arraySearchPosition += safeShift;
+                        firstBlockByte = -1;
+                    } 
+                } 
+            } else {
+                final ByteBuffer buffer = window.getBuffer();
+
+                // Search forwards in this array:
+                // Use the readByte method on the reader to get the first byte of 
+                // the block to hash, as it could be in a prior window.
+                int firstBlockByte = reader.readByte(searchPosition - 1); 
+                while (arraySearchPosition <= lastSearchPosition) {
+
+                    // Calculate the hash of the current block:
+                    final int lastBlockByte = buffer.get(arraySearchPosition) & 0xFF;
+                    if (firstBlockByte < 0) {
+                        firstBlockByte = buffer.get(arraySearchPosition - 1) & 0xFF;
                     }
-                    arraySearchPosition++;
-                    firstBlockByte = lastBlockByte;
-                } else {
-                    arraySearchPosition += safeShift;
-                    firstBlockByte = -1;
+                    final int blockHash = (firstBlockByte << 5) - firstBlockByte + lastBlockByte;
+
+                    // Get the safe shift for this block:
+                    final int safeShift = safeShifts[blockHash & hashBitMask];
+
+                    if (safeShift == 0) {
+                        // see if we have a match:
+                        final long matchEndPosition = searchPosition + arraySearchPosition - arrayStartPosition;
+                        final Collection<SequenceMatcher> matches =
+                                backMatcher.allMatchesBackwards(reader, matchEndPosition);
+                        if (!matches.isEmpty()) {
+                            // See if any of the matches are within the bounds of the search:
+                            final List<SearchResult<SequenceMatcher>> results = 
+                                SearchUtils.resultsBackFromPosition(matchEndPosition, matches,
+                                                                    fromPosition, toPosition);
+                            if (!results.isEmpty()) {
+                                return results;
+                            }
+                        }
+                        arraySearchPosition++;
+                        firstBlockByte = lastBlockByte;
+                    } else {
+                        arraySearchPosition += safeShift;
+                        firstBlockByte = -1;
+                    } 
                 } 
-            } 
+            }
 
             // No match was found in this array - calculate the current search position:
             searchPosition += arraySearchPosition - arrayStartPosition;
@@ -206,6 +251,69 @@ public class WuManberTwoByteSearcher extends AbstractWuManberSearcher {
         return SearchUtils.noResults();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final ByteBuffer buffer, 
+            final int fromPosition, final int toPosition) {
+        // Get info needed to search with:
+        final SearchInfo info = forwardInfo.get();
+        final int[] safeShifts = info.shifts;
+        final int hashBitMask = safeShifts.length - 1; // safe shifts is a power of two size.
+        final MultiSequenceMatcher backMatcher = info.matcher;
+
+        // Calculate safe bounds for the search:
+        final int lastPossiblePosition = buffer.limit() - 1;
+        final int lastPosition = toPosition < lastPossiblePosition ?
+                                 toPosition : lastPossiblePosition;
+        final int lastMinimumPosition = sequences.getMinimumLength() - 1;
+        // Search position will always be greater than zero, as lastMinimumPosition
+        // must be at least one (minimum length of sequences must be at least 2, enforced in constructor).
+        int searchPosition = fromPosition > 0 ?
+                             fromPosition + lastMinimumPosition : lastMinimumPosition;
+
+        // Search forwards:
+        int firstBlockByte = -1;
+        while (searchPosition <= lastPosition) {
+
+            // Calculate the hash of the current block:
+            final int lastBlockByte = buffer.get(searchPosition) & 0xFF;
+            if (firstBlockByte < 0) {
+                firstBlockByte = buffer.get(searchPosition - 1) & 0xFF;
+            }
+            final int blockHash = (firstBlockByte << 5) - firstBlockByte + lastBlockByte; 
+
+            // Get the safe shift for this block:
+            final int safeShift = safeShifts[blockHash & hashBitMask];
+
+            // Can we shift safely?
+            if (safeShift == 0) {
+
+                // No safe shift - see if we have any matches:
+                final Collection<SequenceMatcher> matches =
+                        backMatcher.allMatchesBackwards(buffer, searchPosition);
+                if (!matches.isEmpty()) {
+
+                    // See if any of the matches are within the bounds of the search:
+                    final List<SearchResult<SequenceMatcher>> results = 
+                        SearchUtils.resultsBackFromPosition(searchPosition, matches, 
+                                                            fromPosition, toPosition);
+                    if (!results.isEmpty()) {
+                        return results;
+                    }
+                }
+                searchPosition++; // no safe shift other than to advance one on.
+                firstBlockByte = lastBlockByte;
+
+            } else { // we have a safe shift, move on:
+                searchPosition += safeShift; 
+                firstBlockByte = -1;
+            }
+        }
+        return SearchUtils.noResults();
+    }
+
 
     /**
      * {@inheritDoc}
@@ -227,50 +335,94 @@ public class WuManberTwoByteSearcher extends AbstractWuManberSearcher {
                (window = reader.getWindow(searchPosition)) != null) {
 
             // Initialise array search:
-            final byte[] array = window.getArray();
             final int arrayStartPosition = reader.getWindowOffset(searchPosition);   
             final long distanceToEnd = toPosition - window.getWindowPosition();
             final int lastSearchPosition = distanceToEnd > 0?
                                      (int) distanceToEnd : 0;
             int arraySearchPosition = arrayStartPosition;
 
-            // Search backwards in this array:
-            // Use the readByte method on the reader to get the first byte of 
-            // the block to hash, as it could be in the next window.
-            int lastBlockByte = reader.readByte(searchPosition + 1); 
-            while (arraySearchPosition >= lastSearchPosition) {
+            if (window.hasArray()) {
+                final byte[] array = window.getArray();
+                final int arrayOffset = window.getArrayOffset();
 
-                // Calculate the hash of the current block:
-                final int firstBlockByte = array[arraySearchPosition] & 0xFF;
-                if (lastBlockByte < 0) {
-                    lastBlockByte = array[arraySearchPosition + 1];
-                }
-                final int blockHash = (firstBlockByte << 5) - firstBlockByte + lastBlockByte;
-
-                // Get the safe shift for this block:
-                final int safeShift = safeShifts[blockHash & hashBitMask];
-
-                if (safeShift == 0) {
-                    // see if we have a match:
-                    final long startMatchPosition = searchPosition - (arrayStartPosition - arraySearchPosition);
-                    final Collection<SequenceMatcher> matches =
-                            matcher.allMatches(reader, startMatchPosition);
-                    if (!matches.isEmpty()) {
-                        // See if any of the matches are within the bounds of the search:
-                        final List<SearchResult<SequenceMatcher>> results = 
-                            SearchUtils.resultsAtPosition(startMatchPosition, matches);
-                        if (!results.isEmpty()) {
-                            return results;
+                // Search backwards in this array:
+                // Use the readByte method on the reader to get the first byte of 
+                // the block to hash, as it could be in the next window.
+                int lastBlockByte = reader.readByte(searchPosition + 1); 
+                while (arraySearchPosition >= lastSearchPosition) {
+
+                    // Calculate the hash of the current block:
+                    final int firstBlockByte = array[arrayOffset + arraySearchPosition] & 0xFF;
+                    if (lastBlockByte < 0) {
+                        lastBlockByte = array[arrayOffset + arraySearchPosition + 1];
+                    }
+                    final int blockHash = (firstBlockByte << 5) - firstBlockByte + lastBlockByte;
+
+                    // Get the safe shift for this block:
+                    final int safeShift = safeShifts[blockHash & hashBitMask];
+
+                    if (safeShift == 0) {
+                        // see if we have a match:
+                        final long startMatchPosition = searchPosition - (arrayStartPosition - arraySearchPosition);
+                        final Collection<SequenceMatcher> matches =
+                                matcher.allMatches(reader, startMatchPosition);
+                        if (!matches.isEmpty()) {
+                            // See if any of the matches are within the bounds of the search:
+                            final List<SearchResult<SequenceMatcher>> results = 
+                                SearchUtils.resultsAtPosition(startMatchPosition, matches);
+                            if (!results.isEmpty()) {
+                                return results;
+                            }
                         }
+                        // No safe shift other than to move back one.
+                        arraySearchPosition--;
+                        lastBlockByte = firstBlockByte;
+                    } else { // shift by the safe shift backwards.
+                        arraySearchPosition -= safeShift;
+                        lastBlockByte = -1;
+                    } 
+                } 
+            } else {
+                final ByteBuffer buffer = window.getBuffer();
+
+                // Search backwards in this array:
+                // Use the readByte method on the reader to get the first byte of 
+                // the block to hash, as it could be in the next window.
+                int lastBlockByte = reader.readByte(searchPosition + 1); 
+                while (arraySearchPosition >= lastSearchPosition) {
+
+                    // Calculate the hash of the current block:
+                    final int firstBlockByte = buffer.get(arraySearchPosition) & 0xFF;
+                    if (lastBlockByte < 0) {
+                        lastBlockByte = buffer.get(arraySearchPosition + 1);
                     }
-                    // No safe shift other than to move back one.
-                    arraySearchPosition--;
-                    lastBlockByte = firstBlockByte;
-                } else { // shift by the safe shift backwards.
-                    arraySearchPosition -= safeShift;
-                    lastBlockByte = -1;
+                    final int blockHash = (firstBlockByte << 5) - firstBlockByte + lastBlockByte;
+
+                    // Get the safe shift for this block:
+                    final int safeShift = safeShifts[blockHash & hashBitMask];
+
+                    if (safeShift == 0) {
+                        // see if we have a match:
+                        final long startMatchPosition = searchPosition - (arrayStartPosition - arraySearchPosition);
+                        final Collection<SequenceMatcher> matches =
+                                matcher.allMatches(reader, startMatchPosition);
+                        if (!matches.isEmpty()) {
+                            // See if any of the matches are within the bounds of the search:
+                            final List<SearchResult<SequenceMatcher>> results = 
+                                SearchUtils.resultsAtPosition(startMatchPosition, matches);
+                            if (!results.isEmpty()) {
+                                return results;
+                            }
+                        }
+                        // No safe shift other than to move back one.
+                        arraySearchPosition--;
+                        lastBlockByte = firstBlockByte;
+                    } else { // shift by the safe shift backwards.
+                        arraySearchPosition -= safeShift;
+                        lastBlockByte = -1;
+                    } 
                 } 
-            } 
+            }
 
             // No match was found in this array - calculate the current search position:
             searchPosition -= (arrayStartPosition - arraySearchPosition);
@@ -328,6 +480,56 @@ public class WuManberTwoByteSearcher extends AbstractWuManberSearcher {
             }
         }
         return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final ByteBuffer buffer, int fromPosition, int toPosition) {
+        // Get info needed to search with:
+        final SearchInfo info = backwardInfo.get();
+        final int[] safeShifts = info.shifts;
+        final MultiSequenceMatcher verifier = info.matcher;
+        final int hashBitMask = safeShifts.length - 1; // safe shifts is a power of two size.
+
+        // Calculate safe bounds for the search:
+        final int finalPosition = toPosition > 0 ?
+                                  toPosition : 0;
+        final int lastPossiblePosition = buffer.limit() - sequences.getMinimumLength();
+        int searchPosition = fromPosition < lastPossiblePosition ?
+                             fromPosition : lastPossiblePosition;
+
+        // Search backwards:
+        int lastBlockByte = -1; 
+        while (searchPosition >= finalPosition) {
+
+            // Get the safe shift for this byte:
+            final int firstBlockByte = buffer.get(searchPosition) & 0xFF;
+            if (lastBlockByte < 0) {
+                lastBlockByte = buffer.get(searchPosition + 1) & 0xFF;
+            }
+            final int blockHash = (firstBlockByte << 5) - firstBlockByte + lastBlockByte; 
+            final int safeShift = safeShifts[blockHash & hashBitMask];
+
+            // Can we shift safely?
+            if (safeShift == 0) {
+
+                // No safe shift - see if we have any matches:
+                final Collection<SequenceMatcher> matches =
+                        verifier.allMatches(buffer, searchPosition);
+                if (!matches.isEmpty()) {
+                    return SearchUtils.resultsAtPosition(searchPosition, matches);
+                }
+                searchPosition--; // no safe shift other than to advance one on.
+                lastBlockByte = firstBlockByte;
+
+            } else { // we have a safe shift, move on:
+                searchPosition -= safeShift; 
+                lastBlockByte = -1;
+            }
+        }
+        return SearchUtils.noResults();
     }    
     
     @Override
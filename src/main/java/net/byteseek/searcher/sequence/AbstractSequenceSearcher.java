@@ -32,6 +32,7 @@
 package net.byteseek.searcher.sequence;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import net.byteseek.io.reader.Window;
@@ -49,7 +50,7 @@ import net.byteseek.searcher.SearchUtils;
  * <li>{@link #searchBackwards(net.byteseek.io.reader.WindowReader, long, long)}
  * </ul>
  * These allocate searching for sequences efficiently between searching in the
- * byte arrays provided by {@link Window}s when the sequence fits in a single window,
+ * byte arrays (or ByteBuffers) provided by {@link Window}s when the sequence fits in a single window,
  * only using the less efficient reader interface on the sequence for times when
  * the sequence crosses over Window boundaries.
  * <p>
@@ -141,13 +142,15 @@ public abstract class AbstractSequenceSearcher extends AbstractSearcher<Sequence
                 final int arrayMaxPosition = distanceToEnd < lastMatchingPosition?
                                        (int) distanceToEnd : lastMatchingPosition; 
                         
-                // Search forwards in the byte array of the window:
-                final List<SearchResult<SequenceMatcher>> arrayResult = 
-                    searchForwards(window.getArray(), arrayStartPosition, arrayMaxPosition);
+                // Search forwards in the byte array or buffer of the window:
+                final int arrayOffset = window.getArrayOffset();
+                final List<SearchResult<SequenceMatcher>> arrayResult = window.hasArray()?
+                    searchForwards(window.getArray(), arrayStartPosition + arrayOffset, arrayMaxPosition + arrayOffset) :
+                    searchForwards(window.getBuffer(), arrayStartPosition, arrayMaxPosition);
 
                 // Did we find a match?
                 if (!arrayResult.isEmpty()) {
-                    final long readerPositionOffset = searchPosition - arrayStartPosition;
+                    final long readerPositionOffset = searchPosition - arrayStartPosition - arrayOffset;
                     return SearchUtils.addPositionToResults(arrayResult, readerPositionOffset);
                 }
                 
@@ -186,6 +189,36 @@ public abstract class AbstractSequenceSearcher extends AbstractSearcher<Sequence
     }
 
     
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This default implementation tries to match the sequence at each position
+     * in the buffer in turn.  Subclasses can override it to apply their search
+     * algorithm directly to ByteBuffers, which is the case for windows which
+     * are not backed by a byte array.
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final ByteBuffer buffer, 
+            final int fromPosition, final int toPosition) {
+        // Calculate safe bounds for the search:
+        final SequenceMatcher theMatcher = matcher;
+        final int lastPossiblePosition = buffer.limit() - theMatcher.length();
+        final int finalPosition = toPosition < lastPossiblePosition?
+                                  toPosition : lastPossiblePosition;
+        int searchPosition = fromPosition > 0?
+                             fromPosition : 0;
+        
+        // Search forwards:
+        while (searchPosition <= finalPosition) {
+            if (theMatcher.matches(buffer, searchPosition)) {
+                return SearchUtils.singleResult(searchPosition, theMatcher);
+            }
+            searchPosition++;
+        }
+        return SearchUtils.noResults();
+    }
+    
+    
     /**
      * This method searches forwards crossing window boundaries.  It is
      * called by the {@link #searchForwards(net.byteseek.io.reader.WindowReader, long, long)}
@@ -256,15 +289,19 @@ public abstract class AbstractSequenceSearcher extends AbstractSearcher<Sequence
                 final int arrayEndSearchPosition = endOfSearchRelativeToWindow > 0?
                                              (int) endOfSearchRelativeToWindow : 0; 
                         
-                // Search backwards in the byte array of the window:
-                final List<SearchResult<SequenceMatcher>> arrayResults = 
+                // Search backwards in the byte array or buffer of the window:
+                final int arrayOffset = window.getArrayOffset();
+                final List<SearchResult<SequenceMatcher>> arrayResults = window.hasArray()?
                         searchBackwards(window.getArray(), 
+                                        arrayStartSearchPosition + arrayOffset, 
+                                        arrayEndSearchPosition + arrayOffset) :
+                        searchBackwards(window.getBuffer(), 
                                         arrayStartSearchPosition, 
                                         arrayEndSearchPosition);
                 
                 // Did we find any matches?
                 if (!arrayResults.isEmpty()) {
-                    final long readerOffset = searchPosition - arrayStartSearchPosition;
+                    final long readerOffset = searchPosition - arrayStartSearchPosition - arrayOffset;
                     return SearchUtils.addPositionToResults(arrayResults, readerOffset);
                 }
                 
@@ -313,6 +350,36 @@ public abstract class AbstractSequenceSearcher extends AbstractSearcher<Sequence
     }
     
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This default implementation tries to match the sequence at each position
+     * in the buffer in turn.  Subclasses can override it to apply their search
+     * algorithm directly to ByteBuffers, which is the case for windows which
+     * are not backed by a byte array.
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final ByteBuffer buffer, 
+            final int fromPosition, final int toPosition) {
+        // Calculate safe bounds for the search:
+        final SequenceMatcher theMatcher = matcher;
+        final int firstPossiblePosition = buffer.limit() - theMatcher.length();
+        int searchPosition = fromPosition < firstPossiblePosition?
+                             fromPosition : firstPossiblePosition;
+        final int finalPosition = toPosition > 0?
+                                  toPosition : 0;
+        
+        // Search backwards:
+        while (searchPosition >= finalPosition) {
+            if (theMatcher.matches(buffer, searchPosition)) {
+                return SearchUtils.singleResult(searchPosition, theMatcher);
+            }
+            searchPosition--;
+        }
+        return SearchUtils.noResults();
+    }
+    
+
    /**
      * This abstract method searches backwards crossing window boundaries.  It is
      * called by the {@link #searchBackwards(net.byteseek.io.reader.WindowReader, long, long)}
@@ -32,6 +32,7 @@
 package net.byteseek.searcher.sequence.horspool;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 
@@ -173,13 +174,63 @@ public final class HorspoolFinalFlagSearcher extends AbstractSequenceSearcher {
             searchPosition -= shift;
         }
         
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final ByteBuffer buffer, final int fromPosition, final int toPosition) {
+        
+        // Get the objects needed to search:
+        final SearchInfo info = forwardInfo.get();
+        final int[] safeShifts = info.shifts;
+        final SequenceMatcher verifier = info.verifier;
+        
+        // Calculate safe bounds for the start of the search:
+        final int lastMatcherPosition = getMatcher().length() - 1;                
+        int searchPosition = fromPosition > 0?
+                             fromPosition + lastMatcherPosition : lastMatcherPosition;
+        
+        // Calculate safe bounds for the end of the search:
+        final int lastPossiblePosition = buffer.limit() - 1;
+        final int lastPossibleSearchPosition = toPosition + lastMatcherPosition;
+        final int finalPosition = lastPossibleSearchPosition < lastPossiblePosition?
+                                  lastPossibleSearchPosition : lastPossiblePosition;
+        
+        // Search forwards:
+        while (searchPosition <= finalPosition) {
+            
+            // Shift forward until there is a negative shift or we run out of
+            // search space.
+            int shift = safeShifts[buffer.get(searchPosition) & 0xFF];
+            while (shift > 0) {
+                searchPosition += shift;
+                if (searchPosition > finalPosition) {
+                    return SearchUtils.noResults();
+                }
+                shift = safeShifts[buffer.get(searchPosition) & 0xFF];
+            }
+            
+            // The last byte matched - verify there is a complete match:
+            final int startMatchPosition = searchPosition - lastMatcherPosition;
+            if (verifier.matches(buffer, startMatchPosition)) {
+                return SearchUtils.singleResult(startMatchPosition, matcher); // match found.
+            }
+            
+            // No match was found - shift forward by the next closest shift for
+            // the current byte. Subtract because the shift is negative.
+            searchPosition -= shift;
+        }
+        
         return SearchUtils.noResults();
     }    
         
     
     /**
      * Searches forward using the Boyer Moore Horspool algorithm, using 
-     * byte arrays from Windows to handle shifting, and the WindowReader interface
+     * the bytes of Windows to handle shifting, and the WindowReader interface
      * on the SequenceMatcher to verify whether a match exists.
      */
     @Override
@@ -202,7 +253,6 @@ public final class HorspoolFinalFlagSearcher extends AbstractSequenceSearcher {
                (window = reader.getWindow(searchPosition)) != null) {
             
             // Initialise array search:
-            final byte[] array = window.getArray();
             final int arrayStartPosition = reader.getWindowOffset(searchPosition);
             final int arrayEndPosition = window.length() - 1;
             final int lastMatcherPosition = matcher.length() - 1;
@@ -211,31 +261,64 @@ public final class HorspoolFinalFlagSearcher extends AbstractSequenceSearcher {
                                      (int) distanceToEnd : arrayEndPosition;
             int arraySearchPosition = arrayStartPosition;            
                         
-            // Search forwards in this array:
-            ARRAY_SEARCH: while (arraySearchPosition <= lastSearchPosition) {
-
-                // Shift forward until there is a negative shift or we run out of
-                // search space.
-                int shift = safeShifts[array[arraySearchPosition] & 0xFF];
-                while (shift > 0) {
-                    arraySearchPosition += shift;
-                    if (arraySearchPosition > lastSearchPosition) {
-                        break ARRAY_SEARCH; // outside the array, move on.
+            if (window.hasArray()) {
+                final byte[] array = window.getArray();
+                final int arrayOffset = window.getArrayOffset();
+
+                // Search forwards in this array:
+                ARRAY_SEARCH: while (arraySearchPosition <= lastSearchPosition) {
+
+                    // Shift forward until there is a negative shift or we run out of
+                    // search space.
+                    int shift = safeShifts[array[arrayOffset + arraySearchPosition] & 0xFF];
+                    while (shift > 0) {
+                        arraySearchPosition += shift;
+                        if (arraySearchPosition > lastSearchPosition) {
+                            break ARRAY_SEARCH; // outside the array, move on.
+                        }
+                        shift = safeShifts[array[arrayOffset + arraySearchPosition] & 0xFF];
                     }
-                    shift = safeShifts[array[arraySearchPosition] & 0xFF];
-                }
                  
-                // The last byte matched - verify there is a complete match:
-                final long totalShift = arraySearchPosition - arrayStartPosition;
-                final long matchPosition = searchPosition + totalShift - endSequencePosition;
-                if (verifier.matches(reader, matchPosition)) {
-                    return SearchUtils.singleResult(matchPosition, matcher); // match found.
-                }
+                    // The last byte matched - verify there is a complete match:
+                    final long totalShift = arraySearchPosition - arrayStartPosition;
+                    final long matchPosition = searchPosition + totalShift - endSequencePosition;
+                    if (verifier.matches(reader, matchPosition)) {
+                        return SearchUtils.singleResult(matchPosition, matcher); // match found.
+                    }
+                
+                    // No match was found - shift forward by the next closest shift for
+                    // the current byte. Subtract because the shift is negative.
+                    arraySearchPosition -= shift;
+                } 
+            } else {
+                final ByteBuffer buffer = window.getBuffer();
+
+                // Search forwards in this array:
+                ARRAY_SEARCH: while (arraySearchPosition <= lastSearchPosition) {
+
+                    // Shift forward until there is a negative shift or we run out of
+                    // search space.
+                    int shift = safeShifts[buffer.get(arraySearchPosition) & 0xFF];
+                    while (shift > 0) {
+                        arraySearchPosition += shift;
+                        if (arraySearchPosition > lastSearchPosition) {
+                            break ARRAY_SEARCH; // outside the array, move on.
+                        }
+                        shift = safeShifts[buffer.get(arraySearchPosition) & 0xFF];
+                    }
+                 
+                    // The last byte matched - verify there is a complete match:
+                    final long totalShift = arraySearchPosition - arrayStartPosition;
+                    final long matchPosition = searchPosition + totalShift - endSequencePosition;
+                    if (verifier.matches(reader, matchPosition)) {
+                        return SearchUtils.singleResult(matchPosition, matcher); // match found.
+                    }
                 
-                // No match was found - shift forward by the next closest shift for
-                // the current byte. Subtract because the shift is negative.
-                arraySearchPosition -= shift;
-            } 
+                    // No match was found - shift forward by the next closest shift for
+                    // the current byte. Subtract because the shift is negative.
+                    arraySearchPosition -= shift;
+                } 
+            }
             
             // No match was found in this array - calculate the current search position:
             searchPosition += arraySearchPosition - arrayStartPosition;
@@ -294,6 +377,55 @@ public final class HorspoolFinalFlagSearcher extends AbstractSequenceSearcher {
         return SearchUtils.noResults();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final ByteBuffer buffer, final int fromPosition, final int toPosition) {
+        
+        // Get objects needed for the search:
+        final SearchInfo info = backwardInfo.get();
+        final int[] safeShifts = info.shifts;
+        final SequenceMatcher verifier = info.verifier;
+        
+        // Calculate safe bounds for the start of the search:
+        final int firstPossiblePosition = buffer.limit() - getMatcher().length();        
+        int searchPosition = fromPosition < firstPossiblePosition?
+                             fromPosition : firstPossiblePosition;
+        
+        // Calculate safe bounds for the end of the search:
+        final int lastPosition = toPosition > 0?
+                                 toPosition : 0;
+        
+        // Search backwards:
+        while (searchPosition >= lastPosition) {
+            
+            // Shift backwards until there is a negative shift or we run out of
+            // search space.
+            int shift = safeShifts[buffer.get(searchPosition) & 0xFF];
+            while (shift > 0) {
+                searchPosition -= shift;
+                if (searchPosition < lastPosition) {
+                    return SearchUtils.noResults();
+                }
+                shift = safeShifts[buffer.get(searchPosition) & 0xFF];
+            }
+            
+            // The first byte matched - verify there is a complete match:
+            // A null verifier means we don't need a verifier, as the sequence
+            // is only one byte long - which we have just matched above.
+            if (verifier == null || verifier.matches(buffer, searchPosition + 1)) {
+                return SearchUtils.singleResult(searchPosition, matcher); // match found.
+            }
+
+            // No match was found - shift backward by the shift for the current byte.
+            // We add the shift, because it is negative.
+            searchPosition += shift;     
+        }
+        
+        return SearchUtils.noResults();
+    }
+
     
     /**
      * {@inheritDoc}
@@ -314,40 +446,75 @@ public final class HorspoolFinalFlagSearcher extends AbstractSequenceSearcher {
                (window = reader.getWindow(searchPosition))!= null) {
             
             // Initialise the window search:
-            final byte[] array = window.getArray();
             final int arrayStartPosition = reader.getWindowOffset(searchPosition);   
             final long distanceToEnd = toPosition - window.getWindowPosition();
             final int lastSearchPosition = distanceToEnd > 0?
                                      (int) distanceToEnd : 0;
             int arraySearchPosition = arrayStartPosition;
             
-            // Search using the byte array for shifts, using the WindowReader
-            // for verifiying the sequence with the matcher:          
-            ARRAY_SEARCH: while (arraySearchPosition >= lastSearchPosition) {
+            if (window.hasArray()) {
+                final byte[] array = window.getArray();
+                final int arrayOffset = window.getArrayOffset();
+
+                // Search using the byte array for shifts, using the WindowReader
+                // for verifiying the sequence with the matcher:          
+                ARRAY_SEARCH: while (arraySearchPosition >= lastSearchPosition) {
                 
-                // Shift backward until there is a negative shift or we run out of
-                // search space.
-                int shift = safeShifts[array[arraySearchPosition] & 0xFF];
-                while (shift > 0) {
-                    arraySearchPosition -= shift;
-                    if (arraySearchPosition < lastSearchPosition) {
-                        break ARRAY_SEARCH; // outside the array, move on.
+                    // Shift backward until there is a negative shift or we run out of
+                    // search space.
+                    int shift = safeShifts[array[arrayOffset + arraySearchPosition] & 0xFF];
+                    while (shift > 0) {
+                        arraySearchPosition -= shift;
+                        if (arraySearchPosition < lastSearchPosition) {
+                            break ARRAY_SEARCH; // outside the array, move on.
+                        }
+                        shift = safeShifts[array[arrayOffset + arraySearchPosition] & 0xFF];
+                    }
+                
+                    // The first byte matched - verify there is a complete match:
+                    // A null verifier means we don't need a verifier, as the sequence
+                    // is only one byte long - which we have just matched above.
+                    final int totalShift = arrayStartPosition - arraySearchPosition;
+                    final long startMatchPosition = searchPosition - totalShift;
+                    if (verifier == null || verifier.matches(reader, startMatchPosition + 1)) {
+                        return SearchUtils.singleResult(startMatchPosition, matcher); // match found.
                     }
-                    shift = safeShifts[array[arraySearchPosition] & 0xFF];
-                }
                 
-                // The first byte matched - verify there is a complete match:
-                // A null verifier means we don't need a verifier, as the sequence
-                // is only one byte long - which we have just matched above.
-                final int totalShift = arrayStartPosition - arraySearchPosition;
-                final long startMatchPosition = searchPosition - totalShift;
-                if (verifier == null || verifier.matches(reader, startMatchPosition + 1)) {
-                    return SearchUtils.singleResult(startMatchPosition, matcher); // match found.
+                    // No match was found - shift backward by the shift for the current byte.
+                    // We add the shift, because it is negative.
+                    arraySearchPosition += shift;                
                 }
+            } else {
+                final ByteBuffer buffer = window.getBuffer();
+
+                // Search using the byte array for shifts, using the WindowReader
+                // for verifiying the sequence with the matcher:          
+                ARRAY_SEARCH: while (arraySearchPosition >= lastSearchPosition) {
+                
+                    // Shift backward until there is a negative shift or we run out of
+                    // search space.
+                    int shift = safeShifts[buffer.get(arraySearchPosition) & 0xFF];
+                    while (shift > 0) {
+                        arraySearchPosition -= shift;
+                        if (arraySearchPosition < lastSearchPosition) {
+                            break ARRAY_SEARCH; // outside the array, move on.
+                        }
+                        shift = safeShifts[buffer.get(arraySearchPosition) & 0xFF];
+                    }
                 
-                // No match was found - shift backward by the shift for the current byte.
-                // We add the shift, because it is negative.
-                arraySearchPosition += shift;                
+                    // The first byte matched - verify there is a complete match:
+                    // A null verifier means we don't need a verifier, as the sequence
+                    // is only one byte long - which we have just matched above.
+                    final int totalShift = arrayStartPosition - arraySearchPosition;
+                    final long startMatchPosition = searchPosition - totalShift;
+                    if (verifier == null || verifier.matches(reader, startMatchPosition + 1)) {
+                        return SearchUtils.singleResult(startMatchPosition, matcher); // match found.
+                    }
+                
+                    // No match was found - shift backward by the shift for the current byte.
+                    // We add the shift, because it is negative.
+                    arraySearchPosition += shift;                
+                }
             }
             
             // No match was found in this array - calculate the current search position:
@@ -32,6 +32,7 @@
 package net.byteseek.searcher.sequence.sunday;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 
@@ -104,6 +105,44 @@ public final class SundayQuickSearcher extends AbstractSequenceSearcher {
             return SearchUtils.singleResult(finalPosition, sequence);
         }
 
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final ByteBuffer buffer, final int fromPosition, final int toPosition) {
+        
+        // Get the objects needed to search:
+        final int[] safeShifts = forwardInfo.get();
+        final SequenceMatcher sequence = getMatcher();
+        
+        // Calculate safe bounds for the search:
+        final int length = sequence.length();
+        final int finalPosition = buffer.limit() - length;
+        final int lastLoopPosition = finalPosition - 1;
+        final int lastPosition = toPosition < lastLoopPosition?
+                                 toPosition : lastLoopPosition;
+        int searchPosition = fromPosition > 0?
+                             fromPosition : 0;
+
+        // Search forwards.  The loop does not check for the final
+        // position, as we shift on the byte after the sequence.
+        while (searchPosition <= lastPosition) {
+            if (sequence.matches(buffer, searchPosition)) {
+                return SearchUtils.singleResult(searchPosition, sequence);
+            }
+            searchPosition += safeShifts[buffer.get(searchPosition + length) & 0xFF];
+        }
+        
+        // Check the final position if necessary:
+        if (searchPosition == finalPosition && 
+            toPosition     >= finalPosition &&
+            sequence.matches(buffer, finalPosition)) {
+            return SearchUtils.singleResult(finalPosition, sequence);
+        }
+
         return SearchUtils.noResults();
     }        
     
@@ -130,7 +169,6 @@ public final class SundayQuickSearcher extends AbstractSequenceSearcher {
                (window = reader.getWindow(searchPosition + length)) != null) {
             
             // Initialise array search:
-            final byte[] array = window.getArray();
             final int arrayStartPosition = reader.getWindowOffset(searchPosition + length);
             final int arrayEndPosition = window.length() - 1;
             final long distanceToEnd = toPosition - window.getWindowPosition() + length ;
@@ -138,25 +176,53 @@ public final class SundayQuickSearcher extends AbstractSequenceSearcher {
                                 (int) distanceToEnd : arrayEndPosition;
             int arraySearchPosition = arrayStartPosition;
             
-            // Search fowards in the array using the reader interface to match.
-            // The loop does not check the final position, as we shift on the byte
-            // after the sequence (so would get an IndexOutOfBoundsException in the final position).
-            while (arraySearchPosition < finalPosition) {
-                if (sequence.matches(reader, searchPosition)) {
-                    return SearchUtils.singleResult(searchPosition, sequence);
+            if (window.hasArray()) {
+                final byte[] array = window.getArray();
+                final int arrayOffset = window.getArrayOffset();
+
+                // Search fowards in the array using the reader interface to match.
+                // The loop does not check the final position, as we shift on the byte
+                // after the sequence (so would get an IndexOutOfBoundsException in the final position).
+                while (arraySearchPosition < finalPosition) {
+                    if (sequence.matches(reader, searchPosition)) {
+                        return SearchUtils.singleResult(searchPosition, sequence);
+                    }
+                    final int shift = safeShifts[array[arrayOffset + arraySearchPosition] & 0xFF];
+                    searchPosition += shift;
+                    arraySearchPosition += shift;
+                }
+
+                // Check final position if necessary:
+                if (arraySearchPosition == finalPosition ||
+                    searchPosition == toPosition) {
+                    if (sequence.matches(reader, searchPosition)) {
+                        return SearchUtils.singleResult(searchPosition, sequence);
+                    }
+                    searchPosition += safeShifts[array[arrayOffset + arraySearchPosition] & 0xFF];
+                }
+            } else {
+                final ByteBuffer buffer = window.getBuffer();
+
+                // Search fowards in the array using the reader interface to match.
+                // The loop does not check the final position, as we shift on the byte
+                // after the sequence (so would get an IndexOutOfBoundsException in the final position).
+                while (arraySearchPosition < finalPosition) {
+                    if (sequence.matches(reader, searchPosition)) {
+                        return SearchUtils.singleResult(searchPosition, sequence);
+                    }
+                    final int shift = safeShifts[buffer.get(arraySearchPosition) & 0xFF];
+                    searchPosition += shift;
+                    arraySearchPosition += shift;
                 }
-                final int shift = safeShifts[array[arraySearchPosition] & 0xFF];
-                searchPosition += shift;
-                arraySearchPosition += shift;
-            }
 
-            // Check final position if necessary:
-            if (arraySearchPosition == finalPosition ||
-                searchPosition == toPosition) {
-                if (sequence.matches(reader, searchPosition)) {
-                    return SearchUtils.singleResult(searchPosition, sequence);
+                // Check final position if necessary:
+                if (arraySearchPosition == finalPosition ||
+                    searchPosition == toPosition) {
+                    if (sequence.matches(reader, searchPosition)) {
+                        return SearchUtils.singleResult(searchPosition, sequence);
+                    }
+                    searchPosition += safeShifts[buffer.get(arraySearchPosition) & 0xFF];
                 }
-                searchPosition += safeShifts[array[arraySearchPosition] & 0xFF];
             }
         }
 
@@ -200,6 +266,43 @@ public final class SundayQuickSearcher extends AbstractSequenceSearcher {
 
         return SearchUtils.noResults();
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final ByteBuffer buffer, final int fromPosition, final int toPosition) {
+        
+        // Get objects needed to search:
+        final int[] safeShifts = backwardInfo.get();
+        final SequenceMatcher sequence = getMatcher();
+        
+        // Calculate safe bounds for the search:
+        final int lastLoopPosition = toPosition > 1?
+                                     toPosition : 1;
+        final int firstPossiblePosition = buffer.limit() - sequence.length();
+        int searchPosition = fromPosition < firstPossiblePosition ?
+                             fromPosition : firstPossiblePosition;
+        
+        // Search backwards.  The loop does not check the
+        // first position in the array, because we shift on the byte
+        // immediately before the current search position.
+        while (searchPosition >= lastLoopPosition) {
+            if (sequence.matches(buffer, searchPosition)) {
+                return SearchUtils.singleResult(searchPosition, sequence);
+            }
+            searchPosition -= safeShifts[buffer.get(searchPosition - 1) & 0xFF];             
+        }
+        
+        // Check for first position if necessary:
+        if (searchPosition == 0 &&
+            toPosition < 1 &&
+            sequence.matches(buffer, 0)) {
+            return SearchUtils.singleResult(0, sequence);
+        }
+
+        return SearchUtils.noResults();
+    }
     
     
     /**
@@ -223,7 +326,6 @@ public final class SundayQuickSearcher extends AbstractSequenceSearcher {
                (window = reader.getWindow(searchPosition - 1)) != null) {
             
             // Initialise array search:
-            final byte[] array = window.getArray();
             final int arrayStartPosition = reader.getWindowOffset(searchPosition - 1);
             
             // Search to the beginning of the array, or the final search position,
@@ -233,25 +335,53 @@ public final class SundayQuickSearcher extends AbstractSequenceSearcher {
                                          (int) endRelativeToWindow : 0;
             int arraySearchPosition = arrayStartPosition;
             
-            // Search backwards in the array using the reader interface to match.
-            // The loop does not check the final position, as we shift on the byte
-            // before it.
-            while (arraySearchPosition > arrayEndSearchPosition) {
-                if (sequence.matches(reader, searchPosition)) {
-                    return SearchUtils.singleResult(searchPosition, sequence);
+            if (window.hasArray()) {
+                final byte[] array = window.getArray();
+                final int arrayOffset = window.getArrayOffset();
+
+                // Search backwards in the array using the reader interface to match.
+                // The loop does not check the final position, as we shift on the byte
+                // before it.
+                while (arraySearchPosition > arrayEndSearchPosition) {
+                    if (sequence.matches(reader, searchPosition)) {
+                        return SearchUtils.singleResult(searchPosition, sequence);
+                    }
+                    final int shift = safeShifts[array[arrayOffset + arraySearchPosition] & 0xFF];
+                    searchPosition -= shift;
+                    arraySearchPosition -= shift;
+                }
+
+                // Check final position if necessary:
+                if (arraySearchPosition == arrayEndSearchPosition ||
+                    searchPosition == toPosition) {
+                    if (sequence.matches(reader, searchPosition)) {
+                        return SearchUtils.singleResult(searchPosition, sequence);
+                    }
+                    searchPosition -= safeShifts[array[arrayOffset + arraySearchPosition] & 0xFF];
+                }
+            } else {
+                final ByteBuffer buffer = window.getBuffer();
+
+                // Search backwards in the array using the reader interface to match.
+                // The loop does not check the final position, as we shift on the byte
+                // before it.
+                while (arraySearchPosition > arrayEndSearchPosition) {
+                    if (sequence.matches(reader, searchPosition)) {
+                        return SearchUtils.singleResult(searchPosition, sequence);
+                    }
+                    final int shift = safeShifts[buffer.get(arraySearchPosition) & 0xFF];
+                    searchPosition -= shift;
+                    arraySearchPosition -= shift;
                 }
-                final int shift = safeShifts[array[arraySearchPosition] & 0xFF];
-                searchPosition -= shift;
-                arraySearchPosition -= shift;
-            }
 
-            // Check final position if necessary:
-            if (arraySearchPosition == arrayEndSearchPosition ||
-                searchPosition == toPosition) {
-                if (sequence.matches(reader, searchPosition)) {
-                    return SearchUtils.singleResult(searchPosition, sequence);
+                // Check final position if necessary:
+                if (arraySearchPosition == arrayEndSearchPosition ||
+                    searchPosition == toPosition) {
+                    if (sequence.matches(reader, searchPosition)) {
+                        return SearchUtils.singleResult(searchPosition, sequence);
+                    }
+                    searchPosition -= safeShifts[buffer.get(arraySearchPosition) & 0xFF];
                 }
-                searchPosition -= safeShifts[array[arraySearchPosition] & 0xFF];
             }
         }
         
@@ -0,0 +1,220 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+
+public class ByteBufferReaderTest {
+
+	private static byte[] contents;
+
+	@BeforeClass
+	public static void readContents() throws IOException {
+		contents = Files.readAllBytes(new File(ByteBufferReaderTest.class.getResource("/TestASCII.txt").getPath()).toPath());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullBuffers() {
+		new ByteBufferReader((List<ByteBuffer>) null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullBuffer() {
+		new ByteBufferReader(ByteBuffer.allocate(1), null);
+	}
+
+	@Test
+	public void testEmpty() {
+		final ByteBufferReader reader = new ByteBufferReader(ByteBuffer.allocate(0));
+		assertEquals("length", 0, reader.length());
+		assertEquals("no byte", -1, reader.readByte(0));
+		assertNull("no window", reader.getWindow(0));
+	}
+
+	@Test
+	public void testReadBytes() {
+		final ByteBufferReader reader = createReader();
+		assertEquals("length", contents.length, reader.length());
+		for (int position = 0; position < contents.length; position++) {
+			if (reader.readByte(position) != (contents[position] & 0xFF)) {
+				assertEquals("Position " + position, contents[position] & 0xFF, reader.readByte(position));
+			}
+		}
+		assertEquals("Before start", -1, reader.readByte(-1));
+		assertEquals("After end", -1, reader.readByte(contents.length));
+		assertNull("No window after end", reader.getWindow(contents.length));
+	}
+
+	@Test
+	public void testWindowPerBuffer() {
+		final ByteBufferReader reader = createReader();
+		long position = 0;
+		int heapWindows = 0;
+		while (position < contents.length) {
+			final Window window = reader.getWindow(position);
+			assertEquals("Window position", position, window.getWindowPosition());
+			assertEquals("Offset at start", 0, reader.getWindowOffset(position));
+			assertSame("Same window at end", window, reader.getWindow(position + window.length() - 1));
+			assertEquals("Offset at end", window.length() - 1, reader.getWindowOffset(position + window.length() - 1));
+			if (window.hasArray()) {
+				heapWindows++;
+			}
+			position += window.length();
+		}
+		assertTrue("Heap buffers use their arrays", heapWindows > 0);
+	}
+
+	@Test
+	public void testHeapBufferWithPositionUsesArrayOffset() {
+		final byte[] array = new byte[20];
+		for (int index = 0; index < array.length; index++) {
+			array[index] = (byte) index;
+		}
+		final ByteBuffer buffer = ByteBuffer.wrap(array);
+		buffer.position(7);
+		buffer.limit(15);
+		final Window window = new ByteBufferReader(buffer).getWindow(0);
+		assertTrue("Window has an array", window.hasArray());
+		assertSame("Backing array not copied", array, window.getArray());
+		assertEquals("Array offset", 7, window.getArrayOffset());
+		assertEquals("Length", 8, window.length());
+		for (int index = 0; index < window.length(); index++) {
+			assertEquals("Byte " + index, (byte) (index + 7), window.getByte(index));
+			assertEquals("Array byte " + index, (byte) (index + 7), array[window.getArrayOffset() + index]);
+		}
+	}
+
+	@Test
+	public void testBuffersNotCopied() {
+		final ByteBuffer buffer = ByteBuffer.allocate(10);
+		final ByteBufferReader reader = new ByteBufferReader(buffer);
+		buffer.put(3, (byte) 42);
+		buffer.position(5);
+		assertEquals("Sees changes to contents", 42, reader.readByte(3));
+		assertEquals("Ignores later position changes", 10, reader.length());
+	}
+
+	@Test
+	public void testSearchAcrossBuffers() throws IOException {
+		final ByteBufferReader wholeReader = new ByteBufferReader(ByteBuffer.wrap(contents));
+		for (final String pattern : new String[] { "the", "Enter", "Exit" }) {
+			final Searcher<?> searcher = new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher(pattern));
+			final List<Long> expected = searchAllForwards(searcher, wholeReader);
+			assertFalse("There are matches for " + pattern, expected.isEmpty());
+			final ByteBufferReader reader = createReader();
+			assertEquals("Forward matches for " + pattern, expected, searchAllForwards(searcher, reader));
+			assertEquals("Last match for " + pattern,
+					searcher.searchBackwards(wholeReader).get(0).getMatchPosition(),
+					searcher.searchBackwards(reader).get(0).getMatchPosition());
+		}
+	}
+
+	@Test
+	public void testMatchSpanningBuffers() throws IOException {
+		final ByteBuffer direct = ByteBuffer.allocateDirect(1);
+		direct.put((byte) 'd');
+		direct.flip();
+		final ByteBufferReader reader = new ByteBufferReader(ByteBuffer.wrap("abc".getBytes()), direct,
+				ByteBuffer.allocate(0), ByteBuffer.wrap("xxefg".getBytes(), 2, 3));
+		assertTrue("Matches across buffers", new ByteSequenceMatcher("bcdef").matches(reader, 1));
+		assertFalse("No match past the end", new ByteSequenceMatcher("fgh").matches(reader, 5));
+	}
+
+	/*
+	 * Splits the contents into heap, direct and offset heap buffers of varying sizes.
+	 */
+	private ByteBufferReader createReader() {
+		final List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+		int position = 0;
+		int size = 1;
+		int kind = 0;
+		while (position < contents.length) {
+			final int length = Math.min(size, contents.length - position);
+			switch (kind++ % 4) {
+			case 0:
+				buffers.add(ByteBuffer.wrap(contents, position, length));
+				break;
+			case 1:
+				final ByteBuffer direct = ByteBuffer.allocateDirect(length);
+				direct.put(contents, position, length);
+				direct.flip();
+				buffers.add(direct);
+				break;
+			case 2:
+				buffers.add(ByteBuffer.allocate(0));
+				final byte[] copy = new byte[length];
+				System.arraycopy(contents, position, copy, 0, length);
+				buffers.add(ByteBuffer.wrap(copy).asReadOnlyBuffer());
+				break;
+			default:
+				final byte[] padded = new byte[length + 2];
+				System.arraycopy(contents, position, padded, 1, length);
+				buffers.add(ByteBuffer.wrap(padded, 1, length));
+			}
+			position += length;
+			size = size * 3 % 10007 + 1;
+		}
+		return new ByteBufferReader(buffers);
+	}
+
+	private static List<Long> searchAllForwards(final Searcher<?> searcher, final WindowReader reader) throws IOException {
+		final List<Long> positions = new ArrayList<Long>();
+		long searchPosition = 0;
+		List<? extends SearchResult<?>> results;
+		while (!(results = searcher.searchForwards(reader, searchPosition)).isEmpty()) {
+			final long matchPosition = results.get(0).getMatchPosition();
+			positions.add(matchPosition);
+			searchPosition = matchPosition + 1;
+		}
+		return positions;
+	}
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.byteseek.io.reader.cache.NoCache;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+
+public class CompositeReaderTest {
+
+	private static byte[] contents;
+	private static File[] segments;
+
+	/*
+	 * Splits the test file into segments of awkward sizes, including an empty one.
+	 */
+	@BeforeClass
+	public static void createSegments() throws IOException {
+		contents = Files.readAllBytes(new File(CompositeReaderTest.class.getResource("/TestASCII.txt").getPath()).toPath());
+		final int[] splits = { 0, 1, 1, 5000, 5001, 40000, contents.length };
+		segments = new File[splits.length - 1];
+		for (int index = 0; index < segments.length; index++) {
+			segments[index] = File.createTempFile("byteseek", ".segment");
+			Files.write(segments[index].toPath(), Arrays.copyOfRange(contents, splits[index], splits[index + 1]));
+		}
+	}
+
+	@AfterClass
+	public static void deleteSegments() {
+		for (final File segment : segments) {
+			segment.delete();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoReaders() throws IOException {
+		new CompositeReader();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullReader() throws IOException {
+		new CompositeReader(new ByteArrayReader(new byte[1]), null);
+	}
+
+	@Test
+	public void testReadBytes() throws IOException {
+		final CompositeReader reader = CompositeReader.fromFiles(segments);
+		try {
+			assertEquals("length", contents.length, reader.length());
+			assertEquals("segment start", 5001, reader.getSegmentStart(4));
+			for (int position = 0; position < contents.length; position++) {
+				if (reader.readByte(position) != (contents[position] & 0xFF)) {
+					assertEquals("Position " + position, contents[position] & 0xFF, reader.readByte(position));
+				}
+			}
+			for (int position = contents.length - 1; position >= 0; position -= 7) {
+				assertEquals("Backward position " + position, contents[position] & 0xFF, reader.readByte(position));
+			}
+			assertEquals("Before start", -1, reader.readByte(-1));
+			assertEquals("After end", -1, reader.readByte(contents.length));
+			assertNull("No window after end", reader.getWindow(contents.length));
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testWindowsAreRebased() throws IOException {
+		final CompositeReader reader = createReader(4096);
+		try {
+			long position = 0;
+			while (position < contents.length) {
+				final Window window = reader.getWindow(position);
+				final int offset = reader.getWindowOffset(position);
+				assertEquals("Window position", position - offset, window.getWindowPosition());
+				assertEquals("Byte in window at " + position, contents[(int) position], window.getByte(offset));
+				position = window.getWindowPosition() + window.length();
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testSearchAcrossSegments() throws IOException {
+		final File whole = new File(getClass().getResource("/TestASCII.txt").getPath());
+		for (final String pattern : new String[] { "the", "Enter", "Exit" }) {
+			final Searcher<?> searcher = new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher(pattern));
+			final FileReader expectedReader = new FileReader(whole);
+			final List<Long> expected = searchAllForwards(searcher, expectedReader);
+			final long expectedLast = searcher.searchBackwards(expectedReader).get(0).getMatchPosition();
+			expectedReader.close();
+			assertFalse("There are matches for " + pattern, expected.isEmpty());
+			for (final int windowSize : new int[] { 3, 127, 4096 }) {
+				final CompositeReader reader = createReader(windowSize);
+				try {
+					assertEquals("Forward matches for " + pattern + " window size " + windowSize,
+							expected, searchAllForwards(searcher, reader));
+					assertEquals("Last match for " + pattern + " window size " + windowSize,
+							expectedLast, searcher.searchBackwards(reader).get(0).getMatchPosition());
+				} finally {
+					reader.close();
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testMatchSpanningBoundary() throws IOException {
+		final CompositeReader reader = new CompositeReader(new ByteArrayReader("abc".getBytes()),
+				new ByteArrayReader("d".getBytes()), new ByteArrayReader("efg".getBytes()));
+		try {
+			assertEquals("Matches across two boundaries", true,
+					new ByteSequenceMatcher("bcdef").matches(reader, 1));
+			assertEquals("No match past the end", false,
+					new ByteSequenceMatcher("fgh").matches(reader, 5));
+		} finally {
+			reader.close();
+		}
+	}
+
+	/*
+	 * Uses a different window size for every other segment, so window boundaries
+	 * and segment boundaries never line up.
+	 */
+	private CompositeReader createReader(final int windowSize) throws IOException {
+		final List<WindowReader> readers = new ArrayList<WindowReader>();
+		for (int index = 0; index < segments.length; index++) {
+			readers.add(new FileReader(segments[index], index % 2 == 0 ? windowSize : windowSize + 1, NoCache.NO_CACHE));
+		}
+		return new CompositeReader(readers);
+	}
+
+	private static List<Long> searchAllForwards(final Searcher<?> searcher, final WindowReader reader) throws IOException {
+		final List<Long> positions = new ArrayList<Long>();
+		long searchPosition = 0;
+		List<? extends SearchResult<?>> results;
+		while (!(results = searcher.searchForwards(reader, searchPosition)).isEmpty()) {
+			final long matchPosition = results.get(0).getMatchPosition();
+			positions.add(matchPosition);
+			searchPosition = matchPosition + 1;
+		}
+		return positions;
+	}
+
+}
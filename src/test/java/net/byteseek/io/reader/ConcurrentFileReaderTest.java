@@ -0,0 +1,196 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.byteseek.io.reader.cache.ConcurrentClockCache;
+import net.byteseek.io.reader.cache.MostRecentlyUsedCache;
+import net.byteseek.io.reader.cache.SynchronizedCache;
+import net.byteseek.io.reader.cache.WindowCache;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+
+/**
+ * Tests that a ConcurrentFileReader gives the same bytes as the file it reads
+ * when many threads share a single reader and cache.
+ *
+ * @author Matt Palmer
+ */
+public class ConcurrentFileReaderTest {
+
+	private final static Random rand = new Random();
+
+	private final static int THREADS = 8;
+	private final static int[] WINDOW_SIZES = new int[] { 1, 7, 4095, 4096, 65536 };
+
+	private static long seed;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		seed = System.currentTimeMillis();
+		rand.setSeed(seed);
+		System.out.println("Seeding random number generator with: " + Long.toString(seed));
+		System.out.println("To repeat these exact tests, set the seed to the value above.");
+	}
+
+	@Test
+	public void testLength() throws IOException {
+		final File file = getFile("/TestASCII.txt");
+		final ConcurrentFileReader reader = new ConcurrentFileReader(file);
+		try {
+			assertEquals("length", file.length(), reader.length());
+			long totalLength = 0;
+			for (final Window window : reader) {
+				totalLength += window.length();
+			}
+			assertEquals("sum of window lengths", file.length(), totalLength);
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testNoWindowOutsideFile() throws IOException {
+		final File file = getFile("/TestASCII.txt");
+		final ConcurrentFileReader reader = new ConcurrentFileReader(file);
+		try {
+			assertNull("No window before file", reader.getWindow(-1));
+			assertNull("No window after file", reader.getWindow(file.length()));
+			assertEquals("No byte after file", -1, reader.readByte(file.length()));
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testConcurrentReads() throws Exception {
+		testConcurrentReads("/TestASCII.txt");
+		testConcurrentReads("/TestASCII.zip");
+	}
+
+	private void testConcurrentReads(final String resourceName) throws Exception {
+		final File file = getFile(resourceName);
+		final byte[] contents = readFile(file);
+		final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			for (final int windowSize : WINDOW_SIZES) {
+				testConcurrentReads(executor, file, contents, windowSize,
+						new SynchronizedCache(new MostRecentlyUsedCache(4)));
+				testConcurrentReads(executor, file, contents, windowSize, new ConcurrentClockCache(4));
+				testConcurrentReads(executor, file, contents, windowSize, new ConcurrentClockCache(64));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private void testConcurrentReads(final ExecutorService executor, final File file, final byte[] contents,
+			final int windowSize, final WindowCache cache) throws Exception {
+		final ConcurrentFileReader reader = new ConcurrentFileReader(file, windowSize, cache);
+		try {
+			final List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int thread = 0; thread < THREADS; thread++) {
+				results.add(executor.submit(new ReadTask(reader, contents, seed + thread)));
+			}
+			for (final Future<Void> result : results) {
+				result.get();
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static class ReadTask implements Callable<Void> {
+
+		private final WindowReader reader;
+		private final byte[] contents;
+		private final Random random;
+
+		ReadTask(final WindowReader reader, final byte[] contents, final long seed) {
+			this.reader = reader;
+			this.contents = contents;
+			this.random = new Random(seed);
+		}
+
+		@Override
+		public Void call() throws IOException {
+			for (int count = 0; count < 500; count++) {
+				final int position = random.nextInt(contents.length);
+				assertEquals("Reader " + reader + " reading at position " + position,
+						contents[position] & 0xFF, reader.readByte(position));
+			}
+			for (int count = 0; count < 20; count++) {
+				final int position = random.nextInt(contents.length);
+				final int end = Math.min(contents.length, position + 1 + random.nextInt(16));
+				final BoyerMooreHorspoolSearcher searcher = 
+						new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher(contents, position, end));
+				final List<? extends SearchResult<?>> found = searcher.searchForwards(reader, position);
+				assertEquals("Searching " + searcher + " from " + position, 
+						(long) position, found.get(0).getMatchPosition());
+			}
+			return null;
+		}
+	}
+
+	private byte[] readFile(final File file) throws IOException {
+		final byte[] contents = new byte[(int) file.length()];
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			raf.readFully(contents);
+		} finally {
+			raf.close();
+		}
+		return contents;
+	}
+
+	private File getFile(final String resourceName) {
+		return new File(this.getClass().getResource(resourceName).getPath());
+	}
+
+}
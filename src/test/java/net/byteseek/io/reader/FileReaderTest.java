@@ -6,6 +6,7 @@
 package net.byteseek.io.reader;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
@@ -25,6 +26,7 @@ import org.junit.Test;
 import net.byteseek.io.reader.FileReader;
 import net.byteseek.io.reader.Window;
 import net.byteseek.io.reader.cache.AllWindowsCache;
+import net.byteseek.io.reader.cache.CacheStatistics;
 import net.byteseek.io.reader.cache.NoCache;
 
 /**
@@ -204,6 +206,137 @@ public class FileReaderTest {
 				      value, (byte) reader.readByte(position));
 	}
 
+	/**
+	 * Test of setReadSize method, of class FileReader.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testReadSizeSmallerThanWindow() throws IOException {
+		final FileReader reader = new FileReader(getFile("/TestASCII.txt"), 4096);
+		try {
+			reader.setReadSize(4095);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Tests that reading several windows at once gives the same bytes, whatever the
+	 * window size, read size and cache capacity.
+	 */
+	@Test
+	public void testBatchedReads() throws IOException {
+		final File asciifile = getFile("/TestASCII.txt");
+		final int fileLength = (int) asciifile.length();
+		final RandomAccessFile raf = new RandomAccessFile(asciifile, "r");
+		final byte[] contents = new byte[fileLength];
+		raf.readFully(contents);
+		for (final int windowSize : new int[] { 1, 7, 4096, 4097 }) {
+			for (final int windowsPerRead : new int[] { 1, 2, 16, 256 }) {
+				for (final int capacity : new int[] { 1, 16, 512 }) {
+					final FileReader reader = new FileReader(asciifile, windowSize, capacity);
+					reader.setReadSize(windowSize * windowsPerRead + windowSize / 2);
+					assertEquals("read size", windowSize * windowsPerRead, reader.getReadSize());
+					try {
+						for (int position = 0; position < fileLength; position++) {
+							if ((byte) reader.readByte(position) != contents[position]) {
+								assertEquals("Reader " + reader + " position " + position,
+										contents[position], (byte) reader.readByte(position));
+							}
+						}
+						assertEquals("No byte after end", -1, reader.readByte(fileLength));
+						testRandomPositions("batched " + windowSize + " " + windowsPerRead, raf, reader, fileLength);
+					} finally {
+						reader.close();
+					}
+				}
+			}
+		}
+		raf.close();
+	}
+
+	/**
+	 * Tests that a sequential read caches the windows following the one requested.
+	 */
+	@Test
+	public void testBatchedReadsAreCached() throws IOException {
+		final FileReader reader = new FileReader(getFile("/TestASCII.txt"), 1024, new AllWindowsCache());
+		try {
+			reader.setReadSize(16 * 1024);
+			reader.readByte(0);
+			assertEquals("Random read does not batch", null, reader.cache.getWindow(1024));
+			reader.readByte(1024);
+			for (int window = 2; window < 17; window++) {
+				assertEquals("Window cached " + window, window * 1024L,
+						reader.cache.getWindow(window * 1024L).getWindowPosition());
+			}
+			assertEquals("Read stops at read size", null, reader.cache.getWindow(17 * 1024));
+			final Window[] windows = reader.createWindows(106 * 1024, 4);
+			assertEquals("Last window position", 106 * 1024L, windows[0].getWindowPosition());
+			assertEquals("Last window length", reader.length() - 106 * 1024, windows[0].length());
+			assertEquals("No window past end", null, windows[1]);
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testPrefetchPinsWindows() throws IOException {
+		final FileReader reader = new FileReader(getFile("/TestASCII.txt"), 1024, new NoCache());
+		final FileReader expected = new FileReader(getFile("/TestASCII.txt"));
+		try {
+			final long length = reader.length();
+			final long tailStart = length - 2048;
+			final int tailWindows = (int) ((length - 1) / 1024 - tailStart / 1024) + 1;
+			assertEquals("Head windows read", 4, reader.prefetch(0, 4095));
+			assertEquals("Tail windows read", tailWindows, reader.prefetch(tailStart, length + 5000));
+			assertEquals("Windows pinned", 4 + tailWindows, reader.getPinnedWindowCount());
+			assertEquals("Pinned windows not read again", 0, reader.prefetch(0, 4095) + reader.prefetch(tailStart, length));
+
+			final Window head = reader.getWindow(0);
+			final Window tail = reader.getWindow(length - 1);
+			assertTrue("Head window is pinned", head == reader.getWindow(10));
+			assertTrue("Tail window is pinned", tail == reader.getWindow(length - 1));
+			assertTrue("Head window still pinned", head == reader.getWindow(0));
+			for (long position = 0; position < 4096; position++) {
+				assertEquals("Head byte " + position, expected.readByte(position), reader.readByte(position));
+			}
+			for (long position = tailStart; position < length; position++) {
+				assertEquals("Tail byte " + position, expected.readByte(position), reader.readByte(position));
+			}
+
+			assertEquals("Head windows released", 4, reader.release(0, 4095));
+			assertEquals("Tail windows still pinned", tailWindows, reader.getPinnedWindowCount());
+			assertEquals("Tail windows released", tailWindows, reader.releaseAll());
+			assertEquals("No windows pinned", 0, reader.getPinnedWindowCount());
+		} finally {
+			reader.close();
+			expected.close();
+		}
+	}
+
+	@Test
+	public void testPrefetchDoesNotLookUpCache() throws IOException {
+		final AllWindowsCache cache = new AllWindowsCache();
+		final CacheStatistics statistics = new CacheStatistics();
+		cache.setStatistics(statistics);
+		final FileReader reader = new FileReader(getFile("/TestASCII.txt"), 1024, cache);
+		try {
+			reader.readByte(2048);
+			statistics.reset();
+			assertEquals("All windows read", 8, reader.prefetch(0, 8191));
+			assertEquals("Nothing prefetched before start", 0, reader.prefetch(-10, -1));
+			assertEquals("All windows released", 8, reader.releaseAll());
+			assertEquals("No cache hits", 0, statistics.getHits());
+			assertEquals("No cache misses", 0, statistics.getMisses());
+			for (long windowStart = 0; windowStart < 8192; windowStart += 1024) {
+				assertEquals("Released window cached " + windowStart, windowStart,
+						reader.cache.getWindow(windowStart).getWindowPosition());
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
 	private File getFile(final String resourceName) {
 		return new File(getFilePath(resourceName));
 	}
@@ -0,0 +1,316 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.byteseek.io.reader.cache.AllWindowsCache;
+import net.byteseek.io.reader.cache.NoCache;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+
+public class GzipReaderTest {
+
+	private static final int CHECKPOINT_INTERVAL = 64 * 1024;
+	private static final int[] WINDOW_SIZES = { 1000, 4096 };
+
+	private static byte[] contents;
+	private static final List<File> tempFiles = new ArrayList<File>();
+
+	@BeforeClass
+	public static void createContents() throws IOException {
+		final byte[] text = Files.readAllBytes(new File(GzipReaderTest.class.getResource("/TestASCII.txt").getPath()).toPath());
+		final byte[] noise = new byte[100000];
+		new Random(42).nextBytes(noise);
+		contents = new byte[text.length * 3 + noise.length];
+		System.arraycopy(text, 0, contents, 0, text.length);
+		System.arraycopy(noise, 0, contents, text.length, noise.length);
+		System.arraycopy(text, 0, contents, text.length + noise.length, text.length);
+		System.arraycopy(text, 0, contents, text.length * 2 + noise.length, text.length);
+	}
+
+	@AfterClass
+	public static void deleteTempFiles() {
+		for (final File file : tempFiles) {
+			file.delete();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullFile() throws IOException {
+		new GzipReader(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroCheckpointInterval() throws IOException {
+		new GzipReader(gzip(Deflater.DEFAULT_COMPRESSION), 4096, 0);
+	}
+
+	@Test
+	public void testSequentialReads() throws IOException {
+		for (final int level : new int[] { Deflater.NO_COMPRESSION, Deflater.BEST_SPEED, Deflater.BEST_COMPRESSION }) {
+			final File file = gzip(level);
+			for (final int windowSize : WINDOW_SIZES) {
+				final GzipReader reader = new GzipReader(file, windowSize, CHECKPOINT_INTERVAL);
+				try {
+					testSequentialReads("level " + level, reader);
+					assertTrue("Checkpoints indexed", reader.getCheckpointCount() > 1);
+				} finally {
+					reader.close();
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testLength() throws IOException {
+		final GzipReader reader = new GzipReader(gzip(Deflater.DEFAULT_COMPRESSION), 4096, CHECKPOINT_INTERVAL);
+		try {
+			assertEquals("Length", contents.length, reader.length());
+			final int checkpoints = reader.getCheckpointCount();
+			assertTrue("Index built: " + checkpoints, checkpoints > 1);
+			reader.readByte(0);
+			assertEquals("No more checkpoints", checkpoints, reader.getCheckpointCount());
+			assertEquals("No byte after end", -1, reader.readByte(contents.length));
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testRandomAndBackwardReads() throws IOException {
+		final File file = gzip(Deflater.DEFAULT_COMPRESSION);
+		for (final int windowSize : WINDOW_SIZES) {
+			final GzipReader reader = new GzipReader(file, windowSize, CHECKPOINT_INTERVAL, NoCache.NO_CACHE);
+			try {
+				// Random reads before the index is complete:
+				final Random random = new Random(windowSize);
+				for (int count = 0; count < 2000; count++) {
+					final int position = random.nextInt(contents.length);
+					assertEquals("Random position " + position, contents[position] & 0xFF, reader.readByte(position));
+				}
+				// Backward reads once it is:
+				reader.length();
+				for (int position = contents.length - 1; position >= 0; position -= 997) {
+					assertEquals("Backward position " + position, contents[position] & 0xFF, reader.readByte(position));
+				}
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeWindowsCachedBefore() throws IOException {
+		new GzipReader(gzip(Deflater.DEFAULT_COMPRESSION)).setWindowsCachedBefore(-1);
+	}
+
+	@Test
+	public void testOnlyWindowsJustBeforeCached() throws IOException {
+		final AllWindowsCache cache = new AllWindowsCache();
+		final GzipReader reader = new GzipReader(gzip(Deflater.DEFAULT_COMPRESSION), 1000, CHECKPOINT_INTERVAL, cache);
+		try {
+			assertEquals("Default windows cached before", GzipReader.DEFAULT_WINDOWS_CACHED_BEFORE,
+					reader.getWindowsCachedBefore());
+			reader.setWindowsCachedBefore(3);
+			reader.length();
+			final long windowStart = 250 * 1000;
+			assertEquals("Byte read", contents[(int) windowStart] & 0xFF, reader.readByte(windowStart));
+			assertNotNull("Window requested cached", cache.getWindow(windowStart));
+			for (int window = 1; window <= 3; window++) {
+				final long cachedStart = windowStart - window * 1000;
+				final Window cached = cache.getWindow(cachedStart);
+				assertNotNull("Window before cached " + cachedStart, cached);
+				assertEquals("Cached byte " + cachedStart, contents[(int) cachedStart], cached.getByte(0));
+			}
+			assertNull("Earlier window not cached", cache.getWindow(windowStart - 4 * 1000));
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testBackwardSearch() throws IOException {
+		final Searcher<?> searcher = new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("Puck"));
+		final ByteArrayReader expectedReader = new ByteArrayReader(contents);
+		final long expected = searcher.searchBackwards(expectedReader, contents.length - 1, 0).get(0).getMatchPosition();
+		final GzipReader reader = new GzipReader(gzip(Deflater.DEFAULT_COMPRESSION), 4096, CHECKPOINT_INTERVAL);
+		try {
+			final List<? extends SearchResult<?>> results = searcher.searchBackwards(reader);
+			assertFalse("Found a match", results.isEmpty());
+			assertEquals("Last match", expected, results.get(0).getMatchPosition());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testConcatenatedMembers() throws IOException {
+		final File file = createTempFile();
+		final int split = contents.length / 3;
+		final OutputStream out = new FileOutputStream(file);
+		try {
+			writeGzipMember(out, 0, split);
+			writeGzipMember(out, split, contents.length - split);
+		} finally {
+			out.close();
+		}
+		final GzipReader reader = new GzipReader(file, 4096, CHECKPOINT_INTERVAL);
+		try {
+			assertEquals("Length", contents.length, reader.length());
+			for (int position = contents.length - 1; position >= 0; position -= 1013) {
+				assertEquals("Position " + position, contents[position] & 0xFF, reader.readByte(position));
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testZlibAndRawDeflate() throws IOException {
+		for (final boolean raw : new boolean[] { false, true }) {
+			final File file = createTempFile();
+			final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, raw);
+			final OutputStream out = new DeflaterOutputStream(new FileOutputStream(file), deflater);
+			try {
+				out.write(contents);
+			} finally {
+				out.close();
+				deflater.end();
+			}
+			final GzipReader reader = new GzipReader(file, 4096, CHECKPOINT_INTERVAL);
+			try {
+				testSequentialReads(raw ? "raw" : "zlib", reader);
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testCorruptData() throws IOException {
+		final File file = gzip(Deflater.DEFAULT_COMPRESSION);
+		final byte[] compressed = Files.readAllBytes(file.toPath());
+		for (int position = 100; position < compressed.length; position += 50) {
+			compressed[position] = (byte) 0xFF;
+		}
+		Files.write(file.toPath(), compressed);
+		final GzipReader reader = new GzipReader(file);
+		try {
+			reader.length();
+		} finally {
+			reader.close();
+		}
+	}
+
+	private void testSequentialReads(final String description, final GzipReader reader) throws IOException {
+		for (int position = 0; position < contents.length; position++) {
+			if (reader.readByte(position) != (contents[position] & 0xFF)) {
+				assertEquals(description + " " + reader + " position " + position,
+						contents[position] & 0xFF, reader.readByte(position));
+			}
+		}
+		assertEquals("No byte after end", -1, reader.readByte(contents.length));
+	}
+
+	private static File gzip(final int level) throws IOException {
+		final File file = createTempFile();
+		final OutputStream out = new FileOutputStream(file);
+		try {
+			writeGzipMember(out, 0, contents.length, level);
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	private static void writeGzipMember(final OutputStream out, final int from, final int length) throws IOException {
+		writeGzipMember(out, from, length, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	private static void writeGzipMember(final OutputStream out, final int from, final int length,
+			final int level) throws IOException {
+		final GZIPOutputStream gzip = new GZIPOutputStream(new NonClosingStream(out)) {
+			{
+				def.setLevel(level);
+			}
+		};
+		gzip.write(contents, from, length);
+		gzip.close();
+	}
+
+	private static File createTempFile() throws IOException {
+		final File file = File.createTempFile("byteseek", ".gz");
+		tempFiles.add(file);
+		return file;
+	}
+
+	private static final class NonClosingStream extends java.io.FilterOutputStream {
+
+		NonClosingStream(final OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+			out.write(bytes, offset, length);
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+
+/**
+ * Tests that readers give the right bytes, Window positions and offsets for positions
+ * beyond 2GB and 4GB, using a sparse file larger than 4GB, with window sizes which are 
+ * and are not powers of two.
+ *
+ * @author Matt Palmer
+ */
+public class LargeFileReaderTest {
+
+	private final static Charset ASCII = Charset.forName("US-ASCII");
+	private final static long TWO_GB = 1L << 31;
+	private final static long FOUR_GB = 1L << 32;
+	private final static long LENGTH = 5L * 1024 * 1024 * 1024 + 123;
+
+	private final static long[] MARKER_POSITIONS = new long[] { 0, TWO_GB - 3, FOUR_GB - 2, LENGTH - 4 };
+	private final static String[] MARKERS = new String[] { "start", "ABCDEF", "byteseek", "END!" };
+
+	private static File sparseFile;
+
+	@BeforeClass
+	public static void createSparseFile() throws IOException {
+		sparseFile = File.createTempFile("byteseek", ".sparse");
+		final RandomAccessFile raf = new RandomAccessFile(sparseFile, "rw");
+		try {
+			raf.setLength(LENGTH);
+			for (int marker = 0; marker < MARKERS.length; marker++) {
+				raf.seek(MARKER_POSITIONS[marker]);
+				raf.write(MARKERS[marker].getBytes(ASCII));
+			}
+		} catch (IOException cannotCreateLargeFile) {
+			Assume.assumeNoException(cannotCreateLargeFile);
+		} finally {
+			raf.close();
+		}
+	}
+
+	@AfterClass
+	public static void deleteSparseFile() {
+		if (sparseFile != null) {
+			sparseFile.delete();
+		}
+	}
+
+	@Test
+	public void testFileReader() throws IOException {
+		testReader(new FileReader(sparseFile, 4096));
+		testReader(new FileReader(sparseFile, 4097));
+	}
+
+	@Test
+	public void testConcurrentFileReader() throws IOException {
+		testReader(new ConcurrentFileReader(sparseFile, 65536));
+		testReader(new ConcurrentFileReader(sparseFile, 65535));
+	}
+
+	@Test
+	public void testMappedFileReader() throws IOException {
+		testReader(new MappedFileReader(sparseFile, 4096));
+		testReader(new MappedFileReader(sparseFile, 1000));
+	}
+
+	private void testReader(final AbstractReader reader) throws IOException {
+		try {
+			assertEquals("length", LENGTH, reader.length());
+			for (int marker = 0; marker < MARKERS.length; marker++) {
+				testMarker(reader, MARKER_POSITIONS[marker], MARKERS[marker]);
+			}
+			assertEquals("Zero byte in sparse region", 0, reader.readByte(FOUR_GB + 1000));
+			assertEquals("No byte after end", -1, reader.readByte(LENGTH));
+
+			final Searcher<SequenceMatcher> searcher = new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("byteseek"));
+			final List<SearchResult<SequenceMatcher>> forwards = searcher.searchForwards(reader, FOUR_GB - 10000, FOUR_GB + 10000);
+			assertEquals("Forward search across 4GB " + reader, FOUR_GB - 2, forwards.get(0).getMatchPosition());
+			final Searcher<SequenceMatcher> endSearcher = new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("END!"));
+			final List<SearchResult<SequenceMatcher>> backwards = endSearcher.searchBackwards(reader, LENGTH - 1, LENGTH - 10000);
+			assertEquals("Backward search from end " + reader, LENGTH - 4, backwards.get(0).getMatchPosition());
+		} finally {
+			reader.close();
+		}
+	}
+
+	private void testMarker(final AbstractReader reader, final long markerPosition, final String marker) throws IOException {
+		final byte[] bytes = marker.getBytes(ASCII);
+		for (int index = 0; index < bytes.length; index++) {
+			final long position = markerPosition + index;
+			assertEquals("Byte at " + position + " in " + reader, bytes[index], (byte) reader.readByte(position));
+			final long expectedOffset = position % reader.windowSize;
+			assertEquals("Offset of " + position + " in " + reader, expectedOffset, reader.getWindowOffset(position));
+			final Window window = reader.getWindow(position);
+			assertNotNull("Window at " + position, window);
+			assertEquals("Window position for " + position, position - expectedOffset, window.getWindowPosition());
+			assertTrue("Offset inside window", expectedOffset < window.length());
+		}
+	}
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.byteseek.io.reader.cache.MostRecentlyUsedCache;
+import net.byteseek.io.reader.cache.NoCache;
+import net.byteseek.matcher.multisequence.ListMultiSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.MatcherSearcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.multisequence.MultiSequenceMatcherSearcher;
+import net.byteseek.searcher.sequence.SequenceMatcherSearcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+
+/**
+ * Tests that a MappedFileReader gives the same bytes as the file it maps,
+ * and that searchers find the same results in its buffer-backed windows as in
+ * the array-backed windows of a FileReader,
+ * for a variety of window and chunk sizes.
+ *
+ * @author Matt Palmer
+ */
+public class MappedFileReaderTest {
+
+	private final static Random rand = new Random();
+
+	private final static int[] WINDOW_SIZES = new int[] { 1, 7, 255, 1024, 4095, 4096, 4097, 65536 };
+	private final static int[] CHUNK_SIZES = new int[] { 8192, 12289, 65536, 1 << 30 };
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		final long seed = System.currentTimeMillis();
+		rand.setSeed(seed);
+		System.out.println("Seeding random number generator with: " + Long.toString(seed));
+		System.out.println("To repeat these exact tests, set the seed to the value above.");
+	}
+
+	@Test
+	public void testLength() throws IOException {
+		testLength("/TestASCII.txt");
+		testLength("/TestASCII.zip");
+		testLength("/TestEmpty.empty");
+	}
+
+	@Test
+	public void testReadByte() throws IOException {
+		testReadByte("/TestASCII.txt");
+		testReadByte("/TestASCII.zip");
+	}
+
+	@Test
+	public void testNoWindowOutsideFile() throws IOException {
+		final File file = getFile("/TestASCII.txt");
+		final MappedFileReader reader = new MappedFileReader(file);
+		try {
+			assertNull(reader.getWindow(-1));
+			assertNull(reader.getWindow(file.length()));
+			assertEquals(-1, reader.readByte(file.length()));
+		} finally {
+			reader.close();
+		}
+		final MappedFileReader emptyReader = new MappedFileReader(getFile("/TestEmpty.empty"));
+		try {
+			assertNull(emptyReader.getWindow(0));
+		} finally {
+			emptyReader.close();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testChunkSmallerThanWindow() throws IOException {
+		new MappedFileReader(getFile("/TestASCII.txt"), 4096, 4095, NoCache.NO_CACHE);
+	}
+
+	@Test
+	public void testWindowsHaveNoArray() throws IOException {
+		final MappedFileReader reader = new MappedFileReader(getFile("/TestASCII.txt"));
+		try {
+			final Window window = reader.getWindow(0);
+			assertFalse("Mapped window has no array", window.hasArray());
+			assertEquals("Copied array matches buffer", window.getBuffer().get(10), window.getArray()[10]);
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testSearch() throws IOException {
+		testSearch("/TestASCII.txt");
+		testSearch("/TestASCII.zip");
+	}
+
+	@Test
+	public void testSearchDirectBuffer() throws IOException {
+		final File file = getFile("/TestASCII.txt");
+		final byte[] contents = readFile(file);
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(contents.length);
+		buffer.put(contents);
+		for (int count = 0; count < 100; count++) {
+			final int position = rand.nextInt(contents.length);
+			for (final Searcher<?> searcher : getSearchers(contents, position)) {
+				assertEquals("Forwards " + searcher + " at " + position, 
+						position, firstPosition(searcher.searchForwards(buffer, position)));
+				assertEquals("Backwards " + searcher + " at " + position, 
+						position, firstPosition(searcher.searchBackwards(buffer, position)));
+			}
+		}
+	}
+
+	private void testSearch(final String resourceName) throws IOException {
+		final File file = getFile(resourceName);
+		final byte[] contents = readFile(file);
+		for (final int windowSize : WINDOW_SIZES) {
+			final MappedFileReader reader = new MappedFileReader(file, windowSize,
+					Math.max(windowSize, CHUNK_SIZES[1]), new MostRecentlyUsedCache(4));
+			final FileReader arrayReader = new FileReader(file, windowSize);
+			try {
+				for (int count = 0; count < 20; count++) {
+					final int position = rand.nextInt(contents.length);
+					for (final Searcher<?> searcher : getSearchers(contents, position)) {
+						assertEquals("Forwards " + searcher + " at " + position + " in " + reader, 
+								firstPosition(searcher.searchForwards(arrayReader, position)),
+								firstPosition(searcher.searchForwards(reader, position)));
+						assertEquals("Backwards " + searcher + " at " + position + " in " + reader, 
+								firstPosition(searcher.searchBackwards(arrayReader, position)),
+								firstPosition(searcher.searchBackwards(reader, position)));
+					}
+				}
+			} finally {
+				reader.close();
+				arrayReader.close();
+			}
+		}
+	}
+
+	private List<Searcher<?>> getSearchers(final byte[] contents, final int position) {
+		final int length = Math.min(1 + rand.nextInt(16), contents.length - position);
+		final SequenceMatcher sequence = new ByteSequenceMatcher(contents, position, position + length);
+		final List<byte[]> sequences = new ArrayList<byte[]>();
+		sequences.add(Arrays.copyOfRange(contents, position, position + length));
+		final List<Searcher<?>> searchers = new ArrayList<Searcher<?>>();
+		searchers.add(new MatcherSearcher(sequence));
+		searchers.add(new SequenceMatcherSearcher(sequence));
+		searchers.add(new BoyerMooreHorspoolSearcher(sequence));
+		searchers.add(new MultiSequenceMatcherSearcher(new ListMultiSequenceMatcher(sequences)));
+		return searchers;
+	}
+
+	private long firstPosition(final List<? extends SearchResult<?>> results) {
+		return results.isEmpty() ? -1 : results.get(0).getMatchPosition();
+	}
+
+	private byte[] readFile(final File file) throws IOException {
+		final byte[] contents = new byte[(int) file.length()];
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			raf.readFully(contents);
+		} finally {
+			raf.close();
+		}
+		return contents;
+	}
+
+	private void testLength(final String resourceName) throws IOException {
+		final File file = getFile(resourceName);
+		for (final int windowSize : WINDOW_SIZES) {
+			for (final int chunkSize : CHUNK_SIZES) {
+				final MappedFileReader reader = new MappedFileReader(file, windowSize,
+						Math.max(windowSize, chunkSize), new MostRecentlyUsedCache(4));
+				try {
+					assertEquals("length " + reader, file.length(), reader.length());
+					long totalLength = 0;
+					for (final Window window : reader) {
+						totalLength += window.length();
+					}
+					assertEquals("sum of window lengths " + reader, file.length(), totalLength);
+				} finally {
+					reader.close();
+				}
+			}
+		}
+	}
+
+	private void testReadByte(final String resourceName) throws IOException {
+		final File file = getFile(resourceName);
+		final int fileLength = (int) file.length();
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			for (final int windowSize : WINDOW_SIZES) {
+				for (final int chunkSize : CHUNK_SIZES) {
+					final MappedFileReader reader = new MappedFileReader(file, windowSize,
+							Math.max(windowSize, chunkSize), NoCache.NO_CACHE);
+					try {
+						testPosition(raf, reader, 0);
+						testPosition(raf, reader, fileLength - 1);
+						for (int count = 0; count < 200; count++) {
+							testPosition(raf, reader, rand.nextInt(fileLength));
+						}
+					} finally {
+						reader.close();
+					}
+				}
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	private void testPosition(final RandomAccessFile raf, final WindowReader reader,
+			final int position) throws IOException {
+		raf.seek(position);
+		assertEquals("Reader " + reader + " reading at position " + position,
+				raf.readByte(), (byte) reader.readByte(position));
+	}
+
+	private File getFile(final String resourceName) {
+		return new File(this.getClass().getResource(resourceName).getPath());
+	}
+
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.byteseek.io.reader.cache.MostRecentlyUsedCache;
+import net.byteseek.io.reader.cache.NoCache;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+
+/**
+ * Tests that readers give the same bytes with asynchronous read-ahead enabled,
+ * and that Windows are read in advance when they are accessed in sequence.
+ *
+ * @author Matt Palmer
+ */
+public class ReadAheadTest {
+
+	private final static Random rand = new Random();
+	private final static int[] WINDOW_SIZES = new int[] { 1, 7, 4096, 4097 };
+
+	private static ExecutorService executor;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		final long seed = System.currentTimeMillis();
+		rand.setSeed(seed);
+		System.out.println("Seeding random number generator with: " + Long.toString(seed));
+		System.out.println("To repeat these exact tests, set the seed to the value above.");
+		executor = Executors.newFixedThreadPool(2);
+	}
+
+	@AfterClass
+	public static void tearDownClass() throws Exception {
+		executor.shutdown();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullExecutor() throws IOException {
+		new FileReader(getFile("/TestASCII.txt")).setReadAhead(null, 4);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoWindows() throws IOException {
+		new FileReader(getFile("/TestASCII.txt")).setReadAhead(executor, 0);
+	}
+
+	@Test
+	public void testSequentialFileReads() throws IOException {
+		final File file = getFile("/TestASCII.zip");
+		final byte[] contents = readFile(file);
+		for (final int windowSize : WINDOW_SIZES) {
+			final FileReader reader = new FileReader(file, windowSize, NoCache.NO_CACHE);
+			try {
+				final ReadAhead ahead = reader.setReadAhead(executor, 4);
+				testSequentialReads(reader, contents);
+				assertTrue("Windows were prefetched " + ahead, ahead.getWindowsPrefetched() > 0);
+				assertTrue("Prefetched windows were used " + ahead, ahead.getPrefetchHits() > 0);
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	@Test
+	public void testRandomFileReads() throws IOException {
+		final File file = getFile("/TestASCII.txt");
+		final byte[] contents = readFile(file);
+		for (final int windowSize : WINDOW_SIZES) {
+			final FileReader reader = new FileReader(file, windowSize, new MostRecentlyUsedCache(8));
+			try {
+				reader.setReadAhead(executor, 3);
+				for (int count = 0; count < 1000; count++) {
+					final int position = rand.nextInt(contents.length);
+					final int run = rand.nextInt(windowSize * 3);
+					for (int pos = position; pos < position + run && pos < contents.length; pos++) {
+						assertByte(reader, contents, pos);
+					}
+				}
+				assertEquals("No byte after end", -1, reader.readByte(contents.length));
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	@Test
+	public void testSequentialStreamReads() throws IOException {
+		final File file = getFile("/TestASCII.txt");
+		final byte[] contents = readFile(file);
+		for (final int windowSize : WINDOW_SIZES) {
+			final InputStreamReader reader = new InputStreamReader(new FileInputStream(file), windowSize);
+			try {
+				reader.setReadAhead(executor, 4);
+				testSequentialReads(reader, contents);
+				assertEquals("Stream length", contents.length, reader.length());
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	@Test
+	public void testBackwardFileReads() throws IOException {
+		final File file = getFile("/TestASCII.zip");
+		final byte[] contents = readFile(file);
+		for (final int windowSize : WINDOW_SIZES) {
+			final FileReader reader = new FileReader(file, windowSize, NoCache.NO_CACHE);
+			try {
+				final ReadAhead ahead = reader.setReadAhead(executor, 8);
+				for (int pos = contents.length - 1; pos >= 0; pos--) {
+					assertByte(reader, contents, pos);
+				}
+				assertTrue("Windows were prefetched " + ahead, ahead.getWindowsPrefetched() > 0);
+				assertTrue("Prefetched windows were used " + ahead, ahead.getPrefetchHits() > 0);
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	@Test
+	public void testBackwardSearch() throws IOException {
+		final File file = getFile("/TestASCII.txt");
+		final Searcher<SequenceMatcher> searcher = new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("the"));
+		final FileReader expectedReader = new FileReader(file);
+		final List<Long> expected;
+		try {
+			expected = searchAllBackwards(searcher, expectedReader);
+		} finally {
+			expectedReader.close();
+		}
+		assertTrue("There are matches", expected.size() > 0);
+		for (final int windowSize : WINDOW_SIZES) {
+			final FileReader reader = new FileReader(file, windowSize, new MostRecentlyUsedCache(4));
+			try {
+				reader.setReadAhead(executor, 6);
+				assertEquals("Backward matches with window size " + windowSize, expected, searchAllBackwards(searcher, reader));
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	@Test
+	public void testStopReadAhead() throws IOException {
+		final File file = getFile("/TestASCII.txt");
+		final byte[] contents = readFile(file);
+		final InputStreamReader reader = new InputStreamReader(new FileInputStream(file), 127);
+		try {
+			reader.setReadAhead(executor, 8);
+			for (int pos = 0; pos < 1000; pos++) {
+				assertByte(reader, contents, pos);
+			}
+			reader.stopReadAhead();
+			assertNull("No read-ahead after stopping", reader.getReadAhead());
+			testSequentialReads(reader, contents);
+		} finally {
+			reader.close();
+		}
+	}
+
+	private void testSequentialReads(final WindowReader reader, final byte[] contents) throws IOException {
+		for (int pos = 0; pos < contents.length; pos++) {
+			assertByte(reader, contents, pos);
+		}
+		assertEquals("No byte after end", -1, reader.readByte(contents.length));
+	}
+
+	private List<Long> searchAllBackwards(final Searcher<SequenceMatcher> searcher, final WindowReader reader) throws IOException {
+		final List<Long> positions = new ArrayList<Long>();
+		long searchPosition = reader.length() - 1;
+		List<SearchResult<SequenceMatcher>> results;
+		while (searchPosition >= 0 && !(results = searcher.searchBackwards(reader, searchPosition)).isEmpty()) {
+			final long matchPosition = results.get(0).getMatchPosition();
+			positions.add(matchPosition);
+			searchPosition = matchPosition - 1;
+		}
+		return positions;
+	}
+
+	private void assertByte(final WindowReader reader, final byte[] contents, final int position) throws IOException {
+		final int value = reader.readByte(position);
+		if (value != (contents[position] & 0xFF)) {
+			assertEquals("Reader " + reader + " at position " + position, contents[position] & 0xFF, value);
+		}
+	}
+
+	private byte[] readFile(final File file) throws IOException {
+		final byte[] contents = new byte[(int) file.length()];
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			raf.readFully(contents);
+		} finally {
+			raf.close();
+		}
+		return contents;
+	}
+
+	private File getFile(final String resourceName) {
+		return new File(this.getClass().getResource(resourceName).getPath());
+	}
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.byteseek.io.reader.cache.MostRecentlyAddedCache;
+import net.byteseek.io.reader.cache.MostRecentlyUsedCache;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+
+public class ReadableByteChannelReaderTest {
+
+	private final static int[] WINDOW_SIZES = new int[] { 1, 7, 4096, 4097, 200000 };
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullChannel() {
+		new ReadableByteChannelReader(null);
+	}
+
+	@Test
+	public void testLength() throws IOException {
+		final byte[] contents = readTestFile();
+		for (final int windowSize : WINDOW_SIZES) {
+			final ReadableByteChannelReader reader = new ReadableByteChannelReader(channelOver(contents), windowSize);
+			try {
+				assertEquals("length", contents.length, reader.length());
+				assertEquals("last byte", contents[contents.length - 1] & 0xFF, reader.readByte(contents.length - 1));
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	@Test
+	public void testBackwardReadsAfterStreaming() throws IOException {
+		final byte[] contents = readTestFile();
+		for (final int windowSize : WINDOW_SIZES) {
+			final ReadableByteChannelReader reader = new ReadableByteChannelReader(channelOver(contents), windowSize, 2);
+			try {
+				for (int position = contents.length - 1; position >= 0; position -= 3) {
+					assertEquals("Window size " + windowSize + " position " + position,
+							contents[position] & 0xFF, reader.readByte(position));
+				}
+				assertEquals("No byte after end", -1, reader.readByte(contents.length));
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	@Test
+	public void testSearch() throws IOException {
+		final byte[] contents = readTestFile();
+		final Searcher<?> searcher = new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("the"));
+		final FileReader expectedReader = new FileReader(getTestFile());
+		final List<Long> expected;
+		try {
+			expected = searchAllForwards(searcher, expectedReader);
+		} finally {
+			expectedReader.close();
+		}
+		assertFalse("There are matches", expected.isEmpty());
+		for (final int windowSize : WINDOW_SIZES) {
+			final ReadableByteChannelReader reader = new ReadableByteChannelReader(channelOver(contents), windowSize);
+			try {
+				assertEquals("Matches with window size " + windowSize, expected, searchAllForwards(searcher, reader));
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	@Test
+	public void testUnusedArrayReturnedToPool() throws IOException {
+		final byte[] contents = new byte[4 * 1024];
+		final ReadableByteChannelReader reader = new ReadableByteChannelReader(channelOver(contents), 1024,
+				new MostRecentlyUsedCache(8));
+		final WindowArrayPool pool = new WindowArrayPool(1024, 8);
+		try {
+			reader.setArrayPool(pool);
+			assertEquals("length", contents.length, reader.length());
+			assertEquals("Arrays taken", 5, pool.getArraysCreated());
+			assertEquals("Array of empty read returned", 1, pool.size());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testMissingWindow() throws IOException {
+		final byte[] contents = readTestFile();
+		final ReadableByteChannelReader reader = new ReadableByteChannelReader(channelOver(contents), 1024,
+				new MostRecentlyAddedCache(1));
+		try {
+			reader.readByte(50000);
+			reader.getWindow(0);
+			fail("Expected a WindowMissingException");
+		} catch (final WindowMissingException expected) {
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static List<Long> searchAllForwards(final Searcher<?> searcher, final WindowReader reader) throws IOException {
+		final List<Long> positions = new ArrayList<Long>();
+		long searchPosition = 0;
+		List<? extends SearchResult<?>> results;
+		while (!(results = searcher.searchForwards(reader, searchPosition)).isEmpty()) {
+			final long matchPosition = results.get(0).getMatchPosition();
+			positions.add(matchPosition);
+			searchPosition = matchPosition + 1;
+		}
+		return positions;
+	}
+
+	private static ReadableByteChannel channelOver(final byte[] contents) {
+		return Channels.newChannel(new ByteArrayInputStream(contents));
+	}
+
+	private byte[] readTestFile() throws IOException {
+		return Files.readAllBytes(getTestFile().toPath());
+	}
+
+	private File getTestFile() {
+		return new File(this.getClass().getResource("/TestASCII.txt").getPath());
+	}
+
+}
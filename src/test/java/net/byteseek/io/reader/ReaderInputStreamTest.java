@@ -0,0 +1,79 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ReaderInputStreamTest {
+
+	@Test(expected = NullPointerException.class)
+	public void testTransferToNullOutputStream() throws IOException {
+		final File file = new File(getClass().getResource("/TestASCII.txt").getPath());
+		final ReaderInputStream stream = new ReaderInputStream(new FileReader(file));
+		try {
+			stream.transferTo((OutputStream) null);
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Test
+	public void testResetToMiddleOfWindow() throws IOException {
+		final File file = new File(getClass().getResource("/TestASCII.txt").getPath());
+		final byte[] contents = Files.readAllBytes(file.toPath());
+		final ReaderInputStream stream = new ReaderInputStream(new FileReader(file, 1024));
+		try {
+			assertEquals(1500, stream.skip(1500));
+			stream.mark(0);
+			assertEquals(contents[1500] & 0xFF, stream.read());
+			stream.reset();
+			assertEquals("Position after reset", 1500, stream.getPosition());
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			assertEquals(contents.length - 1500, stream.transferTo(out));
+			assertArrayEquals(Arrays.copyOfRange(contents, 1500, contents.length), out.toByteArray());
+			assertEquals(-1, stream.read());
+		} finally {
+			stream.close();
+		}
+	}
+
+}
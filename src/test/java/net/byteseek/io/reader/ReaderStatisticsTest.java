@@ -0,0 +1,171 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import net.byteseek.io.reader.cache.AllWindowsCache;
+import net.byteseek.io.reader.cache.NoCache;
+
+public class ReaderStatisticsTest {
+
+	@Test
+	public void testNoStatisticsByDefault() throws IOException {
+		final FileReader reader = new FileReader(getFile());
+		try {
+			assertNull(reader.getStatistics());
+			reader.readByte(0);
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testWindowsCreatedAndCacheMisses() throws IOException {
+		final FileReader reader = new FileReader(getFile(), 1024, new NoCache());
+		final ReaderStatistics stats = new ReaderStatistics();
+		reader.setStatistics(stats);
+		try {
+			final long length = reader.length();
+			reader.readByte(0);
+			reader.readByte(5000);
+			reader.readByte(10);
+			reader.readByte(11);  // same window as the last one, so not looked up.
+			reader.readByte(length - 1);
+			assertEquals("Cache misses", 4, stats.getCacheMisses());
+			assertEquals("Cache hits", 0, stats.getCacheHits());
+			assertEquals("Windows created", 4, stats.getWindowsCreated());
+			assertEquals("Bytes read", 3 * 1024 + (length - (length - 1) / 1024 * 1024), stats.getBytesRead());
+			assertEquals("Reads", 4, stats.getReads());
+			assertEquals("Histogram counts every read", 4, sum(stats.getReadLatencyHistogram()));
+			assertEquals("Histogram size", ReaderStatistics.HISTOGRAM_SIZE, stats.getReadLatencyHistogram().length);
+
+			stats.reset();
+			assertEquals(0, stats.getWindowsCreated());
+			assertEquals(0, stats.getBytesRead());
+			assertEquals(0, stats.getCacheMisses());
+			assertEquals(0, stats.getReadNanos());
+			assertEquals(0, sum(stats.getReadLatencyHistogram()));
+
+			reader.setStatistics(null);
+			reader.readByte(8000);
+			assertEquals("Not recorded when disabled", 0, stats.getCacheMisses());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testCacheHitsAndBatchedWindows() throws IOException {
+		final FileReader reader = new FileReader(getFile(), 1024, new AllWindowsCache());
+		final ReaderStatistics stats = new ReaderStatistics();
+		reader.setStatistics(stats);
+		try {
+			reader.setReadSize(4096);
+			reader.readByte(0);
+			reader.readByte(1024); // sequential, so reads four windows at once.
+			assertEquals("Windows created", 5, stats.getWindowsCreated());
+			assertEquals("Bytes read", 5 * 1024, stats.getBytesRead());
+			assertEquals("Reads", 2, stats.getReads());
+			reader.readByte(2048);
+			reader.readByte(0);
+			assertEquals("Cache hits", 2, stats.getCacheHits());
+			assertEquals("Cache misses", 2, stats.getCacheMisses());
+
+			assertEquals("Windows prefetched", 4, reader.prefetch(5 * 1024, 9 * 1024 - 1));
+			assertEquals("Prefetched windows created", 9, stats.getWindowsCreated());
+			assertEquals("Prefetch timed as one read", 3, stats.getReads());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testSharedBetweenReaders() throws IOException {
+		final ReaderStatistics stats = new ReaderStatistics();
+		final FileReader reader1 = new FileReader(getFile());
+		final FileReader reader2 = new FileReader(getFile());
+		reader1.setStatistics(stats);
+		reader2.setStatistics(stats);
+		try {
+			assertSame(stats, reader1.getStatistics());
+			reader1.readByte(0);
+			reader2.readByte(0);
+			assertEquals("Windows created by both readers", 2, stats.getWindowsCreated());
+		} finally {
+			reader1.close();
+			reader2.close();
+		}
+	}
+
+	@Test
+	public void testExportThroughJmx() throws Exception {
+		final ReaderStatistics stats = new ReaderStatistics();
+		final FileReader reader = new FileReader(getFile());
+		reader.setStatistics(stats);
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		final ObjectName name = new ObjectName("net.byteseek:type=ReaderStatistics,name=test");
+		server.registerMBean(stats, name);
+		try {
+			reader.readByte(0);
+			assertEquals(1L, server.getAttribute(name, "WindowsCreated"));
+			assertEquals(1L, sum((long[]) server.getAttribute(name, "ReadLatencyHistogram")));
+		} finally {
+			server.unregisterMBean(name);
+			reader.close();
+		}
+	}
+
+	private static long sum(final long[] values) {
+		long total = 0;
+		for (final long value : values) {
+			total += value;
+		}
+		return total;
+	}
+
+	private File getFile() {
+		return new File(getClass().getResource("/TestASCII.txt").getPath());
+	}
+
+}
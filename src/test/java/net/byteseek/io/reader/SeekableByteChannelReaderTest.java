@@ -0,0 +1,157 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.byteseek.io.reader.cache.MostRecentlyUsedCache;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+
+public class SeekableByteChannelReaderTest {
+
+	private final static int[] WINDOW_SIZES = new int[] { 1, 7, 4096, 4097, 200000 };
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullChannel() throws IOException {
+		new SeekableByteChannelReader(null);
+	}
+
+	@Test
+	public void testLengthAndWindows() throws IOException {
+		final File file = getFile("/TestASCII.txt");
+		for (final int windowSize : WINDOW_SIZES) {
+			final SeekableByteChannelReader reader = new SeekableByteChannelReader(open(file), windowSize);
+			try {
+				assertEquals("length", file.length(), reader.length());
+				long totalLength = 0;
+				for (final Window window : reader) {
+					assertEquals("window position", totalLength, window.getWindowPosition());
+					totalLength += window.length();
+				}
+				assertEquals("sum of window lengths", file.length(), totalLength);
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	@Test
+	public void testRandomReads() throws IOException {
+		final File file = getFile("/TestASCII.txt");
+		final byte[] contents = Files.readAllBytes(file.toPath());
+		final Random random = new Random(file.length());
+		for (final int windowSize : WINDOW_SIZES) {
+			final SeekableByteChannelReader reader = new SeekableByteChannelReader(open(file), windowSize, 4);
+			try {
+				for (int i = 0; i < 10000; i++) {
+					final int position = random.nextInt(contents.length);
+					assertEquals("Window size " + windowSize + " position " + position,
+							contents[position] & 0xFF, reader.readByte(position));
+				}
+				assertEquals("No byte after end", -1, reader.readByte(contents.length));
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	@Test
+	public void testSearchMatchesFileReader() throws IOException {
+		final File file = getFile("/TestASCII.txt");
+		final Searcher<?> searcher = new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("the"));
+		final FileReader expectedReader = new FileReader(file);
+		final List<Long> expected;
+		try {
+			expected = searchAllForwards(searcher, expectedReader);
+		} finally {
+			expectedReader.close();
+		}
+		assertFalse("There are matches", expected.isEmpty());
+		for (final int windowSize : WINDOW_SIZES) {
+			final SeekableByteChannelReader reader = new SeekableByteChannelReader(open(file), windowSize,
+					new MostRecentlyUsedCache(1));
+			final WindowArrayPool pool = new WindowArrayPool(windowSize, 8);
+			try {
+				reader.setArrayPool(pool);
+				assertEquals("Matches with window size " + windowSize, expected, searchAllForwards(searcher, reader));
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	@Test
+	public void testCloseClosesChannel() throws IOException {
+		final SeekableByteChannel channel = open(getFile("/TestASCII.txt"));
+		final SeekableByteChannelReader reader = new SeekableByteChannelReader(channel);
+		assertTrue("channel open", channel.isOpen());
+		reader.close();
+		assertFalse("channel closed", channel.isOpen());
+	}
+
+	private static List<Long> searchAllForwards(final Searcher<?> searcher, final WindowReader reader) throws IOException {
+		final List<Long> positions = new ArrayList<Long>();
+		long searchPosition = 0;
+		List<? extends SearchResult<?>> results;
+		while (!(results = searcher.searchForwards(reader, searchPosition)).isEmpty()) {
+			final long matchPosition = results.get(0).getMatchPosition();
+			positions.add(matchPosition);
+			searchPosition = matchPosition + 1;
+		}
+		return positions;
+	}
+
+	private static SeekableByteChannel open(final File file) throws IOException {
+		return Files.newByteChannel(file.toPath(), StandardOpenOption.READ);
+	}
+
+	private File getFile(final String resourceName) {
+		return new File(this.getClass().getResource(resourceName).getPath());
+	}
+
+}
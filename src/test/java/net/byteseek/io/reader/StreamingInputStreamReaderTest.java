@@ -0,0 +1,212 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.byteseek.io.reader.cache.WindowCache;
+import net.byteseek.matcher.multisequence.ListMultiSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.searcher.ForwardSearchIterator;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.multisequence.MultiSequenceMatcherSearcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+
+public class StreamingInputStreamReaderTest {
+
+	private static final long STREAM_LENGTH = 8 * 1024 * 1024;
+	private static final int PERIOD = 1000;
+	private static final byte[] NEEDLE = "needle".getBytes();
+	private static final byte[] HAYSTACK = "a haystack".getBytes();
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullStream() {
+		new StreamingInputStreamReader(null, 16);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeLookback() {
+		new StreamingInputStreamReader(new PatternStream(1024, NEEDLE), -1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroWindowSize() {
+		new StreamingInputStreamReader(new PatternStream(1024, NEEDLE), 0, 16);
+	}
+
+	@Test
+	public void testLookbackAvailable() throws IOException {
+		final int lookback = 300;
+		final StreamingInputStreamReader reader = new StreamingInputStreamReader(
+				new PatternStream(STREAM_LENGTH, NEEDLE), 127, lookback);
+		assertEquals("lookback", lookback, reader.getLookback());
+		final long furthest = 100000;
+		assertNotNull("furthest window", reader.getWindow(furthest));
+		for (long position = furthest - lookback; position <= furthest; position++) {
+			assertEquals("byte at " + position, expectedByte(position, NEEDLE),
+					(byte) reader.readByte(position));
+		}
+		try {
+			reader.getWindow(0);
+			fail("Expected the start of the stream to have been discarded.");
+		} catch (final WindowMissingException expected) {
+		}
+		reader.close();
+	}
+
+	@Test
+	public void testSequenceSearchConstantMemory() throws IOException {
+		final StreamingInputStreamReader reader = new StreamingInputStreamReader(
+				new PatternStream(STREAM_LENGTH, NEEDLE), 127, NEEDLE.length - 1);
+		final CountingObserver observer = new CountingObserver();
+		reader.cache.subscribe(observer);
+		final Searcher<?> searcher = new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher(NEEDLE));
+		final List<Long> matches = searchAll(searcher, reader);
+		assertMatches(matches, NEEDLE);
+
+		// Every window but the last few read must have been discarded.
+		final long windowsRead = (STREAM_LENGTH + 126) / 127;
+		assertTrue("windows freed " + observer.freed + " of " + windowsRead,
+				observer.freed >= windowsRead - 3);
+		reader.close();
+	}
+
+	@Test
+	public void testMultiSequenceSearch() throws IOException {
+		final StreamingInputStreamReader reader = new StreamingInputStreamReader(
+				new PatternStream(STREAM_LENGTH, HAYSTACK), 100, HAYSTACK.length - 1);
+		final List<byte[]> patterns = new ArrayList<byte[]>();
+		patterns.add(NEEDLE);
+		patterns.add(HAYSTACK);
+		final Searcher<?> searcher = new MultiSequenceMatcherSearcher(new ListMultiSequenceMatcher(patterns));
+		assertMatches(searchAll(searcher, reader), HAYSTACK);
+		reader.close();
+	}
+
+	@Test
+	public void testLength() throws IOException {
+		final StreamingInputStreamReader reader = new StreamingInputStreamReader(
+				new PatternStream(STREAM_LENGTH, NEEDLE), 4096, 10);
+		assertEquals("length", STREAM_LENGTH, reader.length());
+		assertEquals("last byte", expectedByte(STREAM_LENGTH - 1, NEEDLE),
+				(byte) reader.readByte(STREAM_LENGTH - 1));
+		assertEquals("past end", -1, reader.readByte(STREAM_LENGTH));
+		reader.close();
+	}
+
+	private static <T> List<Long> searchAll(final Searcher<T> searcher, final WindowReader reader) {
+		final List<Long> matches = new ArrayList<Long>();
+		final ForwardSearchIterator<T> iterator = new ForwardSearchIterator<T>(searcher, reader);
+		while (iterator.hasNext()) {
+			for (final SearchResult<T> result : iterator.next()) {
+				matches.add(result.getMatchPosition());
+			}
+		}
+		return matches;
+	}
+
+	private static void assertMatches(final List<Long> matches, final byte[] pattern) {
+		final long expected = (STREAM_LENGTH - patternOffset(pattern) - pattern.length) / PERIOD + 1;
+		assertEquals("number of matches", expected, matches.size());
+		for (int i = 0; i < matches.size(); i++) {
+			assertEquals("match " + i, (long) i * PERIOD + patternOffset(pattern),
+					(long) matches.get(i));
+		}
+	}
+
+	/*
+	 * Patterns are placed so that they regularly straddle window boundaries.
+	 */
+	private static int patternOffset(final byte[] pattern) {
+		return PERIOD - pattern.length / 2 - 1;
+	}
+
+	private static byte expectedByte(final long position, final byte[] pattern) {
+		final int inPeriod = (int) ((position - patternOffset(pattern) + PERIOD) % PERIOD);
+		return inPeriod < pattern.length ? pattern[inPeriod] : (byte) 'x';
+	}
+
+	/**
+	 * Generates a stream of the given length containing a pattern every PERIOD bytes,
+	 * without ever holding the stream in memory.
+	 */
+	private static final class PatternStream extends InputStream {
+
+		private final long length;
+		private final byte[] pattern;
+		private long position;
+
+		PatternStream(final long length, final byte[] pattern) {
+			this.length = length;
+			this.pattern = pattern;
+		}
+
+		@Override
+		public int read() {
+			return position < length ? expectedByte(position++, pattern) & 0xFF : -1;
+		}
+
+		@Override
+		public int read(final byte[] buffer, final int offset, final int count) {
+			if (position >= length) {
+				return -1;
+			}
+			final int toRead = (int) Math.min(count, length - position);
+			for (int i = 0; i < toRead; i++) {
+				buffer[offset + i] = expectedByte(position++, pattern);
+			}
+			return toRead;
+		}
+	}
+
+	private static final class CountingObserver implements WindowCache.WindowObserver {
+
+		private long freed;
+
+		@Override
+		public void windowFree(final Window window, final WindowCache fromCache) {
+			freed++;
+		}
+	}
+
+}
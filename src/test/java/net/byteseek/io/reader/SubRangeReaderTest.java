@@ -0,0 +1,231 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+
+public class SubRangeReaderTest {
+
+	private static final long[][] RANGES = { { 0, 109161 }, { 0, 1 }, { 1, 0 }, { 1, 127 }, { 126, 2 },
+			{ 5000, 40001 }, { 12345, 96816 }, { 109160, 1 } };
+
+	private static File file;
+	private static byte[] contents;
+
+	@BeforeClass
+	public static void readContents() throws IOException {
+		file = new File(SubRangeReaderTest.class.getResource("/TestASCII.txt").getPath());
+		contents = Files.readAllBytes(file.toPath());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullParent() throws IOException {
+		new SubRangeReader(null, 0, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeOffset() throws IOException {
+		new SubRangeReader(new ByteArrayReader(new byte[10]), -1, 5);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPastEnd() throws IOException {
+		new SubRangeReader(new ByteArrayReader(new byte[10]), 5, 6);
+	}
+
+	@Test
+	public void testToEndOfParent() throws IOException {
+		final SubRangeReader reader = new SubRangeReader(new ByteArrayReader(new byte[10]), 4);
+		assertEquals("length", 6, reader.length());
+		assertEquals("offset", 4, reader.getOffset());
+	}
+
+	@Test
+	public void testReadBytesAndWindows() throws IOException {
+		for (final WindowReader parent : createParents()) {
+			try {
+				for (final long[] range : RANGES) {
+					final SubRangeReader reader = new SubRangeReader(parent, range[0], range[1]);
+					assertSame("parent", parent, reader.getParent());
+					testRange(reader, (int) range[0], (int) range[1]);
+					reader.close();
+				}
+			} finally {
+				parent.close();
+			}
+		}
+	}
+
+	@Test
+	public void testNestedRanges() throws IOException {
+		final FileReader parent = new FileReader(file, 100);
+		try {
+			final SubRangeReader outer = new SubRangeReader(parent, 1050, 50000);
+			final SubRangeReader inner = new SubRangeReader(outer, 333, 20000);
+			testRange(inner, 1383, 20000);
+		} finally {
+			parent.close();
+		}
+	}
+
+	@Test
+	public void testSearchInRange() throws IOException {
+		final byte[] pattern = "the".getBytes();
+		final Searcher<?> searcher = new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher(pattern));
+		for (final WindowReader parent : createParents()) {
+			try {
+				for (final long[] range : RANGES) {
+					final int from = (int) range[0];
+					final int length = (int) range[1];
+					final List<Long> expected = findAll(pattern, from, length);
+					final SubRangeReader reader = new SubRangeReader(parent, from, length);
+					assertEquals("Matches in range " + from + " length " + length + " of " + parent,
+							expected, searchAllForwards(searcher, reader, length));
+				}
+			} finally {
+				parent.close();
+			}
+		}
+	}
+
+	@Test
+	public void testWindowTrimmedAtStartSharesArray() throws IOException {
+		final FileReader parent = new FileReader(file, 127);
+		try {
+			final SubRangeReader reader = new SubRangeReader(parent, 5, 1000);
+			final Window parentWindow = parent.getWindow(0);
+			final Window window = reader.getWindow(0);
+			assertTrue("Trimmed window has an array", window.hasArray());
+			assertSame("Array shared with parent window", parentWindow.getArray(), window.getArray());
+			assertEquals("array offset", parentWindow.getArrayOffset() + 5, window.getArrayOffset());
+			assertEquals("length", 122, window.length());
+			final byte[] array = window.getArray();
+			for (int index = 0; index < window.length(); index++) {
+				assertEquals("byte " + index, contents[5 + index], array[window.getArrayOffset() + index]);
+				assertEquals("buffer byte " + index, contents[5 + index], window.getBuffer().get(index));
+			}
+		} finally {
+			parent.close();
+		}
+	}
+
+	@Test
+	public void testCloseLeavesParentOpen() throws IOException {
+		final FileReader parent = new FileReader(file);
+		try {
+			new SubRangeReader(parent, 10, 10).close();
+			assertEquals("Parent still readable", contents[0] & 0xFF, parent.readByte(0));
+		} finally {
+			parent.close();
+		}
+	}
+
+	private void testRange(final SubRangeReader reader, final int from, final int length) throws IOException {
+		final String description = "Range from " + from + " length " + length + " of " + reader.getParent();
+		assertEquals(description, length, reader.length());
+		for (int position = 0; position < length; position++) {
+			if (reader.readByte(position) != (contents[from + position] & 0xFF)) {
+				assertEquals(description + " position " + position, contents[from + position] & 0xFF,
+						reader.readByte(position));
+			}
+		}
+		assertEquals(description + " before start", -1, reader.readByte(-1));
+		assertEquals(description + " after end", -1, reader.readByte(length));
+		assertNull(description + " no window after end", reader.getWindow(length));
+
+		// Windows are trimmed to the range, and offsets are relative to them:
+		long position = 0;
+		while (position < length) {
+			final Window window = reader.getWindow(position);
+			final int offset = reader.getWindowOffset(position);
+			assertEquals(description + " window position", position - offset, window.getWindowPosition());
+			assertEquals(description + " window ends in range", true,
+					window.getWindowPosition() + window.length() <= length);
+			for (int index = offset; index < window.length(); index++) {
+				assertEquals(description + " byte " + index + " of window at " + window.getWindowPosition(),
+						contents[from + (int) window.getWindowPosition() + index], window.getByte(index));
+			}
+			position = window.getWindowPosition() + window.length();
+		}
+	}
+
+	private List<WindowReader> createParents() throws IOException {
+		final List<WindowReader> parents = new ArrayList<WindowReader>();
+		parents.add(new FileReader(file, 127));
+		parents.add(new FileReader(file, 4096));
+		parents.add(new MappedFileReader(file, 1000));
+		return parents;
+	}
+
+	private static List<Long> findAll(final byte[] pattern, final int from, final int length) {
+		final List<Long> positions = new ArrayList<Long>();
+		for (int position = 0; position + pattern.length <= length; position++) {
+			final int start = from + position;
+			if (Arrays.equals(pattern, Arrays.copyOfRange(contents, start, start + pattern.length))) {
+				positions.add((long) position);
+			}
+		}
+		return positions;
+	}
+
+	private static List<Long> searchAllForwards(final Searcher<?> searcher, final WindowReader reader,
+			final long toPosition) throws IOException {
+		final List<Long> positions = new ArrayList<Long>();
+		long searchPosition = 0;
+		List<? extends SearchResult<?>> results;
+		while (!(results = searcher.searchForwards(reader, searchPosition, toPosition - 1)).isEmpty()) {
+			final long matchPosition = results.get(0).getMatchPosition();
+			positions.add(matchPosition);
+			searchPosition = matchPosition + 1;
+		}
+		return positions;
+	}
+
+}
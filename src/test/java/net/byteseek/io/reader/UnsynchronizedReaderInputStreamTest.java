@@ -0,0 +1,202 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class UnsynchronizedReaderInputStreamTest {
+
+	private static File file;
+	private static byte[] contents;
+
+	@BeforeClass
+	public static void readContents() throws IOException {
+		file = new File(UnsynchronizedReaderInputStreamTest.class.getResource("/TestASCII.txt").getPath());
+		contents = Files.readAllBytes(file.toPath());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullReader() throws IOException {
+		new UnsynchronizedReaderInputStream(null);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testTransferToNullOutputStream() throws IOException {
+		final FileReader reader = new FileReader(file);
+		try {
+			new UnsynchronizedReaderInputStream(reader).transferTo((OutputStream) null);
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testReadSingleBytes() throws IOException {
+		for (final WindowReader reader : createReaders()) {
+			final UnsynchronizedReaderInputStream stream = new UnsynchronizedReaderInputStream(reader);
+			try {
+				final byte[] read = new byte[contents.length];
+				for (int position = 0; position < contents.length; position++) {
+					read[position] = (byte) stream.read();
+				}
+				assertArrayEquals(reader.toString(), contents, read);
+				assertEquals("End of stream " + reader, -1, stream.read());
+				assertEquals("Position at end " + reader, contents.length, stream.getPosition());
+			} finally {
+				stream.close();
+			}
+		}
+	}
+
+	@Test
+	public void testReadBlocks() throws IOException {
+		for (final WindowReader reader : createReaders()) {
+			final UnsynchronizedReaderInputStream stream = new UnsynchronizedReaderInputStream(reader);
+			try {
+				final ByteArrayOutputStream out = new ByteArrayOutputStream();
+				final byte[] block = new byte[1000];
+				int read;
+				while ((read = stream.read(block, 0, block.length)) != -1) {
+					out.write(block, 0, read);
+				}
+				assertArrayEquals(reader.toString(), contents, out.toByteArray());
+				assertEquals("Zero length read", 0, stream.read(block, 0, 0));
+			} finally {
+				stream.close();
+			}
+		}
+	}
+
+	@Test
+	public void testSkip() throws IOException {
+		for (final WindowReader reader : createReaders()) {
+			final UnsynchronizedReaderInputStream stream = new UnsynchronizedReaderInputStream(reader);
+			try {
+				assertEquals("Skip nothing", 0, stream.skip(0));
+				assertEquals("Skip within window", 10, stream.skip(10));
+				assertEquals("Byte after skip", contents[10] & 0xFF, stream.read());
+				assertEquals("Skip over windows", 50000, stream.skip(50000));
+				assertEquals("Position after skip", 50011, stream.getPosition());
+				assertEquals("Byte after long skip", contents[50011] & 0xFF, stream.read());
+				assertEquals("Skip past end", contents.length - 50012, stream.skip(Long.MAX_VALUE));
+				assertEquals("No bytes after end", -1, stream.read());
+				assertEquals("Nothing to skip at end", 0, stream.skip(100));
+			} finally {
+				stream.close();
+			}
+		}
+	}
+
+	@Test
+	public void testMarkAndReset() throws IOException {
+		for (final WindowReader reader : createReaders()) {
+			final UnsynchronizedReaderInputStream stream = new UnsynchronizedReaderInputStream(reader);
+			try {
+				stream.skip(1000);
+				stream.mark(0);
+				final byte[] first = new byte[10000];
+				assertEquals(first.length, stream.read(first, 0, first.length));
+				stream.reset();
+				final byte[] second = new byte[10000];
+				assertEquals(second.length, stream.read(second, 0, second.length));
+				assertArrayEquals("Bytes after reset " + reader, first, second);
+				assertArrayEquals("Bytes from mark " + reader, Arrays.copyOfRange(contents, 1000, 11000), second);
+			} finally {
+				stream.close();
+			}
+		}
+	}
+
+	@Test
+	public void testTransferToOutputStream() throws IOException {
+		for (final WindowReader reader : createReaders()) {
+			final UnsynchronizedReaderInputStream stream = new UnsynchronizedReaderInputStream(reader);
+			try {
+				stream.skip(333);
+				final ByteArrayOutputStream out = new ByteArrayOutputStream();
+				assertEquals("Bytes transferred " + reader, contents.length - 333, stream.transferTo(out));
+				assertArrayEquals(reader.toString(), Arrays.copyOfRange(contents, 333, contents.length), out.toByteArray());
+				assertEquals("End of stream " + reader, -1, stream.read());
+				assertEquals("Nothing more to transfer", 0, stream.transferTo(out));
+			} finally {
+				stream.close();
+			}
+		}
+	}
+
+	@Test
+	public void testTransferToChannel() throws IOException {
+		for (final WindowReader reader : createReaders()) {
+			final UnsynchronizedReaderInputStream stream = new UnsynchronizedReaderInputStream(reader);
+			try {
+				stream.read();
+				stream.skip(4000);
+				final ByteArrayOutputStream out = new ByteArrayOutputStream();
+				assertEquals("Bytes transferred " + reader, contents.length - 4001, stream.transferTo(Channels.newChannel(out)));
+				assertArrayEquals(reader.toString(), Arrays.copyOfRange(contents, 4001, contents.length), out.toByteArray());
+				assertEquals("Position at end " + reader, contents.length, stream.getPosition());
+				assertEquals("End of stream " + reader, -1, stream.read());
+			} finally {
+				stream.close();
+			}
+		}
+	}
+
+	private List<WindowReader> createReaders() throws IOException {
+		final List<WindowReader> readers = new ArrayList<WindowReader>();
+		readers.add(new FileReader(file, 127));
+		readers.add(new FileReader(file));
+		readers.add(new MappedFileReader(file, 1000));
+		readers.add(new InputStreamReader(Files.newInputStream(file.toPath()), 511));
+		final ByteBuffer direct = ByteBuffer.allocateDirect(contents.length - 5000);
+		direct.put(contents, 5000, contents.length - 5000);
+		direct.flip();
+		readers.add(new ByteBufferReader(ByteBuffer.wrap(contents, 0, 5000), direct));
+		return readers;
+	}
+
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.byteseek.io.reader.cache.ConcurrentClockCache;
+import net.byteseek.io.reader.cache.MappedTempFileCache;
+import net.byteseek.io.reader.cache.MostRecentlyUsedCache;
+import net.byteseek.io.reader.cache.NoCache;
+import net.byteseek.io.reader.cache.SharedWindowCache;
+import net.byteseek.io.reader.cache.SynchronizedCache;
+import net.byteseek.io.reader.cache.TempFileCache;
+import net.byteseek.io.reader.cache.TwoLevelCache;
+import net.byteseek.io.reader.cache.WindowCache;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+
+/**
+ * Tests the WindowArrayPool, and that readers using one give the same bytes
+ * while reusing the arrays of Windows freed from their cache.
+ *
+ * @author Matt Palmer
+ */
+public class WindowArrayPoolTest {
+
+	private final static int[] WINDOW_SIZES = new int[] { 1, 7, 4096, 4097 };
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroArraySize() {
+		new WindowArrayPool(0, 4);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroCapacity() {
+		new WindowArrayPool(4096, 0);
+	}
+
+	@Test
+	public void testTakeAndRelease() {
+		final WindowArrayPool pool = new WindowArrayPool(16, 2);
+		final byte[] first = pool.take();
+		assertEquals("Array size", 16, first.length);
+		assertEquals("Arrays created", 1, pool.getArraysCreated());
+		assertTrue("First released", pool.release(first));
+		assertTrue("New array released", pool.release(new byte[16]));
+		assertFalse("Pool is full", pool.release(new byte[16]));
+		assertFalse("Wrong size not released", pool.release(new byte[15]));
+		assertFalse("Null not released", pool.release(null));
+		assertEquals("Pool size", 2, pool.size());
+		pool.take();
+		assertSame("Last released is taken first", first, pool.take());
+		assertEquals("Arrays reused", 2, pool.getArraysReused());
+		assertEquals("Pool is empty", 0, pool.size());
+		assertNotSame("New array when empty", first, pool.take());
+		assertEquals("Arrays created", 2, pool.getArraysCreated());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPoolSizeMustMatchWindowSize() throws IOException {
+		final FileReader reader = new FileReader(getFile("/TestASCII.txt"), 4096);
+		try {
+			reader.setArrayPool(new WindowArrayPool(4097, 4));
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testConcurrentReaderCannotPool() throws IOException {
+		final ConcurrentFileReader reader = new ConcurrentFileReader(getFile("/TestASCII.txt"), 4096, 8);
+		try {
+			reader.setArrayPool(new WindowArrayPool(4096, 4));
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testSharedCachesCannotPool() throws IOException {
+		final File file = getFile("/TestASCII.txt");
+		final WindowCache[] caches = new WindowCache[] {
+				new ConcurrentClockCache(8),
+				new SynchronizedCache(new MostRecentlyUsedCache(4)),
+				new SharedWindowCache(1 << 20).forFile(file, 4096),
+				TwoLevelCache.create(new MostRecentlyUsedCache(4), new ConcurrentClockCache(8)) };
+		for (final WindowCache cache : caches) {
+			final FileReader reader = new FileReader(file, 4096, cache);
+			try {
+				reader.setArrayPool(new WindowArrayPool(4096, 4));
+				fail("A pool cannot be used with a shared cache " + cache);
+			} catch (UnsupportedOperationException expected) {
+				assertNull("No pool", reader.getArrayPool());
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	@Test
+	public void testCachesFreeingWindowsWhenAddedCannotPool() throws IOException {
+		final File file = getFile("/TestASCII.txt");
+		final WindowCache[] caches = new WindowCache[] {
+				NoCache.NO_CACHE,
+				new TempFileCache(),
+				new MappedTempFileCache(),
+				TwoLevelCache.create(new NoCache(), new TempFileCache()) };
+		for (final WindowCache cache : caches) {
+			final FileReader reader = new FileReader(file, 4096, cache);
+			try {
+				reader.setArrayPool(new WindowArrayPool(4096, 4));
+				fail("A pool cannot be used with a cache which frees windows when added " + cache);
+			} catch (UnsupportedOperationException expected) {
+				assertNull("No pool", reader.getArrayPool());
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroReleaseDelay() throws IOException {
+		final FileReader reader = new FileReader(getFile("/TestASCII.txt"), 4096);
+		try {
+			reader.setArrayPool(new WindowArrayPool(4096, 4), 0);
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testOnlyReaderArraysReleased() throws IOException {
+		final File file = getFile("/TestASCII.txt");
+		final MostRecentlyUsedCache cache = new MostRecentlyUsedCache(1);
+		final FileReader reader = new FileReader(file, 127, cache);
+		final WindowArrayPool pool = new WindowArrayPool(127, 64);
+		try {
+			reader.setArrayPool(pool);
+			for (int window = 0; window < 16; window++) {
+				cache.addWindow(new Window(new byte[127], 100000 + window * 127, 127));
+			}
+			assertEquals("Arrays not taken from the pool are not released", 0, pool.size());
+			testSequentialReads(reader, readFile(file));
+			assertTrue("Reader arrays are released " + pool, pool.size() > 0);
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testSequentialFileReads() throws IOException {
+		final File file = getFile("/TestASCII.txt");
+		final byte[] contents = readFile(file);
+		for (final int windowSize : WINDOW_SIZES) {
+			final FileReader reader = new FileReader(file, windowSize, new MostRecentlyUsedCache(4));
+			final WindowArrayPool pool = new WindowArrayPool(windowSize, 16);
+			try {
+				reader.setArrayPool(pool);
+				assertSame("Pool is set", pool, reader.getArrayPool());
+				testSequentialReads(reader, contents);
+				if (contents.length / windowSize > 16) {
+					assertTrue("Arrays were reused " + pool, pool.getArraysReused() > 0);
+					assertTrue("Few arrays created " + pool, pool.getArraysCreated() <= 16);
+				}
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	@Test
+	public void testSequentialStreamReads() throws IOException {
+		final File file = getFile("/TestASCII.txt");
+		final byte[] contents = readFile(file);
+		for (final int windowSize : WINDOW_SIZES) {
+			final InputStreamReader reader = new InputStreamReader(new FileInputStream(file), windowSize, new MostRecentlyUsedCache(1));
+			final WindowArrayPool pool = new WindowArrayPool(windowSize, 16);
+			try {
+				reader.setArrayPool(pool);
+				testSequentialReads(reader, contents);
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	@Test
+	public void testSearchWithSmallCache() throws IOException {
+		testSearch("the", 1, AbstractReader.DEFAULT_ARRAY_RELEASE_DELAY);
+	}
+
+	@Test
+	public void testMatchSpanningManyWindows() throws IOException {
+		// A match spans more windows than the cache and the default delay hold:
+		testSearch("Project Gutenberg", 1, 32);
+	}
+
+	private void testSearch(final String sequence, final int cacheCapacity, final int releaseDelay) throws IOException {
+		final File file = getFile("/TestASCII.txt");
+		final Searcher<SequenceMatcher> searcher = new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher(sequence));
+		final FileReader expectedReader = new FileReader(file);
+		final List<Long> expected;
+		try {
+			expected = searchAllForwards(searcher, expectedReader);
+		} finally {
+			expectedReader.close();
+		}
+		assertTrue("There are matches", expected.size() > 0);
+		for (final int windowSize : WINDOW_SIZES) {
+			final FileReader reader = new FileReader(file, windowSize, new MostRecentlyUsedCache(cacheCapacity));
+			final WindowArrayPool pool = new WindowArrayPool(windowSize, 8);
+			try {
+				reader.setArrayPool(pool, releaseDelay);
+				assertEquals("Matches with window size " + windowSize, expected, searchAllForwards(searcher, reader));
+				// Arrays are only released once more Windows than the cache and release delay hold have been read:
+				if (file.length() / windowSize > cacheCapacity + 1 + releaseDelay) {
+					assertTrue("Arrays were reused " + pool, pool.getArraysReused() > 0);
+				}
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	@Test
+	public void testRemovePool() throws IOException {
+		final File file = getFile("/TestASCII.txt");
+		final byte[] contents = readFile(file);
+		final FileReader reader = new FileReader(file, 127, new MostRecentlyUsedCache(1));
+		final WindowArrayPool pool = new WindowArrayPool(127, 8);
+		try {
+			reader.setArrayPool(pool);
+			testSequentialReads(reader, contents);
+			reader.setArrayPool(null);
+			assertNull("No pool", reader.getArrayPool());
+			final long created = pool.getArraysCreated();
+			final long reused = pool.getArraysReused();
+			testSequentialReads(reader, contents);
+			assertEquals("No arrays created by the pool", created, pool.getArraysCreated());
+			assertEquals("No arrays reused from the pool", reused, pool.getArraysReused());
+		} finally {
+			reader.close();
+		}
+	}
+
+	private List<Long> searchAllForwards(final Searcher<SequenceMatcher> searcher, final WindowReader reader) throws IOException {
+		final List<Long> positions = new ArrayList<Long>();
+		long searchPosition = 0;
+		List<SearchResult<SequenceMatcher>> results;
+		while (!(results = searcher.searchForwards(reader, searchPosition)).isEmpty()) {
+			final long matchPosition = results.get(0).getMatchPosition();
+			positions.add(matchPosition);
+			searchPosition = matchPosition + 1;
+		}
+		return positions;
+	}
+
+	private void testSequentialReads(final WindowReader reader, final byte[] contents) throws IOException {
+		for (int pos = 0; pos < contents.length; pos++) {
+			final int value = reader.readByte(pos);
+			if (value != (contents[pos] & 0xFF)) {
+				assertEquals("Reader " + reader + " at position " + pos, contents[pos] & 0xFF, value);
+			}
+		}
+		assertEquals("No byte after end", -1, reader.readByte(contents.length));
+	}
+
+	private byte[] readFile(final File file) throws IOException {
+		final byte[] contents = new byte[(int) file.length()];
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			raf.readFully(contents);
+		} finally {
+			raf.close();
+		}
+		return contents;
+	}
+
+	private File getFile(final String resourceName) {
+		return new File(this.getClass().getResource(resourceName).getPath());
+	}
+
+}
@@ -0,0 +1,131 @@
+package net.byteseek.io.reader.cache;
+
+import net.byteseek.io.reader.FileReader;
+import net.byteseek.io.reader.Window;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ByteBudgetCacheTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroBudget() {
+        new CacheBudget(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullBudget() {
+        new ByteBudgetCache(null);
+    }
+
+    @Test
+    public void testReserveAndRelease() {
+        final CacheBudget budget = new CacheBudget(100);
+        assertTrue(budget.reserve(60));
+        assertFalse(budget.reserve(41));
+        assertTrue(budget.reserve(40));
+        assertEquals(100, budget.getUsedBytes());
+        assertEquals(0, budget.getAvailableBytes());
+        budget.release(60);
+        assertEquals(60, budget.getAvailableBytes());
+    }
+
+    @Test
+    public void testActualArrayLengthsAccounted() {
+        final ByteBudgetCache cache = new ByteBudgetCache(1000);
+        cache.addWindow(new Window(new byte[300], 0, 300));
+        cache.addWindow(new Window(new byte[300], 300, 10));
+        cache.addWindow(new Window(ByteBuffer.allocate(200), 600, 100));
+        assertEquals(800, cache.getUsedBytes());
+        assertEquals(800, cache.getBudget().getUsedBytes());
+        cache.addWindow(new Window(new byte[300], 0, 300));
+        assertEquals("Window already cached is not counted twice", 800, cache.getUsedBytes());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvictedToStayWithinBudget() {
+        final ByteBudgetCache cache = new ByteBudgetCache(1000);
+        final List<Window> freed = subscribe(cache);
+        for (long position = 0; position < 1000; position += 250) {
+            cache.addWindow(new Window(new byte[250], position, 250));
+        }
+        assertNotNull(cache.getWindow(0));
+        cache.addWindow(new Window(new byte[400], 1000, 400));
+        assertEquals(2, freed.size());
+        assertEquals(250, freed.get(0).getWindowPosition());
+        assertEquals(500, freed.get(1).getWindowPosition());
+        assertNotNull(cache.getWindow(0));
+        assertNotNull(cache.getWindow(750));
+        assertNotNull(cache.getWindow(1000));
+        assertEquals(900, cache.getUsedBytes());
+        assertTrue(cache.getUsedBytes() <= cache.getBudget().getMaxBytes());
+    }
+
+    @Test
+    public void testWindowLargerThanBudgetNotCached() {
+        final ByteBudgetCache cache = new ByteBudgetCache(100);
+        final List<Window> freed = subscribe(cache);
+        final Window window = new Window(new byte[101], 0, 101);
+        cache.addWindow(window);
+        assertNull(cache.getWindow(0));
+        assertEquals(0, cache.getUsedBytes());
+        assertEquals(1, freed.size());
+        assertSame(window, freed.get(0));
+    }
+
+    @Test
+    public void testSharedBudget() {
+        final CacheBudget budget = new CacheBudget(1000);
+        final ByteBudgetCache first = new ByteBudgetCache(budget);
+        final ByteBudgetCache second = new ByteBudgetCache(budget);
+        for (long position = 0; position < 600; position += 100) {
+            first.addWindow(new Window(new byte[100], position, 100));
+        }
+        for (long position = 0; position < 600; position += 100) {
+            second.addWindow(new Window(new byte[100], position, 100));
+        }
+        assertEquals(600, first.getUsedBytes());
+        assertEquals(400, second.getUsedBytes());
+        assertEquals(1000, budget.getUsedBytes());
+        first.clear();
+        assertEquals(400, budget.getUsedBytes());
+        second.addWindow(new Window(new byte[100], 600, 100));
+        assertEquals(500, second.getUsedBytes());
+        assertNotNull("Second cache did not need to evict", second.getWindow(200));
+    }
+
+    @Test
+    public void testReaderWithBudget() throws IOException {
+        final File file = new File(getClass().getResource("/TestASCII.txt").getPath());
+        final CacheBudget budget = new CacheBudget(10000);
+        final FileReader first = new FileReader(file, 1000, new ByteBudgetCache(budget));
+        final FileReader second = new FileReader(file, 333, new ByteBudgetCache(budget));
+        try {
+            for (long position = 0; position < file.length(); position++) {
+                assertEquals(first.readByte(position), second.readByte(position));
+                assertTrue("Within budget " + budget, budget.getUsedBytes() <= budget.getMaxBytes());
+            }
+        } finally {
+            first.close();
+            second.close();
+        }
+        assertEquals("All bytes released on close", 0, budget.getUsedBytes());
+    }
+
+    private static List<Window> subscribe(final WindowCache cache) {
+        final List<Window> freed = new ArrayList<Window>();
+        cache.subscribe(new WindowCache.WindowObserver() {
+            @Override
+            public void windowFree(final Window window, final WindowCache fromCache) {
+                freed.add(window);
+            }
+        });
+        return freed;
+    }
+}
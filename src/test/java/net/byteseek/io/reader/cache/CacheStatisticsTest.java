@@ -0,0 +1,149 @@
+package net.byteseek.io.reader.cache;
+
+import net.byteseek.io.reader.Window;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+public class CacheStatisticsTest {
+
+    @Test
+    public void testNoStatisticsByDefault() {
+        final MostRecentlyUsedCache cache = new MostRecentlyUsedCache(1);
+        assertNull(cache.getStatistics());
+        cache.addWindow(window(0, 10));
+        cache.addWindow(window(10, 10));
+        assertNotNull(cache.getWindow(10));
+    }
+
+    @Test
+    public void testLookupsRecordedByCache() {
+        final MostRecentlyUsedCache cache = new MostRecentlyUsedCache(1); // holds two windows.
+        final CacheStatistics stats = new CacheStatistics();
+        cache.setStatistics(stats);
+        for (int window = 0; window < 3; window++) {
+            cache.addWindow(window(window * 10, 10));
+        }
+        assertNotNull(cache.getWindow(20));
+        assertNotNull(cache.getWindow(10));
+        assertNull(cache.getWindow(0));
+        assertEquals("Hits", 2, stats.getHits());
+        assertEquals("Misses", 1, stats.getMisses());
+        assertEquals("Evicted", 1, stats.getWindowsFreed());
+    }
+
+    @Test
+    public void testCopyingCacheFreesEachWindowStored() {
+        final TempFileCache cache = new TempFileCache();
+        final CacheStatistics stats = new CacheStatistics();
+        cache.setStatistics(stats);
+        try {
+            cache.addWindow(window(0, 10));
+            cache.addWindow(window(10, 10));
+            assertEquals("Freed once copied", 2, stats.getWindowsFreed());
+            assertNotNull(cache.getWindow(0));
+            assertNull(cache.getWindow(100));
+            assertEquals("Hits", 1, stats.getHits());
+            assertEquals("Misses", 1, stats.getMisses());
+        } finally {
+            cache.clear();
+        }
+    }
+
+    @Test
+    public void testDirectMemoryCacheFreesEvictedWindows() {
+        final DirectMemoryCache cache = new DirectMemoryCache(10, 2);
+        final CacheStatistics stats = new CacheStatistics();
+        cache.setStatistics(stats);
+        cache.addWindow(window(0, 10));
+        cache.addWindow(window(10, 10));
+        assertEquals("Nothing freed when copied", 0, stats.getWindowsFreed());
+        cache.addWindow(window(20, 10));
+        assertEquals("Evicted", 1, stats.getWindowsFreed());
+    }
+
+    @Test
+    public void testConcurrentClockCache() {
+        final ConcurrentClockCache cache = new ConcurrentClockCache(2, 1);
+        assertNull(cache.getStatistics());
+        final CacheStatistics stats = new CacheStatistics();
+        cache.setStatistics(stats);
+        assertSame(stats, cache.getStatistics());
+        cache.addWindow(window(0, 10));
+        cache.addWindow(window(10, 10));
+        cache.addWindow(window(10, 10)); // duplicate is freed.
+        cache.addWindow(window(20, 10)); // evicts a window.
+        assertEquals("Freed", 2, stats.getWindowsFreed());
+        assertNotNull(cache.getWindow(20));
+        assertNull(cache.getWindow(30));
+        assertEquals("Hits", 1, stats.getHits());
+        assertEquals("Misses", 1, stats.getMisses());
+    }
+
+    @Test
+    public void testTwoLevelCacheTiers() {
+        final MostRecentlyUsedCache primary = new MostRecentlyUsedCache(1); // holds two windows.
+        final TempFileCache secondary = new TempFileCache();
+        final TwoLevelCache cache = TwoLevelCache.create(primary, secondary);
+        final CacheStatistics primaryStats = new CacheStatistics();
+        final CacheStatistics secondaryStats = new CacheStatistics();
+        final CacheStatistics overallStats = new CacheStatistics();
+        primary.setStatistics(primaryStats);
+        secondary.setStatistics(secondaryStats);
+        cache.setStatistics(overallStats);
+        try {
+            for (int window = 0; window < 5; window++) {
+                cache.addWindow(window(window * 100, 100));
+            }
+            assertEquals("Evicted from primary", 3, primaryStats.getWindowsFreed());
+            assertEquals("Spilled to temp file", 300, secondaryStats.getBytesWritten());
+
+            assertNotNull(cache.getWindow(400)); // primary hit
+            assertNotNull(cache.getWindow(0));   // primary miss, secondary hit
+            assertNull(cache.getWindow(1000));   // missed by both
+
+            assertEquals("Primary hits", 1, primaryStats.getHits());
+            assertEquals("Primary misses", 2, primaryStats.getMisses());
+            assertEquals("Secondary hits", 1, secondaryStats.getHits());
+            assertEquals("Secondary misses", 1, secondaryStats.getMisses());
+            assertEquals("Overall hits", 2, overallStats.getHits());
+            assertEquals("Overall misses", 1, overallStats.getMisses());
+
+            primaryStats.reset();
+            assertEquals(0, primaryStats.getHits());
+            assertEquals(0, primaryStats.getMisses());
+            assertEquals(0, primaryStats.getWindowsFreed());
+        } finally {
+            cache.clear();
+        }
+    }
+
+    @Test
+    public void testExportThroughJmx() throws Exception {
+        final CacheStatistics stats = new CacheStatistics();
+        final TempFileCache cache = new TempFileCache();
+        cache.setStatistics(stats);
+        cache.addWindow(window(0, 10));
+        cache.addWindow(window(10, 10));
+        cache.clear();
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName("net.byteseek:type=CacheStatistics,name=test");
+        server.registerMBean(stats, name);
+        try {
+            assertEquals(2L, server.getAttribute(name, "WindowsFreed"));
+            assertEquals(20L, server.getAttribute(name, "BytesWritten"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    private static Window window(final long position, final int length) {
+        return new Window(new byte[length], position, length);
+    }
+
+}
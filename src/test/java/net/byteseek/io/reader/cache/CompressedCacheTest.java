@@ -0,0 +1,141 @@
+package net.byteseek.io.reader.cache;
+
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.Window;
+import net.byteseek.io.reader.WindowReader;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CompressedCacheTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullBudget() {
+        new CompressedCache(null, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCompressionLevel() {
+        new CompressedCache(new CacheBudget(100), 10);
+    }
+
+    @Test
+    public void testCompressibleWindow() {
+        final CompressedCache cache = new CompressedCache(100000);
+        final List<Window> freed = subscribe(cache);
+        final byte[] zeros = new byte[4096];
+        zeros[100] = 42;
+        final Window window = new Window(zeros, 4096, 4000);
+        cache.addWindow(window);
+        assertEquals(1, freed.size());
+        assertSame(window, freed.get(0));
+        assertTrue("Compressed " + cache, cache.getUsedBytes() < 100);
+        assertEquals(4000, cache.getUncompressedBytes());
+        final Window cached = cache.getWindow(4096);
+        assertNotSame(window, cached);
+        assertEquals(4096, cached.getWindowPosition());
+        assertEquals(4000, cached.length());
+        assertEquals(42, cached.getByte(100));
+        assertEquals(0, cached.getByte(3999));
+    }
+
+    @Test
+    public void testIncompressibleWindowStoredUncompressed() {
+        final CompressedCache cache = new CompressedCache(100000);
+        final byte[] random = new byte[1000];
+        new Random(1).nextBytes(random);
+        cache.addWindow(new Window(random, 0, 1000));
+        assertEquals(1000, cache.getUsedBytes());
+        final Window cached = cache.getWindow(0);
+        assertNotSame("Stored array is not shared", random, cached.getArray());
+        for (int index = 0; index < 1000; index++) {
+            assertEquals(random[index], cached.getByte(index));
+        }
+    }
+
+    @Test
+    public void testBufferWindow() {
+        final CompressedCache cache = new CompressedCache(100000);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(256);
+        for (int index = 0; index < 256; index++) {
+            buffer.put(index, (byte) (index % 7));
+        }
+        cache.addWindow(new Window(buffer, 512, 200));
+        final Window cached = cache.getWindow(512);
+        assertEquals(200, cached.length());
+        for (int index = 0; index < 200; index++) {
+            assertEquals((byte) (index % 7), cached.getByte(index));
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvictedToStayWithinBudget() {
+        final CompressedCache cache = new CompressedCache(2500);
+        final Random random = new Random(2);
+        for (long position = 0; position < 3000; position += 1000) {
+            final byte[] bytes = new byte[1000];
+            random.nextBytes(bytes);
+            cache.addWindow(new Window(bytes, position, 1000));
+        }
+        assertNull(cache.getWindow(0));
+        assertNotNull(cache.getWindow(1000));
+        assertNotNull(cache.getWindow(2000));
+        assertEquals(2000, cache.getUsedBytes());
+        cache.clear();
+        assertEquals(0, cache.getBudget().getUsedBytes());
+        assertNull(cache.getWindow(1000));
+    }
+
+    @Test
+    public void testStreamReaderWithCompressedSecondaryCache() throws IOException {
+        final File file = new File(getClass().getResource("/TestASCII.txt").getPath());
+        final byte[] contents = new byte[(int) file.length()];
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.readFully(contents);
+        } finally {
+            raf.close();
+        }
+        final CompressedCache compressed = new CompressedCache(contents.length);
+        final WindowReader reader = new InputStreamReader(new FileInputStream(file), 1024,
+                TwoLevelCache.create(new MostRecentlyUsedCache(4), compressed));
+        try {
+            for (int pos = 0; pos < contents.length; pos++) {
+                assertByte(reader, contents, pos);
+            }
+            for (int pos = contents.length - 1; pos >= 0; pos -= 5) {
+                assertByte(reader, contents, pos);
+            }
+            assertTrue("Text compresses " + compressed, compressed.getUsedBytes() < compressed.getUncompressedBytes() * 3 / 4);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void assertByte(final WindowReader reader, final byte[] contents, final int pos) throws IOException {
+        final int value = reader.readByte(pos);
+        if (value != (contents[pos] & 0xFF)) {
+            assertEquals("Byte at position " + pos, contents[pos] & 0xFF, value);
+        }
+    }
+
+    private static List<Window> subscribe(final WindowCache cache) {
+        final List<Window> freed = new ArrayList<Window>();
+        cache.subscribe(new WindowCache.WindowObserver() {
+            @Override
+            public void windowFree(final Window window, final WindowCache fromCache) {
+                freed.add(window);
+            }
+        });
+        return freed;
+    }
+}
@@ -0,0 +1,169 @@
+package net.byteseek.io.reader.cache;
+
+import net.byteseek.io.reader.Window;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentClockCacheTest {
+
+    private static byte[] array = new byte[4096];
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroCapacity() {
+        new ConcurrentClockCache(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroStripes() {
+        new ConcurrentClockCache(16, 0);
+    }
+
+    @Test
+    public void testNumberOfStripes() {
+        assertEquals(8, new ConcurrentClockCache(256, 12).getNumberOfStripes());
+        assertEquals("Several windows in each stripe", 2, new ConcurrentClockCache(16, 12).getNumberOfStripes());
+        assertEquals(1, new ConcurrentClockCache(3, 16).getNumberOfStripes());
+        assertEquals(1, new ConcurrentClockCache(1).getNumberOfStripes());
+        assertTrue(new ConcurrentClockCache(64).getNumberOfStripes() <= 8);
+    }
+
+    @Test
+    public void testWindowCachedCorrectly() {
+        final ConcurrentClockCache cache = new ConcurrentClockCache(4, 1);
+        final List<Window> freed = subscribe(cache);
+        assertNull(cache.getWindow(0));
+        final Window window = new Window(array, 0, array.length);
+        cache.addWindow(window);
+        assertSame(window, cache.getWindow(0));
+        cache.addWindow(window);
+        assertTrue("Re-adding a cached window does not free it", freed.isEmpty());
+        final Window duplicate = new Window(array, 0, array.length);
+        cache.addWindow(duplicate);
+        assertSame("First window added is kept", window, cache.getWindow(0));
+        assertEquals(1, cache.size());
+        assertEquals("Duplicate window is freed", 1, freed.size());
+        assertSame(duplicate, freed.get(0));
+    }
+
+    @Test
+    public void testReferencedWindowsSurvive() {
+        final ConcurrentClockCache cache = new ConcurrentClockCache(4, 1);
+        final List<Window> freed = subscribe(cache);
+        for (long position = 0; position < 4 * 4096; position += 4096) {
+            addWindow(cache, position);
+        }
+        assertNotNull(cache.getWindow(0));
+        assertNotNull(cache.getWindow(8192));
+        addWindow(cache, 16384);
+        assertEquals(1, freed.size());
+        assertEquals(4096, freed.get(0).getWindowPosition());
+        assertNull(cache.getWindow(4096));
+        assertNotNull(cache.getWindow(0));
+        assertNotNull(cache.getWindow(8192));
+        assertNotNull(cache.getWindow(16384));
+        assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void testClear() {
+        final ConcurrentClockCache cache = new ConcurrentClockCache(8, 2);
+        final List<Window> freed = subscribe(cache);
+        for (long position = 0; position < 8 * 4096; position += 4096) {
+            addWindow(cache, position);
+        }
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.getWindow(0));
+        assertTrue("No notification on clear", freed.isEmpty());
+        addWindow(cache, 4096);
+        assertNotNull(cache.getWindow(4096));
+    }
+
+    @Test
+    public void testUnsubscribe() {
+        final ConcurrentClockCache cache = new ConcurrentClockCache(1);
+        final WindowCache.WindowObserver observer = new WindowCache.WindowObserver() {
+            @Override
+            public void windowFree(final Window window, final WindowCache fromCache) {
+                fail("Unsubscribed observer notified");
+            }
+        };
+        cache.subscribe(observer);
+        assertTrue(cache.unsubscribe(observer));
+        assertFalse(cache.unsubscribe(observer));
+        addWindow(cache, 0);
+        addWindow(cache, 4096);
+    }
+
+    @Test
+    public void testConcurrentAddsNotifyEachEvictionOnce() throws Exception {
+        final int threads = 8;
+        final int windowsPerThread = 5000;
+        final ConcurrentClockCache cache = new ConcurrentClockCache(64);
+        final Set<Window> freed = Collections.newSetFromMap(new ConcurrentHashMap<Window, Boolean>());
+        final AtomicInteger notifications = new AtomicInteger();
+        cache.subscribe(new WindowCache.WindowObserver() {
+            @Override
+            public void windowFree(final Window window, final WindowCache fromCache) {
+                assertNotSame("Freed window no longer cached", window, cache.getWindow(window.getWindowPosition()));
+                freed.add(window);
+                notifications.incrementAndGet();
+            }
+        });
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Void>> results = new ArrayList<Future<Void>>();
+            for (int thread = 0; thread < threads; thread++) {
+                final int threadNo = thread;
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int count = 0; count < windowsPerThread; count++) {
+                            // Threads overlap in the positions they add, and look up recent windows.
+                            final long position = ((count * 3L + threadNo) % 2000) * 4096;
+                            if (cache.getWindow(position) == null) {
+                                addWindow(cache, position);
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue("Cache within capacity " + cache, cache.size() <= 64);
+        assertEquals("Each evicted window notified once", freed.size(), notifications.get());
+        assertTrue("Windows were evicted", notifications.get() > 0);
+    }
+
+    private static List<Window> subscribe(final WindowCache cache) {
+        final List<Window> freed = new ArrayList<Window>();
+        cache.subscribe(new WindowCache.WindowObserver() {
+            @Override
+            public void windowFree(final Window window, final WindowCache fromCache) {
+                freed.add(window);
+            }
+        });
+        return freed;
+    }
+
+    private static void addWindow(final WindowCache cache, final long position) {
+        cache.addWindow(new Window(array, position, array.length));
+    }
+}
@@ -0,0 +1,200 @@
+package net.byteseek.io.reader.cache;
+
+import net.byteseek.io.reader.FileReader;
+import net.byteseek.io.reader.Window;
+import net.byteseek.io.reader.WindowReader;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DirectMemoryCacheTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroSlotSize() {
+        new DirectMemoryCache(0, 16);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroCapacity() {
+        new DirectMemoryCache(4096, 0);
+    }
+
+    @Test
+    public void testGetNullWindows() {
+        final DirectMemoryCache cache = new DirectMemoryCache(16, 4);
+        assertNull(cache.getWindow(0));
+        assertNull(cache.getWindow(-1));
+        assertEquals(0, cache.getAllocatedBytes());
+    }
+
+    @Test
+    public void testWindowCachedCorrectly() {
+        final DirectMemoryCache cache = new DirectMemoryCache(16, 4);
+        cache.addWindow(window(0, 16));
+        cache.addWindow(window(16, 10));
+        assertWindow(cache.getWindow(0), 0, 16);
+        assertWindow(cache.getWindow(16), 16, 10);
+        assertNull(cache.getWindow(32));
+        assertEquals(2, cache.size());
+        assertEquals(64, cache.getAllocatedBytes());
+    }
+
+    @Test
+    public void testBufferWindowCached() {
+        final DirectMemoryCache cache = new DirectMemoryCache(16, 4);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+        buffer.put(window(32, 16).getArray());
+        cache.addWindow(new Window(buffer, 32, 12));
+        assertWindow(cache.getWindow(32), 32, 12);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        final DirectMemoryCache cache = new DirectMemoryCache(16, 3);
+        cache.addWindow(window(0, 16));
+        cache.addWindow(window(16, 16));
+        cache.addWindow(window(32, 16));
+        assertNotNull(cache.getWindow(0));
+        cache.addWindow(window(48, 16));
+        assertNull("Least recently used window evicted", cache.getWindow(16));
+        assertWindow(cache.getWindow(0), 0, 16);
+        assertWindow(cache.getWindow(32), 32, 16);
+        assertWindow(cache.getWindow(48), 48, 16);
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void testWindowTooLongNotCached() {
+        final DirectMemoryCache cache = new DirectMemoryCache(8, 3);
+        final List<Window> freed = subscribe(cache);
+        final Window window = window(0, 16);
+        cache.addWindow(window);
+        assertNull(cache.getWindow(0));
+        assertEquals(0, cache.size());
+        assertEquals("Observers notified of uncached window", 1, freed.size());
+        assertSame(window, freed.get(0));
+    }
+
+    @Test
+    public void testWindowsNotCopiedOnLookup() {
+        final DirectMemoryCache cache = new DirectMemoryCache(16, 3);
+        cache.addWindow(window(0, 16));
+        final Window cached = cache.getWindow(0);
+        assertSame("Same window returned each time", cached, cache.getWindow(0));
+        assertFalse("Window backed by direct memory", cached.hasArray());
+        assertTrue("Read-only view of the slot", cached.getBuffer().isReadOnly());
+        assertWindow(cached, 0, 16);
+    }
+
+    @Test
+    public void testObserversNotifiedOnEviction() {
+        final DirectMemoryCache cache = new DirectMemoryCache(16, 2);
+        final List<Window> freed = subscribe(cache);
+        final Window window = window(0, 16);
+        final Window duplicate = window(0, 16);
+        cache.addWindow(window);
+        cache.addWindow(window(16, 16));
+        assertEquals("No notification when copied", 0, freed.size());
+        cache.addWindow(duplicate);
+        assertEquals(1, freed.size());
+        assertSame("Duplicate window is not cached", duplicate, freed.get(0));
+        cache.addWindow(window(32, 16));
+        assertEquals(2, freed.size());
+        final Window evicted = freed.get(1);
+        assertTrue("Evicted window copied to the heap", evicted.hasArray());
+        assertWindow(evicted, 0, 16);
+        cache.addWindow(window(48, 16)); // reuses the slot of the evicted window.
+        assertWindow(evicted, 0, 16);
+        assertEquals(2, cache.size());
+    }
+
+    private static List<Window> subscribe(final WindowCache cache) {
+        final List<Window> freed = new ArrayList<Window>();
+        cache.subscribe(new WindowCache.WindowObserver() {
+            @Override
+            public void windowFree(final Window window, final WindowCache fromCache) {
+                freed.add(window);
+            }
+        });
+        return freed;
+    }
+
+    @Test
+    public void testClear() {
+        final DirectMemoryCache cache = new DirectMemoryCache(16, 3);
+        cache.addWindow(window(0, 16));
+        cache.addWindow(window(16, 16));
+        cache.clear();
+        assertNull(cache.getWindow(0));
+        assertNull(cache.getWindow(16));
+        assertEquals(0, cache.size());
+        assertEquals("Direct memory kept", 48, cache.getAllocatedBytes());
+        cache.addWindow(window(16, 16));
+        assertWindow(cache.getWindow(16), 16, 16);
+        assertEquals("Direct memory reused", 48, cache.getAllocatedBytes());
+    }
+
+    @Test
+    public void testSecondaryCacheOfTwoLevelCache() throws IOException {
+        testReader(TwoLevelCache.create(new MostRecentlyUsedCache(4), new DirectMemoryCache(127, 64)));
+    }
+
+    @Test
+    public void testPrimaryCacheOfTwoLevelCache() throws IOException {
+        testReader(TwoLevelCache.create(new DirectMemoryCache(127, 8), new MostRecentlyUsedCache(16)));
+    }
+
+    private void testReader(final WindowCache cache) throws IOException {
+        final File file = new File(getClass().getResource("/TestASCII.txt").getPath());
+        final byte[] contents = new byte[(int) file.length()];
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.readFully(contents);
+        } finally {
+            raf.close();
+        }
+        final WindowReader reader = new FileReader(file, 127, cache);
+        try {
+            for (int pos = 0; pos < contents.length; pos++) {
+                assertByte(reader, contents, pos);
+            }
+            for (int pos = contents.length - 1; pos >= 0; pos -= 3) {
+                assertByte(reader, contents, pos);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void assertByte(final WindowReader reader, final byte[] contents, final int pos) throws IOException {
+        final int value = reader.readByte(pos);
+        if (value != (contents[pos] & 0xFF)) {
+            assertEquals("Byte at position " + pos, contents[pos] & 0xFF, value);
+        }
+    }
+
+    private static Window window(final long position, final int length) {
+        final byte[] bytes = new byte[16];
+        for (int index = 0; index < bytes.length; index++) {
+            bytes[index] = (byte) (position + index);
+        }
+        return new Window(bytes, position, length);
+    }
+
+    private static void assertWindow(final Window window, final long position, final int length) {
+        assertNotNull(window);
+        assertEquals(position, window.getWindowPosition());
+        assertEquals(length, window.length());
+        final byte[] bytes = window.getArray();
+        for (int index = 0; index < length; index++) {
+            assertEquals((byte) (position + index), bytes[index]);
+        }
+    }
+}
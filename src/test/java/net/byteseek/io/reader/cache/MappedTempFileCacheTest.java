@@ -0,0 +1,201 @@
+package net.byteseek.io.reader.cache;
+
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.Window;
+import net.byteseek.io.reader.WindowReader;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class MappedTempFileCacheTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTempDirNotDirectory() {
+        new MappedTempFileCache(getFile("/TestASCII.txt"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroRegionSize() {
+        new MappedTempFileCache(null, 0, null);
+    }
+
+    @Test
+    public void testGetNullWindows() {
+        final MappedTempFileCache cache = new MappedTempFileCache();
+        assertNull(cache.getWindow(0));
+        assertNull(cache.getTempFile());
+    }
+
+    @Test
+    public void testWindowsWrittenAndServedFromMappedFile() throws Exception {
+        final MappedTempFileCache cache = new MappedTempFileCache(null, 100, null);
+        final List<Window> freed = subscribe(cache);
+        final Window first = window(0, 60);
+        final Window second = window(60, 60);
+        final Window longWindow = window(120, 250);
+        cache.addWindow(first);
+        cache.addWindow(second);
+        cache.addWindow(longWindow);
+        cache.addWindow(window(0, 60));
+        final File tempFile = cache.getTempFile();
+        assertNotNull(tempFile);
+        assertTrue(tempFile.exists());
+        waitForWrites(cache);
+        assertEquals("Each window freed once written", 3, freed.size());
+        assertTrue(freed.contains(first));
+        assertTrue(freed.contains(second));
+        assertTrue(freed.contains(longWindow));
+
+        final Window mapped = cache.getWindow(60);
+        assertFalse("Written window served from mapped file", mapped.hasArray());
+        assertWindow(mapped, 60, 60);
+        assertWindow(cache.getWindow(0), 0, 60);
+        final Window read = cache.getWindow(120);
+        assertTrue("Window longer than region is read into an array", read.hasArray());
+        assertWindow(read, 120, 250);
+
+        cache.clear();
+        assertNull(cache.getWindow(0));
+        assertNull(cache.getTempFile());
+    }
+
+    @Test
+    public void testWriteFinishingAfterClearIsIgnored() throws Exception {
+        final ExecutorService writer = Executors.newSingleThreadExecutor();
+        final CountDownLatch releaseFirst = new CountDownLatch(1);
+        final CountDownLatch staleWriteDone = new CountDownLatch(1);
+        final CountDownLatch releaseSecond = new CountDownLatch(1);
+        try {
+            final MappedTempFileCache cache = new MappedTempFileCache(null, 100, writer);
+            final List<Window> freed = subscribe(cache);
+            final Window window = window(0, 60);
+            writer.execute(block(releaseFirst, null));
+            cache.addWindow(window); // write queued behind the blocked task.
+            cache.clear();
+            writer.execute(block(releaseSecond, staleWriteDone));
+            cache.addWindow(window); // written again to a new file.
+            releaseFirst.countDown();
+            staleWriteDone.await();
+            assertSame("Stale write to the cleared file ignored", window, cache.getWindow(0));
+            releaseSecond.countDown();
+            waitForWrites(cache);
+            assertEquals("Window freed once written to the new file", 1, freed.size());
+            assertSame(window, freed.get(0));
+            assertWindow(cache.getWindow(0), 0, 60);
+            cache.clear();
+        } finally {
+            releaseFirst.countDown();
+            releaseSecond.countDown();
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    public void testStreamReaderWithMappedSecondaryCache() throws IOException {
+        final File file = getFile("/TestASCII.txt");
+        final byte[] contents = readFile(file);
+        final MappedTempFileCache tempCache = new MappedTempFileCache(null, 1000, null);
+        final WindowReader reader = new InputStreamReader(new FileInputStream(file), 127,
+                TwoLevelCache.create(new MostRecentlyUsedCache(4), tempCache));
+        try {
+            for (int pos = 0; pos < contents.length; pos++) {
+                assertByte(reader, contents, pos);
+            }
+            for (int pos = contents.length - 1; pos >= 0; pos -= 5) {
+                assertByte(reader, contents, pos);
+            }
+            assertNotNull(tempCache.getTempFile());
+        } finally {
+            reader.close();
+        }
+        assertNull("Temp file deleted on close", tempCache.getTempFile());
+    }
+
+    private static Runnable block(final CountDownLatch release, final CountDownLatch started) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (started != null) {
+                    started.countDown();
+                }
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    private static void waitForWrites(final MappedTempFileCache cache) throws InterruptedException {
+        for (int tries = 0; tries < 1000; tries++) {
+            cache.getWindow(-1); // processes completed writes.
+            if (cache.getPendingWrites() == 0) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        fail("Writes did not complete: " + cache);
+    }
+
+    private static void assertByte(final WindowReader reader, final byte[] contents, final int pos) throws IOException {
+        final int value = reader.readByte(pos);
+        if (value != (contents[pos] & 0xFF)) {
+            assertEquals("Byte at position " + pos, contents[pos] & 0xFF, value);
+        }
+    }
+
+    private static Window window(final long position, final int length) {
+        final byte[] bytes = new byte[length];
+        for (int index = 0; index < length; index++) {
+            bytes[index] = (byte) (position + index);
+        }
+        return new Window(bytes, position, length);
+    }
+
+    private static void assertWindow(final Window window, final long position, final int length) {
+        assertNotNull(window);
+        assertEquals(position, window.getWindowPosition());
+        assertEquals(length, window.length());
+        final byte[] bytes = window.getArray();
+        for (int index = 0; index < length; index++) {
+            assertEquals((byte) (position + index), bytes[index]);
+        }
+    }
+
+    private static List<Window> subscribe(final WindowCache cache) {
+        final List<Window> freed = new ArrayList<Window>();
+        cache.subscribe(new WindowCache.WindowObserver() {
+            @Override
+            public void windowFree(final Window window, final WindowCache fromCache) {
+                freed.add(window);
+            }
+        });
+        return freed;
+    }
+
+    private byte[] readFile(final File file) throws IOException {
+        final byte[] contents = new byte[(int) file.length()];
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.readFully(contents);
+        } finally {
+            raf.close();
+        }
+        return contents;
+    }
+
+    private File getFile(final String resourceName) {
+        return new File(getClass().getResource(resourceName).getPath());
+    }
+}
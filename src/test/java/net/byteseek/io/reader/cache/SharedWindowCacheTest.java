@@ -0,0 +1,201 @@
+package net.byteseek.io.reader.cache;
+
+import net.byteseek.io.reader.ConcurrentFileReader;
+import net.byteseek.io.reader.FileReader;
+import net.byteseek.io.reader.Window;
+import net.byteseek.io.reader.WindowReader;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class SharedWindowCacheTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullBudget() {
+        new SharedWindowCache(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullFile() throws IOException {
+        new SharedWindowCache(1000).forFile(null, 4096);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroWindowSize() throws IOException {
+        new SharedWindowCache(1000).forFile(getFile("/TestASCII.txt"), 0);
+    }
+
+    @Test
+    public void testDefault() {
+        assertSame(SharedWindowCache.getDefault(), SharedWindowCache.getDefault());
+        assertEquals(SharedWindowCache.DEFAULT_BUDGET, SharedWindowCache.getDefault().getBudget().getMaxBytes());
+    }
+
+    @Test
+    public void testReadersOfSameFileShareWindows() throws IOException {
+        final SharedWindowCache shared = new SharedWindowCache(1000000);
+        final File file = getFile("/TestASCII.txt");
+        final File samePath = new File(file.getPath());
+        final FileReader first = new FileReader(file, 4096, shared.forFile(file, 4096));
+        final WindowCache second = shared.forFile(samePath, 4096);
+        final WindowCache otherSize = shared.forFile(file, 1024);
+        final WindowCache otherFile = shared.forFile(getFile("/TestASCII.zip"), 4096);
+        try {
+            final Window window = first.getWindow(8192);
+            assertSame("Window shared", window, second.getWindow(8192));
+            assertNull("Different window size not shared", otherSize.getWindow(8192));
+            assertNull("Different file not shared", otherFile.getWindow(8192));
+        } finally {
+            first.close();
+        }
+        assertNotNull("Windows kept after a reader closes", second.getWindow(8192));
+        shared.clear();
+        assertNull(second.getWindow(8192));
+        assertEquals(0, shared.getBudget().getUsedBytes());
+    }
+
+    @Test
+    public void testModifiedFileNotShared() throws IOException {
+        final File file = File.createTempFile("byteseek", ".tmp");
+        try {
+            writeFile(file, 1000);
+            final SharedWindowCache shared = new SharedWindowCache(1000000);
+            final WindowCache before = shared.forFile(file, 256);
+            before.addWindow(new Window(new byte[256], 0, 256));
+            assertNotNull(shared.forFile(file, 256).getWindow(0));
+            assertTrue(file.setLastModified(file.lastModified() - 10000));
+            assertNull("Modified file not served stale windows", shared.forFile(file, 256).getWindow(0));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testBudgetEnforcedAcrossFiles() throws IOException {
+        final SharedWindowCache shared = new SharedWindowCache(1000);
+        final WindowCache first = shared.forFile(getFile("/TestASCII.txt"), 100);
+        final WindowCache second = shared.forFile(getFile("/TestASCII.zip"), 100);
+        final List<Window> freed = subscribe(first);
+        for (long position = 0; position < 600; position += 100) {
+            first.addWindow(new Window(new byte[100], position, 100));
+        }
+        for (long position = 0; position < 600; position += 100) {
+            second.addWindow(new Window(new byte[100], position, 100));
+        }
+        assertEquals(10, shared.size());
+        assertEquals(1000, shared.getBudget().getUsedBytes());
+        assertEquals("Evictions notified to the view the windows were added through", 2, freed.size());
+        final Window tooBig = new Window(new byte[1001], 0, 1001);
+        shared.forFile(getFile("/TestASCII.txt"), 2000).addWindow(tooBig);
+        assertTrue(shared.getBudget().getUsedBytes() <= 1000);
+    }
+
+    @Test
+    public void testStatisticsRecordedForAllViews() throws IOException {
+        final SharedWindowCache shared = new SharedWindowCache(200);
+        final CacheStatistics statistics = new CacheStatistics();
+        shared.setStatistics(statistics);
+        assertSame(statistics, shared.getStatistics());
+        final WindowCache first = shared.forFile(getFile("/TestASCII.txt"), 100);
+        final WindowCache second = shared.forFile(getFile("/TestASCII.zip"), 100);
+        first.addWindow(new Window(new byte[100], 0, 100));
+        assertNotNull(first.getWindow(0));
+        assertNull(second.getWindow(0));
+        second.addWindow(new Window(new byte[100], 0, 100));
+        second.addWindow(new Window(new byte[100], 100, 100));
+        assertEquals("Hits", 1, statistics.getHits());
+        assertEquals("Misses", 1, statistics.getMisses());
+        assertEquals("Windows freed", 1, statistics.getWindowsFreed());
+    }
+
+    @Test
+    public void testEvictionWhenAllWindowsReferenced() throws IOException {
+        final SharedWindowCache shared = new SharedWindowCache(300);
+        final WindowCache cache = shared.forFile(getFile("/TestASCII.txt"), 100);
+        for (long position = 0; position < 300; position += 100) {
+            cache.addWindow(new Window(new byte[100], position, 100));
+            assertNotNull(cache.getWindow(position));
+        }
+        cache.addWindow(new Window(new byte[100], 300, 100));
+        assertEquals(3, shared.size());
+        assertNotNull(cache.getWindow(300));
+    }
+
+    @Test
+    public void testConcurrentReadersShareCache() throws Exception {
+        final File file = getFile("/TestASCII.txt");
+        final byte[] contents = new byte[(int) file.length()];
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.readFully(contents);
+        } finally {
+            raf.close();
+        }
+        final SharedWindowCache shared = new SharedWindowCache(16 * 1024);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Void>> results = new ArrayList<Future<Void>>();
+            for (int thread = 0; thread < 4; thread++) {
+                final long seed = thread;
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        final WindowReader reader = new ConcurrentFileReader(file, 1024, shared.forFile(file, 1024));
+                        try {
+                            final Random random = new Random(seed);
+                            for (int count = 0; count < 5000; count++) {
+                                final int position = random.nextInt(contents.length);
+                                assertEquals(contents[position] & 0xFF, reader.readByte(position));
+                            }
+                        } finally {
+                            reader.close();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(shared.getBudget().getUsedBytes() <= 16 * 1024);
+    }
+
+    private static void writeFile(final File file, final int length) throws IOException {
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[length]);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static List<Window> subscribe(final WindowCache cache) {
+        final List<Window> freed = new ArrayList<Window>();
+        cache.subscribe(new WindowCache.WindowObserver() {
+            @Override
+            public void windowFree(final Window window, final WindowCache fromCache) {
+                freed.add(window);
+            }
+        });
+        return freed;
+    }
+
+    private File getFile(final String resourceName) {
+        return new File(getClass().getResource(resourceName).getPath());
+    }
+}
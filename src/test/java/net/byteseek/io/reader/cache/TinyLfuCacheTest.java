@@ -0,0 +1,159 @@
+package net.byteseek.io.reader.cache;
+
+import net.byteseek.io.reader.FileReader;
+import net.byteseek.io.reader.Window;
+import net.byteseek.io.reader.WindowReader;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TinyLfuCacheTest {
+
+    private static byte[] array = new byte[512];
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityOne() {
+        new TinyLfuCache(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRecentCapacityNotLessThanCapacity() {
+        new TinyLfuCache(4, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroRecentCapacity() {
+        new TinyLfuCache(4, 0);
+    }
+
+    @Test
+    public void testWindowCachedCorrectly() {
+        final TinyLfuCache cache = new TinyLfuCache(4);
+        assertNull(cache.getWindow(0));
+        final Window window = new Window(array, 0, array.length);
+        cache.addWindow(window);
+        assertSame(window, cache.getWindow(0));
+        cache.addWindow(new Window(array, 0, array.length));
+        assertSame(window, cache.getWindow(0));
+        assertEquals(1, cache.size());
+        cache.clear();
+        assertNull(cache.getWindow(0));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testFrequentWindowSurvivesScan() {
+        final TinyLfuCache cache = new TinyLfuCache(64);
+        final List<Window> freed = subscribe(cache);
+        for (int lookup = 0; lookup < 10; lookup++) {
+            lookupOrAdd(cache, 0);
+        }
+        for (long position = 1; position < 300; position++) {
+            lookupOrAdd(cache, position * 512);
+        }
+        assertNotNull("Frequent window survives the scan", cache.getWindow(0));
+        assertEquals("Cache is full", 64, cache.size());
+        assertEquals("Each window evicted was notified", 300 - cache.size(), freed.size());
+    }
+
+    @Test
+    public void testHitRateAgainstLeastRecentlyUsed() throws IOException {
+        final List<Long> trace = recordTrace();
+        final int capacity = 32;
+        final int lruHits = replay(trace, new MostRecentlyUsedCache(capacity));
+        final int tinyLfuHits = replay(trace, new TinyLfuCache(capacity));
+        assertTrue("There are lookups which miss", lruHits < trace.size());
+        assertTrue("TinyLFU hit rate " + percent(tinyLfuHits, trace.size()) + "% should beat LRU hit rate " +
+                   percent(lruHits, trace.size()) + '%', tinyLfuHits > lruHits);
+    }
+
+    /**
+     * Records the Window lookups made by a reader for a workload of many signatures
+     * checking the header and trailer of a file, interleaved with full scans of it.
+     */
+    private List<Long> recordTrace() throws IOException {
+        final File file = new File(getClass().getResource("/TestASCII.txt").getPath());
+        final RecordingCache recorder = new RecordingCache();
+        final WindowReader reader = new FileReader(file, array.length, recorder);
+        try {
+            final long length = reader.length();
+            for (int round = 0; round < 10; round++) {
+                for (int signature = 0; signature < 8; signature++) {
+                    final int headerBytes = 64 + signature * 128;
+                    for (int position = 0; position < headerBytes; position += 16) {
+                        reader.readByte(position);
+                    }
+                    for (long position = length - headerBytes; position < length; position += 16) {
+                        reader.readByte(position);
+                    }
+                }
+                for (long position = 0; position < length; position += 16) {
+                    reader.readByte(position);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return recorder.trace;
+    }
+
+    private static int replay(final List<Long> trace, final WindowCache cache) {
+        int hits = 0;
+        for (final Long position : trace) {
+            if (cache.getWindow(position) != null) {
+                hits++;
+            } else {
+                cache.addWindow(new Window(array, position, array.length));
+            }
+        }
+        return hits;
+    }
+
+    private static void lookupOrAdd(final WindowCache cache, final long position) {
+        if (cache.getWindow(position) == null) {
+            cache.addWindow(new Window(array, position, array.length));
+        }
+    }
+
+    private static String percent(final int hits, final int total) {
+        return String.format("%.1f", hits * 100.0 / total);
+    }
+
+    private static List<Window> subscribe(final WindowCache cache) {
+        final List<Window> freed = new ArrayList<Window>();
+        cache.subscribe(new WindowCache.WindowObserver() {
+            @Override
+            public void windowFree(final Window window, final WindowCache fromCache) {
+                freed.add(window);
+            }
+        });
+        return freed;
+    }
+
+    /**
+     * A cache which caches nothing, but records the position of every Window looked up in it.
+     */
+    private static final class RecordingCache extends AbstractCache {
+
+        private final List<Long> trace = new ArrayList<Long>();
+
+        @Override
+        public Window getWindow(final long position) {
+            trace.add(position);
+            return null;
+        }
+
+        @Override
+        public void addWindow(final Window window) {
+        }
+
+        @Override
+        public void clear() {
+        }
+    }
+}
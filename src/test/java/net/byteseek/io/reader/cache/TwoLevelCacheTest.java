@@ -0,0 +1,74 @@
+package net.byteseek.io.reader.cache;
+
+import net.byteseek.io.reader.Window;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TwoLevelCacheTest {
+
+    @Test
+    public void testPromotedWindowNotFreedWhileInPrimary() {
+        final MostRecentlyUsedCache primary = new MostRecentlyUsedCache(1);   // holds two windows.
+        final MostRecentlyUsedCache secondary = new MostRecentlyUsedCache(1); // holds two windows.
+        final TwoLevelCache cache = TwoLevelCache.create(primary, secondary);
+        final List<Window> freed = new ArrayList<Window>();
+        cache.subscribe(new WindowCache.WindowObserver() {
+            @Override
+            public void windowFree(final Window window, final WindowCache fromCache) {
+                freed.add(window);
+            }
+        });
+
+        for (int position = 0; position < 400; position += 100) {
+            cache.addWindow(window(position));
+        }
+        final Window promoted = cache.getWindow(0); // secondary hit, promoted to the primary.
+        assertNotNull(promoted);
+        for (int position = 400; position < 600; position += 100) {
+            cache.addWindow(window(position));
+            assertFalse("Promoted window is not freed while in the primary cache",
+                        freed.contains(promoted) && primary.getWindow(0) == promoted);
+        }
+        for (int position = 600; position < 1200; position += 100) {
+            cache.addWindow(window(position));
+        }
+        assertEquals("Promoted window freed once it leaves both caches", 1, count(freed, promoted));
+    }
+
+    @Test
+    public void testWindowsFreedOnce() {
+        final TwoLevelCache cache = TwoLevelCache.create(new MostRecentlyUsedCache(1), new MostRecentlyUsedCache(1));
+        final List<Window> freed = new ArrayList<Window>();
+        cache.subscribe(new WindowCache.WindowObserver() {
+            @Override
+            public void windowFree(final Window window, final WindowCache fromCache) {
+                freed.add(window);
+            }
+        });
+        for (int position = 0; position < 2000; position += 100) {
+            cache.addWindow(window(position));
+            cache.getWindow(position / 2 / 100 * 100);
+        }
+        for (final Window window : freed) {
+            assertEquals("Freed once " + window, 1, count(freed, window));
+        }
+    }
+
+    private static int count(final List<Window> windows, final Window window) {
+        int count = 0;
+        for (final Window candidate : windows) {
+            if (candidate == window) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Window window(final long position) {
+        return new Window(new byte[100], position, 100);
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright Matt Palmer 2017, All rights reserved.
+ * 
+ * This code is licensed under a standard 3-clause BSD license:
+ * 
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.searcher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.byteseek.io.reader.ByteBufferReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.multisequence.TrieMultiSequenceMatcher;
+import net.byteseek.matcher.multisequence.MultiSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.multisequence.set_horspool.SetHorspoolFinalFlagSearcher;
+import net.byteseek.searcher.multisequence.set_horspool.SetHorspoolSearcher;
+import net.byteseek.searcher.multisequence.wu_manber.WuManberOneByteSearcher;
+import net.byteseek.searcher.multisequence.wu_manber.WuManberOneByteTunedSearcher;
+import net.byteseek.searcher.multisequence.wu_manber.WuManberTwoByteSearcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+import net.byteseek.searcher.sequence.horspool.HorspoolFinalFlagSearcher;
+import net.byteseek.searcher.sequence.sunday.SundayQuickSearcher;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that searching a direct ByteBuffer, or a reader whose windows are
+ * direct buffers and slices of larger arrays, finds the same matches as
+ * searching a byte array with the same contents.
+ */
+public class BufferSearchTest {
+
+	private byte[] bytes;
+	private ByteBuffer direct;
+
+	@Before
+	public void setUp() throws IOException {
+		final RandomAccessFile file = new RandomAccessFile(getFile("/TestASCII.txt"), "r");
+		try {
+			bytes = new byte[(int) file.length()];
+			file.readFully(bytes);
+		} finally {
+			file.close();
+		}
+		direct = ByteBuffer.allocateDirect(bytes.length);
+		direct.put(bytes);
+		direct.clear();
+	}
+
+	@Test
+	public void testSequenceSearchers() throws IOException {
+		final SequenceMatcher sequence = new ByteSequenceMatcher(" the ");
+		assertSameMatches(new BoyerMooreHorspoolSearcher(sequence));
+		assertSameMatches(new HorspoolFinalFlagSearcher(sequence));
+		assertSameMatches(new SundayQuickSearcher(sequence));
+	}
+
+	@Test
+	public void testMultiSequenceSearchers() throws IOException {
+		final MultiSequenceMatcher sequences = new TrieMultiSequenceMatcher(Arrays.asList(
+				new ByteSequenceMatcher(" the "), new ByteSequenceMatcher("and"),
+				new ByteSequenceMatcher("Midsommer")));
+		assertSameMatches(new SetHorspoolSearcher(sequences));
+		assertSameMatches(new SetHorspoolFinalFlagSearcher(sequences));
+		assertSameMatches(new WuManberOneByteSearcher(sequences));
+		assertSameMatches(new WuManberOneByteTunedSearcher(sequences));
+		assertSameMatches(new WuManberTwoByteSearcher(sequences));
+	}
+
+	private void assertSameMatches(final Searcher<SequenceMatcher> searcher) throws IOException {
+		final String name = searcher.getClass().getSimpleName();
+		final List<Long> forwardMatches = searchForwards(searcher, false);
+		assertEquals(name + " forwards", forwardMatches, searchForwards(searcher, true));
+		final List<Long> backwardMatches = searchBackwards(searcher, false);
+		assertEquals(name + " backwards", backwardMatches, searchBackwards(searcher, true));
+		assertFalse(name + " finds matches", forwardMatches.isEmpty());
+		final WindowReader reader = createSlicedReader();
+		assertEquals(name + " reader forwards", forwardMatches, searchForwards(searcher, reader));
+		assertEquals(name + " reader last match", backwardMatches.get(0).longValue(),
+				searcher.searchBackwards(reader).get(0).getMatchPosition());
+	}
+
+	private List<Long> searchForwards(final Searcher<SequenceMatcher> searcher, final WindowReader reader)
+			throws IOException {
+		final List<Long> positions = new ArrayList<Long>();
+		long position = 0;
+		List<SearchResult<SequenceMatcher>> results;
+		while (!(results = searcher.searchForwards(reader, position)).isEmpty()) {
+			long lastPosition = position;
+			for (final SearchResult<SequenceMatcher> result : results) {
+				positions.add(result.getMatchPosition());
+				lastPosition = Math.max(lastPosition, result.getMatchPosition());
+			}
+			position = lastPosition + 1;
+		}
+		return positions;
+	}
+
+	/*
+	 * Splits the bytes into alternating direct buffers and slices of a padded array.
+	 */
+	private WindowReader createSlicedReader() {
+		final byte[] padded = new byte[bytes.length + 2];
+		System.arraycopy(bytes, 0, padded, 1, bytes.length);
+		final List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+		int position = 0;
+		boolean slice = true;
+		while (position < bytes.length) {
+			final int length = Math.min(4093, bytes.length - position);
+			if (slice) {
+				buffers.add(ByteBuffer.wrap(padded, position + 1, length).slice());
+			} else {
+				final ByteBuffer buffer = direct.duplicate();
+				buffer.limit(position + length);
+				buffer.position(position);
+				buffers.add(buffer.slice());
+			}
+			slice = !slice;
+			position += length;
+		}
+		return new ByteBufferReader(buffers);
+	}
+
+	private List<Long> searchForwards(final Searcher<SequenceMatcher> searcher, final boolean useBuffer) {
+		final List<Long> positions = new ArrayList<Long>();
+		int position = 0;
+		while (position < bytes.length) {
+			final List<SearchResult<SequenceMatcher>> results = useBuffer ?
+					searcher.searchForwards(direct, position) : searcher.searchForwards(bytes, position);
+			if (results.isEmpty()) {
+				break;
+			}
+			long lastPosition = position;
+			for (final SearchResult<SequenceMatcher> result : results) {
+				positions.add(result.getMatchPosition());
+				lastPosition = Math.max(lastPosition, result.getMatchPosition());
+			}
+			position = (int) lastPosition + 1;
+		}
+		return positions;
+	}
+
+	private List<Long> searchBackwards(final Searcher<SequenceMatcher> searcher, final boolean useBuffer) {
+		final List<Long> positions = new ArrayList<Long>();
+		int position = bytes.length - 1;
+		while (position >= 0) {
+			final List<SearchResult<SequenceMatcher>> results = useBuffer ?
+					searcher.searchBackwards(direct, position) : searcher.searchBackwards(bytes, position);
+			if (results.isEmpty()) {
+				break;
+			}
+			long lastPosition = position;
+			for (final SearchResult<SequenceMatcher> result : results) {
+				positions.add(result.getMatchPosition());
+				lastPosition = Math.min(lastPosition, result.getMatchPosition());
+			}
+			position = (int) lastPosition - 1;
+		}
+		return positions;
+	}
+
+	private File getFile(final String resourceName) {
+		final URL url = this.getClass().getResource(resourceName);
+		return new File(url.getPath());
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright Matt Palmer 2015, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.byteseek.io.reader.ConcurrentFileReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.multisequence.ListMultiSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.searcher.multisequence.MultiSequenceMatcherSearcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+
+public class SearchUtilsTest {
+
+	private static final long[] CHUNK_SIZES = { 1, 2, 7, 100, 4095, 4096, 65536, Long.MAX_VALUE };
+
+	private static ForkJoinPool pool;
+	private static ConcurrentFileReader reader;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		pool = new ForkJoinPool(4);
+		reader = new ConcurrentFileReader(new File(SearchUtilsTest.class.getResource("/TestASCII.txt").getPath()));
+	}
+
+	@AfterClass
+	public static void tearDown() throws IOException {
+		pool.shutdown();
+		reader.close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullPool() throws IOException {
+		SearchUtils.searchAllForwards(new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("the")), reader, null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroChunkSize() throws IOException {
+		SearchUtils.searchAllForwards(new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("the")), reader, pool, 0);
+	}
+
+	@Test
+	public void testParallelSequenceSearch() throws IOException {
+		for (final String pattern : new String[] { "the", "Enter", "e", " a " }) {
+			assertParallelMatchesSequential(new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher(pattern)));
+		}
+	}
+
+	@Test
+	public void testParallelMultiSequenceSearch() throws IOException {
+		final List<byte[]> patterns = new ArrayList<byte[]>();
+		for (final String pattern : new String[] { "the", "he ", "t", "Exit" }) {
+			patterns.add(pattern.getBytes());
+		}
+		assertParallelMatchesSequential(new MultiSequenceMatcherSearcher(new ListMultiSequenceMatcher(patterns)));
+	}
+
+	@Test
+	public void testDefaultChunkSize() throws IOException {
+		final Searcher<?> searcher = new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("the"));
+		assertSameResults("Default chunk size", SearchUtils.searchAllForwards(searcher, reader),
+				SearchUtils.searchAllForwards(searcher, reader, pool));
+	}
+
+	private static <T> void assertParallelMatchesSequential(final Searcher<T> searcher) throws IOException {
+		final List<SearchResult<T>> expected = SearchUtils.searchAllForwards(searcher, (WindowReader) reader);
+		assertFalse("There are matches for " + searcher, expected.isEmpty());
+		for (final long chunkSize : CHUNK_SIZES) {
+			assertSameResults(searcher + " chunk size " + chunkSize, expected,
+					SearchUtils.searchAllForwards(searcher, reader, pool, chunkSize));
+		}
+	}
+
+	private static void assertSameResults(final String description, final List<? extends SearchResult<?>> expected,
+			final List<? extends SearchResult<?>> actual) {
+		assertEquals(description + " number of results", expected.size(), actual.size());
+		long lastPosition = -1;
+		for (int index = 0; index < expected.size(); index++) {
+			final SearchResult<?> expectedResult = expected.get(index);
+			final SearchResult<?> actualResult = actual.get(index);
+			assertEquals(description + " position " + index, expectedResult.getMatchPosition(), actualResult.getMatchPosition());
+			assertSame(description + " object " + index, expectedResult.getMatchingObject(), actualResult.getMatchingObject());
+			assertTrue(description + " in order", actualResult.getMatchPosition() >= lastPosition);
+			lastPosition = actualResult.getMatchPosition();
+		}
+	}
+
+}
@@ -18,6 +18,7 @@ import java.util.List;
 import java.util.Map;
 
 import net.byteseek.io.reader.FileReader;
+import net.byteseek.io.reader.MappedFileReader;
 import net.byteseek.io.reader.WindowReader;
 import net.byteseek.searcher.BackwardSearchIterator;
 import net.byteseek.searcher.ForwardSearchIterator;
@@ -74,6 +75,14 @@ public final class SearcherProfiler {
 		FileReader reader2 = new FileReader(getFile("/TestASCII.zip"));
 		results.profile("ZIP file", reader2, searcher, numberOfSearches);        
 
+		//System.out.println("Profiling " + searcher + " over memory mapped ASCII file.");
+		MappedFileReader mappedReader = new MappedFileReader(getFile("/TestASCII.txt"));
+		results.profile("Mapped ASCII file", mappedReader, searcher, numberOfSearches);
+
+		//System.out.println("Profiling " + searcher + " over memory mapped ZIP file.");
+		MappedFileReader mappedReader2 = new MappedFileReader(getFile("/TestASCII.zip"));
+		results.profile("Mapped ZIP file", mappedReader2, searcher, numberOfSearches);
+
 		return results;
 	}
 